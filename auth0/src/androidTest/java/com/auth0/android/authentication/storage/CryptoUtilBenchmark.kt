@@ -0,0 +1,99 @@
+package com.auth0.android.authentication.storage
+
+import android.content.Context
+import android.os.Build
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import org.junit.After
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.security.KeyStore
+import java.util.*
+
+/**
+ * Measures the encryption and decryption of a credentials sized payload with each of the AES keys of
+ * [CryptoUtil]: the AES key stored protected by the RSA key pair, and the AES key kept in the Android KeyStore.
+ * Runs on a device, since the Android KeyStore isn't available on the JVM.
+ */
+@RunWith(AndroidJUnit4::class)
+public class CryptoUtilBenchmark {
+
+    @get:Rule
+    public val benchmarkRule: BenchmarkRule = BenchmarkRule()
+
+    private val context: Context = InstrumentationRegistry.getInstrumentation().targetContext
+    private val payload = ByteArray(PAYLOAD_SIZE).also { Random(0).nextBytes(it) }
+    private lateinit var storage: SharedPreferencesStorage
+
+    @Before
+    public fun setUp() {
+        storage = SharedPreferencesStorage(context, STORAGE_NAME)
+    }
+
+    @After
+    public fun tearDown() {
+        context.getSharedPreferences(STORAGE_NAME, Context.MODE_PRIVATE).edit().clear().commit()
+        val keyStore = KeyStore.getInstance("AndroidKeyStore")
+        keyStore.load(null)
+        keyStore.deleteEntry("${context.packageName}.$KEY_ALIAS")
+        keyStore.deleteEntry("${context.packageName}.${KEY_ALIAS}_aes")
+    }
+
+    @Test
+    public fun encryptWithTheRSAProtectedAESKey() {
+        val crypto = createCrypto(keyStoreAESKey = false)
+        benchmarkRule.measureRepeated {
+            crypto.encrypt(payload)
+        }
+    }
+
+    @Test
+    public fun decryptWithTheRSAProtectedAESKey() {
+        val crypto = createCrypto(keyStoreAESKey = false)
+        val encrypted = crypto.encrypt(payload)
+        benchmarkRule.measureRepeated {
+            crypto.decrypt(encrypted)
+        }
+    }
+
+    @Test
+    public fun encryptWithTheKeyStoreAESKey() {
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.M)
+        val crypto = createCrypto(keyStoreAESKey = true)
+        benchmarkRule.measureRepeated {
+            crypto.encrypt(payload)
+        }
+    }
+
+    @Test
+    public fun decryptWithTheKeyStoreAESKey() {
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.M)
+        val crypto = createCrypto(keyStoreAESKey = true)
+        val encrypted = crypto.encrypt(payload)
+        benchmarkRule.measureRepeated {
+            crypto.decrypt(encrypted)
+        }
+    }
+
+    /**
+     * Creates the instance and its keys, so that generating them isn't measured.
+     */
+    private fun createCrypto(keyStoreAESKey: Boolean): CryptoUtil {
+        val crypto = CryptoUtil(context, storage, KEY_ALIAS)
+        crypto.setKeyStoreAESKeyMode(keyStoreAESKey)
+        crypto.encrypt(payload)
+        return crypto
+    }
+
+    private companion object {
+        private const val STORAGE_NAME = "com.auth0.benchmark"
+        private const val KEY_ALIAS = "com.auth0.benchmark"
+        // About the size of a set of credentials with a refresh token
+        private const val PAYLOAD_SIZE = 2048
+    }
+}
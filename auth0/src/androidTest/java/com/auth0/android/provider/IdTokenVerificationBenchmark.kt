@@ -0,0 +1,66 @@
+package com.auth0.android.provider
+
+import android.util.Base64
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.auth0.android.request.internal.Jwt
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.*
+
+/**
+ * Measures the claim checks of a valid ID Token through [IdTokenVerifier], which builds an
+ * [IdTokenVerificationPolicy] on every call, against a single policy reused for every token.
+ */
+@RunWith(AndroidJUnit4::class)
+public class IdTokenVerificationBenchmark {
+
+    @get:Rule
+    public val benchmarkRule: BenchmarkRule = BenchmarkRule()
+
+    private val nowMillis = System.currentTimeMillis()
+    private val token = Jwt(createToken(nowMillis / 1000))
+    private val options = IdTokenVerificationOptions(ISSUER, AUDIENCE, null).apply {
+        nonce = NONCE
+        organization = ORGANIZATION
+        maxAge = 3600
+        clock = Date(nowMillis)
+    }
+
+    @Test
+    public fun verifyWithIdTokenVerifier() {
+        val verifier = IdTokenVerifier()
+        benchmarkRule.measureRepeated {
+            verifier.verify(token, options, false)
+        }
+    }
+
+    @Test
+    public fun verifyWithReusedPolicy() {
+        val policy = IdTokenVerificationPolicy(options)
+        benchmarkRule.measureRepeated {
+            policy.verify(token, nowMillis)
+        }
+    }
+
+    private fun createToken(nowSeconds: Long): String {
+        val header = """{"alg":"RS256","typ":"JWT","kid":"key123"}"""
+        val payload = """{"iss":"$ISSUER","sub":"auth0|123456","aud":"$AUDIENCE",""" +
+                """"exp":${nowSeconds + 3600},"iat":$nowSeconds,"auth_time":$nowSeconds,""" +
+                """"nonce":"$NONCE","org_id":"$ORGANIZATION"}"""
+        return "${encode(header)}.${encode(payload)}.${encode("signature")}"
+    }
+
+    private fun encode(value: String): String = Base64.encodeToString(
+        value.toByteArray(), Base64.URL_SAFE or Base64.NO_PADDING or Base64.NO_WRAP
+    )
+
+    private companion object {
+        private const val ISSUER = "https://test.domain.com/"
+        private const val AUDIENCE = "__test_client_id__"
+        private const val NONCE = "__test_nonce__"
+        private const val ORGANIZATION = "org_123"
+    }
+}
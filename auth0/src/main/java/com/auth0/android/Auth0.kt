@@ -3,6 +3,7 @@ package com.auth0.android
 import android.content.Context
 import com.auth0.android.request.DefaultClient
 import com.auth0.android.request.NetworkingClient
+import com.auth0.android.util.Auth0Telemetry
 import com.auth0.android.util.Auth0UserAgent
 import okhttp3.HttpUrl
 import okhttp3.HttpUrl.Companion.toHttpUrlOrNull
@@ -42,6 +43,12 @@ public open class Auth0 @JvmOverloads constructor(
      */
     public var networkingClient: NetworkingClient = DefaultClient()
 
+    /**
+     * The telemetry that the clients, credentials managers and Web Auth logins created from this
+     * instance report their counters and spans to. Reports nothing by default.
+     */
+    public var telemetry: Auth0Telemetry = Auth0Telemetry.NONE
+
     /**
      * Creates a new Auth0 instance with the 'com_auth0_client_id' and 'com_auth0_domain' values
      * defined in the project String resources file.
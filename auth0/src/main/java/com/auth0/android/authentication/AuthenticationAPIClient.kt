@@ -11,6 +11,7 @@ import com.auth0.android.result.Challenge
 import com.auth0.android.result.Credentials
 import com.auth0.android.result.DatabaseUser
 import com.auth0.android.result.UserProfile
+import com.auth0.android.util.Auth0Telemetry
 import com.google.gson.Gson
 import okhttp3.HttpUrl.Companion.toHttpUrl
 import java.io.IOException
@@ -54,6 +55,12 @@ public class AuthenticationAPIClient @VisibleForTesting(otherwise = VisibleForTe
     public val baseURL: String
         get() = auth0.getDomainUrl()
 
+    /**
+     * The telemetry of the [Auth0] instance, for the components that renew credentials with this client.
+     */
+    internal val telemetry: Auth0Telemetry
+        get() = auth0.telemetry
+
     /**
      * Log in a user with email/username and password for a connection/realm.
      * It will use the password-realm grant type for the `/oauth/token` endpoint
@@ -716,16 +723,32 @@ public class AuthenticationAPIClient @VisibleForTesting(otherwise = VisibleForTe
      * @return a request to obtain the JSON Web Keys associated with this Auth0 account.
      */
     public fun fetchJsonWebKeys(): Request<Map<String, PublicKey>, AuthenticationException> {
-        val url = auth0.getDomainUrl().toHttpUrl().newBuilder()
-            .addPathSegment(WELL_KNOWN_PATH)
-            .addPathSegment(JWKS_FILE_PATH)
-            .build()
         val jwksAdapter: JsonAdapter<Map<String, PublicKey>> = forMapOf(
             PublicKey::class.java, gson
         )
-        return factory.get(url.toString(), jwksAdapter)
+        return factory.get(jwksUrl(), jwksAdapter)
+    }
+
+    /**
+     * Creates a new Request to obtain the JSON Web Keys used to sign the tokens, along with the algorithm
+     * each one is declared for.
+     *
+     * @return a request to obtain the signing keys associated with this Auth0 account, by key ID.
+     */
+    @JvmName("fetchSigningKeys")
+    internal fun fetchSigningKeys(): Request<Map<String, JsonWebKey>, AuthenticationException> {
+        val signingKeysAdapter: JsonAdapter<Map<String, JsonWebKey>> = forMapOf(
+            JsonWebKey::class.java, gson
+        )
+        return factory.get(jwksUrl(), signingKeysAdapter)
     }
 
+    private fun jwksUrl(): String = auth0.getDomainUrl().toHttpUrl().newBuilder()
+        .addPathSegment(WELL_KNOWN_PATH)
+        .addPathSegment(JWKS_FILE_PATH)
+        .build()
+        .toString()
+
     /**
      * Helper function to make a request to the /oauth/token endpoint.
      */
@@ -823,5 +846,6 @@ public class AuthenticationAPIClient @VisibleForTesting(otherwise = VisibleForTe
     init {
         val auth0UserAgent = auth0.auth0UserAgent
         factory.setAuth0ClientInfo(auth0UserAgent.value)
+        factory.telemetry = auth0.telemetry
     }
 }
\ No newline at end of file
@@ -0,0 +1,208 @@
+package com.auth0.android.authentication
+
+import android.Manifest
+import android.content.Context
+import android.content.pm.PackageManager
+import android.net.ConnectivityManager
+import android.net.Network
+import android.net.NetworkCapabilities
+import android.net.NetworkRequest
+import android.util.Log
+import androidx.annotation.VisibleForTesting
+import androidx.core.content.ContextCompat
+import com.auth0.android.authentication.storage.Storage
+import com.auth0.android.request.internal.ExponentialBackoff
+import com.auth0.android.request.internal.GsonProvider
+import com.auth0.android.request.internal.newDaemonScheduler
+import com.google.gson.Gson
+import com.google.gson.JsonParseException
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
+
+/**
+ * Queue that revokes refresh tokens in the background, so that logging out doesn't need to wait for the network.
+ * The tokens to revoke are kept in the given Storage until the server confirms the revocation, and are sent
+ * again with an increasing delay while the device is offline or the server is unavailable. Tokens rejected
+ * by the server with any other error are dropped, since retrying wouldn't change the result.
+ *
+ * When created with a Context and the app holds the `ACCESS_NETWORK_STATE` permission, the pending tokens
+ * are also sent as soon as a network becomes available.
+ *
+ * The tokens are kept in plain text, so use a Storage at least as protected as the one the credentials were in.
+ */
+public class TokenRevocationQueue @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE) internal constructor(
+    private val authenticationClient: AuthenticationAPIClient,
+    private val storage: Storage,
+    context: Context?,
+    private val executor: ScheduledExecutorService,
+    private val backoff: ExponentialBackoff
+) {
+    private val gson: Gson = GsonProvider.gson
+    private val lock = Any()
+    private val pending: MutableSet<String> = LinkedHashSet()
+    private var scheduledFlush: ScheduledFuture<*>? = null
+    private val connectivityManager: ConnectivityManager? = context?.let {
+        if (ContextCompat.checkSelfPermission(it, Manifest.permission.ACCESS_NETWORK_STATE) == PackageManager.PERMISSION_GRANTED) {
+            it.getSystemService(Context.CONNECTIVITY_SERVICE) as ConnectivityManager?
+        } else null
+    }
+    private var networkCallback: ConnectivityManager.NetworkCallback? = null
+
+    /**
+     * Creates a new queue that keeps the pending tokens in the given Storage.
+     * Any token left pending by a previous instance is sent right away.
+     *
+     * @param authenticationClient the Auth0 Authentication client to revoke the tokens with.
+     * @param storage              the storage to keep the pending tokens in.
+     */
+    public constructor(authenticationClient: AuthenticationAPIClient, storage: Storage) : this(
+        authenticationClient,
+        storage,
+        null,
+        newDaemonScheduler(THREAD_NAME),
+        ExponentialBackoff()
+    )
+
+    /**
+     * Creates a new queue that keeps the pending tokens in the given Storage, and sends them as soon as a
+     * network becomes available if the app holds the `ACCESS_NETWORK_STATE` permission.
+     * Any token left pending by a previous instance is sent right away.
+     *
+     * @param context              a valid context.
+     * @param authenticationClient the Auth0 Authentication client to revoke the tokens with.
+     * @param storage              the storage to keep the pending tokens in.
+     */
+    public constructor(
+        context: Context,
+        authenticationClient: AuthenticationAPIClient,
+        storage: Storage
+    ) : this(
+        authenticationClient,
+        storage,
+        context.applicationContext,
+        newDaemonScheduler(THREAD_NAME),
+        ExponentialBackoff()
+    )
+
+    init {
+        val stored = storage.retrieveString(KEY_PENDING_TOKENS)
+        if (stored != null) {
+            try {
+                gson.fromJson(stored, Array<String>::class.java)?.let { pending.addAll(it) }
+            } catch (e: JsonParseException) {
+                Log.w(TAG, "The pending token revocations could not be read and will be discarded.", e)
+                storage.remove(KEY_PENDING_TOKENS)
+            }
+        }
+        if (pending.isNotEmpty()) {
+            flush()
+        }
+    }
+
+    /**
+     * The number of tokens waiting to be revoked.
+     */
+    public val pendingCount: Int
+        get() = synchronized(lock) { pending.size }
+
+    /**
+     * Records the given refresh token to be revoked and returns immediately. The revocation is sent in the
+     * background, and retried until it succeeds. Adding a token that is already pending has no effect.
+     *
+     * @param refreshToken the token to revoke.
+     */
+    public fun revoke(refreshToken: String) {
+        synchronized(lock) {
+            if (!pending.add(refreshToken)) {
+                return
+            }
+            persist()
+        }
+        flush()
+    }
+
+    /**
+     * Sends the pending revocations now, without waiting for the next retry.
+     */
+    public fun flush() {
+        backoff.reset()
+        schedule(0)
+    }
+
+    private fun schedule(delayMillis: Long) {
+        synchronized(lock) {
+            scheduledFlush?.cancel(false)
+            scheduledFlush = executor.schedule({ revokePending() }, delayMillis, TimeUnit.MILLISECONDS)
+        }
+    }
+
+    private fun revokePending() {
+        val tokens = synchronized(lock) { pending.toList() }
+        for (token in tokens) {
+            try {
+                authenticationClient.revokeToken(token).execute()
+            } catch (error: AuthenticationException) {
+                if (isTransient(error)) {
+                    // The following tokens would most likely fail the same way
+                    schedule(backoff.nextDelayMillis())
+                    watchConnectivity()
+                    return
+                }
+                Log.w(TAG, "The refresh token could not be revoked and will be discarded.", error)
+            }
+            synchronized(lock) {
+                pending.remove(token)
+                persist()
+            }
+        }
+        backoff.reset()
+        stopWatchingConnectivity()
+    }
+
+    private fun isTransient(error: AuthenticationException): Boolean {
+        return error.isNetworkError || error.statusCode == 429 || error.statusCode >= 500
+    }
+
+    private fun persist() {
+        if (pending.isEmpty()) {
+            storage.remove(KEY_PENDING_TOKENS)
+        } else {
+            storage.store(KEY_PENDING_TOKENS, gson.toJson(pending))
+        }
+    }
+
+    private fun watchConnectivity() {
+        val connectivityManager = connectivityManager ?: return
+        synchronized(lock) {
+            if (networkCallback != null) {
+                return
+            }
+            val callback = object : ConnectivityManager.NetworkCallback() {
+                override fun onAvailable(network: Network) {
+                    flush()
+                }
+            }
+            val request = NetworkRequest.Builder()
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                .build()
+            connectivityManager.registerNetworkCallback(request, callback)
+            networkCallback = callback
+        }
+    }
+
+    private fun stopWatchingConnectivity() {
+        val connectivityManager = connectivityManager ?: return
+        synchronized(lock) {
+            val callback = networkCallback ?: return
+            connectivityManager.unregisterNetworkCallback(callback)
+            networkCallback = null
+        }
+    }
+
+    private companion object {
+        private val TAG = TokenRevocationQueue::class.java.simpleName
+        private const val KEY_PENDING_TOKENS = "com.auth0.pending_token_revocations"
+        private const val THREAD_NAME = "Auth0-TokenRevocationQueue"
+    }
+}
@@ -1,13 +1,32 @@
 package com.auth0.android.authentication.storage
 
+import android.content.BroadcastReceiver
+import android.content.Context
+import android.content.Intent
+import android.content.IntentFilter
+import android.os.Handler
+import android.os.Looper
+import android.os.SystemClock
+import androidx.annotation.IntRange
 import androidx.annotation.VisibleForTesting
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleEventObserver
+import androidx.lifecycle.LifecycleOwner
+import androidx.lifecycle.ProcessLifecycleOwner
+import com.auth0.android.Auth0Exception
 import com.auth0.android.authentication.AuthenticationAPIClient
+import com.auth0.android.authentication.AuthenticationException
 import com.auth0.android.callback.Callback
+import com.auth0.android.request.Request
 import com.auth0.android.result.Credentials
+import com.auth0.android.util.Auth0Telemetry
 import com.auth0.android.util.Clock
 import java.util.*
+import java.util.concurrent.CopyOnWriteArraySet
 import java.util.concurrent.Executor
 import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicBoolean
+import kotlin.math.max
 import kotlin.math.min
 
 /**
@@ -20,6 +39,49 @@ public abstract class BaseCredentialsManager internal constructor(
     private val jwtDecoder: JWTDecoder
 ) {
     private var _clock: Clock = ClockImpl()
+    private val listeners: MutableSet<CredentialsListener> = CopyOnWriteArraySet()
+    // Set by the registration that takes the listeners from none to some, which schedules the expiry check
+    private val listening = AtomicBoolean(false)
+
+    //State for the expiring soon notification, guarded by expiryLock
+    private val expiryLock = Any()
+    private var expiryHandler: Handler? = null
+    private var expiringSoonThresholdMillis = DEFAULT_EXPIRING_SOON_THRESHOLD_SECONDS * 1000L
+    private var knownExpiresAt: Long? = null
+    // When the scheduled event is due, in elapsed realtime since the main thread's clock stops while the device sleeps
+    private var expiringSoonPending = false
+    private var expiringSoonDueAt = 0L
+    private var expiringSoonExpiresAt = 0L
+
+    // Only touched on the main thread, registered while there are listeners
+    private var expiryReevaluation: ExpiryReevaluation? = null
+
+    /**
+     * The application context, used to check the expiring soon event again when the screen is turned on.
+     * Only known by the managers created with a context.
+     */
+    internal var applicationContext: Context? = null
+
+    private var obtainedProcessLifecycle: Lifecycle? = null
+
+    // Only obtained once it's required, since most managers never use it
+    @VisibleForTesting(otherwise = VisibleForTesting.PROTECTED)
+    internal var processLifecycle: Lifecycle
+        get() = obtainedProcessLifecycle
+            ?: ProcessLifecycleOwner.get().lifecycle.also { obtainedProcessLifecycle = it }
+        set(value) {
+            obtainedProcessLifecycle = value
+        }
+
+    //In-memory summary of the stored credentials, written under indexLock and read without locking
+    private val indexLock = Any()
+    @Volatile
+    private var credentialsIndex: CredentialsIndex? = null
+
+    /**
+     * Where the cache hits and renewals are reported. Taken from the [AuthenticationAPIClient] by the public constructors.
+     */
+    internal var telemetry: Auth0Telemetry = Auth0Telemetry.NONE
 
     /**
      * Updates the clock instance used for expiration verification purposes.
@@ -30,6 +92,59 @@ public abstract class BaseCredentialsManager internal constructor(
         this._clock = clock
     }
 
+    /**
+     * Registers a listener to be notified when the credentials are saved, renewed or cleared, and when the Access Token
+     * is about to expire. Saved, renewed and cleared events are delivered on the thread that made the change, while the
+     * expiring soon event is delivered on the main thread. This avoids having to poll [hasValidCredentials] to react
+     * to those changes.
+     *
+     * The expiring soon event is checked again when the app comes to the foreground and, for the managers created with
+     * a context, when the screen is turned on, so that it's delivered promptly after the device slept.
+     *
+     * @param listener the listener to register.
+     */
+    public fun addCredentialsListener(listener: CredentialsListener) {
+        if (!listeners.add(listener) || !listening.compareAndSet(false, true)) {
+            return
+        }
+        synchronized(expiryLock) {
+            if (knownExpiresAt == null) {
+                knownExpiresAt = storedExpiresAt() ?: 0L
+            }
+            scheduleExpiringSoon()
+            mainHandler().post { updateExpiryReevaluation() }
+        }
+    }
+
+    /**
+     * Unregisters a listener previously registered with [addCredentialsListener].
+     *
+     * @param listener the listener to unregister.
+     */
+    public fun removeCredentialsListener(listener: CredentialsListener) {
+        if (listeners.remove(listener) && listeners.isEmpty() && listening.compareAndSet(true, false)) {
+            // Reschedules when a listener was added meanwhile, as the listeners are checked again
+            synchronized(expiryLock) {
+                scheduleExpiringSoon()
+                mainHandler().post { updateExpiryReevaluation() }
+            }
+        }
+    }
+
+    /**
+     * Sets how long before the Access Token expiration the [CredentialsEvent.Type.EXPIRING_SOON] event is delivered.
+     * The default value is 60 seconds.
+     *
+     * @param seconds the time in seconds before the expiration.
+     */
+    public fun setExpiringSoonThreshold(@IntRange(from = 0) seconds: Int) {
+        require(seconds >= 0) { "The expiring soon threshold can't be negative." }
+        synchronized(expiryLock) {
+            expiringSoonThresholdMillis = seconds * 1000L
+            scheduleExpiringSoon()
+        }
+    }
+
     @Throws(CredentialsManagerException::class)
     public abstract fun saveCredentials(credentials: Credentials)
     public abstract fun getCredentials(callback: Callback<Credentials, CredentialsManagerException>)
@@ -43,10 +158,188 @@ public abstract class BaseCredentialsManager internal constructor(
     public abstract fun hasValidCredentials(): Boolean
     public abstract fun hasValidCredentials(minTtl: Long): Boolean
 
+    /**
+     * Executes the request that renews the credentials, reporting it as a [Auth0Telemetry.CREDENTIALS_RENEW] span.
+     */
+    @Throws(Auth0Exception::class)
+    internal fun <T> executeRenewal(request: Request<T, AuthenticationException>): T {
+        val span = telemetry.startSpan(Auth0Telemetry.CREDENTIALS_RENEW)
+        try {
+            val result = request.execute()
+            span.end(null)
+            return result
+        } catch (error: Auth0Exception) {
+            span.end(error)
+            throw error
+        }
+    }
+
     @get:VisibleForTesting(otherwise = VisibleForTesting.PACKAGE_PRIVATE)
     internal val currentTimeInMillis: Long
         get() = _clock.getCurrentTimeMillis()
 
+    /**
+     * The time since boot, including the time the device slept. Unlike [currentTimeInMillis], it can't be changed.
+     */
+    @get:VisibleForTesting(otherwise = VisibleForTesting.PACKAGE_PRIVATE)
+    internal val elapsedRealtime: Long
+        get() = SystemClock.elapsedRealtime()
+
+    /**
+     * Reads the summary of the stored credentials from the storage. Called at most once,
+     * the first time the summary is required, unless it's reset with [updateCredentialsIndex].
+     */
+    internal open fun loadCredentialsIndex(): CredentialsIndex = CredentialsIndex.EMPTY
+
+    /**
+     * The in-memory summary of the stored credentials, loaded from the storage the first time.
+     */
+    internal fun credentialsIndex(): CredentialsIndex {
+        credentialsIndex?.let { return it }
+        synchronized(indexLock) {
+            return credentialsIndex ?: loadCredentialsIndex().also { credentialsIndex = it }
+        }
+    }
+
+    /**
+     * Replaces the in-memory summary of the stored credentials. Must be called every time the stored credentials change.
+     *
+     * @param index the new summary, or null to load it again from the storage the next time it's required.
+     */
+    internal fun updateCredentialsIndex(index: CredentialsIndex?) {
+        synchronized(indexLock) {
+            credentialsIndex = index
+        }
+    }
+
+    /**
+     * Checks the in-memory summary of the stored credentials. Doesn't read the storage once the summary is loaded.
+     *
+     * @param minTtl the minimum time in seconds that the access token should last before expiration.
+     * @return whether there are credentials stored that are not expired, or that can be refreshed.
+     */
+    internal fun hasValidIndexedCredentials(minTtl: Long): Boolean {
+        val index = credentialsIndex()
+        return index.present && !(willExpire(index.expiresAt, minTtl) && !index.canRefresh)
+    }
+
+    /**
+     * The expiration time of the stored credentials, used to schedule the expiring soon event
+     * when the first listener is registered before any change happened.
+     *
+     * @return the expiration time in milliseconds, or null if there are no credentials.
+     */
+    internal open fun storedExpiresAt(): Long? {
+        val index = credentialsIndex()
+        return if (index.present) index.expiresAt else null
+    }
+
+    /**
+     * Notifies the registered listeners about a change on the credentials,
+     * and schedules the expiring soon event for the new credentials.
+     *
+     * @param type      the kind of change.
+     * @param expiresAt the expiration time of the credentials after the change, or null if they were cleared.
+     */
+    internal fun notifyCredentialsChanged(type: CredentialsEvent.Type, expiresAt: Date?) {
+        synchronized(expiryLock) {
+            knownExpiresAt = expiresAt?.time ?: 0L
+            scheduleExpiringSoon()
+        }
+        dispatch(CredentialsEvent(type, expiresAt))
+    }
+
+    private fun dispatch(event: CredentialsEvent) {
+        listeners.forEach { it.onCredentialsChanged(event) }
+    }
+
+    private fun mainHandler(): Handler {
+        return expiryHandler ?: Handler(Looper.getMainLooper()).also { expiryHandler = it }
+    }
+
+    private fun scheduleExpiringSoon() {
+        // The lock doubles as the token that identifies the scheduled notification
+        expiryHandler?.removeCallbacksAndMessages(expiryLock)
+        val expiresAt = knownExpiresAt
+        if (listeners.isEmpty() || expiresAt == null || expiresAt <= 0) {
+            expiringSoonPending = false
+            return
+        }
+        val delay = max(0L, expiresAt - expiringSoonThresholdMillis - currentTimeInMillis)
+        expiringSoonPending = true
+        expiringSoonDueAt = elapsedRealtime + delay
+        expiringSoonExpiresAt = expiresAt
+        postExpiringSoonCheck(delay)
+    }
+
+    private fun postExpiringSoonCheck(delayMillis: Long) {
+        // Uptime stops while the device sleeps, so the check can run late. It's also run by the ExpiryReevaluation
+        mainHandler().postAtTime({ checkExpiringSoon() }, expiryLock, SystemClock.uptimeMillis() + delayMillis)
+    }
+
+    /**
+     * Delivers the expiring soon event if it's due, or schedules the check again for the time that remains.
+     * Called from the main thread.
+     */
+    private fun checkExpiringSoon() {
+        val expiresAt: Long
+        synchronized(expiryLock) {
+            if (!expiringSoonPending) {
+                return
+            }
+            expiryHandler?.removeCallbacksAndMessages(expiryLock)
+            val remaining = expiringSoonDueAt - elapsedRealtime
+            if (remaining > 0) {
+                postExpiringSoonCheck(remaining)
+                return
+            }
+            expiringSoonPending = false
+            expiresAt = expiringSoonExpiresAt
+        }
+        dispatch(CredentialsEvent(CredentialsEvent.Type.EXPIRING_SOON, Date(expiresAt)))
+    }
+
+    /**
+     * Registers the [ExpiryReevaluation] while there are listeners. Called from the main thread.
+     */
+    private fun updateExpiryReevaluation() {
+        val current = expiryReevaluation
+        if (listening.get() && current == null) {
+            expiryReevaluation = ExpiryReevaluation(applicationContext).also { it.register() }
+        } else if (!listening.get() && current != null) {
+            current.unregister()
+            expiryReevaluation = null
+        }
+    }
+
+    /**
+     * Checks the expiring soon event again when the screen is turned on and when the app comes to the foreground,
+     * which includes the process start. The scheduled check is late if the device slept since it was scheduled.
+     */
+    private inner class ExpiryReevaluation(private val context: Context?) :
+        BroadcastReceiver(), LifecycleEventObserver {
+
+        fun register() {
+            context?.registerReceiver(this, IntentFilter(Intent.ACTION_SCREEN_ON))
+            processLifecycle.addObserver(this)
+        }
+
+        fun unregister() {
+            context?.unregisterReceiver(this)
+            processLifecycle.removeObserver(this)
+        }
+
+        override fun onReceive(context: Context, intent: Intent) {
+            checkExpiringSoon()
+        }
+
+        override fun onStateChanged(source: LifecycleOwner, event: Lifecycle.Event) {
+            if (event == Lifecycle.Event.ON_START) {
+                checkExpiringSoon()
+            }
+        }
+    }
+
     /**
      * Checks if the stored scope is the same as the requested one.
      *
@@ -90,4 +383,8 @@ public abstract class BaseCredentialsManager internal constructor(
     protected fun hasExpired(expiresAt: Long): Boolean {
         return expiresAt <= currentTimeInMillis
     }
+
+    private companion object {
+        private const val DEFAULT_EXPIRING_SOON_THRESHOLD_SECONDS = 60
+    }
 }
\ No newline at end of file
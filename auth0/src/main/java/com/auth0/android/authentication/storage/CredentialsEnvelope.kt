@@ -0,0 +1,104 @@
+package com.auth0.android.authentication.storage
+
+import android.util.Base64
+import java.nio.ByteBuffer
+
+/**
+ * Versioned binary record that keeps the encrypted credentials and the metadata required by
+ * [SecureCredentialsManager.hasValidCredentials] in a single storage value.
+ *
+ * Layout: `[version: 1 byte][flags: 1 byte][expiresAt: 8 bytes][encrypted payload]`, Base64 encoded.
+ * The first 10 bytes form the header, which is readable without decrypting anything and is authenticated
+ * as associated data by the cipher, so it can't be altered without invalidating the payload.
+ */
+internal class CredentialsEnvelope(
+    val expiresAt: Long,
+    val canRefresh: Boolean,
+    val payload: ByteArray
+) {
+
+    /**
+     * The header bytes of this envelope, to be used as associated data when encrypting or decrypting the payload.
+     */
+    val header: ByteArray
+        get() = header(expiresAt, canRefresh)
+
+    /**
+     * Serializes this envelope into a single value that can be kept in the Storage.
+     */
+    fun encode(): String {
+        val bytes = ByteBuffer.allocate(HEADER_SIZE + payload.size)
+            .put(header)
+            .put(payload)
+            .array()
+        return Base64.encodeToString(bytes, Base64.NO_WRAP)
+    }
+
+    /**
+     * The metadata of an envelope, available without decoding the payload.
+     */
+    internal class Header(val expiresAt: Long, val canRefresh: Boolean)
+
+    internal companion object {
+        private const val VERSION: Byte = 1
+        private const val FLAG_CAN_REFRESH = 1
+        private const val HEADER_SIZE = 10
+
+        // 12 bytes are encoded into exactly 16 Base64 characters, which covers the whole header
+        private const val ENCODED_HEADER_LENGTH = 16
+
+        fun header(expiresAt: Long, canRefresh: Boolean): ByteArray {
+            return ByteBuffer.allocate(HEADER_SIZE)
+                .put(VERSION)
+                .put((if (canRefresh) FLAG_CAN_REFRESH else 0).toByte())
+                .putLong(expiresAt)
+                .array()
+        }
+
+        /**
+         * Reads only the header of the given encoded envelope.
+         *
+         * @return the header, or null if the value is not an envelope of a known version.
+         */
+        fun readHeader(encoded: String): Header? {
+            if (encoded.length < ENCODED_HEADER_LENGTH) {
+                return null
+            }
+            val bytes = try {
+                Base64.decode(encoded.substring(0, ENCODED_HEADER_LENGTH), Base64.NO_WRAP)
+            } catch (e: IllegalArgumentException) {
+                return null
+            }
+            return parseHeader(ByteBuffer.wrap(bytes))
+        }
+
+        /**
+         * Decodes the given encoded envelope.
+         *
+         * @return the envelope, or null if the value is not an envelope of a known version.
+         */
+        fun decode(encoded: String): CredentialsEnvelope? {
+            val bytes = try {
+                Base64.decode(encoded, Base64.NO_WRAP)
+            } catch (e: IllegalArgumentException) {
+                return null
+            }
+            if (bytes.size <= HEADER_SIZE) {
+                return null
+            }
+            val buffer = ByteBuffer.wrap(bytes)
+            val header = parseHeader(buffer) ?: return null
+            val payload = ByteArray(buffer.remaining())
+            buffer.get(payload)
+            return CredentialsEnvelope(header.expiresAt, header.canRefresh, payload)
+        }
+
+        private fun parseHeader(buffer: ByteBuffer): Header? {
+            if (buffer.remaining() < HEADER_SIZE || buffer.get() != VERSION) {
+                return null
+            }
+            val canRefresh = (buffer.get().toInt() and FLAG_CAN_REFRESH) != 0
+            return Header(buffer.long, canRefresh)
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.auth0.android.authentication.storage
+
+import java.util.*
+
+/**
+ * A change on the credentials kept by a Credentials Manager.
+ *
+ * @param type      the kind of change.
+ * @param expiresAt the expiration time of the credentials after the change, or null if they were cleared.
+ */
+public class CredentialsEvent internal constructor(
+    public val type: Type,
+    public val expiresAt: Date?
+) {
+
+    /**
+     * The kind of change on the credentials.
+     */
+    public enum class Type {
+        /**
+         * New credentials were saved.
+         */
+        SAVED,
+
+        /**
+         * The credentials were renewed using the Refresh Token.
+         */
+        RENEWED,
+
+        /**
+         * The credentials were removed.
+         */
+        CLEARED,
+
+        /**
+         * The Access Token will expire within the threshold set with [BaseCredentialsManager.setExpiringSoonThreshold].
+         */
+        EXPIRING_SOON
+    }
+
+    override fun toString(): String {
+        return "CredentialsEvent(type=$type, expiresAt=$expiresAt)"
+    }
+}
@@ -0,0 +1,21 @@
+package com.auth0.android.authentication.storage
+
+/**
+ * Immutable summary of the stored credentials, kept in memory so that [BaseCredentialsManager.hasValidCredentials]
+ * can be answered without reading the storage or touching the stored values.
+ *
+ * @param present    whether there are credentials stored.
+ * @param expiresAt  the expiration time of the Access Token, in milliseconds. 0 when unknown.
+ * @param canRefresh whether a Refresh Token is stored.
+ * @param scope      the scope granted to the Access Token, or null when unknown.
+ */
+internal class CredentialsIndex(
+    val present: Boolean,
+    val expiresAt: Long,
+    val canRefresh: Boolean,
+    val scope: String?
+) {
+    internal companion object {
+        val EMPTY = CredentialsIndex(false, 0L, false, null)
+    }
+}
@@ -0,0 +1,16 @@
+package com.auth0.android.authentication.storage
+
+/**
+ * Listener notified when the credentials kept by a Credentials Manager change.
+ *
+ * @see BaseCredentialsManager.addCredentialsListener
+ */
+public interface CredentialsListener {
+
+    /**
+     * Method called when the credentials were saved, renewed or cleared, or are about to expire.
+     *
+     * @param event the change that happened.
+     */
+    public fun onCredentialsChanged(event: CredentialsEvent)
+}
@@ -5,11 +5,19 @@ import androidx.annotation.VisibleForTesting
 import com.auth0.android.authentication.AuthenticationAPIClient
 import com.auth0.android.authentication.AuthenticationException
 import com.auth0.android.callback.Callback
+import com.auth0.android.request.internal.GsonProvider
+import com.auth0.android.result.APICredentials
 import com.auth0.android.result.Credentials
+import com.auth0.android.util.Auth0Telemetry
+import com.google.gson.Gson
+import com.google.gson.JsonParseException
+import com.google.gson.annotations.SerializedName
 import kotlinx.coroutines.suspendCancellableCoroutine
 import java.util.*
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.Executor
 import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicReference
 import kotlin.coroutines.resume
 import kotlin.coroutines.resumeWithException
 
@@ -22,6 +30,14 @@ public class CredentialsManager @VisibleForTesting(otherwise = VisibleForTesting
     jwtDecoder: JWTDecoder,
     private val serialExecutor: Executor
 ) : BaseCredentialsManager(authenticationClient, storage, jwtDecoder) {
+    private val cachedCredentials = AtomicReference<CachedCredentials?>()
+    // Incremented every time the credentials are cleared, guarded by cachedCredentials. A read or renewal only
+    // keeps its result when this value didn't change since it started
+    @Volatile
+    private var generation = 0L
+    private val apiCredentials: MutableMap<String, APICredentials> = ConcurrentHashMap()
+    private val gson: Gson = GsonProvider.gson
+
     /**
      * Creates a new instance of the manager that will store the credentials in the given Storage.
      *
@@ -31,16 +47,36 @@ public class CredentialsManager @VisibleForTesting(otherwise = VisibleForTesting
     public constructor(authenticationClient: AuthenticationAPIClient, storage: Storage) : this(
         authenticationClient,
         storage,
-        JWTDecoder(),
         Executors.newSingleThreadExecutor()
     )
 
+    /**
+     * Creates a new instance of the manager whose operations run on the given serial executor.
+     */
+    internal constructor(
+        authenticationClient: AuthenticationAPIClient,
+        storage: Storage,
+        serialExecutor: Executor
+    ) : this(
+        authenticationClient,
+        storage,
+        JWTDecoder(),
+        serialExecutor
+    ) {
+        telemetry = authenticationClient.telemetry
+    }
+
     /**
      * Stores the given credentials in the storage. Must have an access_token or id_token and a expires_in value.
      *
      * @param credentials the credentials to save in the storage.
      */
     override fun saveCredentials(credentials: Credentials) {
+        storeCredentials(credentials)
+        notifyCredentialsChanged(CredentialsEvent.Type.SAVED, credentials.expiresAt)
+    }
+
+    private fun storeCredentials(credentials: Credentials) {
         if (TextUtils.isEmpty(credentials.accessToken) && TextUtils.isEmpty(credentials.idToken)) {
             throw CredentialsManagerException("Credentials must have a valid date of expiration and a valid access_token or id_token value.")
         }
@@ -51,6 +87,15 @@ public class CredentialsManager @VisibleForTesting(otherwise = VisibleForTesting
         storage.store(KEY_EXPIRES_AT, credentials.expiresAt.time)
         storage.store(KEY_SCOPE, credentials.scope)
         storage.store(LEGACY_KEY_CACHE_EXPIRES_AT, credentials.expiresAt.time)
+        cachedCredentials.set(CachedCredentials(credentials))
+        updateCredentialsIndex(
+            CredentialsIndex(
+                true,
+                credentials.expiresAt.time,
+                credentials.refreshToken != null,
+                credentials.scope
+            )
+        )
     }
 
     /**
@@ -141,6 +186,8 @@ public class CredentialsManager @VisibleForTesting(otherwise = VisibleForTesting
      * Retrieves the credentials from the storage and refresh them if they have already expired.
      * It will fail with [CredentialsManagerException] if the saved access_token or id_token is null,
      * or if the tokens have already expired and the refresh_token is null.
+     * When the credentials kept in memory are valid, the callback is called right away on the calling thread.
+     * Otherwise, it's called on a background thread once the credentials are read or renewed.
      *
      * @param callback the callback that will receive a valid [Credentials] or the [CredentialsManagerException].
      */
@@ -152,6 +199,8 @@ public class CredentialsManager @VisibleForTesting(otherwise = VisibleForTesting
      * Retrieves the credentials from the storage and refresh them if they have already expired.
      * It will fail with [CredentialsManagerException] if the saved access_token or id_token is null,
      * or if the tokens have already expired and the refresh_token is null.
+     * When the credentials kept in memory are valid, the callback is called right away on the calling thread.
+     * Otherwise, it's called on a background thread once the credentials are read or renewed.
      *
      * @param scope    the scope to request for the access token. If null is passed, the previous scope will be kept.
      * @param minTtl   the minimum time in seconds that the access token should last before expiration.
@@ -169,6 +218,8 @@ public class CredentialsManager @VisibleForTesting(otherwise = VisibleForTesting
      * Retrieves the credentials from the storage and refresh them if they have already expired.
      * It will fail with [CredentialsManagerException] if the saved access_token or id_token is null,
      * or if the tokens have already expired and the refresh_token is null.
+     * When the credentials kept in memory are valid, the callback is called right away on the calling thread.
+     * Otherwise, it's called on a background thread once the credentials are read or renewed.
      *
      * @param scope    the scope to request for the access token. If null is passed, the previous scope will be kept.
      * @param minTtl   the minimum time in seconds that the access token should last before expiration.
@@ -188,6 +239,8 @@ public class CredentialsManager @VisibleForTesting(otherwise = VisibleForTesting
      * Retrieves the credentials from the storage and refresh them if they have already expired.
      * It will fail with [CredentialsManagerException] if the saved access_token or id_token is null,
      * or if the tokens have already expired and the refresh_token is null.
+     * When the credentials kept in memory are valid, the callback is called right away on the calling thread.
+     * Otherwise, it's called on a background thread once the credentials are read or renewed.
      *
      * @param scope    the scope to request for the access token. If null is passed, the previous scope will be kept.
      * @param minTtl   the minimum time in seconds that the access token should last before expiration.
@@ -202,7 +255,17 @@ public class CredentialsManager @VisibleForTesting(otherwise = VisibleForTesting
         forceRefresh: Boolean,
         callback: Callback<Credentials, CredentialsManagerException>
     ) {
+        if (!forceRefresh) {
+            val cached = validCachedCredentials(scope, minTtl)
+            if (cached != null) {
+                telemetry.increment(Auth0Telemetry.CREDENTIALS_CACHE_HIT)
+                callback.onSuccess(cached)
+                return
+            }
+        }
+        telemetry.increment(Auth0Telemetry.CREDENTIALS_CACHE_MISS)
         serialExecutor.execute {
+            val readGeneration = generation
             val accessToken = storage.retrieveString(KEY_ACCESS_TOKEN)
             val refreshToken = storage.retrieveString(KEY_REFRESH_TOKEN)
             val idToken = storage.retrieveString(KEY_ID_TOKEN)
@@ -218,16 +281,16 @@ public class CredentialsManager @VisibleForTesting(otherwise = VisibleForTesting
             val willAccessTokenExpire = willExpire(expiresAt!!, minTtl.toLong())
             val scopeChanged = hasScopeChanged(storedScope, scope)
             if (!forceRefresh && !willAccessTokenExpire && !scopeChanged) {
-                callback.onSuccess(
-                    recreateCredentials(
-                        idToken.orEmpty(),
-                        accessToken.orEmpty(),
-                        tokenType.orEmpty(),
-                        refreshToken,
-                        Date(expiresAt),
-                        storedScope
-                    )
+                val credentials = recreateCredentials(
+                    idToken.orEmpty(),
+                    accessToken.orEmpty(),
+                    tokenType.orEmpty(),
+                    refreshToken,
+                    Date(expiresAt),
+                    storedScope
                 )
+                cacheStoredCredentials(credentials, readGeneration)
+                callback.onSuccess(credentials)
                 return@execute
             }
             if (refreshToken == null) {
@@ -241,20 +304,11 @@ public class CredentialsManager @VisibleForTesting(otherwise = VisibleForTesting
             }
 
             try {
-                val fresh = request.execute()
+                val fresh = executeRenewal(request)
                 val expiresAt = fresh.expiresAt.time
                 val willAccessTokenExpire = willExpire(expiresAt, minTtl.toLong())
                 if (willAccessTokenExpire) {
-                    val tokenLifetime = (expiresAt - currentTimeInMillis - minTtl * 1000) / -1000
-                    val wrongTtlException = CredentialsManagerException(
-                        String.format(
-                            Locale.getDefault(),
-                            "The lifetime of the renewed Access Token (%d) is less than the minTTL requested (%d). Increase the 'Token Expiration' setting of your Auth0 API in the dashboard, or request a lower minTTL.",
-                            tokenLifetime,
-                            minTtl
-                        )
-                    )
-                    callback.onFailure(wrongTtlException)
+                    callback.onFailure(wrongTtlException(expiresAt, minTtl))
                     return@execute
                 }
 
@@ -269,7 +323,234 @@ public class CredentialsManager @VisibleForTesting(otherwise = VisibleForTesting
                     fresh.expiresAt,
                     fresh.scope
                 )
-                saveCredentials(credentials)
+                storeCredentials(credentials)
+                notifyCredentialsChanged(CredentialsEvent.Type.RENEWED, credentials.expiresAt)
+                callback.onSuccess(credentials)
+            } catch (error: AuthenticationException) {
+                callback.onFailure(
+                    CredentialsManagerException(
+                        "An error occurred while trying to use the Refresh Token to renew the Credentials.",
+                        error
+                    )
+                )
+            }
+        }
+    }
+
+    /**
+     * Returns the stored credentials right away, on the calling thread, if they don't need to be renewed.
+     * This never performs a network request: when the credentials are expired or about to, or the scope
+     * doesn't match, null is returned and [getCredentials] should be used instead to renew them.
+     *
+     * @return the valid credentials, or null if there are none or they need to be renewed.
+     */
+    public fun getCredentialsIfValid(): Credentials? {
+        return getCredentialsIfValid(null, 0)
+    }
+
+    /**
+     * Returns the stored credentials right away, on the calling thread, if they don't need to be renewed.
+     * This never performs a network request: when the credentials are expired or about to, or the scope
+     * doesn't match, null is returned and [getCredentials] should be used instead to renew them.
+     * The credentials are kept in memory after the first time they're read or saved, so only the first call
+     * reads the storage.
+     *
+     * @param scope  the scope the access token must have. If null is passed, the scope is not checked.
+     * @param minTtl the minimum time in seconds that the access token should last before expiration.
+     * @return the valid credentials, or null if there are none or they need to be renewed.
+     */
+    public fun getCredentialsIfValid(scope: String?, minTtl: Int): Credentials? {
+        if (cachedCredentials.get() == null) {
+            val readGeneration = generation
+            readStoredCredentials()?.let { cacheStoredCredentials(it, readGeneration) }
+        }
+        return validCachedCredentials(scope, minTtl)
+    }
+
+    /**
+     * Retrieves the credentials for the given API, requesting them with the stored refresh_token if they
+     * are missing or have expired. The credentials of each audience and scope pair are kept separately,
+     * each one with its own expiration, so requesting the credentials of one API doesn't renew the others.
+     * It will fail with [CredentialsManagerException] if new credentials are needed and the refresh_token is null.
+     * This is a Coroutine that is exposed only for Kotlin.
+     *
+     * @param audience the identifier of the API the access token is for.
+     */
+    @JvmSynthetic
+    @Throws(CredentialsManagerException::class)
+    public suspend fun awaitApiCredentials(audience: String): APICredentials {
+        return awaitApiCredentials(audience, null, 0)
+    }
+
+    /**
+     * Retrieves the credentials for the given API, requesting them with the stored refresh_token if they
+     * are missing or have expired. The credentials of each audience and scope pair are kept separately,
+     * each one with its own expiration, so requesting the credentials of one API doesn't renew the others.
+     * It will fail with [CredentialsManagerException] if new credentials are needed and the refresh_token is null.
+     * This is a Coroutine that is exposed only for Kotlin.
+     *
+     * @param audience the identifier of the API the access token is for.
+     * @param scope    the scope to request for the access token. If null is passed, the default scope of the API is used.
+     * @param minTtl   the minimum time in seconds that the access token should last before expiration.
+     */
+    @JvmSynthetic
+    @Throws(CredentialsManagerException::class)
+    public suspend fun awaitApiCredentials(audience: String, scope: String?, minTtl: Int): APICredentials {
+        return awaitApiCredentials(audience, scope, minTtl, emptyMap())
+    }
+
+    /**
+     * Retrieves the credentials for the given API, requesting them with the stored refresh_token if they
+     * are missing or have expired. The credentials of each audience and scope pair are kept separately,
+     * each one with its own expiration, so requesting the credentials of one API doesn't renew the others.
+     * It will fail with [CredentialsManagerException] if new credentials are needed and the refresh_token is null.
+     * This is a Coroutine that is exposed only for Kotlin.
+     *
+     * @param audience   the identifier of the API the access token is for.
+     * @param scope      the scope to request for the access token. If null is passed, the default scope of the API is used.
+     * @param minTtl     the minimum time in seconds that the access token should last before expiration.
+     * @param parameters additional parameters to send in the request to obtain the credentials.
+     */
+    @JvmSynthetic
+    @Throws(CredentialsManagerException::class)
+    public suspend fun awaitApiCredentials(
+        audience: String,
+        scope: String?,
+        minTtl: Int,
+        parameters: Map<String, String>
+    ): APICredentials {
+        return suspendCancellableCoroutine { continuation ->
+            getApiCredentials(
+                audience,
+                scope,
+                minTtl,
+                parameters,
+                object : Callback<APICredentials, CredentialsManagerException> {
+                    override fun onSuccess(result: APICredentials) {
+                        continuation.resume(result)
+                    }
+
+                    override fun onFailure(error: CredentialsManagerException) {
+                        continuation.resumeWithException(error)
+                    }
+                })
+        }
+    }
+
+    /**
+     * Retrieves the credentials for the given API, requesting them with the stored refresh_token if they
+     * are missing or have expired. The credentials of each audience and scope pair are kept separately,
+     * each one with its own expiration, so requesting the credentials of one API doesn't renew the others.
+     * It will fail with [CredentialsManagerException] if new credentials are needed and the refresh_token is null.
+     *
+     * @param audience the identifier of the API the access token is for.
+     * @param callback the callback that will receive valid [APICredentials] or the [CredentialsManagerException].
+     */
+    public fun getApiCredentials(
+        audience: String,
+        callback: Callback<APICredentials, CredentialsManagerException>
+    ) {
+        getApiCredentials(audience, null, 0, callback)
+    }
+
+    /**
+     * Retrieves the credentials for the given API, requesting them with the stored refresh_token if they
+     * are missing or have expired. The credentials of each audience and scope pair are kept separately,
+     * each one with its own expiration, so requesting the credentials of one API doesn't renew the others.
+     * It will fail with [CredentialsManagerException] if new credentials are needed and the refresh_token is null.
+     *
+     * @param audience the identifier of the API the access token is for.
+     * @param scope    the scope to request for the access token. If null is passed, the default scope of the API is used.
+     * @param minTtl   the minimum time in seconds that the access token should last before expiration.
+     * @param callback the callback that will receive valid [APICredentials] or the [CredentialsManagerException].
+     */
+    public fun getApiCredentials(
+        audience: String,
+        scope: String?,
+        minTtl: Int,
+        callback: Callback<APICredentials, CredentialsManagerException>
+    ) {
+        getApiCredentials(audience, scope, minTtl, emptyMap(), callback)
+    }
+
+    /**
+     * Retrieves the credentials for the given API, requesting them with the stored refresh_token if they
+     * are missing or have expired. The credentials of each audience and scope pair are kept separately,
+     * each one with its own expiration, so requesting the credentials of one API doesn't renew the others.
+     * It will fail with [CredentialsManagerException] if new credentials are needed and the refresh_token is null.
+     * If the refresh_token is rotated by the server, the stored one is replaced.
+     *
+     * @param audience   the identifier of the API the access token is for.
+     * @param scope      the scope to request for the access token. If null is passed, the default scope of the API is used.
+     * @param minTtl     the minimum time in seconds that the access token should last before expiration.
+     * @param parameters additional parameters to send in the request to obtain the credentials.
+     * @param callback   the callback that will receive valid [APICredentials] or the [CredentialsManagerException].
+     */
+    public fun getApiCredentials(
+        audience: String,
+        scope: String?,
+        minTtl: Int,
+        parameters: Map<String, String>,
+        callback: Callback<APICredentials, CredentialsManagerException>
+    ) {
+        val key = apiCredentialsKey(audience, scope)
+        val cached = apiCredentials[key]
+        if (cached != null && !willExpire(cached.expiresAt.time, minTtl.toLong())) {
+            telemetry.increment(Auth0Telemetry.CREDENTIALS_CACHE_HIT)
+            callback.onSuccess(cached)
+            return
+        }
+        telemetry.increment(Auth0Telemetry.CREDENTIALS_CACHE_MISS)
+        serialExecutor.execute {
+            val requestGeneration = generation
+            val stored = apiCredentials[key] ?: readApiCredentials(key)
+            if (stored != null && !willExpire(stored.expiresAt.time, minTtl.toLong())) {
+                synchronized(cachedCredentials) {
+                    if (generation == requestGeneration) {
+                        apiCredentials[key] = stored
+                    }
+                }
+                callback.onSuccess(stored)
+                return@execute
+            }
+            val refreshToken = storage.retrieveString(KEY_REFRESH_TOKEN)
+            if (refreshToken == null) {
+                callback.onFailure(CredentialsManagerException("Credentials need to be renewed but no Refresh Token is available to renew them."))
+                return@execute
+            }
+            val request = authenticationClient.renewAuth(refreshToken)
+            request.addParameters(parameters)
+            request.addParameter("audience", audience)
+            if (scope != null) {
+                request.addParameter("scope", scope)
+            }
+
+            try {
+                val fresh = executeRenewal(request)
+                val expiresAt = fresh.expiresAt.time
+                if (willExpire(expiresAt, minTtl.toLong())) {
+                    callback.onFailure(wrongTtlException(expiresAt, minTtl))
+                    return@execute
+                }
+
+                val credentials =
+                    APICredentials(fresh.accessToken, fresh.type, fresh.expiresAt, fresh.scope ?: scope)
+                val cleared = synchronized(cachedCredentials) {
+                    if (generation != requestGeneration) {
+                        return@synchronized true
+                    }
+                    // refresh token rotation scenarios
+                    val rotatedRefreshToken = fresh.refreshToken
+                    if (!TextUtils.isEmpty(rotatedRefreshToken) && rotatedRefreshToken != refreshToken) {
+                        updateRefreshToken(rotatedRefreshToken!!)
+                    }
+                    storeApiCredentials(key, credentials)
+                    false
+                }
+                if (cleared) {
+                    callback.onFailure(CredentialsManagerException("The credentials were cleared while the API credentials were being renewed."))
+                    return@execute
+                }
                 callback.onSuccess(credentials)
             } catch (error: AuthenticationException) {
                 callback.onFailure(
@@ -293,34 +574,176 @@ public class CredentialsManager @VisibleForTesting(otherwise = VisibleForTesting
 
     /**
      * Checks if a non-expired pair of credentials can be obtained from this manager.
+     * The storage is only read the first time. After that, the check is answered from an in-memory summary that
+     * is updated when this manager saves or clears the credentials.
      *
      * @param minTtl the minimum time in seconds that the access token should last before expiration.
      * @return whether there are valid credentials stored on this manager.
      */
     override fun hasValidCredentials(minTtl: Long): Boolean {
+        return hasValidIndexedCredentials(minTtl)
+    }
+
+    /**
+     * Removes the credentials from the storage if present, including the credentials obtained for other APIs.
+     */
+    override fun clearCredentials() {
+        // Under the lock, so that a read or renewal that started before doesn't write its result back afterwards
+        synchronized(cachedCredentials) {
+            generation++
+            storage.remove(KEY_ACCESS_TOKEN)
+            storage.remove(KEY_REFRESH_TOKEN)
+            storage.remove(KEY_ID_TOKEN)
+            storage.remove(KEY_TOKEN_TYPE)
+            storage.remove(KEY_EXPIRES_AT)
+            storage.remove(KEY_SCOPE)
+            storage.remove(LEGACY_KEY_CACHE_EXPIRES_AT)
+            cachedCredentials.set(null)
+            clearApiCredentials()
+        }
+        updateCredentialsIndex(CredentialsIndex.EMPTY)
+        notifyCredentialsChanged(CredentialsEvent.Type.CLEARED, null)
+    }
+
+    override fun loadCredentialsIndex(): CredentialsIndex {
         val accessToken = storage.retrieveString(KEY_ACCESS_TOKEN)
         val refreshToken = storage.retrieveString(KEY_REFRESH_TOKEN)
         val idToken = storage.retrieveString(KEY_ID_TOKEN)
         val expiresAt = storage.retrieveLong(KEY_EXPIRES_AT)
         val emptyCredentials =
             TextUtils.isEmpty(accessToken) && TextUtils.isEmpty(idToken) || expiresAt == null
-        return !(emptyCredentials || willExpire(
-            expiresAt!!,
-            minTtl
-        ) && refreshToken == null)
+        if (emptyCredentials) {
+            return CredentialsIndex.EMPTY
+        }
+        return CredentialsIndex(true, expiresAt!!, refreshToken != null, storage.retrieveString(KEY_SCOPE))
     }
 
     /**
-     * Removes the credentials from the storage if present.
+     * Keeps the credentials read from the storage in memory, unless they were cleared since the read started
+     * or other credentials were kept meanwhile.
      */
-    override fun clearCredentials() {
-        storage.remove(KEY_ACCESS_TOKEN)
-        storage.remove(KEY_REFRESH_TOKEN)
-        storage.remove(KEY_ID_TOKEN)
-        storage.remove(KEY_TOKEN_TYPE)
-        storage.remove(KEY_EXPIRES_AT)
-        storage.remove(KEY_SCOPE)
-        storage.remove(LEGACY_KEY_CACHE_EXPIRES_AT)
+    private fun cacheStoredCredentials(credentials: Credentials, readGeneration: Long) {
+        synchronized(cachedCredentials) {
+            if (generation == readGeneration) {
+                cachedCredentials.compareAndSet(null, CachedCredentials(credentials))
+            }
+        }
+    }
+
+    private fun validCachedCredentials(scope: String?, minTtl: Int): Credentials? {
+        val cached = cachedCredentials.get() ?: return null
+        if (willExpire(cached.credentials.expiresAt.time, minTtl.toLong())) {
+            return null
+        }
+        if (scope != null && !cached.hasScope(scope)) {
+            return null
+        }
+        return cached.credentials
+    }
+
+    private fun wrongTtlException(expiresAt: Long, minTtl: Int): CredentialsManagerException {
+        val tokenLifetime = (expiresAt - currentTimeInMillis - minTtl * 1000) / -1000
+        return CredentialsManagerException(
+            String.format(
+                Locale.getDefault(),
+                "The lifetime of the renewed Access Token (%d) is less than the minTTL requested (%d). Increase the 'Token Expiration' setting of your Auth0 API in the dashboard, or request a lower minTTL.",
+                tokenLifetime,
+                minTtl
+            )
+        )
+    }
+
+    /**
+     * Replaces the rotated refresh token. Called with the lock of [cachedCredentials] held.
+     */
+    private fun updateRefreshToken(refreshToken: String) {
+        storage.store(KEY_REFRESH_TOKEN, refreshToken)
+        val cached = cachedCredentials.get()?.credentials ?: return
+        val credentials = Credentials(
+            cached.idToken,
+            cached.accessToken,
+            cached.type,
+            refreshToken,
+            cached.expiresAt,
+            cached.scope
+        )
+        cachedCredentials.set(CachedCredentials(credentials))
+    }
+
+    private fun apiCredentialsKey(audience: String, scope: String?): String {
+        val sortedScope = scope.orEmpty().split(" ").filter { it.isNotEmpty() }.sorted().joinToString(" ")
+        return "$audience::$sortedScope"
+    }
+
+    private fun readApiCredentials(key: String): APICredentials? {
+        val json = storage.retrieveString(KEY_API_CREDENTIALS_PREFIX + key) ?: return null
+        val entry = try {
+            gson.fromJson(json, ApiCredentialsEntry::class.java)
+        } catch (e: JsonParseException) {
+            null
+        }
+        if (entry?.accessToken == null) {
+            return null
+        }
+        return APICredentials(entry.accessToken, entry.type.orEmpty(), Date(entry.expiresAt), entry.scope)
+    }
+
+    private fun storeApiCredentials(key: String, credentials: APICredentials) {
+        val entry = ApiCredentialsEntry(
+            credentials.accessToken,
+            credentials.type,
+            credentials.expiresAt.time,
+            credentials.scope
+        )
+        storage.store(KEY_API_CREDENTIALS_PREFIX + key, gson.toJson(entry))
+        synchronized(apiCredentials) {
+            if (apiCredentials.put(key, credentials) == null) {
+                val keys = readApiCredentialsKeys()
+                if (keys.add(key)) {
+                    storage.store(KEY_API_CREDENTIALS_KEYS, gson.toJson(keys))
+                }
+            }
+        }
+    }
+
+    private fun clearApiCredentials() {
+        synchronized(apiCredentials) {
+            val keys = readApiCredentialsKeys()
+            keys.addAll(apiCredentials.keys)
+            keys.forEach { storage.remove(KEY_API_CREDENTIALS_PREFIX + it) }
+            if (keys.isNotEmpty()) {
+                storage.remove(KEY_API_CREDENTIALS_KEYS)
+            }
+            apiCredentials.clear()
+        }
+    }
+
+    private fun readApiCredentialsKeys(): MutableSet<String> {
+        val keys = LinkedHashSet<String>()
+        val json = storage.retrieveString(KEY_API_CREDENTIALS_KEYS) ?: return keys
+        try {
+            gson.fromJson(json, Array<String>::class.java)?.let { keys.addAll(it) }
+        } catch (e: JsonParseException) {
+            // The index is unreadable. Entries that can't be listed are replaced as they're requested again
+        }
+        return keys
+    }
+
+    private fun readStoredCredentials(): Credentials? {
+        val accessToken = storage.retrieveString(KEY_ACCESS_TOKEN)
+        val idToken = storage.retrieveString(KEY_ID_TOKEN)
+        val expiresAt = storage.retrieveLong(KEY_EXPIRES_AT)
+        if (TextUtils.isEmpty(accessToken) && TextUtils.isEmpty(idToken) || expiresAt == null) {
+            return null
+        }
+        return recreateCredentials(
+            idToken.orEmpty(),
+            accessToken.orEmpty(),
+            storage.retrieveString(KEY_TOKEN_TYPE).orEmpty(),
+            storage.retrieveString(KEY_REFRESH_TOKEN),
+            Date(expiresAt),
+            storage.retrieveString(KEY_SCOPE)
+        )
     }
 
     @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE)
@@ -335,6 +758,42 @@ public class CredentialsManager @VisibleForTesting(otherwise = VisibleForTesting
         return Credentials(idToken, accessToken, tokenType, refreshToken, expiresAt, scope)
     }
 
+    /**
+     * Credentials kept in memory, along with their scope already split into a set
+     * so that it can be compared with the requested one without sorting.
+     */
+    private class CachedCredentials(val credentials: Credentials) {
+        private val scopes = scopeSet(credentials.scope)
+
+        @Volatile
+        private var lastMatchedScope: String? = null
+
+        fun hasScope(requiredScope: String): Boolean {
+            if (requiredScope == lastMatchedScope) {
+                return true
+            }
+            val matches = scopeSet(requiredScope) == scopes
+            if (matches) {
+                lastMatchedScope = requiredScope
+            }
+            return matches
+        }
+
+        private fun scopeSet(scope: String?): Set<String> {
+            return scope.orEmpty().split(" ").filterTo(HashSet()) { it.isNotEmpty() }
+        }
+    }
+
+    /**
+     * The persisted form of [APICredentials], keeping the expiration as epoch milliseconds.
+     */
+    private class ApiCredentialsEntry(
+        @field:SerializedName("access_token") val accessToken: String?,
+        @field:SerializedName("token_type") val type: String?,
+        @field:SerializedName("expires_at") val expiresAt: Long,
+        @field:SerializedName("scope") val scope: String?
+    )
+
     private companion object {
         private const val KEY_ACCESS_TOKEN = "com.auth0.access_token"
         private const val KEY_REFRESH_TOKEN = "com.auth0.refresh_token"
@@ -345,5 +804,7 @@ public class CredentialsManager @VisibleForTesting(otherwise = VisibleForTesting
         // This is no longer used as we get the credentials expiry from the access token only,
         // but we still store it so users can rollback to versions where it is required.
         private const val LEGACY_KEY_CACHE_EXPIRES_AT = "com.auth0.cache_expires_at"
+        private const val KEY_API_CREDENTIALS_KEYS = "com.auth0.api_credentials_keys"
+        private const val KEY_API_CREDENTIALS_PREFIX = "com.auth0.api_credentials."
     }
 }
\ No newline at end of file
@@ -14,11 +14,15 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 
+import com.auth0.android.util.Auth0Telemetry;
+
 import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
+import java.security.Key;
 import java.security.KeyPairGenerator;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
@@ -27,6 +31,7 @@ import java.security.NoSuchProviderException;
 import java.security.PrivateKey;
 import java.security.ProviderException;
 import java.security.UnrecoverableEntryException;
+import java.security.UnrecoverableKeyException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.spec.AlgorithmParameterSpec;
@@ -38,6 +43,7 @@ import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.KeyGenerator;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import javax.security.auth.x500.X500Principal;
@@ -63,14 +69,25 @@ class CryptoUtil {
     private static final String ALGORITHM_AES = "AES";
     private static final int AES_KEY_SIZE = 256;
     private static final int RSA_KEY_SIZE = 2048;
+    private static final int GCM_TAG_LENGTH = 128;
+
+    // Leading byte of the output of the inline IV methods, identifying how the key was obtained
+    private static final byte FORMAT_RSA_WRAPPED_AES_KEY = 1;
+    private static final byte FORMAT_KEYSTORE_AES_KEY = 2;
+    private static final int INLINE_IV_HEADER_SIZE = 2;
 
     private final String OLD_KEY_ALIAS;
     private final String OLD_KEY_IV_ALIAS;
     private final String KEY_ALIAS;
     private final String KEY_IV_ALIAS;
+    private final String AES_KEY_ALIAS;
     private final Storage storage;
     private final Context context;
 
+    private volatile boolean keyStoreAESKeyMode;
+    @NonNull
+    private volatile Auth0Telemetry telemetry = Auth0Telemetry.NONE;
+
     public CryptoUtil(@NonNull Context context, @NonNull Storage storage, @NonNull String keyAlias) {
         keyAlias = keyAlias.trim();
         if (TextUtils.isEmpty(keyAlias)) {
@@ -81,10 +98,35 @@ class CryptoUtil {
         this.OLD_KEY_IV_ALIAS = keyAlias + iv_suffix;
         this.KEY_ALIAS = context.getPackageName() + "." + keyAlias;
         this.KEY_IV_ALIAS = context.getPackageName() + "." + keyAlias + iv_suffix;
+        this.AES_KEY_ALIAS = context.getPackageName() + "." + keyAlias + "_aes";
         this.context = context;
         this.storage = storage;
     }
 
+    /**
+     * Sets where the encryption, decryption and KeyStore key retrieval times are reported.
+     */
+    void setTelemetry(@NonNull Auth0Telemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    /**
+     * Provisions the keys required to encrypt, generating them if they don't exist yet.
+     * Generating a new RSA key pair can take a considerable amount of time, so this is meant to be
+     * called ahead of time from a background thread. The key methods are synchronized, so any
+     * encryption or decryption started in the meantime will wait for the provisioning to complete.
+     *
+     * @throws CryptoException             if the stored keys can't be recovered and have been deleted. Operation can be retried.
+     * @throws IncompatibleDeviceException in the event the device can't understand the cryptographic settings required
+     */
+    public void warmUp() throws CryptoException, IncompatibleDeviceException {
+        if (isKeyStoreAESKeyModeActive()) {
+            getKeyStoreAESKey();
+        } else {
+            getAESKey();
+        }
+    }
+
     /**
      * Attempts to recover the existing RSA Private Key entry or generates a new one as secure as
      * this device and Android version allows it if none is found.
@@ -94,7 +136,11 @@ class CryptoUtil {
      * @throws IncompatibleDeviceException in the event the device can't understand the cryptographic settings required by this method
      */
     @VisibleForTesting
-    KeyStore.PrivateKeyEntry getRSAKeyEntry() throws CryptoException, IncompatibleDeviceException {
+    synchronized KeyStore.PrivateKeyEntry getRSAKeyEntry() throws CryptoException, IncompatibleDeviceException {
+        return traced(Auth0Telemetry.KEYSTORE_KEY, this::loadRSAKeyEntry);
+    }
+
+    private KeyStore.PrivateKeyEntry loadRSAKeyEntry() throws CryptoException, IncompatibleDeviceException {
         try {
             KeyStore keyStore = KeyStore.getInstance(ANDROID_KEY_STORE);
             keyStore.load(null);
@@ -353,6 +399,140 @@ class CryptoUtil {
         }
     }
 
+    /**
+     * Makes this instance use an AES key generated and kept inside the Android KeyStore, instead of the
+     * AES key that is stored protected by the RSA key pair. Only available on API 23 and up; on lower
+     * versions this setting is ignored. Input encrypted with the RSA protected key can still be decrypted
+     * until new input is encrypted and stored, after which {@link #completeKeyStoreAESKeyMigration()} deletes
+     * that key.
+     * <p>
+     * Disabling this setting after the migration completed doesn't bring the RSA protected key back: the next
+     * attempt to decrypt the input encrypted with the Android KeyStore AES key fails, and the caller is expected
+     * to discard that input.
+     *
+     * @param enabled whether to use the Android KeyStore AES key or not.
+     */
+    void setKeyStoreAESKeyMode(boolean enabled) {
+        this.keyStoreAESKeyMode = enabled;
+    }
+
+    /**
+     * Whether the Android KeyStore AES key should be used to encrypt new input.
+     */
+    @VisibleForTesting
+    boolean isKeyStoreAESKeyModeActive() {
+        return keyStoreAESKeyMode && Build.VERSION.SDK_INT >= Build.VERSION_CODES.M;
+    }
+
+    /**
+     * Whether input encrypted by {@link #encrypt(byte[])} must be decrypted with the Android KeyStore AES key.
+     * That is the case once the AES key protected by the RSA key pair has been deleted.
+     */
+    private boolean shouldDecryptWithKeyStoreAESKey() {
+        return isKeyStoreAESKeyModeActive() && !hasRSAProtectedAESKey();
+    }
+
+    private boolean hasRSAProtectedAESKey() {
+        return !TextUtils.isEmpty(storage.retrieveString(KEY_ALIAS))
+                || !TextUtils.isEmpty(storage.retrieveString(OLD_KEY_ALIAS));
+    }
+
+    /**
+     * Attempts to recover the existing AES Key from the Android KeyStore or generates a new one if none is found.
+     * The key never leaves the KeyStore, so no RSA operation is required to use it.
+     *
+     * @return a valid AES Key
+     * @throws IncompatibleDeviceException in the event the device can't understand the cryptographic settings required
+     * @throws CryptoException             if the stored AES key can't be recovered and should be deemed invalid
+     */
+    @VisibleForTesting
+    synchronized SecretKey getKeyStoreAESKey() throws IncompatibleDeviceException, CryptoException {
+        return traced(Auth0Telemetry.KEYSTORE_KEY, this::loadKeyStoreAESKey);
+    }
+
+    private SecretKey loadKeyStoreAESKey() throws IncompatibleDeviceException, CryptoException {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            throw new IncompatibleDeviceException(new UnsupportedOperationException("AES keys are only available in the Android KeyStore on API 23 and up."));
+        }
+        try {
+            KeyStore keyStore = KeyStore.getInstance(ANDROID_KEY_STORE);
+            keyStore.load(null);
+            Key existingKey = keyStore.getKey(AES_KEY_ALIAS, null);
+            if (existingKey instanceof SecretKey) {
+                return (SecretKey) existingKey;
+            }
+            KeyGenParameterSpec spec = new KeyGenParameterSpec.Builder(AES_KEY_ALIAS, KeyProperties.PURPOSE_DECRYPT | KeyProperties.PURPOSE_ENCRYPT)
+                    .setKeySize(AES_KEY_SIZE)
+                    .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                    .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                    .build();
+            KeyGenerator keyGen = KeyGenerator.getInstance(ALGORITHM_AES, ANDROID_KEY_STORE);
+            keyGen.init(spec);
+            return keyGen.generateKey();
+        } catch (CertificateException | InvalidAlgorithmParameterException | NoSuchProviderException | NoSuchAlgorithmException | KeyStoreException | ProviderException e) {
+            /*
+             * Same cases as in #getRSAKeyEntry. The device would not be compatible with this key mode.
+             */
+            Log.e(TAG, "The device can't generate a new AES Key in the Android KeyStore.", e);
+            throw new IncompatibleDeviceException(e);
+        } catch (IOException | UnrecoverableKeyException e) {
+            /*
+             * Any of this exceptions mean the existing key is somehow corrupted.
+             * We can delete it and let the user retry the operation.
+             */
+            deleteKeyStoreAESKey();
+            throw new CryptoException("The existing AES key could not be recovered and has been deleted. You can safely retry this operation.", e);
+        }
+    }
+
+    /**
+     * Removes the AES key kept in the Android KeyStore.
+     */
+    private void deleteKeyStoreAESKey() {
+        try {
+            KeyStore keyStore = KeyStore.getInstance(ANDROID_KEY_STORE);
+            keyStore.load(null);
+            keyStore.deleteEntry(AES_KEY_ALIAS);
+            Log.d(TAG, "Deleting the existing AES key from the KeyStore.");
+        } catch (KeyStoreException | CertificateException | IOException | NoSuchAlgorithmException e) {
+            Log.e(TAG, "Failed to remove the AES Key from the Android KeyStore.", e);
+        }
+    }
+
+    /**
+     * Deletes the AES key protected by the RSA key pair when the Android KeyStore AES key mode is active.
+     * Must only be called once the input encrypted with the Android KeyStore AES key has been stored, so that
+     * the previously stored input can still be decrypted if that doesn't happen.
+     */
+    void completeKeyStoreAESKeyMigration() {
+        if (isKeyStoreAESKeyModeActive()) {
+            deleteRSAProtectedAESKey();
+        }
+    }
+
+    /**
+     * Removes the AES key protected by the RSA key pair, once input is encrypted with the Android KeyStore AES key.
+     * The RSA key pair is kept, as it can be shared with other instances using the same alias.
+     */
+    private void deleteRSAProtectedAESKey() {
+        if (!TextUtils.isEmpty(storage.retrieveString(KEY_ALIAS))) {
+            storage.remove(KEY_ALIAS);
+        }
+        if (!TextUtils.isEmpty(storage.retrieveString(OLD_KEY_ALIAS))) {
+            storage.remove(OLD_KEY_ALIAS);
+        }
+    }
+
+    /**
+     * Obtains the key to encrypt new input with, depending on the key mode.
+     */
+    private SecretKey getEncryptionKey() throws IncompatibleDeviceException, CryptoException {
+        if (isKeyStoreAESKeyModeActive()) {
+            return getKeyStoreAESKey();
+        }
+        return new SecretKeySpec(getAESKey(), ALGORITHM_AES);
+    }
+
     /**
      * Attempts to recover the existing AES Key or generates a new one if none is found.
      *
@@ -361,7 +541,7 @@ class CryptoUtil {
      * @throws CryptoException             if the stored RSA keys can't be recovered and should be deemed invalid
      */
     @VisibleForTesting
-    byte[] getAESKey() throws IncompatibleDeviceException, CryptoException {
+    synchronized byte[] getAESKey() throws IncompatibleDeviceException, CryptoException {
         String encodedEncryptedAES = storage.retrieveString(KEY_ALIAS);
         if (TextUtils.isEmpty(encodedEncryptedAES)) {
             encodedEncryptedAES = storage.retrieveString(OLD_KEY_ALIAS);
@@ -404,7 +584,7 @@ class CryptoUtil {
 
     /**
      * Encrypts the given input bytes using a symmetric key (AES).
-     * The AES key is stored protected by an asymmetric key pair (RSA).
+     * The AES key is stored protected by an asymmetric key pair (RSA), unless the Android KeyStore AES key mode is enabled.
      *
      * @param encryptedInput the input bytes to decrypt. There's no limit in size.
      * @return the decrypted output bytes
@@ -412,8 +592,27 @@ class CryptoUtil {
      * @throws IncompatibleDeviceException in the event the device can't understand the cryptographic settings required
      */
     public byte[] decrypt(byte[] encryptedInput) throws CryptoException, IncompatibleDeviceException {
+        return traced(Auth0Telemetry.CRYPTO_DECRYPT, () -> decryptWithStoredIV(encryptedInput));
+    }
+
+    private byte[] decryptWithStoredIV(byte[] encryptedInput) throws CryptoException, IncompatibleDeviceException {
+        if (isKeyStoreAESKeyModeActive() && hasRSAProtectedAESKey()) {
+            /*
+             * The input encrypted with the Android KeyStore AES key could have been stored without the
+             * migration completing afterwards. The RSA protected key is still the most likely one.
+             */
+            try {
+                return decryptWithStoredIV(encryptedInput, false);
+            } catch (CryptoException e) {
+                return decryptWithStoredIV(encryptedInput, true);
+            }
+        }
+        return decryptWithStoredIV(encryptedInput, shouldDecryptWithKeyStoreAESKey());
+    }
+
+    private byte[] decryptWithStoredIV(byte[] encryptedInput, boolean keyStoreKey) throws CryptoException, IncompatibleDeviceException {
         try {
-            SecretKey key = new SecretKeySpec(getAESKey(), ALGORITHM_AES);
+            SecretKey key = keyStoreKey ? getKeyStoreAESKey() : new SecretKeySpec(getAESKey(), ALGORITHM_AES);
             Cipher cipher = Cipher.getInstance(AES_TRANSFORMATION);
             String encodedIV = storage.retrieveString(KEY_IV_ALIAS);
             if (TextUtils.isEmpty(encodedIV)) {
@@ -424,7 +623,9 @@ class CryptoUtil {
                 }
             }
             byte[] iv = Base64.decode(encodedIV, Base64.DEFAULT);
-            cipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(iv));
+            //Keys kept in the Android KeyStore only accept GCM parameters
+            AlgorithmParameterSpec parameterSpec = keyStoreKey ? new GCMParameterSpec(GCM_TAG_LENGTH, iv) : new IvParameterSpec(iv);
+            cipher.init(Cipher.DECRYPT_MODE, key, parameterSpec);
             return cipher.doFinal(encryptedInput);
         } catch (NoSuchAlgorithmException | NoSuchPaddingException | InvalidKeyException | InvalidAlgorithmParameterException e) {
             /*
@@ -458,7 +659,7 @@ class CryptoUtil {
 
     /**
      * Encrypts the given input bytes using a symmetric key (AES).
-     * The AES key is stored protected by an asymmetric key pair (RSA).
+     * The AES key is stored protected by an asymmetric key pair (RSA), unless the Android KeyStore AES key mode is enabled.
      *
      * @param decryptedInput the input bytes to encrypt. There's no limit in size.
      * @return the encrypted output bytes
@@ -466,8 +667,12 @@ class CryptoUtil {
      * @throws IncompatibleDeviceException in the event the device can't understand the cryptographic settings required
      */
     public byte[] encrypt(byte[] decryptedInput) throws CryptoException, IncompatibleDeviceException {
+        return traced(Auth0Telemetry.CRYPTO_ENCRYPT, () -> encryptWithStoredIV(decryptedInput));
+    }
+
+    private byte[] encryptWithStoredIV(byte[] decryptedInput) throws CryptoException, IncompatibleDeviceException {
         try {
-            SecretKey key = new SecretKeySpec(getAESKey(), ALGORITHM_AES);
+            SecretKey key = getEncryptionKey();
             Cipher cipher = Cipher.getInstance(AES_TRANSFORMATION);
             cipher.init(Cipher.ENCRYPT_MODE, key);
             byte[] encrypted = cipher.doFinal(decryptedInput);
@@ -506,4 +711,103 @@ class CryptoUtil {
         }
     }
 
+    /**
+     * Encrypts the given input bytes using a symmetric key (AES), authenticating the given associated data along with it.
+     * Unlike {@link #encrypt(byte[])}, the IV is not kept in the Storage but prepended to the output, so the result
+     * is self-contained and can be stored as a single value.
+     *
+     * @param decryptedInput the input bytes to encrypt. There's no limit in size.
+     * @param associatedData additional bytes that are not encrypted but must be given back to decrypt the output.
+     * @return the encrypted output bytes, prefixed by the format and the IV used.
+     * @throws CryptoException             if the RSA Key pair was deemed invalid and got deleted. Operation can be retried.
+     * @throws IncompatibleDeviceException in the event the device can't understand the cryptographic settings required
+     */
+    public byte[] encryptWithInlineIV(byte[] decryptedInput, byte[] associatedData) throws CryptoException, IncompatibleDeviceException {
+        return traced(Auth0Telemetry.CRYPTO_ENCRYPT, () -> encryptInline(decryptedInput, associatedData));
+    }
+
+    private byte[] encryptInline(byte[] decryptedInput, byte[] associatedData) throws CryptoException, IncompatibleDeviceException {
+        try {
+            byte format = isKeyStoreAESKeyModeActive() ? FORMAT_KEYSTORE_AES_KEY : FORMAT_RSA_WRAPPED_AES_KEY;
+            SecretKey key = getEncryptionKey();
+            Cipher cipher = Cipher.getInstance(AES_TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, key);
+            cipher.updateAAD(associatedData);
+            byte[] encrypted = cipher.doFinal(decryptedInput);
+            byte[] iv = cipher.getIV();
+            return ByteBuffer.allocate(INLINE_IV_HEADER_SIZE + iv.length + encrypted.length)
+                    .put(format)
+                    .put((byte) iv.length)
+                    .put(iv)
+                    .put(encrypted)
+                    .array();
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException | InvalidKeyException e) {
+            // Same cases as in #encrypt
+            Log.e(TAG, "Error while encrypting the input.", e);
+            throw new IncompatibleDeviceException(e);
+        } catch (IllegalBlockSizeException | BadPaddingException e) {
+            throw new CryptoException("The AES decrypted input is invalid.", e);
+        }
+    }
+
+    /**
+     * Decrypts the output of {@link #encryptWithInlineIV(byte[], byte[])}, reading the IV from the input itself.
+     *
+     * @param encryptedInput the input bytes to decrypt, as returned when encrypted.
+     * @param associatedData the same associated data given when the input was encrypted.
+     * @return the decrypted output bytes
+     * @throws CryptoException             if the RSA Key pair was deemed invalid and got deleted, or the input or associated data were tampered with.
+     * @throws IncompatibleDeviceException in the event the device can't understand the cryptographic settings required
+     */
+    public byte[] decryptWithInlineIV(byte[] encryptedInput, byte[] associatedData) throws CryptoException, IncompatibleDeviceException {
+        return traced(Auth0Telemetry.CRYPTO_DECRYPT, () -> decryptInline(encryptedInput, associatedData));
+    }
+
+    private byte[] decryptInline(byte[] encryptedInput, byte[] associatedData) throws CryptoException, IncompatibleDeviceException {
+        if (encryptedInput.length < INLINE_IV_HEADER_SIZE
+                || (encryptedInput[0] != FORMAT_RSA_WRAPPED_AES_KEY && encryptedInput[0] != FORMAT_KEYSTORE_AES_KEY)) {
+            throw new CryptoException("The encrypted input has an unknown format and cannot be recovered. Please discard it.", null);
+        }
+        int ivLength = encryptedInput[1] & 0xFF;
+        int offset = INLINE_IV_HEADER_SIZE + ivLength;
+        if (ivLength == 0 || encryptedInput.length < offset) {
+            throw new CryptoException("The AES encrypted input is corrupted and cannot be recovered. Please discard it.", null);
+        }
+        try {
+            SecretKey key = encryptedInput[0] == FORMAT_KEYSTORE_AES_KEY ? getKeyStoreAESKey() : new SecretKeySpec(getAESKey(), ALGORITHM_AES);
+            Cipher cipher = Cipher.getInstance(AES_TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_LENGTH, encryptedInput, INLINE_IV_HEADER_SIZE, ivLength));
+            cipher.updateAAD(associatedData);
+            return cipher.doFinal(encryptedInput, offset, encryptedInput.length - offset);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException | InvalidKeyException | InvalidAlgorithmParameterException e) {
+            // Same cases as in #decrypt
+            Log.e(TAG, "Error while decrypting the input.", e);
+            throw new IncompatibleDeviceException(e);
+        } catch (BadPaddingException | IllegalBlockSizeException e) {
+            /*
+             * With GCM, an AEADBadTagException (subclass of BadPaddingException) is thrown when either
+             * the input or the associated data don't match what was authenticated on encryption.
+             */
+            throw new CryptoException("The AES encrypted input is corrupted and cannot be recovered. Please discard it.", e);
+        }
+    }
+
+    /**
+     * Runs the given operation as a span of the current telemetry.
+     */
+    private <T> T traced(@NonNull String name, @NonNull CryptoOperation<T> operation) throws CryptoException, IncompatibleDeviceException {
+        Auth0Telemetry.Span span = telemetry.startSpan(name);
+        try {
+            T result = operation.run();
+            span.end(null);
+            return result;
+        } catch (RuntimeException e) {
+            span.end(e);
+            throw e;
+        }
+    }
+
+    private interface CryptoOperation<T> {
+        T run() throws CryptoException, IncompatibleDeviceException;
+    }
 }
@@ -0,0 +1,384 @@
+package com.auth0.android.authentication.storage
+
+import android.content.Context
+import androidx.annotation.VisibleForTesting
+import com.auth0.android.authentication.AuthenticationAPIClient
+import com.auth0.android.callback.Callback
+import com.auth0.android.request.internal.GsonProvider
+import com.auth0.android.result.Credentials
+import com.auth0.android.util.Clock
+import com.google.gson.Gson
+import com.google.gson.JsonParseException
+import java.security.MessageDigest
+import java.util.concurrent.Executor
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+
+/**
+ * Credentials Manager able to keep the sessions of several users at the same time.
+ * The credentials of each account are saved in the given Storage under a namespace derived from the user id,
+ * and a small index keeps track of the known accounts and the one that is currently active.
+ *
+ * The [BaseCredentialsManager] methods operate on the active account. Use [switchAccount] to change it.
+ * Each account is handled by its own [CredentialsManager] or [SecureCredentialsManager], so renewing
+ * the credentials of one account never touches the rest. Their operations run one at a time on a single
+ * background thread, shared by every account, and the secure ones keep their keys under a KeyStore alias of
+ * their own. Up to `maxCachedSessions` recently used credentials
+ * are kept in memory, evicting the least recently used ones first.
+ * Registered [CredentialsListener]s are notified when the credentials of the active account are saved or cleared.
+ */
+public class MultiAccountCredentialsManager @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE) internal constructor(
+    authenticationClient: AuthenticationAPIClient,
+    storage: Storage,
+    private val maxCachedSessions: Int,
+    private val managerFactory: (userId: String, storage: Storage, serialExecutor: Executor) -> BaseCredentialsManager
+) : BaseCredentialsManager(authenticationClient, storage, JWTDecoder()) {
+    private val gson: Gson = GsonProvider.gson
+    private val lock = Any()
+    private val accountIds: MutableSet<String> = LinkedHashSet()
+    private val managers: MutableMap<String, BaseCredentialsManager> = HashMap()
+
+    // Shared by the managers of every account. Its thread stops when idle, so it's never left behind
+    private val serialExecutor: Executor = ThreadPoolExecutor(
+        1, 1, IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS, LinkedBlockingQueue()
+    ).apply { allowCoreThreadTimeOut(true) }
+    private val sessions: LinkedHashMap<String, Credentials> =
+        object : LinkedHashMap<String, Credentials>(16, 0.75f, true) {
+            override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Credentials>?): Boolean {
+                return size > maxCachedSessions
+            }
+        }
+
+    @Volatile
+    private var _activeAccount: String? = null
+
+    /**
+     * Creates a new instance of the manager that will store the credentials of every account in the given Storage,
+     * using a [CredentialsManager] for each of them.
+     *
+     * @param authenticationClient the Auth0 Authentication client to refresh credentials with.
+     * @param storage              the storage to use for the credentials and the accounts index.
+     * @param maxCachedSessions    the maximum number of credentials to keep in memory. Defaults to 5.
+     */
+    @JvmOverloads
+    public constructor(
+        authenticationClient: AuthenticationAPIClient,
+        storage: Storage,
+        maxCachedSessions: Int = DEFAULT_MAX_CACHED_SESSIONS
+    ) : this(
+        authenticationClient,
+        storage,
+        maxCachedSessions,
+        { _, accountStorage, serialExecutor ->
+            CredentialsManager(authenticationClient, accountStorage, serialExecutor)
+        }
+    )
+
+    /**
+     * Creates a new instance of the manager that will store the credentials of every account in the given Storage,
+     * using a [SecureCredentialsManager] for each of them.
+     *
+     * @param context              a valid context
+     * @param authenticationClient the Auth0 Authentication client to refresh credentials with.
+     * @param storage              the storage to use for the credentials and the accounts index.
+     * @param maxCachedSessions    the maximum number of decrypted credentials to keep in memory. Defaults to 5.
+     */
+    @JvmOverloads
+    public constructor(
+        context: Context,
+        authenticationClient: AuthenticationAPIClient,
+        storage: Storage,
+        maxCachedSessions: Int = DEFAULT_MAX_CACHED_SESSIONS
+    ) : this(
+        authenticationClient,
+        storage,
+        maxCachedSessions,
+        { userId, accountStorage, serialExecutor ->
+            SecureCredentialsManager(
+                context.applicationContext,
+                authenticationClient,
+                accountStorage,
+                keyAliasFor(userId),
+                serialExecutor
+            )
+        }
+    )
+
+    /**
+     * The user id of the account the [BaseCredentialsManager] methods currently operate on, or null if none was selected.
+     */
+    public val activeAccount: String?
+        get() = _activeAccount
+
+    /**
+     * The user ids of every account with credentials stored in this manager, in the order they were first saved.
+     */
+    public val accounts: List<String>
+        get() = synchronized(lock) { accountIds.toList() }
+
+    /**
+     * Makes the given account the active one. Following calls to the [BaseCredentialsManager] methods
+     * will operate on this account's credentials.
+     *
+     * @param userId the user id of a previously saved account.
+     * @throws CredentialsManagerException if no credentials were saved for the given account.
+     */
+    @Throws(CredentialsManagerException::class)
+    public fun switchAccount(userId: String) {
+        synchronized(lock) {
+            if (!accountIds.contains(userId)) {
+                throw CredentialsManagerException("No Credentials were previously set for the account '$userId'.")
+            }
+            _activeAccount = userId
+            storage.store(KEY_ACTIVE_ACCOUNT, userId)
+        }
+    }
+
+    /**
+     * Stores the given credentials for the given account. If there is no active account yet, this one becomes active.
+     *
+     * @param userId      the user id the credentials belong to.
+     * @param credentials the credentials to save in the storage.
+     * @throws CredentialsManagerException if the credentials couldn't be saved.
+     */
+    @Throws(CredentialsManagerException::class)
+    public fun saveCredentials(userId: String, credentials: Credentials) {
+        val manager = synchronized(lock) { managerFor(userId) }
+        manager.saveCredentials(credentials)
+        val isActive = synchronized(lock) {
+            if (accountIds.add(userId)) {
+                storage.store(KEY_ACCOUNTS, gson.toJson(accountIds))
+            }
+            if (_activeAccount == null) {
+                _activeAccount = userId
+                storage.store(KEY_ACTIVE_ACCOUNT, userId)
+            }
+            userId == _activeAccount
+        }
+        cacheSession(userId, credentials)
+        if (isActive) {
+            notifyCredentialsChanged(CredentialsEvent.Type.SAVED, credentials.expiresAt)
+        }
+    }
+
+    /**
+     * Stores the given credentials for the active account.
+     *
+     * @param credentials the credentials to save in the storage.
+     * @throws CredentialsManagerException if there is no active account or the credentials couldn't be saved.
+     */
+    @Throws(CredentialsManagerException::class)
+    override fun saveCredentials(credentials: Credentials) {
+        val userId = _activeAccount
+            ?: throw CredentialsManagerException(NO_ACTIVE_ACCOUNT_MESSAGE)
+        saveCredentials(userId, credentials)
+    }
+
+    /**
+     * Retrieves the credentials of the active account and refresh them if they have already expired.
+     *
+     * @param callback the callback that will receive a valid [Credentials] or the [CredentialsManagerException].
+     */
+    override fun getCredentials(callback: Callback<Credentials, CredentialsManagerException>) {
+        getCredentials(null, 0, callback)
+    }
+
+    /**
+     * Retrieves the credentials of the active account and refresh them if they have already expired.
+     *
+     * @param scope    the scope to request for the access token. If null is passed, the previous scope will be kept.
+     * @param minTtl   the minimum time in seconds that the access token should last before expiration.
+     * @param callback the callback that will receive a valid [Credentials] or the [CredentialsManagerException].
+     */
+    override fun getCredentials(
+        scope: String?,
+        minTtl: Int,
+        callback: Callback<Credentials, CredentialsManagerException>
+    ) {
+        val userId = _activeAccount
+        if (userId == null) {
+            callback.onFailure(CredentialsManagerException(NO_ACTIVE_ACCOUNT_MESSAGE))
+            return
+        }
+        getCredentials(userId, scope, minTtl, callback)
+    }
+
+    /**
+     * Retrieves the credentials of the given account and refresh them if they have already expired.
+     * Credentials kept in memory are returned right away when they satisfy the requested scope and minimum time to live.
+     *
+     * @param userId   the user id of a previously saved account.
+     * @param scope    the scope to request for the access token. If null is passed, the previous scope will be kept.
+     * @param minTtl   the minimum time in seconds that the access token should last before expiration.
+     * @param callback the callback that will receive a valid [Credentials] or the [CredentialsManagerException].
+     */
+    public fun getCredentials(
+        userId: String,
+        scope: String?,
+        minTtl: Int,
+        callback: Callback<Credentials, CredentialsManagerException>
+    ) {
+        val manager = synchronized(lock) {
+            if (!accountIds.contains(userId)) null else managerFor(userId)
+        }
+        if (manager == null) {
+            callback.onFailure(CredentialsManagerException("No Credentials were previously set for the account '$userId'."))
+            return
+        }
+        val cached = synchronized(sessions) { sessions[userId] }
+        if (cached != null && !willExpire(cached.expiresAt.time, minTtl.toLong())
+            && !hasScopeChanged(cached.scope, scope)
+        ) {
+            callback.onSuccess(cached)
+            return
+        }
+        manager.getCredentials(
+            scope,
+            minTtl,
+            object : Callback<Credentials, CredentialsManagerException> {
+                override fun onSuccess(result: Credentials) {
+                    cacheSession(userId, result)
+                    callback.onSuccess(result)
+                }
+
+                override fun onFailure(error: CredentialsManagerException) {
+                    evictSession(userId)
+                    callback.onFailure(error)
+                }
+            })
+    }
+
+    /**
+     * Checks if a non-expired pair of credentials can be obtained for the active account.
+     *
+     * @return whether there are valid credentials stored for the active account.
+     */
+    override fun hasValidCredentials(): Boolean {
+        return hasValidCredentials(0)
+    }
+
+    /**
+     * Checks if a non-expired pair of credentials can be obtained for the active account.
+     *
+     * @param minTtl the minimum time in seconds that the access token should last before expiration.
+     * @return whether there are valid credentials stored for the active account.
+     */
+    override fun hasValidCredentials(minTtl: Long): Boolean {
+        val userId = _activeAccount ?: return false
+        return hasValidCredentials(userId, minTtl)
+    }
+
+    /**
+     * Checks if a non-expired pair of credentials can be obtained for the given account.
+     *
+     * @param userId the user id of the account to check.
+     * @param minTtl the minimum time in seconds that the access token should last before expiration.
+     * @return whether there are valid credentials stored for the given account.
+     */
+    public fun hasValidCredentials(userId: String, minTtl: Long): Boolean {
+        val manager = synchronized(lock) {
+            if (!accountIds.contains(userId)) null else managerFor(userId)
+        } ?: return false
+        return manager.hasValidCredentials(minTtl)
+    }
+
+    /**
+     * Removes the credentials of the active account, and the account itself, from the storage.
+     * No account will be active after this call.
+     */
+    override fun clearCredentials() {
+        val userId = _activeAccount ?: return
+        removeAccount(userId)
+    }
+
+    /**
+     * Removes the credentials of the given account, and the account itself, from the storage.
+     * If the account was the active one, no account will be active after this call.
+     *
+     * @param userId the user id of the account to remove.
+     */
+    public fun removeAccount(userId: String) {
+        val wasActive = synchronized(lock) {
+            if (!accountIds.contains(userId)) {
+                return
+            }
+            managerFor(userId).clearCredentials()
+            managers.remove(userId)
+            accountIds.remove(userId)
+            storage.store(KEY_ACCOUNTS, gson.toJson(accountIds))
+            if (userId == _activeAccount) {
+                _activeAccount = null
+                storage.remove(KEY_ACTIVE_ACCOUNT)
+                true
+            } else false
+        }
+        evictSession(userId)
+        if (wasActive) {
+            notifyCredentialsChanged(CredentialsEvent.Type.CLEARED, null)
+        }
+    }
+
+    override fun storedExpiresAt(): Long? {
+        val userId = _activeAccount ?: return null
+        return synchronized(sessions) { sessions[userId] }?.expiresAt?.time
+    }
+
+    private fun managerFor(userId: String): BaseCredentialsManager {
+        return managers.getOrPut(userId) {
+            val manager = managerFactory(userId, NamespacedStorage(storage, "$KEY_ACCOUNTS.$userId."), serialExecutor)
+            manager.setClock(object : Clock {
+                override fun getCurrentTimeMillis(): Long = currentTimeInMillis
+            })
+            manager
+        }
+    }
+
+    private fun cacheSession(userId: String, credentials: Credentials) {
+        if (maxCachedSessions <= 0) {
+            return
+        }
+        synchronized(sessions) {
+            sessions[userId] = credentials
+        }
+    }
+
+    private fun evictSession(userId: String) {
+        synchronized(sessions) {
+            sessions.remove(userId)
+        }
+    }
+
+    private companion object {
+        private const val KEY_ACCOUNTS = "com.auth0.accounts"
+        private const val KEY_ACTIVE_ACCOUNT = "com.auth0.accounts_active"
+        private const val DEFAULT_MAX_CACHED_SESSIONS = 5
+        private const val IDLE_THREAD_TIMEOUT_SECONDS = 30L
+        private const val KEY_ALIAS_PREFIX = "com.auth0.key."
+        private const val KEY_ALIAS_HASH_BYTES = 12
+        private const val NO_ACTIVE_ACCOUNT_MESSAGE =
+            "No account is active. Save some credentials or switch to a previously saved account first."
+
+        /**
+         * The KeyStore alias of the keys of the given account. Each account gets its own, so that replacing
+         * the keys of one account after an error never makes the credentials of the rest unreadable.
+         */
+        fun keyAliasFor(userId: String): String {
+            val digest = MessageDigest.getInstance("SHA-256").digest(userId.toByteArray(Charsets.UTF_8))
+            return KEY_ALIAS_PREFIX + digest.take(KEY_ALIAS_HASH_BYTES).joinToString("") { "%02x".format(it) }
+        }
+    }
+
+    init {
+        require(maxCachedSessions >= 0) { "The maximum number of cached sessions can't be negative." }
+        val storedAccounts = storage.retrieveString(KEY_ACCOUNTS)
+        if (storedAccounts != null) {
+            try {
+                gson.fromJson(storedAccounts, Array<String>::class.java)?.let { accountIds.addAll(it) }
+            } catch (e: JsonParseException) {
+                // The index is unreadable. Accounts will be added again as credentials are saved
+            }
+        }
+        _activeAccount = storage.retrieveString(KEY_ACTIVE_ACCOUNT)?.takeIf { accountIds.contains(it) }
+    }
+}
@@ -0,0 +1,52 @@
+package com.auth0.android.authentication.storage
+
+/**
+ * [Storage] decorator that prefixes every key with the given namespace before delegating.
+ * Used to keep the values of different accounts apart while sharing a single backing storage.
+ *
+ * @param delegate  the storage where the values will be actually kept.
+ * @param namespace the prefix to prepend to every key.
+ */
+internal class NamespacedStorage(
+    private val delegate: Storage,
+    private val namespace: String
+) : Storage {
+
+    override fun store(name: String, value: Long?) {
+        delegate.store(keyFor(name), value)
+    }
+
+    override fun store(name: String, value: Int?) {
+        delegate.store(keyFor(name), value)
+    }
+
+    override fun store(name: String, value: String?) {
+        delegate.store(keyFor(name), value)
+    }
+
+    override fun store(name: String, value: Boolean?) {
+        delegate.store(keyFor(name), value)
+    }
+
+    override fun retrieveLong(name: String): Long? {
+        return delegate.retrieveLong(keyFor(name))
+    }
+
+    override fun retrieveString(name: String): String? {
+        return delegate.retrieveString(keyFor(name))
+    }
+
+    override fun retrieveInteger(name: String): Int? {
+        return delegate.retrieveInteger(keyFor(name))
+    }
+
+    override fun retrieveBoolean(name: String): Boolean? {
+        return delegate.retrieveBoolean(keyFor(name))
+    }
+
+    override fun remove(name: String) {
+        delegate.remove(keyFor(name))
+    }
+
+    private fun keyFor(name: String): String = namespace + name
+}
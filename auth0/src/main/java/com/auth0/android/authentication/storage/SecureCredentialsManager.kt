@@ -1,10 +1,16 @@
 package com.auth0.android.authentication.storage
 
 import android.app.Activity
+import android.app.Application
 import android.app.KeyguardManager
+import android.content.BroadcastReceiver
 import android.content.Context
 import android.content.Intent
+import android.content.IntentFilter
 import android.os.Build
+import android.os.Bundle
+import android.os.Handler
+import android.os.Looper
 import android.text.TextUtils
 import android.util.Base64
 import android.util.Log
@@ -14,6 +20,8 @@ import androidx.activity.result.contract.ActivityResultContracts
 import androidx.annotation.IntRange
 import androidx.annotation.VisibleForTesting
 import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleEventObserver
+import androidx.lifecycle.LifecycleOwner
 import com.auth0.android.Auth0Exception
 import com.auth0.android.authentication.AuthenticationAPIClient
 import com.auth0.android.authentication.AuthenticationException
@@ -22,11 +30,14 @@ import com.auth0.android.callback.Callback
 import com.auth0.android.request.internal.GsonProvider
 import com.auth0.android.result.Credentials
 import com.auth0.android.result.OptionalCredentials
+import com.auth0.android.util.Auth0Telemetry
 import com.google.gson.Gson
 import kotlinx.coroutines.suspendCancellableCoroutine
+import java.lang.ref.WeakReference
 import java.util.*
 import java.util.concurrent.Executor
 import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
 import kotlin.coroutines.resume
 import kotlin.coroutines.resumeWithException
 
@@ -48,13 +59,29 @@ public class SecureCredentialsManager @VisibleForTesting(otherwise = VisibleForT
     private var authenticationRequestCode = -1
     private var activity: Activity? = null
     private var activityResultContract: ActivityResultLauncher<Intent>? = null
+    private var application: Application? = null
+    private var authenticationValidityMillis = 0L
 
     //State for retrying operations
-    private var decryptCallback: Callback<Credentials, CredentialsManagerException>? = null
+    private val pendingRequests: MutableList<PendingRequest> = mutableListOf()
     private var authIntent: Intent? = null
-    private var scope: String? = null
-    private var minTtl = 0
-    private var forceRefresh = false
+    private var lockScreenPrompt: LockScreenPrompt? = null
+
+    //State of the authentication validity window
+    @Volatile
+    private var authenticatedUntil = 0L
+    @Volatile
+    private var authenticatedCredentials: Credentials? = null
+    @Volatile
+    private var authenticationInvalidation: AuthenticationInvalidation? = null
+
+    //Storage format
+    @Volatile
+    private var singleRecordStorage = false
+    @Volatile
+    private var legacyRecordChecked = false
+    @Volatile
+    private var keysReady = false
 
     /**
      * Creates a new SecureCredentialsManager to handle Credentials
@@ -67,13 +94,29 @@ public class SecureCredentialsManager @VisibleForTesting(otherwise = VisibleForT
         context: Context,
         apiClient: AuthenticationAPIClient,
         storage: Storage
+    ) : this(context, apiClient, storage, KEY_ALIAS, Executors.newSingleThreadExecutor())
+
+    /**
+     * Creates a new SecureCredentialsManager whose keys are kept in the Android KeyStore under the given alias,
+     * and whose operations run on the given serial executor.
+     */
+    internal constructor(
+        context: Context,
+        apiClient: AuthenticationAPIClient,
+        storage: Storage,
+        keyAlias: String,
+        serialExecutor: Executor
     ) : this(
         apiClient,
         storage,
-        CryptoUtil(context, storage, KEY_ALIAS),
+        CryptoUtil(context, storage, keyAlias),
         JWTDecoder(),
-        Executors.newSingleThreadExecutor()
-    )
+        serialExecutor
+    ) {
+        telemetry = apiClient.telemetry
+        crypto.setTelemetry(telemetry)
+        applicationContext = context.applicationContext
+    }
 
     /**
      * Require the user to authenticate using the configured LockScreen before accessing the credentials.
@@ -84,6 +127,9 @@ public class SecureCredentialsManager @VisibleForTesting(otherwise = VisibleForT
      * will be handled internally using "Activity Results API" which should be called from the main thread.
      * Otherwise, your activity must override the [Activity.onActivityResult] method
      * and call [SecureCredentialsManager.checkAuthenticationResult] with the received parameters.
+     * If the result isn't received by the time the activity is resumed again, or the activity is destroyed while
+     * the LockScreen is showing, the requests waiting for it fail. After the activity is destroyed, this method must
+     * be called again from the activity that replaces it.
      *
      * @param activity    a valid activity context. Will be used in the authentication request to launch a LockScreen intent.
      * @param requestCode the request code to use in the authentication request. Must be a value between 1 and 255.
@@ -105,6 +151,9 @@ public class SecureCredentialsManager @VisibleForTesting(otherwise = VisibleForT
                     && authIntent != null)
         if (authenticateBeforeDecrypt) {
             authenticationRequestCode = requestCode
+            application = activity.application
+            lockScreenPrompt?.unregister()
+            lockScreenPrompt = LockScreenPrompt(activity).also { it.register() }
 
             /*
              *  https://developer.android.com/training/basics/intents/result#register
@@ -142,18 +191,143 @@ public class SecureCredentialsManager @VisibleForTesting(otherwise = VisibleForT
      * @return true if the result was handled, false otherwise.
      */
     public fun checkAuthenticationResult(requestCode: Int, resultCode: Int): Boolean {
-        if (requestCode != authenticationRequestCode || decryptCallback == null) {
+        if (requestCode != authenticationRequestCode) {
+            return false
+        }
+        val requests = synchronized(pendingRequests) {
+            pendingRequests.toList().also { pendingRequests.clear() }
+        }
+        if (requests.isEmpty()) {
             return false
         }
         if (resultCode == Activity.RESULT_OK) {
-            continueGetCredentials(scope, minTtl, emptyMap(), forceRefresh, decryptCallback!!)
+            startAuthenticationValidity()
+            continueGetCredentials(requests)
         } else {
-            decryptCallback!!.onFailure(CredentialsManagerException("The user didn't pass the authentication challenge."))
-            decryptCallback = null
+            val error = CredentialsManagerException("The user didn't pass the authentication challenge.")
+            requests.forEach { it.callback.onFailure(error) }
         }
         return true
     }
 
+    /**
+     * Sets for how long a successful authentication allows the credentials to be obtained again without asking the user
+     * to authenticate. During that time the decrypted credentials are kept in memory, so they are served without showing
+     * the LockScreen and without decrypting them again. The window ends early, discarding the credentials kept in memory,
+     * when the screen is turned off, when the app goes to the background or when the credentials are cleared.
+     * Only has effect after [SecureCredentialsManager.requireAuthentication] was called successfully. Disabled by default.
+     *
+     * @param seconds the time in seconds a successful authentication is valid for. Passing 0 disables the window.
+     */
+    public fun setAuthenticationValidity(@IntRange(from = 0) seconds: Int) {
+        require(seconds >= 0) { "The authentication validity can't be negative." }
+        authenticationValidityMillis = seconds * 1000L
+        if (seconds == 0) {
+            invalidateAuthentication()
+        }
+    }
+
+    /**
+     * Keeps the encrypted credentials, the IV and the values required by [hasValidCredentials] together as a single
+     * record in the Storage, instead of the separate values used by default. This makes every save and every check
+     * a single storage operation. Credentials saved in the previous format are migrated the next time they are read.
+     * Once enabled, it must be kept enabled, as the migrated credentials can't be read in the previous format.
+     * This method MUST be called before saving or obtaining any credentials.
+     *
+     * @param enabled whether to use the single record format or not.
+     */
+    public fun useSingleRecordStorage(enabled: Boolean) {
+        singleRecordStorage = enabled
+        updateCredentialsIndex(null)
+    }
+
+    /**
+     * Encrypts the credentials with an AES key generated and kept inside the Android KeyStore, instead of the
+     * AES key that is stored protected by an RSA key pair. This removes the RSA operation from every read and save.
+     * Only available on API 23 and up; on lower versions this setting is ignored. Credentials encrypted the previous way
+     * can still be read, and are moved to the new key the next time they are saved.
+     * Once they have been moved, disabling this setting again makes the next read fail and clear the credentials,
+     * so the user has to log in again.
+     * This method MUST be called before saving or obtaining any credentials.
+     *
+     * @param enabled whether to use the Android KeyStore AES key or not.
+     */
+    public fun useKeyStoreEncryptionKey(enabled: Boolean) {
+        crypto.setKeyStoreAESKeyMode(enabled)
+    }
+
+    /**
+     * Whether the encryption keys have already been provisioned, either by [warmUp] or by a previous
+     * successful save or read of the credentials.
+     */
+    public val isReady: Boolean
+        get() = keysReady
+
+    /**
+     * Provisions the encryption keys in the background, generating them if they don't exist yet.
+     * The first time, this can take from hundreds of milliseconds to a few seconds depending on the device,
+     * so consider calling it ahead of time, e.g. when the app starts or the login screen is shown.
+     * Any save or read started while the keys are being provisioned waits for it to complete.
+     *
+     * @param callback the callback to receive the time taken, in milliseconds.
+     */
+    public fun warmUp(callback: Callback<Long, CredentialsManagerException>) {
+        serialExecutor.execute {
+            val start = System.nanoTime()
+            try {
+                crypto.warmUp()
+            } catch (e: IncompatibleDeviceException) {
+                callback.onFailure(
+                    CredentialsManagerException(
+                        String.format(
+                            "This device is not compatible with the %s class.",
+                            SecureCredentialsManager::class.java.simpleName
+                        ), e
+                    )
+                )
+                return@execute
+            } catch (e: CryptoException) {
+                //If keys were invalidated, existing credentials will not be recoverable.
+                clearCredentials()
+                callback.onFailure(
+                    CredentialsManagerException(
+                        "A change on the Lock Screen security settings have deemed the encryption keys invalid and have been recreated. " +
+                                "Any previously stored content is now lost. Please try again.",
+                        e
+                    )
+                )
+                return@execute
+            }
+            val elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+            keysReady = true
+            Log.d(TAG, "The encryption keys were provisioned in $elapsed ms.")
+            callback.onSuccess(elapsed)
+        }
+    }
+
+    /**
+     * Provisions the encryption keys in the background, generating them if they don't exist yet.
+     * This is a Coroutine that is exposed only for Kotlin.
+     *
+     * @return the time taken, in milliseconds.
+     * @see warmUp
+     */
+    @JvmSynthetic
+    @Throws(CredentialsManagerException::class)
+    public suspend fun awaitWarmUp(): Long {
+        return suspendCancellableCoroutine { continuation ->
+            warmUp(object : Callback<Long, CredentialsManagerException> {
+                override fun onSuccess(result: Long) {
+                    continuation.resume(result)
+                }
+
+                override fun onFailure(error: CredentialsManagerException) {
+                    continuation.resumeWithException(error)
+                }
+            })
+        }
+    }
+
     /**
      * Saves the given credentials in the Storage.
      *
@@ -162,8 +336,14 @@ public class SecureCredentialsManager @VisibleForTesting(otherwise = VisibleForT
      * implementation and will have [CredentialsManagerException.isDeviceIncompatible] return true.
      */
     @Throws(CredentialsManagerException::class)
-    @Synchronized
     override fun saveCredentials(credentials: Credentials) {
+        storeCredentials(credentials)
+        notifyCredentialsChanged(CredentialsEvent.Type.SAVED, credentials.expiresAt)
+    }
+
+    @Throws(CredentialsManagerException::class)
+    @Synchronized
+    private fun storeCredentials(credentials: Credentials) {
         if (TextUtils.isEmpty(credentials.accessToken) && TextUtils.isEmpty(credentials.idToken)) {
             throw CredentialsManagerException("Credentials must have a valid date of expiration and a valid access_token or id_token value.")
         }
@@ -171,6 +351,21 @@ public class SecureCredentialsManager @VisibleForTesting(otherwise = VisibleForT
         val canRefresh = !TextUtils.isEmpty(credentials.refreshToken)
         Log.d(TAG, "Trying to encrypt the given data using the private key.")
         try {
+            if (singleRecordStorage) {
+                val expiresAt = credentials.expiresAt.time
+                val header = CredentialsEnvelope.header(expiresAt, canRefresh)
+                val encrypted = crypto.encryptWithInlineIV(json.toByteArray(), header)
+                storage.store(
+                    KEY_CREDENTIALS_RECORD,
+                    CredentialsEnvelope(expiresAt, canRefresh, encrypted).encode()
+                )
+                removeLegacyRecord()
+                crypto.completeKeyStoreAESKeyMigration()
+                keysReady = true
+                updateCredentialsIndex(CredentialsIndex(true, expiresAt, canRefresh, credentials.scope))
+                updateAuthenticatedCredentials(credentials)
+                return
+            }
             val encrypted = crypto.encrypt(json.toByteArray())
             val encryptedEncoded = Base64.encodeToString(encrypted, Base64.DEFAULT)
             storage.store(KEY_CREDENTIALS, encryptedEncoded)
@@ -179,6 +374,12 @@ public class SecureCredentialsManager @VisibleForTesting(otherwise = VisibleForT
             )
             storage.store(LEGACY_KEY_CACHE_EXPIRES_AT, credentials.expiresAt.time)
             storage.store(KEY_CAN_REFRESH, canRefresh)
+            crypto.completeKeyStoreAESKeyMigration()
+            keysReady = true
+            updateCredentialsIndex(
+                CredentialsIndex(true, credentials.expiresAt.time, canRefresh, credentials.scope)
+            )
+            updateAuthenticatedCredentials(credentials)
         } catch (e: IncompatibleDeviceException) {
             throw CredentialsManagerException(
                 String.format(
@@ -389,20 +590,33 @@ public class SecureCredentialsManager @VisibleForTesting(otherwise = VisibleForT
             callback.onFailure(CredentialsManagerException("No Credentials were previously set."))
             return
         }
+        val request = PendingRequest(scope, minTtl, parameters, forceRefresh, callback)
         if (authenticateBeforeDecrypt) {
+            if (isAuthenticationValid()) {
+                Log.d(TAG, "The user authenticated recently. Reading the Credentials without showing the LockScreen.")
+                continueGetCredentials(listOf(request))
+                return
+            }
+            // Drops the credentials kept in memory by a window that has already ended
+            invalidateAuthentication()
+            val authenticationInProgress = synchronized(pendingRequests) {
+                pendingRequests.add(request)
+                pendingRequests.size > 1
+            }
+            if (authenticationInProgress) {
+                Log.d(TAG, "The LockScreen is already showing. Waiting for its result.")
+                return
+            }
             Log.d(
                 TAG,
                 "Authentication is required to read the Credentials. Showing the LockScreen."
             )
-            decryptCallback = callback
-            this.scope = scope
-            this.minTtl = minTtl
-            this.forceRefresh = forceRefresh
+            lockScreenPrompt?.onLaunched()
             activityResultContract?.launch(authIntent)
                 ?: activity?.startActivityForResult(authIntent, authenticationRequestCode)
             return
         }
-        continueGetCredentials(scope, minTtl, parameters, forceRefresh, callback)
+        continueGetCredentials(listOf(request))
     }
 
     /**
@@ -413,7 +627,11 @@ public class SecureCredentialsManager @VisibleForTesting(otherwise = VisibleForT
         storage.remove(KEY_EXPIRES_AT)
         storage.remove(LEGACY_KEY_CACHE_EXPIRES_AT)
         storage.remove(KEY_CAN_REFRESH)
+        storage.remove(KEY_CREDENTIALS_RECORD)
+        invalidateAuthentication()
+        updateCredentialsIndex(CredentialsIndex.EMPTY)
         Log.d(TAG, "Credentials were just removed from the storage")
+        notifyCredentialsChanged(CredentialsEvent.Type.CLEARED, null)
     }
 
     /**
@@ -427,168 +645,391 @@ public class SecureCredentialsManager @VisibleForTesting(otherwise = VisibleForT
 
     /**
      * Returns whether this manager contains a valid non-expired pair of credentials.
+     * The storage is only read the first time. After that, the check is answered from an in-memory summary that
+     * is updated when this manager saves or clears the credentials.
      *
      * @param minTtl the minimum time in seconds that the access token should last before expiration.
      * @return whether this manager contains a valid non-expired pair of credentials or not.
      */
     override fun hasValidCredentials(minTtl: Long): Boolean {
+        return hasValidIndexedCredentials(minTtl)
+    }
+
+    override fun loadCredentialsIndex(): CredentialsIndex {
+        if (singleRecordStorage) {
+            val record = storage.retrieveString(KEY_CREDENTIALS_RECORD)
+            if (record != null) {
+                // Only the header is decoded, the encrypted payload is left untouched
+                val header = CredentialsEnvelope.readHeader(record) ?: return CredentialsIndex.EMPTY
+                return CredentialsIndex(true, header.expiresAt, header.canRefresh, null)
+            }
+            // Not migrated yet. Fall back to the previous format
+        }
         val encryptedEncoded = storage.retrieveString(KEY_CREDENTIALS)
-        var expiresAt = storage.retrieveLong(KEY_EXPIRES_AT)
-        if (expiresAt == null) {
-            // Avoids logging out users when this value was not saved (migration scenario)
-            expiresAt = 0L
+        if (TextUtils.isEmpty(encryptedEncoded)) {
+            return CredentialsIndex.EMPTY
         }
-        val canRefresh = storage.retrieveBoolean(KEY_CAN_REFRESH)
-        val emptyCredentials = TextUtils.isEmpty(encryptedEncoded)
-        return !(emptyCredentials || willExpire(
-            expiresAt,
-            minTtl
-        ) &&
-                (canRefresh == null || !canRefresh))
+        // Avoids logging out users when this value was not saved (migration scenario)
+        val expiresAt = storage.retrieveLong(KEY_EXPIRES_AT) ?: 0L
+        val canRefresh = storage.retrieveBoolean(KEY_CAN_REFRESH) ?: false
+        return CredentialsIndex(true, expiresAt, canRefresh, null)
     }
 
-    private fun continueGetCredentials(
-        scope: String?,
-        minTtl: Int,
-        parameters: Map<String, String>,
-        forceRefresh: Boolean,
-        callback: Callback<Credentials, CredentialsManagerException>
-    ) {
+    /**
+     * Reads the credentials once and serves every given request with them, in order.
+     * Each request is evaluated with its own scope, minTtl, parameters and forceRefresh values, and
+     * credentials renewed for one request are used to evaluate the following ones.
+     */
+    private fun continueGetCredentials(requests: List<PendingRequest>) {
         serialExecutor.execute {
-            val encryptedEncoded = storage.retrieveString(KEY_CREDENTIALS)
-            if (encryptedEncoded.isNullOrBlank()) {
-                callback.onFailure(CredentialsManagerException("No Credentials were previously set."))
-                decryptCallback = null
-                return@execute
-            }
-            val encrypted = Base64.decode(encryptedEncoded, Base64.DEFAULT)
-            val json: String
-            try {
-                json = String(crypto.decrypt(encrypted))
-            } catch (e: IncompatibleDeviceException) {
-                callback.onFailure(
-                    CredentialsManagerException(
-                        String.format(
-                            "This device is not compatible with the %s class.",
-                            SecureCredentialsManager::class.java.simpleName
-                        ), e
-                    )
-                )
-                decryptCallback = null
-                return@execute
-            } catch (e: CryptoException) {
-                //If keys were invalidated, existing credentials will not be recoverable.
-                clearCredentials()
-                callback.onFailure(
-                    CredentialsManagerException(
-                        "A change on the Lock Screen security settings have deemed the encryption keys invalid and have been recreated. " +
-                                "Any previously stored content is now lost. Please try saving the credentials again.",
-                        e
-                    )
-                )
-                decryptCallback = null
+            var credentials = try {
+                readCredentials()
+            } catch (error: CredentialsManagerException) {
+                requests.forEach { it.callback.onFailure(error) }
                 return@execute
             }
-            val bridgeCredentials = gson.fromJson(json, OptionalCredentials::class.java)
-            /* OPTIONAL CREDENTIALS
-             * This bridge is required to prevent users from being logged out when
-             * migrating from Credentials with optional Access Token and ID token
-             */
-            val credentials = Credentials(
-                bridgeCredentials.idToken.orEmpty(),
-                bridgeCredentials.accessToken.orEmpty(),
-                bridgeCredentials.type.orEmpty(),
-                bridgeCredentials.refreshToken,
-                bridgeCredentials.expiresAt ?: Date(),
-                bridgeCredentials.scope
-            )
-            val expiresAt = credentials.expiresAt.time
-            val hasEmptyCredentials =
-                TextUtils.isEmpty(credentials.accessToken) && TextUtils.isEmpty(credentials.idToken)
-            if (hasEmptyCredentials) {
-                callback.onFailure(CredentialsManagerException("No Credentials were previously set."))
-                decryptCallback = null
-                return@execute
+            for (request in requests) {
+                credentials = serveRequest(request, credentials)
             }
-            val willAccessTokenExpire = willExpire(expiresAt, minTtl.toLong())
-            val scopeChanged = hasScopeChanged(credentials.scope, scope)
-            if (!forceRefresh && !willAccessTokenExpire && !scopeChanged) {
-                callback.onSuccess(credentials)
-                decryptCallback = null
-                return@execute
+        }
+    }
+
+    @Throws(CredentialsManagerException::class)
+    private fun readCredentials(): Credentials {
+        if (isAuthenticationValid()) {
+            authenticatedCredentials?.let {
+                telemetry.increment(Auth0Telemetry.CREDENTIALS_CACHE_HIT)
+                return it
             }
-            if (credentials.refreshToken == null) {
-                callback.onFailure(CredentialsManagerException("No Credentials were previously set."))
-                decryptCallback = null
-                return@execute
+        }
+        telemetry.increment(Auth0Telemetry.CREDENTIALS_CACHE_MISS)
+        val record = if (singleRecordStorage) {
+            storage.retrieveString(KEY_CREDENTIALS_RECORD)?.let { CredentialsEnvelope.decode(it) }
+        } else null
+        val encryptedEncoded = if (record == null) storage.retrieveString(KEY_CREDENTIALS) else null
+        if (record == null && encryptedEncoded.isNullOrBlank()) {
+            throw CredentialsManagerException("No Credentials were previously set.")
+        }
+        val json: String
+        try {
+            json = if (record != null) {
+                String(crypto.decryptWithInlineIV(record.payload, record.header))
+            } else {
+                String(crypto.decrypt(Base64.decode(encryptedEncoded!!, Base64.DEFAULT)))
             }
-            Log.d(TAG, "Credentials have expired. Renewing them now...")
-            val request = authenticationClient.renewAuth(
-                credentials.refreshToken
+            keysReady = true
+        } catch (e: IncompatibleDeviceException) {
+            throw CredentialsManagerException(
+                String.format(
+                    "This device is not compatible with the %s class.",
+                    SecureCredentialsManager::class.java.simpleName
+                ), e
+            )
+        } catch (e: CryptoException) {
+            //If keys were invalidated, existing credentials will not be recoverable.
+            clearCredentials()
+            throw CredentialsManagerException(
+                "A change on the Lock Screen security settings have deemed the encryption keys invalid and have been recreated. " +
+                        "Any previously stored content is now lost. Please try saving the credentials again.",
+                e
             )
+        }
+        val bridgeCredentials = gson.fromJson(json, OptionalCredentials::class.java)
+        /* OPTIONAL CREDENTIALS
+         * This bridge is required to prevent users from being logged out when
+         * migrating from Credentials with optional Access Token and ID token
+         */
+        val credentials = Credentials(
+            bridgeCredentials.idToken.orEmpty(),
+            bridgeCredentials.accessToken.orEmpty(),
+            bridgeCredentials.type.orEmpty(),
+            bridgeCredentials.refreshToken,
+            bridgeCredentials.expiresAt ?: Date(),
+            bridgeCredentials.scope
+        )
+        val hasEmptyCredentials =
+            TextUtils.isEmpty(credentials.accessToken) && TextUtils.isEmpty(credentials.idToken)
+        if (hasEmptyCredentials) {
+            throw CredentialsManagerException("No Credentials were previously set.")
+        }
+        if (singleRecordStorage && record == null) {
+            migrateToSingleRecord(credentials)
+        }
+        if (isAuthenticationValid()) {
+            authenticatedCredentials = credentials
+        }
+        return credentials
+    }
 
-            request.addParameters(parameters)
-            if (scope != null) {
-                request.addParameter("scope", scope)
-            }
+    /**
+     * Completes the given request with the given credentials, renewing them first if the request requires it.
+     *
+     * @return the most recent credentials, to be used for the next request.
+     */
+    private fun serveRequest(request: PendingRequest, credentials: Credentials): Credentials {
+        val callback = request.callback
+        val minTtl = request.minTtl
+        val expiresAt = credentials.expiresAt.time
+        val willAccessTokenExpire = willExpire(expiresAt, minTtl.toLong())
+        val scopeChanged = hasScopeChanged(credentials.scope, request.scope)
+        if (!request.forceRefresh && !willAccessTokenExpire && !scopeChanged) {
+            callback.onSuccess(credentials)
+            return credentials
+        }
+        if (credentials.refreshToken == null) {
+            callback.onFailure(CredentialsManagerException("No Credentials were previously set."))
+            return credentials
+        }
+        Log.d(TAG, "Credentials have expired. Renewing them now...")
+        val renewRequest = authenticationClient.renewAuth(
+            credentials.refreshToken
+        )
 
-            val freshCredentials: Credentials
-            try {
-                val fresh = request.execute()
-                val expiresAt = fresh.expiresAt.time
-                val willAccessTokenExpire = willExpire(expiresAt, minTtl.toLong())
-                if (willAccessTokenExpire) {
-                    val tokenLifetime = (expiresAt - currentTimeInMillis - minTtl * 1000) / -1000
-                    val wrongTtlException = CredentialsManagerException(
-                        String.format(
-                            Locale.getDefault(),
-                            "The lifetime of the renewed Access Token (%d) is less than the minTTL requested (%d). Increase the 'Token Expiration' setting of your Auth0 API in the dashboard, or request a lower minTTL.",
-                            tokenLifetime,
-                            minTtl
-                        )
-                    )
-                    callback.onFailure(wrongTtlException)
-                    decryptCallback = null
-                    return@execute
-                }
+        renewRequest.addParameters(request.parameters)
+        if (request.scope != null) {
+            renewRequest.addParameter("scope", request.scope)
+        }
 
-                //non-empty refresh token for refresh token rotation scenarios
-                val updatedRefreshToken =
-                    if (TextUtils.isEmpty(fresh.refreshToken)) credentials.refreshToken else fresh.refreshToken
-                freshCredentials = Credentials(
-                    fresh.idToken,
-                    fresh.accessToken,
-                    fresh.type,
-                    updatedRefreshToken,
-                    fresh.expiresAt,
-                    fresh.scope
-                )
-            } catch (error: Auth0Exception) {
-                callback.onFailure(
-                    CredentialsManagerException(
-                        "An error occurred while trying to use the Refresh Token to renew the Credentials.",
-                        error
+        val freshCredentials: Credentials
+        try {
+            val fresh = executeRenewal(renewRequest)
+            val expiresAt = fresh.expiresAt.time
+            val willAccessTokenExpire = willExpire(expiresAt, minTtl.toLong())
+            if (willAccessTokenExpire) {
+                val tokenLifetime = (expiresAt - currentTimeInMillis - minTtl * 1000) / -1000
+                val wrongTtlException = CredentialsManagerException(
+                    String.format(
+                        Locale.getDefault(),
+                        "The lifetime of the renewed Access Token (%d) is less than the minTTL requested (%d). Increase the 'Token Expiration' setting of your Auth0 API in the dashboard, or request a lower minTTL.",
+                        tokenLifetime,
+                        minTtl
                     )
                 )
-                decryptCallback = null
-                return@execute
+                callback.onFailure(wrongTtlException)
+                return credentials
             }
 
-            try {
-                saveCredentials(freshCredentials)
-                callback.onSuccess(freshCredentials)
-            } catch (error: CredentialsManagerException) {
-                val exception = CredentialsManagerException(
-                    "An error occurred while saving the refreshed Credentials.", error)
-                if(error.cause is IncompatibleDeviceException || error.cause is CryptoException) {
-                    exception.refreshedCredentials = freshCredentials
-                }
-                callback.onFailure(exception)
+            //non-empty refresh token for refresh token rotation scenarios
+            val updatedRefreshToken =
+                if (TextUtils.isEmpty(fresh.refreshToken)) credentials.refreshToken else fresh.refreshToken
+            freshCredentials = Credentials(
+                fresh.idToken,
+                fresh.accessToken,
+                fresh.type,
+                updatedRefreshToken,
+                fresh.expiresAt,
+                fresh.scope
+            )
+        } catch (error: Auth0Exception) {
+            callback.onFailure(
+                CredentialsManagerException(
+                    "An error occurred while trying to use the Refresh Token to renew the Credentials.",
+                    error
+                )
+            )
+            return credentials
+        }
+
+        try {
+            storeCredentials(freshCredentials)
+            notifyCredentialsChanged(CredentialsEvent.Type.RENEWED, freshCredentials.expiresAt)
+            callback.onSuccess(freshCredentials)
+        } catch (error: CredentialsManagerException) {
+            val exception = CredentialsManagerException(
+                "An error occurred while saving the refreshed Credentials.", error)
+            if(error.cause is IncompatibleDeviceException || error.cause is CryptoException) {
+                exception.refreshedCredentials = freshCredentials
             }
-            decryptCallback = null
+            callback.onFailure(exception)
+        }
+        // The previous refresh token might have been rotated, so the fresh credentials are used from now on
+        return freshCredentials
+    }
+
+    private fun isAuthenticationValid(): Boolean {
+        return authenticatedUntil > elapsedRealtime
+    }
+
+    /**
+     * Starts the authentication validity window, unless the app is already in the background.
+     * Called from the main thread, after a successful authentication.
+     */
+    private fun startAuthenticationValidity() {
+        val application = application
+        if (authenticationValidityMillis <= 0 || application == null
+            || !processLifecycle.currentState.isAtLeast(Lifecycle.State.STARTED)
+        ) {
+            return
+        }
+        authenticatedUntil = elapsedRealtime + authenticationValidityMillis
+        if (authenticationInvalidation == null) {
+            authenticationInvalidation = AuthenticationInvalidation(application).also { it.register() }
+        }
+    }
+
+    private fun updateAuthenticatedCredentials(credentials: Credentials) {
+        if (authenticatedCredentials != null) {
+            authenticatedCredentials = credentials
         }
     }
 
+    private fun invalidateAuthentication() {
+        authenticatedUntil = 0L
+        authenticatedCredentials = null
+        if (authenticationInvalidation != null) {
+            Handler(Looper.getMainLooper()).post { unregisterAuthenticationInvalidation() }
+        }
+    }
+
+    /**
+     * Called from the main thread. The window might have started again since it was invalidated.
+     */
+    private fun unregisterAuthenticationInvalidation() {
+        if (isAuthenticationValid()) {
+            return
+        }
+        authenticationInvalidation?.unregister()
+        authenticationInvalidation = null
+    }
+
+    /**
+     * Ends the authentication validity window when the screen is turned off or the app goes to the background.
+     * Registered from the main thread while the window lasts, so at most one registration exists per manager.
+     */
+    private inner class AuthenticationInvalidation(private val application: Application) :
+        BroadcastReceiver(), LifecycleEventObserver {
+
+        fun register() {
+            application.registerReceiver(this, IntentFilter(Intent.ACTION_SCREEN_OFF))
+            processLifecycle.addObserver(this)
+        }
+
+        fun unregister() {
+            application.unregisterReceiver(this)
+            processLifecycle.removeObserver(this)
+        }
+
+        override fun onReceive(context: Context, intent: Intent) {
+            invalidateAuthentication()
+        }
+
+        override fun onStateChanged(source: LifecycleOwner, event: Lifecycle.Event) {
+            // The process lifecycle waits for configuration changes to finish before dispatching it
+            if (event == Lifecycle.Event.ON_STOP) {
+                invalidateAuthentication()
+            }
+        }
+    }
+
+    /**
+     * Saves the credentials read in the previous format as a single record, removing the previous values.
+     * A failure doesn't affect the current read, which continues with the credentials already decrypted.
+     */
+    private fun migrateToSingleRecord(credentials: Credentials) {
+        try {
+            storeCredentials(credentials)
+            Log.d(TAG, "Credentials were migrated to the single record format")
+        } catch (e: CredentialsManagerException) {
+            Log.w(TAG, "Credentials could not be migrated to the single record format", e)
+        }
+    }
+
+    private fun removeLegacyRecord() {
+        if (legacyRecordChecked) {
+            return
+        }
+        if (storage.retrieveString(KEY_CREDENTIALS) != null) {
+            storage.remove(KEY_CREDENTIALS)
+            storage.remove(KEY_EXPIRES_AT)
+            storage.remove(LEGACY_KEY_CACHE_EXPIRES_AT)
+            storage.remove(KEY_CAN_REFRESH)
+        }
+        legacyRecordChecked = true
+    }
+
+    /**
+     * Fails the requests waiting for the LockScreen, once its result can no longer arrive.
+     * The next call to getCredentials shows the LockScreen again.
+     */
+    private fun abandonAuthentication() {
+        val requests = synchronized(pendingRequests) {
+            pendingRequests.toList().also { pendingRequests.clear() }
+        }
+        if (requests.isEmpty()) {
+            return
+        }
+        Log.w(TAG, "The result of the LockScreen was not received. Failing the requests waiting for it.")
+        val error = CredentialsManagerException("The LockScreen was closed before its result was received.")
+        requests.forEach { it.callback.onFailure(error) }
+    }
+
+    /**
+     * Follows the activity that shows the LockScreen, to tell when the result of the LockScreen won't arrive:
+     * when the activity is resumed without the result having been passed to [checkAuthenticationResult], or
+     * when the activity is destroyed, which also discards its Activity Results API launcher.
+     * Registered from the main thread by [requireAuthentication], and replaced by the next call to it.
+     */
+    private inner class LockScreenPrompt(activity: Activity) : Application.ActivityLifecycleCallbacks {
+        private val application = activity.application
+        private val host = WeakReference(activity)
+
+        @Volatile
+        private var hostPaused = false
+
+        fun register() {
+            application.registerActivityLifecycleCallbacks(this)
+        }
+
+        fun unregister() {
+            application.unregisterActivityLifecycleCallbacks(this)
+        }
+
+        fun onLaunched() {
+            hostPaused = false
+        }
+
+        override fun onActivityPaused(activity: Activity) {
+            if (activity === host.get()) {
+                hostPaused = true
+            }
+        }
+
+        override fun onActivityResumed(activity: Activity) {
+            // The result is delivered before the activity that asked for it is resumed
+            if (activity === host.get() && hostPaused) {
+                hostPaused = false
+                abandonAuthentication()
+            }
+        }
+
+        override fun onActivityDestroyed(activity: Activity) {
+            if (activity !== host.get()) {
+                return
+            }
+            unregister()
+            lockScreenPrompt = null
+            this@SecureCredentialsManager.activity = null
+            activityResultContract = null
+            abandonAuthentication()
+        }
+
+        override fun onActivityCreated(activity: Activity, savedInstanceState: Bundle?) {}
+        override fun onActivityStarted(activity: Activity) {}
+        override fun onActivityStopped(activity: Activity) {}
+        override fun onActivitySaveInstanceState(activity: Activity, outState: Bundle) {}
+    }
+
+    /**
+     * A call to getCredentials waiting for the user to authenticate.
+     */
+    private class PendingRequest(
+        val scope: String?,
+        val minTtl: Int,
+        val parameters: Map<String, String>,
+        val forceRefresh: Boolean,
+        val callback: Callback<Credentials, CredentialsManagerException>
+    )
+
     internal companion object {
         private val TAG = SecureCredentialsManager::class.java.simpleName
         private const val KEY_CREDENTIALS = "com.auth0.credentials"
@@ -597,6 +1038,7 @@ public class SecureCredentialsManager @VisibleForTesting(otherwise = VisibleForT
         // but we still store it so users can rollback to versions where it is required.
         private const val LEGACY_KEY_CACHE_EXPIRES_AT = "com.auth0.credentials_expires_at"
         private const val KEY_CAN_REFRESH = "com.auth0.credentials_can_refresh"
+        private const val KEY_CREDENTIALS_RECORD = "com.auth0.credentials_record"
         private const val KEY_ALIAS = "com.auth0.key"
     }
 
@@ -2,6 +2,9 @@ package com.auth0.android.management
 
 import com.auth0.android.Auth0Exception
 import com.auth0.android.NetworkErrorException
+import java.net.SocketException
+import java.net.SocketTimeoutException
+import java.net.UnknownHostException
 
 public class ManagementException @JvmOverloads constructor(
     message: String,
@@ -25,7 +28,9 @@ public class ManagementException @JvmOverloads constructor(
         this.statusCode = statusCode
     }
 
-    public constructor(values: Map<String, Any>) : this(DEFAULT_MESSAGE) {
+    @JvmOverloads
+    public constructor(values: Map<String, Any>, statusCode: Int = 0) : this(DEFAULT_MESSAGE) {
+        this.statusCode = statusCode
         this.values = values
         val codeValue =
             (if (values.containsKey(ERROR_KEY)) values[ERROR_KEY] else values[CODE_KEY]) as String?
@@ -73,6 +78,9 @@ public class ManagementException @JvmOverloads constructor(
     // When the request failed due to network issues
     public val isNetworkError: Boolean
         get() = cause is NetworkErrorException
+                || cause?.cause is UnknownHostException
+                || cause?.cause is SocketTimeoutException
+                || cause?.cause is SocketException
 
     private companion object {
         private const val ERROR_KEY = "error"
@@ -0,0 +1,227 @@
+package com.auth0.android.management
+
+import android.os.SystemClock
+import android.util.Log
+import androidx.annotation.IntRange
+import androidx.annotation.VisibleForTesting
+import com.auth0.android.authentication.storage.Storage
+import com.auth0.android.request.internal.ExponentialBackoff
+import com.auth0.android.request.internal.GsonProvider
+import com.auth0.android.request.internal.newDaemonScheduler
+import com.google.gson.Gson
+import com.google.gson.JsonParseException
+import com.google.gson.ToNumberPolicy
+import com.google.gson.reflect.TypeToken
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
+import kotlin.math.max
+import kotlin.math.min
+
+/**
+ * Write-behind buffer for [UsersAPIClient.updateMetadata]. Successive updates of the same user are merged
+ * into a single patch, in which the latest value of each top-level key wins, and sent once no other update
+ * was made during the debounce interval, or when [flush] is called. Updates made without a pause are sent
+ * at most five debounce intervals after the first of them.
+ *
+ * The pending updates are kept in the given Storage until the server accepts them, so they survive the
+ * process being killed, and are sent again with an increasing delay while the device is offline, the requests
+ * are rate limited or the server is unavailable. Updates rejected by the server with any other error are dropped.
+ */
+public class MetadataUpdateBuffer @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE) internal constructor(
+    private val usersClient: UsersAPIClient,
+    private val storage: Storage,
+    private val debounceMillis: Long,
+    private val executor: ScheduledExecutorService,
+    private val backoff: ExponentialBackoff,
+    private val maxWaitMillis: Long = debounceMillis * MAX_WAIT_DEBOUNCE_INTERVALS,
+    private val elapsedRealtime: () -> Long = { SystemClock.elapsedRealtime() }
+) {
+    private val gson: Gson = GsonProvider.gson.newBuilder()
+        .serializeNulls()
+        .setObjectToNumberStrategy(ToNumberPolicy.LONG_OR_DOUBLE)
+        .create()
+    private val lock = Any()
+    private val pending: MutableMap<String, MutableMap<String, Any?>> = LinkedHashMap()
+    private var scheduledFlush: ScheduledFuture<*>? = null
+    private var retrying = false
+    private var firstPendingAt = NOT_PENDING
+
+    /**
+     * Creates a new buffer that keeps the pending updates in the given Storage, and sends them 2 seconds
+     * after the last update. Any update left pending by a previous instance is sent right away.
+     *
+     * @param usersClient the Management API client to send the updates with.
+     * @param storage     the storage to keep the pending updates in.
+     */
+    public constructor(usersClient: UsersAPIClient, storage: Storage) : this(
+        usersClient,
+        storage,
+        DEFAULT_DEBOUNCE_SECONDS
+    )
+
+    /**
+     * Creates a new buffer that keeps the pending updates in the given Storage, and sends them once the
+     * given interval has passed since the last update. Any update left pending by a previous instance is sent right away.
+     *
+     * @param usersClient     the Management API client to send the updates with.
+     * @param storage         the storage to keep the pending updates in.
+     * @param debounceSeconds the time in seconds to wait for more updates before sending them.
+     */
+    public constructor(
+        usersClient: UsersAPIClient,
+        storage: Storage,
+        @IntRange(from = 0) debounceSeconds: Int
+    ) : this(
+        usersClient,
+        storage,
+        TimeUnit.SECONDS.toMillis(debounceSeconds.toLong()),
+        newDaemonScheduler(THREAD_NAME),
+        ExponentialBackoff()
+    )
+
+    init {
+        require(debounceMillis >= 0) { "The debounce interval can't be negative." }
+        val stored = storage.retrieveString(KEY_PENDING_UPDATES)
+        if (stored != null) {
+            try {
+                gson.fromJson<Map<String, Map<String, Any?>>>(stored, PENDING_UPDATES_TYPE)
+                    ?.forEach { (userId, metadata) -> pending[userId] = LinkedHashMap(metadata) }
+            } catch (e: JsonParseException) {
+                Log.w(TAG, "The pending metadata updates could not be read and will be discarded.", e)
+                storage.remove(KEY_PENDING_UPDATES)
+            }
+        }
+        if (pending.isNotEmpty()) {
+            flush()
+        }
+    }
+
+    /**
+     * Whether there are updates waiting to be sent.
+     */
+    public val hasPendingUpdates: Boolean
+        get() = synchronized(lock) { pending.isNotEmpty() }
+
+    /**
+     * Returns the metadata waiting to be sent for the given user, merged into a single patch.
+     *
+     * @param userId the id of the user.
+     * @return the pending patch, or null if there's nothing pending for the user.
+     */
+    public fun getPendingMetadata(userId: String): Map<String, Any?>? {
+        return synchronized(lock) { pending[userId]?.let { LinkedHashMap(it) } }
+    }
+
+    /**
+     * Records the given metadata to be merged with the existing user_metadata of the user, and returns immediately.
+     * The top-level keys are merged with any update still pending for the user. A null value removes the key.
+     *
+     * @param userId       the id of the user.
+     * @param userMetadata the metadata to merge with the existing one.
+     */
+    public fun updateMetadata(userId: String, userMetadata: Map<String, Any?>) {
+        synchronized(lock) {
+            pending.getOrPut(userId) { LinkedHashMap() }.putAll(userMetadata)
+            persist()
+            val now = elapsedRealtime()
+            if (firstPendingAt == NOT_PENDING) {
+                firstPendingAt = now
+            }
+            if (retrying) {
+                // The scheduled retry will include this update
+                return
+            }
+            // A steady stream of updates postpones the flush only until the maximum wait
+            schedule(min(debounceMillis, max(0L, firstPendingAt + maxWaitMillis - now)))
+        }
+    }
+
+    /**
+     * Sends the pending updates now, without waiting for the debounce interval or the next retry.
+     */
+    public fun flush() {
+        backoff.reset()
+        synchronized(lock) {
+            retrying = false
+            schedule(0)
+        }
+    }
+
+    private fun schedule(delayMillis: Long) {
+        synchronized(lock) {
+            scheduledFlush?.cancel(false)
+            scheduledFlush = executor.schedule({ sendPending() }, delayMillis, TimeUnit.MILLISECONDS)
+        }
+    }
+
+    private fun sendPending() {
+        val updates = synchronized(lock) {
+            firstPendingAt = NOT_PENDING
+            pending.mapValues { (_, metadata) -> LinkedHashMap(metadata) }
+        }
+        for ((userId, metadata) in updates) {
+            try {
+                usersClient.updateMetadata(userId, metadata).execute()
+            } catch (error: ManagementException) {
+                if (isTransient(error)) {
+                    synchronized(lock) {
+                        retrying = true
+                        schedule(backoff.nextDelayMillis())
+                    }
+                    return
+                }
+                Log.w(TAG, "The metadata update was rejected and will be discarded.", error)
+            }
+            synchronized(lock) {
+                removeSent(userId, metadata)
+                persist()
+            }
+        }
+        backoff.reset()
+        synchronized(lock) {
+            retrying = false
+        }
+    }
+
+    /**
+     * Removes the values that were sent, keeping the ones updated while the request was in flight.
+     */
+    private fun removeSent(userId: String, sent: Map<String, Any?>) {
+        val current = pending[userId] ?: return
+        sent.forEach { (key, value) ->
+            if (current.containsKey(key) && current[key] == value) {
+                current.remove(key)
+            }
+        }
+        if (current.isEmpty()) {
+            pending.remove(userId)
+        }
+    }
+
+    private fun isTransient(error: ManagementException): Boolean {
+        return error.isNetworkError || error.statusCode == 429 || error.statusCode >= 500
+    }
+
+    private fun persist() {
+        if (pending.isEmpty()) {
+            storage.remove(KEY_PENDING_UPDATES)
+        } else {
+            storage.store(KEY_PENDING_UPDATES, gson.toJson(pending))
+        }
+    }
+
+    private companion object {
+        private val TAG = MetadataUpdateBuffer::class.java.simpleName
+        private const val KEY_PENDING_UPDATES = "com.auth0.pending_metadata_updates"
+        private const val DEFAULT_DEBOUNCE_SECONDS = 2
+        private const val MAX_WAIT_DEBOUNCE_INTERVALS = 5
+        private const val NOT_PENDING = -1L
+        private const val THREAD_NAME = "Auth0-MetadataUpdateBuffer"
+        private val PENDING_UPDATES_TYPE = TypeToken.getParameterized(
+            Map::class.java,
+            String::class.java,
+            TypeToken.getParameterized(Map::class.java, String::class.java, Any::class.java).type
+        ).type
+    }
+}
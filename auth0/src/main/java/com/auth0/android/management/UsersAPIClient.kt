@@ -13,6 +13,7 @@ import com.auth0.android.request.internal.GsonAdapter
 import com.auth0.android.request.internal.GsonAdapter.Companion.forListOf
 import com.auth0.android.request.internal.GsonAdapter.Companion.forMap
 import com.auth0.android.request.internal.GsonProvider
+import com.auth0.android.request.internal.RateLimiter
 import com.auth0.android.request.internal.RequestFactory
 import com.auth0.android.result.UserIdentity
 import com.auth0.android.result.UserProfile
@@ -55,6 +56,23 @@ public class UsersAPIClient @VisibleForTesting(otherwise = VisibleForTesting.PRI
     public val baseURL: String
         get() = auth0.getDomainUrl()
 
+    private val rateLimiter = RateLimiter.forDomain(auth0.getDomainUrl())
+
+    /**
+     * The number of requests to the tenant waiting to honor its Management API rate limits.
+     * Requests are paced using the `x-ratelimit-*` headers of the responses, and sent again when
+     * rejected for exceeding the limits, instead of failing.
+     */
+    public val rateLimitQueueDepth: Int
+        get() = rateLimiter.queueDepth
+
+    /**
+     * The total time, in milliseconds, that the requests to the tenant waited to honor its
+     * Management API rate limits.
+     */
+    public val rateLimitThrottledMillis: Long
+        get() = rateLimiter.throttledMillis
+
     /**
      * Link a user identity calling ['/api/v2/users/:primaryUserId/identities'](https://auth0.com/docs/link-accounts#the-management-api) endpoint
      * Example usage:
@@ -139,7 +157,7 @@ public class UsersAPIClient @VisibleForTesting(otherwise = VisibleForTesting.PRI
      * ```
      *
      * @param userId       of the primary identity to unlink
-     * @param userMetadata to merge with the existing one
+     * @param userMetadata to merge with the existing one. A null value removes the key
      * @return a request to start
      */
     public fun updateMetadata(
@@ -215,7 +233,7 @@ public class UsersAPIClient @VisibleForTesting(otherwise = VisibleForTesting.PRI
                     reader: Reader
                 ): ManagementException {
                     val values = mapAdapter.fromJson(reader)
-                    return ManagementException(values)
+                    return ManagementException(values, statusCode)
                 }
 
                 override fun fromException(cause: Throwable): ManagementException {
@@ -239,5 +257,7 @@ public class UsersAPIClient @VisibleForTesting(otherwise = VisibleForTesting.PRI
 
     init {
         factory.setAuth0ClientInfo(auth0.auth0UserAgent.value)
+        factory.telemetry = auth0.telemetry
+        factory.rateLimiter = rateLimiter
     }
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package com.auth0.android.provider;
+
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * Decides how long to wait for the Custom Tabs service to connect before launching the browser without it.
+ * Keeps an exponentially weighted moving average of the observed connection times, and waits a few times
+ * that average, bounded by a minimum and a maximum. Until a connection is observed, the maximum is used.
+ */
+class AdaptiveConnectionTimeout {
+
+    private static final long DEFAULT_MIN_TIMEOUT_MS = 150;
+    private static final long DEFAULT_MAX_TIMEOUT_MS = 1000;
+    private static final double SMOOTHING_FACTOR = 0.3;
+    private static final int AVERAGE_MULTIPLIER = 3;
+
+    private final long minTimeoutMillis;
+    private final long maxTimeoutMillis;
+    private double averageMillis = -1;
+
+    AdaptiveConnectionTimeout() {
+        this(DEFAULT_MIN_TIMEOUT_MS, DEFAULT_MAX_TIMEOUT_MS);
+    }
+
+    @VisibleForTesting
+    AdaptiveConnectionTimeout(long minTimeoutMillis, long maxTimeoutMillis) {
+        if (minTimeoutMillis < 0 || maxTimeoutMillis < minTimeoutMillis) {
+            throw new IllegalArgumentException("The timeouts can't be negative and the maximum can't be lower than the minimum.");
+        }
+        this.minTimeoutMillis = minTimeoutMillis;
+        this.maxTimeoutMillis = maxTimeoutMillis;
+    }
+
+    /**
+     * Records the time it took for the service to connect.
+     *
+     * @param connectionMillis the time between the bind request and the connection, in milliseconds.
+     */
+    synchronized void recordConnection(long connectionMillis) {
+        // A connection slower than the maximum only counts as the maximum, so a single outlier doesn't stick
+        long sample = Math.max(0, Math.min(connectionMillis, maxTimeoutMillis));
+        averageMillis = averageMillis < 0 ? sample : SMOOTHING_FACTOR * sample + (1 - SMOOTHING_FACTOR) * averageMillis;
+    }
+
+    /**
+     * The time to wait for the service to connect, in milliseconds.
+     */
+    synchronized long getTimeoutMillis() {
+        if (averageMillis < 0) {
+            return maxTimeoutMillis;
+        }
+        long timeout = Math.round(averageMillis * AVERAGE_MULTIPLIER);
+        return Math.max(minTimeoutMillis, Math.min(timeout, maxTimeoutMillis));
+    }
+
+    @VisibleForTesting
+    synchronized void reset() {
+        averageMillis = -1;
+    }
+}
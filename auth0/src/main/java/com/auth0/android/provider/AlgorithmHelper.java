@@ -37,11 +37,22 @@ class AlgorithmHelper {
         return signature;
     }
 
+    /**
+     * Returns the SecureRandom shared by every login. Creating and seeding a SecureRandom is expensive,
+     * and one instance is safe to use from several threads.
+     */
+    static SecureRandom getSecureRandom() {
+        return SecureRandomHolder.INSTANCE;
+    }
+
+    String generateRandomString() {
+        byte[] randomBytes = new byte[32];
+        getSecureRandom().nextBytes(randomBytes);
+        return getBase64String(randomBytes);
+    }
+
     String generateCodeVerifier() {
-        SecureRandom sr = new SecureRandom();
-        byte[] code = new byte[32];
-        sr.nextBytes(code);
-        return Base64.encodeToString(code, Base64.URL_SAFE | Base64.NO_WRAP | Base64.NO_PADDING);
+        return generateRandomString();
     }
 
     String generateCodeChallenge(@NonNull String codeVerifier) {
@@ -49,4 +60,8 @@ class AlgorithmHelper {
         byte[] signature = getSHA256(input);
         return getBase64String(signature);
     }
-}
\ No newline at end of file
+
+    private static class SecureRandomHolder {
+        private static final SecureRandom INSTANCE = new SecureRandom();
+    }
+}
@@ -5,51 +5,205 @@ import android.util.Base64;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import java.nio.charset.StandardCharsets;
+import com.auth0.android.request.internal.Jwt;
+
+import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PSSParameterSpec;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 /**
- * Token signature verifier for RS256 algorithms.
+ * Token signature verifier for RS256, PS256 and ES256 algorithms.
+ * Each verifier only accepts the algorithm its key is declared for, so that a key can't be used with an
+ * algorithm other than the one intended for it. RSA keys can be declared for RS256 or PS256, and P-256
+ * elliptic curve keys for ES256.
+ * <p>
+ * Initializing a {@link Signature} is the expensive part of the verification, so each thread keeps and
+ * reuses its own initialized instance. Get instances through {@link SignatureVerifierRegistry} to share them
+ * across logins.
  */
 class AsymmetricSignatureVerifier extends SignatureVerifier {
 
-    private Signature publicSignature;
+    private static final String RS256 = "RS256";
+    private static final String PS256 = "PS256";
+    private static final String ES256 = "ES256";
+    private static final int ES256_COORDINATE_LENGTH = 32;
+    // RSASSA-PSS is not available before API 23
+    private static final List<String> ALGORITHMS_WITHOUT_PSS = Arrays.asList(RS256, ES256);
+
+    @NonNull
+    private final PublicKey publicKey;
+    @NonNull
+    private final String algorithm;
+    private final ThreadLocal<Signature> signatures = new ThreadLocal<>();
 
     /**
      * Creates a new instance of the verifier
      *
      * @param publicKey the public key to use for verification
-     * @throws InvalidKeyException if the public key provided is null or not of type RSA
+     * @param algorithm the algorithm the key is declared for, the only one accepted
+     * @throws InvalidKeyException if the public key provided is null, or can't be used with the algorithm
      */
-    AsymmetricSignatureVerifier(@Nullable PublicKey publicKey) throws InvalidKeyException {
-        super(Collections.singletonList("RS256"));
+    AsymmetricSignatureVerifier(@Nullable PublicKey publicKey, @NonNull String algorithm) throws InvalidKeyException {
+        super(Collections.singletonList(checkKey(publicKey, algorithm)));
+        //noinspection ConstantConditions
+        this.publicKey = publicKey;
+        this.algorithm = algorithm;
+        // Fail early if the key can't be used, and keep the instance for this thread
         try {
-            publicSignature = Signature.getInstance("SHA256withRSA");
-            publicSignature.initVerify(publicKey);
+            signatures.set(createSignature());
         } catch (NoSuchAlgorithmException ignored) {
-            //Safe to ignore: "SHA256withRSA" is available since API 1
+            //Safe to ignore: "SHA256withRSA" and "SHA256withECDSA" are available since API 1 and 11,
+            //and the tokens are rejected when verified if RSASSA-PSS is not available
             //https://developer.android.com/reference/java/security/Signature.html
         }
     }
 
+    @NonNull
+    PublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    @NonNull
+    String getAlgorithm() {
+        return algorithm;
+    }
+
     @Override
-    protected void checkSignature(@NonNull String[] tokenParts) throws TokenValidationException {
-        String content = tokenParts[0] + "." + tokenParts[1];
-        byte[] contentBytes = content.getBytes(StandardCharsets.UTF_8);
+    protected void checkSignature(@NonNull Jwt token) throws TokenValidationException {
+        Signature signature = signatures.get();
+        if (signature == null) {
+            try {
+                signature = createSignature();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IdTokenAlgorithmNotSupportedException(algorithm, ALGORITHMS_WITHOUT_PSS);
+            } catch (InvalidKeyException e) {
+                throw new InvalidIdTokenSignatureException();
+            }
+            signatures.set(signature);
+        }
         boolean valid = false;
         try {
-            byte[] signatureBytes = Base64.decode(tokenParts[2], Base64.URL_SAFE | Base64.NO_WRAP);
-            publicSignature.update(contentBytes);
-            valid = publicSignature.verify(signatureBytes);
+            byte[] signatureBytes = Base64.decode(token.getParts()[2], Base64.URL_SAFE | Base64.NO_WRAP);
+            if (ES256.equals(algorithm)) {
+                signatureBytes = toDerSignature(signatureBytes);
+            }
+            if (signatureBytes != null) {
+                signature.update(token.toAsciiBytes(), 0, token.getSigningInputLength());
+                valid = signature.verify(signatureBytes);
+            }
         } catch (Exception ignored) {
-            //safe to ignore: throws when the Signature object is not properly initialized
+            //safe to ignore: the signature is not valid. The instance might not have been reset, so drop it
+            signatures.remove();
         }
         if (!valid) {
             throw new InvalidIdTokenSignatureException();
         }
     }
+
+    @NonNull
+    private Signature createSignature() throws NoSuchAlgorithmException, InvalidKeyException {
+        Signature signature;
+        if (ES256.equals(algorithm)) {
+            signature = Signature.getInstance("SHA256withECDSA");
+        } else if (PS256.equals(algorithm)) {
+            signature = createPssSignature();
+        } else {
+            signature = Signature.getInstance("SHA256withRSA");
+        }
+        signature.initVerify(publicKey);
+        return signature;
+    }
+
+    @NonNull
+    private static Signature createPssSignature() throws NoSuchAlgorithmException {
+        try {
+            return Signature.getInstance("SHA256withRSA/PSS");
+        } catch (NoSuchAlgorithmException e) {
+            // Providers that only know the generic name need the parameters to be set
+            Signature signature = Signature.getInstance("RSASSA-PSS");
+            try {
+                signature.setParameter(new PSSParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, 32, 1));
+            } catch (GeneralSecurityException invalidParameters) {
+                throw new NoSuchAlgorithmException(invalidParameters);
+            }
+            return signature;
+        }
+    }
+
+    /**
+     * Checks that the public key can be used with the algorithm it's declared for.
+     *
+     * @return the algorithm.
+     */
+    @NonNull
+    private static String checkKey(@Nullable PublicKey publicKey, @NonNull String algorithm) throws InvalidKeyException {
+        if (RS256.equals(algorithm) || PS256.equals(algorithm)) {
+            if (!(publicKey instanceof RSAPublicKey)) {
+                throw new InvalidKeyException("The public key for " + algorithm + " must be of type RSA");
+            }
+            return algorithm;
+        }
+        if (ES256.equals(algorithm)) {
+            if (!(publicKey instanceof ECPublicKey)) {
+                throw new InvalidKeyException("The public key for " + algorithm + " must be of type EC");
+            }
+            if (((ECPublicKey) publicKey).getParams().getCurve().getField().getFieldSize() != 8 * ES256_COORDINATE_LENGTH) {
+                throw new InvalidKeyException("The EC public key must be on the P-256 curve");
+            }
+            return algorithm;
+        }
+        throw new InvalidKeyException("The algorithm " + algorithm + " is not supported");
+    }
+
+    /**
+     * Converts an ES256 signature from the JWS format, the R and S values one after the other,
+     * to the DER sequence expected by {@link Signature}.
+     *
+     * @return the DER encoded signature, or null if the given signature doesn't have the expected length.
+     */
+    @Nullable
+    static byte[] toDerSignature(@NonNull byte[] jwsSignature) {
+        if (jwsSignature.length != 2 * ES256_COORDINATE_LENGTH) {
+            return null;
+        }
+        byte[] r = toDerInteger(jwsSignature, 0);
+        byte[] s = toDerInteger(jwsSignature, ES256_COORDINATE_LENGTH);
+        int sequenceLength = 2 + r.length + 2 + s.length;
+        byte[] der = new byte[2 + sequenceLength];
+        int offset = 0;
+        der[offset++] = 0x30;
+        der[offset++] = (byte) sequenceLength;
+        der[offset++] = 0x02;
+        der[offset++] = (byte) r.length;
+        System.arraycopy(r, 0, der, offset, r.length);
+        offset += r.length;
+        der[offset++] = 0x02;
+        der[offset++] = (byte) s.length;
+        System.arraycopy(s, 0, der, offset, s.length);
+        return der;
+    }
+
+    @NonNull
+    private static byte[] toDerInteger(@NonNull byte[] source, int from) {
+        int start = from;
+        int end = from + ES256_COORDINATE_LENGTH;
+        // Strip the leading zeros, but keep one for a value of zero
+        while (start < end - 1 && source[start] == 0) {
+            start++;
+        }
+        // Prepend a zero if the value would be read as negative
+        boolean padded = (source[start] & 0x80) != 0;
+        byte[] integer = new byte[end - start + (padded ? 1 : 0)];
+        System.arraycopy(source, start, integer, padded ? 1 : 0, end - start);
+        return integer;
+    }
 }
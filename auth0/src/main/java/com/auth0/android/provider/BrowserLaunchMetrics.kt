@@ -0,0 +1,58 @@
+package com.auth0.android.provider
+
+/**
+ * Breakdown of the time it took to open the browser for the last login or logout.
+ *
+ *  * *totalMillis*: Time from the request to open the browser until the browser intent was sent.
+ *  * *waitMillis*: Time spent waiting for the Custom Tabs service to connect.
+ *  * *serviceConnectionMillis*: Time the Custom Tabs service took to connect, if it connected before the launch.
+ *  * *usedWarmSession*: Whether the session prepared by [WebAuthProvider.Builder.warmUp] was used.
+ *  * *timedOut*: Whether the browser was launched without a session because the service didn't connect in time.
+ *  * *launchedAsTwa*: Whether the browser was launched as a Trusted Web Activity.
+ *
+ * @see WebAuthProvider.lastBrowserLaunchMetrics
+ */
+public class BrowserLaunchMetrics internal constructor(
+    /**
+     * Getter for the time from the request to open the browser until the browser intent was sent.
+     *
+     * @return the total launch time, in milliseconds.
+     */
+    public val totalMillis: Long,
+    /**
+     * Getter for the time spent waiting for the Custom Tabs service to connect.
+     *
+     * @return the wait time, in milliseconds.
+     */
+    public val waitMillis: Long,
+    /**
+     * Getter for the time the Custom Tabs service took to connect.
+     *
+     * @return the connection time in milliseconds, or null if the service wasn't connected when the browser was launched.
+     */
+    public val serviceConnectionMillis: Long?,
+    /**
+     * Getter for whether the warmed up session was used.
+     *
+     * @return true if the session prepared by [WebAuthProvider.Builder.warmUp] was used.
+     */
+    public val usedWarmSession: Boolean,
+    /**
+     * Getter for whether the wait for the Custom Tabs service timed out.
+     *
+     * @return true if the browser was launched without a session because the service didn't connect in time.
+     */
+    public val timedOut: Boolean,
+    /**
+     * Getter for whether the browser was launched as a Trusted Web Activity.
+     *
+     * @return true if launched as a Trusted Web Activity.
+     */
+    public val launchedAsTwa: Boolean
+) {
+
+    override fun toString(): String {
+        return "BrowserLaunchMetrics(totalMillis=$totalMillis, waitMillis=$waitMillis, serviceConnectionMillis=$serviceConnectionMillis, " +
+                "usedWarmSession=$usedWarmSession, timedOut=$timedOut, launchedAsTwa=$launchedAsTwa)"
+    }
+}
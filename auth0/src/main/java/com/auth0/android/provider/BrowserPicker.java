@@ -1,5 +1,6 @@
 package com.auth0.android.provider;
 
+import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
@@ -7,9 +8,13 @@ import android.net.Uri;
 import android.os.Build;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.text.TextUtils;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.auth0.android.request.internal.CommonThreadSwitcher;
+
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -107,15 +112,59 @@ public class BrowserPicker implements Parcelable {
 
     }
 
+    /**
+     * Resolves the browser in the background and keeps the choice, so that the next calls to
+     * {@link #getBestBrowserPackage(PackageManager)} only need to check the default browser.
+     * The choice is resolved again whenever an app is installed, removed or changed, or the default browser changes.
+     *
+     * @param context a valid context.
+     */
+    void prefetch(@NonNull Context context) {
+        final BrowserResolutionCache cache = BrowserResolutionCache.getInstance();
+        cache.register(context);
+        if (cache.get(getConfigurationKey()) != null) {
+            return;
+        }
+        final Context appContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        final PackageManager pm = appContext.getPackageManager();
+        CommonThreadSwitcher.getInstance().backgroundThread(() -> getBestBrowserPackage(pm));
+    }
+
     @Nullable
     String getBestBrowserPackage(@NonNull PackageManager pm) {
-        Intent browserIntent = new Intent(Intent.ACTION_VIEW, Uri.parse("http://www.example.com"));
-        ResolveInfo webHandler = pm.resolveActivity(browserIntent, PackageManager.MATCH_DEFAULT_ONLY);
-        String defaultBrowser = null;
-        if (webHandler != null) {
-            defaultBrowser = webHandler.activityInfo.packageName;
+        final BrowserResolutionCache cache = BrowserResolutionCache.getInstance();
+        final String configurationKey = getConfigurationKey();
+        int generation = cache.getGeneration();
+        String defaultBrowser = resolveDefaultBrowser(pm);
+        BrowserResolutionCache.Choice cached = cache.get(configurationKey);
+        //Changing the default browser doesn't broadcast a package change, so it's checked on every call
+        if (cached != null && TextUtils.equals(cached.defaultBrowser, defaultBrowser)) {
+            return cached.packageName;
         }
+        String bestPackage = resolveBestBrowserPackage(pm, defaultBrowser);
+        cache.put(this, configurationKey, defaultBrowser, bestPackage, generation);
+        return bestPackage;
+    }
 
+    @NonNull
+    private String getConfigurationKey() {
+        return allowedPackages == null ? "*" : "allowed:" + TextUtils.join(",", allowedPackages);
+    }
+
+    @Nullable
+    private String resolveDefaultBrowser(@NonNull PackageManager pm) {
+        ResolveInfo webHandler = pm.resolveActivity(newBrowserIntent(), PackageManager.MATCH_DEFAULT_ONLY);
+        return webHandler != null ? webHandler.activityInfo.packageName : null;
+    }
+
+    @NonNull
+    private Intent newBrowserIntent() {
+        return new Intent(Intent.ACTION_VIEW, Uri.parse("http://www.example.com"));
+    }
+
+    @Nullable
+    private String resolveBestBrowserPackage(@NonNull PackageManager pm, @Nullable String defaultBrowser) {
+        Intent browserIntent = newBrowserIntent();
         final List<ResolveInfo> availableBrowsers = pm.queryIntentActivities(browserIntent, Build.VERSION.SDK_INT >= Build.VERSION_CODES.M ? PackageManager.MATCH_ALL : 0);
         final List<String> regularBrowsers = new ArrayList<>();
         final List<String> customTabsBrowsers = new ArrayList<>();
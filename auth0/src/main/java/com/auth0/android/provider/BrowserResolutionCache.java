@@ -0,0 +1,153 @@
+package com.auth0.android.provider;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.auth0.android.request.internal.CommonThreadSwitcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide cache of the browser chosen by each {@link BrowserPicker} configuration.
+ * Resolving the browser takes several calls to the package manager, so once enabled the choice is kept
+ * until an app is installed, removed or changed, at which point the known configurations are resolved
+ * again in the background. Changing the default browser isn't broadcast, so each choice also keeps the
+ * default browser it was resolved with, for the caller to compare with the current one.
+ * <p>
+ * The cache is only enabled once {@link #register(Context)} is called, since it needs a Context to
+ * be notified of those changes.
+ */
+class BrowserResolutionCache extends BroadcastReceiver {
+
+    private static final String TAG = BrowserResolutionCache.class.getSimpleName();
+    private static final BrowserResolutionCache INSTANCE = new BrowserResolutionCache();
+
+    private final Map<String, Choice> choices = new ConcurrentHashMap<>();
+    private final Object lock = new Object();
+    @Nullable
+    private Context appContext;
+    @Nullable
+    private PackageManager packageManager;
+    private volatile boolean enabled;
+    private volatile int generation;
+
+    @NonNull
+    static BrowserResolutionCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Enables the cache and starts listening to package changes. Calling it again has no effect.
+     *
+     * @param context a valid context.
+     */
+    void register(@NonNull Context context) {
+        synchronized (lock) {
+            if (enabled) {
+                return;
+            }
+            Context appContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+            IntentFilter filter = new IntentFilter();
+            filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+            filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+            filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+            filter.addDataScheme("package");
+            appContext.registerReceiver(this, filter);
+            this.appContext = appContext;
+            this.packageManager = appContext.getPackageManager();
+            enabled = true;
+        }
+    }
+
+    /**
+     * The generation of the cached choices, which changes every time they're invalidated.
+     * Read it before resolving a browser and pass it to {@link #put(BrowserPicker, String, String, String, int)}.
+     */
+    int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the cached choice for the given configuration, or null if it's not known yet.
+     * A known configuration for which no browser is available is returned as a choice with a null package.
+     */
+    @Nullable
+    Choice get(@NonNull String configurationKey) {
+        return enabled ? choices.get(configurationKey) : null;
+    }
+
+    /**
+     * Caches the browser resolved for the given configuration, along with the default browser it was resolved with,
+     * unless the cache was invalidated since the given generation was read.
+     */
+    void put(@NonNull BrowserPicker picker, @NonNull String configurationKey, @Nullable String defaultBrowser, @Nullable String packageName, int resolvedGeneration) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (lock) {
+            if (resolvedGeneration == generation) {
+                choices.put(configurationKey, new Choice(picker, defaultBrowser, packageName));
+            }
+        }
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        Log.v(TAG, "Installed packages changed, resolving the browsers again: " + intent.getAction());
+        final List<Choice> previous;
+        synchronized (lock) {
+            generation++;
+            previous = new ArrayList<>(choices.values());
+            choices.clear();
+        }
+        final PackageManager pm = this.packageManager;
+        if (pm == null || previous.isEmpty()) {
+            return;
+        }
+        CommonThreadSwitcher.getInstance().backgroundThread(() -> {
+            for (Choice choice : previous) {
+                choice.picker.getBestBrowserPackage(pm);
+            }
+        });
+    }
+
+    @VisibleForTesting
+    void reset() {
+        synchronized (lock) {
+            if (appContext != null) {
+                appContext.unregisterReceiver(this);
+                appContext = null;
+            }
+            packageManager = null;
+            enabled = false;
+            generation++;
+            choices.clear();
+        }
+    }
+
+    static class Choice {
+        @NonNull
+        final BrowserPicker picker;
+        @Nullable
+        final String defaultBrowser;
+        @Nullable
+        final String packageName;
+
+        Choice(@NonNull BrowserPicker picker, @Nullable String defaultBrowser, @Nullable String packageName) {
+            this.picker = picker;
+            this.defaultBrowser = defaultBrowser;
+            this.packageName = packageName;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import android.net.Uri;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.browser.customtabs.CustomTabsClient;
 import androidx.browser.customtabs.CustomTabsServiceConnection;
@@ -15,12 +16,14 @@ import androidx.browser.customtabs.CustomTabsSession;
 
 import com.auth0.android.authentication.AuthenticationException;
 import com.auth0.android.callback.RunnableTask;
-import com.auth0.android.request.internal.CommonThreadSwitcher;
 import com.auth0.android.request.internal.ThreadSwitcher;
+import com.auth0.android.util.Auth0Telemetry;
 import com.google.androidbrowserhelper.trusted.TwaLauncher;
 
 import java.lang.ref.WeakReference;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -29,28 +32,66 @@ import java.util.concurrent.atomic.AtomicReference;
 class CustomTabsController extends CustomTabsServiceConnection {
 
     static final String TAG = CustomTabsController.class.getSimpleName();
-    private static final long MAX_WAIT_TIME_SECONDS = 1;
+    private static final long EXECUTOR_KEEP_ALIVE_SECONDS = 30;
+
+    private static final ScheduledExecutorService SHARED_EXECUTOR = createSharedExecutor();
+    private static final AdaptiveConnectionTimeout SHARED_CONNECTION_TIMEOUT = new AdaptiveConnectionTimeout();
+    @Nullable
+    private static volatile BrowserLaunchMetrics lastLaunchMetrics;
+    @NonNull
+    private static volatile Auth0Telemetry telemetry = Auth0Telemetry.NONE;
 
     private final WeakReference<Context> context;
     private final AtomicReference<CustomTabsSession> session;
-    private final CountDownLatch sessionLatch;
+    private final AtomicReference<PendingLaunch> pendingLaunch;
+    @Nullable
+    private volatile ScheduledFuture<?> launchTimeout;
     private final String preferredPackage;
     private final TwaLauncher twaLauncher;
+    private final ScheduledExecutorService executor;
+    private final AdaptiveConnectionTimeout connectionTimeout;
 
     @NonNull
     private final CustomTabsOptions customTabsOptions;
-    private boolean didTryToBind;
+    private volatile boolean didTryToBind;
+    private volatile boolean isBound;
+    private volatile long bindRequestedAt;
+    @Nullable
+    private volatile Long serviceConnectionMillis;
     @VisibleForTesting
     boolean launchedAsTwa;
 
     @VisibleForTesting
     CustomTabsController(@NonNull Context context, @NonNull CustomTabsOptions options, @NonNull TwaLauncher twaLauncher) {
+        this(context, options, twaLauncher, SHARED_EXECUTOR, SHARED_CONNECTION_TIMEOUT);
+    }
+
+    @VisibleForTesting
+    CustomTabsController(@NonNull Context context, @NonNull CustomTabsOptions options, @NonNull TwaLauncher twaLauncher,
+                         @NonNull ScheduledExecutorService executor, @NonNull AdaptiveConnectionTimeout connectionTimeout) {
         this.context = new WeakReference<>(context);
         this.session = new AtomicReference<>();
-        this.sessionLatch = new CountDownLatch(1);
+        this.pendingLaunch = new AtomicReference<>();
         this.customTabsOptions = options;
         this.preferredPackage = options.getPreferredPackage(context.getPackageManager());
-        this.twaLauncher  = twaLauncher;
+        this.twaLauncher = twaLauncher;
+        this.executor = executor;
+        this.connectionTimeout = connectionTimeout;
+    }
+
+    /**
+     * The launch times of the last browser opened by any controller, or null if none was opened yet.
+     */
+    @Nullable
+    static BrowserLaunchMetrics getLastLaunchMetrics() {
+        return lastLaunchMetrics;
+    }
+
+    /**
+     * Sets where the launch times of the browsers opened from now on are reported.
+     */
+    static void setTelemetry(@NonNull Auth0Telemetry telemetry) {
+        CustomTabsController.telemetry = telemetry;
     }
 
     @VisibleForTesting
@@ -61,9 +102,15 @@ class CustomTabsController extends CustomTabsServiceConnection {
     @Override
     public void onCustomTabsServiceConnected(@NonNull ComponentName componentName, @NonNull CustomTabsClient customTabsClient) {
         Log.d(TAG, "CustomTabs Service connected");
+        if (bindRequestedAt != 0) {
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - bindRequestedAt);
+            serviceConnectionMillis = elapsed;
+            connectionTimeout.recordConnection(elapsed);
+        }
         customTabsClient.warmup(0L);
         session.set(customTabsClient.newSession(null));
-        sessionLatch.countDown();
+        // Don't start the browser from the main thread this callback runs on
+        executor.execute(() -> runPendingLaunch(false));
     }
 
     @Override
@@ -82,8 +129,10 @@ class CustomTabsController extends CustomTabsServiceConnection {
         boolean wasBound = false;
         if (context != null && preferredPackage != null) {
             didTryToBind = true;
+            bindRequestedAt = System.nanoTime();
             wasBound = CustomTabsClient.bindCustomTabsService(context, preferredPackage, this);
         }
+        isBound = wasBound;
         Log.v(TAG, String.format("Bind request result (%s): %s", preferredPackage, wasBound));
     }
 
@@ -96,6 +145,7 @@ class CustomTabsController extends CustomTabsServiceConnection {
         if (didTryToBind && context != null) {
             context.unbindService(this);
             didTryToBind = false;
+            isBound = false;
         }
         if(launchedAsTwa) {
             twaLauncher.destroy();
@@ -104,8 +154,8 @@ class CustomTabsController extends CustomTabsServiceConnection {
 
     /**
      * Opens a Uri in a Custom Tab or Browser.
-     * The Custom Tab service will be given up to {@link CustomTabsController#MAX_WAIT_TIME_SECONDS} to be connected.
-     * If it fails to connect the Uri will be opened on a Browser.
+     * The Uri is opened right away if a warmed up or connected Custom Tabs session is available. Otherwise, it's opened
+     * as soon as the Custom Tab service connects, or on a Browser if it doesn't connect within an adaptive timeout of at most a second.
      * <p>
      * In the exceptional case that no Browser app is installed on the device, this method will fail silently and do nothing.
      * Please, ensure the {@link Intent#ACTION_VIEW} action can be handled before calling this method.
@@ -119,41 +169,142 @@ class CustomTabsController extends CustomTabsServiceConnection {
             return;
         }
 
-        new Thread(() -> {
-            try {
-                if (launchAsTwa) {
-                    this.launchedAsTwa = true;
-                    twaLauncher.launch(
-                            customTabsOptions.toTwaIntentBuilder(context, uri),
-                            null,
-                            null,
-                            null,
-                            TwaLauncher.CCT_FALLBACK_STRATEGY
-                    );
-                } else {
-                    launchAsDefault(context, uri);
-                }
-            } catch (ActivityNotFoundException ex) {
-                Log.e(TAG, "Could not find any Browser application installed in this device to handle the intent.");
-            } catch (SecurityException ex) {
-                AuthenticationException e = new AuthenticationException(
-                        "a0.browser_not_available", "Error launching browser for authentication", ex);
-                threadSwitcher.mainThread(() -> failureCallback.apply(e));
+        final PendingLaunch launch = new PendingLaunch(context, uri, threadSwitcher, failureCallback, System.nanoTime(),
+                telemetry.startSpan(Auth0Telemetry.BROWSER_LAUNCH));
+        executor.execute(() -> {
+            if (launchAsTwa) {
+                launchTwa(launch);
+            } else {
+                launchAsDefault(launch);
             }
-        }).start();
+        });
     }
 
-    private void launchAsDefault(Context context, Uri uri) {
-        bindService();
-        boolean available = false;
+    private void launchTwa(PendingLaunch launch) {
+        this.launchedAsTwa = true;
+        start(launch, () -> twaLauncher.launch(
+                customTabsOptions.toTwaIntentBuilder(launch.context, launch.uri),
+                null,
+                null,
+                null,
+                TwaLauncher.CCT_FALLBACK_STRATEGY
+        ));
+        recordMetrics(launch, 0, false, false, true);
+    }
+
+    private void launchAsDefault(PendingLaunch launch) {
+        if (!didTryToBind) {
+            bindService();
+        }
+        CustomTabsSession warmSession = CustomTabsWarmer.INSTANCE.getSession(preferredPackage);
+        if (warmSession != null) {
+            // The browser was warmed up for this URI already, no need to wait for our own connection
+            Log.d(TAG, "Launching URI with the warmed up Custom Tabs session");
+            openCustomTab(launch, warmSession, 0, true, false);
+            return;
+        }
+        if (!isBound || session.get() != null) {
+            Log.d(TAG, "Launching URI. Custom Tabs available: " + (session.get() != null));
+            openCustomTab(launch, session.get(), 0, false, false);
+            return;
+        }
+        launch.waitStartedAt = System.nanoTime();
+        pendingLaunch.set(launch);
+        long timeout = connectionTimeout.getTimeoutMillis();
+        launchTimeout = executor.schedule(() -> runPendingLaunch(true), timeout, TimeUnit.MILLISECONDS);
+        if (session.get() != null) {
+            // Connected while the launch was being registered
+            runPendingLaunch(false);
+        }
+    }
+
+    /**
+     * Opens the pending Uri, if it wasn't opened yet. Called once the service connects or the wait times out, whichever happens first.
+     */
+    private void runPendingLaunch(boolean timedOut) {
+        PendingLaunch launch = pendingLaunch.getAndSet(null);
+        if (launch == null) {
+            return;
+        }
+        ScheduledFuture<?> timeout = launchTimeout;
+        if (!timedOut && timeout != null) {
+            timeout.cancel(false);
+        }
+        CustomTabsSession currentSession = session.get();
+        Log.d(TAG, "Launching URI. Custom Tabs available: " + (currentSession != null));
+        long waitMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - launch.waitStartedAt);
+        openCustomTab(launch, currentSession, waitMillis, false, timedOut && currentSession == null);
+    }
+
+    private void openCustomTab(PendingLaunch launch, @Nullable CustomTabsSession launchSession, long waitMillis, boolean usedWarmSession, boolean timedOut) {
+        start(launch, () -> {
+            final Intent intent = customTabsOptions.toIntent(launch.context, launchSession);
+            intent.setData(launch.uri);
+            launch.context.startActivity(intent);
+        });
+        recordMetrics(launch, waitMillis, usedWarmSession, timedOut, false);
+    }
+
+    private void start(PendingLaunch launch, Runnable browserLauncher) {
         try {
-            available = sessionLatch.await(preferredPackage == null ? 0 : MAX_WAIT_TIME_SECONDS, TimeUnit.SECONDS);
-        } catch (InterruptedException ignored) {
+            browserLauncher.run();
+        } catch (ActivityNotFoundException ex) {
+            Log.e(TAG, "Could not find any Browser application installed in this device to handle the intent.");
+            launch.failure = ex;
+        } catch (SecurityException ex) {
+            launch.failure = ex;
+            AuthenticationException e = new AuthenticationException(
+                    "a0.browser_not_available", "Error launching browser for authentication", ex);
+            launch.threadSwitcher.mainThread(() -> launch.failureCallback.apply(e));
         }
-        Log.d(TAG, "Launching URI. Custom Tabs available: " + available);
-        final Intent intent = customTabsOptions.toIntent(context, session.get());
-        intent.setData(uri);
-        context.startActivity(intent);
     }
 
-}
\ No newline at end of file
+    private void recordMetrics(PendingLaunch launch, long waitMillis, boolean usedWarmSession, boolean timedOut, boolean asTwa) {
+        long totalMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - launch.requestedAt);
+        Long connectionMillis = usedWarmSession || timedOut ? null : serviceConnectionMillis;
+        BrowserLaunchMetrics metrics = new BrowserLaunchMetrics(totalMillis, waitMillis, connectionMillis, usedWarmSession, timedOut, asTwa);
+        Log.v(TAG, "Browser launched: " + metrics);
+        lastLaunchMetrics = metrics;
+        launch.span.setAttribute(Auth0Telemetry.ATTRIBUTE_WARM_SESSION, String.valueOf(usedWarmSession));
+        launch.span.setAttribute(Auth0Telemetry.ATTRIBUTE_TWA, String.valueOf(asTwa));
+        launch.span.end(launch.failure);
+    }
+
+    private static ScheduledExecutorService createSharedExecutor() {
+        // Launches are rare, so let the thread go while idle
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        executor.setKeepAliveTime(EXECUTOR_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    @VisibleForTesting
+    static void resetSharedState() {
+        SHARED_CONNECTION_TIMEOUT.reset();
+        lastLaunchMetrics = null;
+        telemetry = Auth0Telemetry.NONE;
+    }
+
+    private static class PendingLaunch {
+        final Context context;
+        final Uri uri;
+        final ThreadSwitcher threadSwitcher;
+        final RunnableTask<AuthenticationException> failureCallback;
+        final long requestedAt;
+        final Auth0Telemetry.Span span;
+        volatile long waitStartedAt;
+        @Nullable
+        volatile Throwable failure;
+
+        PendingLaunch(Context context, Uri uri, ThreadSwitcher threadSwitcher, RunnableTask<AuthenticationException> failureCallback, long requestedAt, Auth0Telemetry.Span span) {
+            this.context = context;
+            this.uri = uri;
+            this.threadSwitcher = threadSwitcher;
+            this.failureCallback = failureCallback;
+            this.requestedAt = requestedAt;
+            this.span = span;
+            this.waitStartedAt = requestedAt;
+        }
+    }
+}
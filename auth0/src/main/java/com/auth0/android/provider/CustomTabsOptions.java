@@ -35,6 +35,18 @@ public class CustomTabsOptions implements Parcelable {
         this.browserPicker = browserPicker;
     }
 
+    /**
+     * Resolves in the background the browser these options will open, so that starting a login or logout
+     * doesn't need to query the installed apps again. The choice is kept for the lifetime of the process,
+     * and resolved again whenever an app is installed, removed or updated.
+     * Call it early, for example in the Application's or the login Activity's onCreate method.
+     *
+     * @param context a valid context.
+     */
+    public void prefetchPreferredPackage(@NonNull Context context) {
+        browserPicker.prefetch(context);
+    }
+
     @Nullable
     String getPreferredPackage(@NonNull PackageManager pm) {
         return browserPicker.getBestBrowserPackage(pm);
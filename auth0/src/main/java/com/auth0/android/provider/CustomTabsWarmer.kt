@@ -0,0 +1,139 @@
+package com.auth0.android.provider
+
+import android.content.ComponentName
+import android.content.Context
+import android.net.Uri
+import android.util.Log
+import androidx.annotation.VisibleForTesting
+import androidx.browser.customtabs.CustomTabsClient
+import androidx.browser.customtabs.CustomTabsServiceConnection
+import androidx.browser.customtabs.CustomTabsSession
+import com.auth0.android.request.internal.newDaemonScheduler
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
+
+/**
+ * Keeps a Custom Tabs session connected ahead of a login, so that the browser is warmed up and told the
+ * authorize URL before the [CustomTabsController] launches it. Launching with this same session lets
+ * the browser reuse the connection it already opened to that URL.
+ *
+ * The browser is unbound once the login completes, or once it's left idle for as long as the prepared
+ * login values are valid, whichever happens first.
+ */
+internal object CustomTabsWarmer {
+    private val TAG = CustomTabsWarmer::class.java.simpleName
+    private const val THREAD_NAME = "Auth0-CustomTabsWarmer"
+    private const val IDLE_TIMEOUT_MILLIS = 5 * 60 * 1000L
+    private val lock = Any()
+    private var connection: WarmConnection? = null
+    private var idleRelease: ScheduledFuture<*>? = null
+
+    @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE)
+    internal var scheduler: ScheduledExecutorService = newDaemonScheduler(THREAD_NAME)
+
+    /**
+     * Binds the Custom Tabs service of the given browser, warms it up and hints it with the given URL.
+     * If the browser is already bound, only the URL is updated. Either way, the idle timeout starts over.
+     */
+    fun warmUp(context: Context, browserPackage: String, uri: Uri) {
+        synchronized(lock) {
+            val current = connection
+            if (current != null && current.browserPackage == browserPackage) {
+                current.mayLaunchUrl(uri)
+                scheduleIdleRelease(current)
+                return
+            }
+            current?.unbind()
+            connection = null
+            cancelIdleRelease()
+            val appContext = context.applicationContext ?: context
+            val newConnection = WarmConnection(appContext, browserPackage, uri)
+            val bound = CustomTabsClient.bindCustomTabsService(appContext, browserPackage, newConnection)
+            Log.v(TAG, String.format("Warm up bind request result (%s): %s", browserPackage, bound))
+            if (bound) {
+                connection = newConnection
+                scheduleIdleRelease(newConnection)
+            }
+        }
+    }
+
+    /**
+     * Returns the warm session of the given browser, or null if it's not connected yet.
+     */
+    fun getSession(browserPackage: String?): CustomTabsSession? {
+        synchronized(lock) {
+            val current = connection ?: return null
+            return if (current.browserPackage == browserPackage) current.session else null
+        }
+    }
+
+    /**
+     * Unbinds the warmed up browser, if any. To be called once the login completes.
+     */
+    @VisibleForTesting(otherwise = VisibleForTesting.PACKAGE_PRIVATE)
+    fun release() {
+        synchronized(lock) {
+            cancelIdleRelease()
+            connection?.unbind()
+            connection = null
+        }
+    }
+
+    private fun scheduleIdleRelease(idle: WarmConnection) {
+        cancelIdleRelease()
+        idleRelease = scheduler.schedule({
+            synchronized(lock) {
+                // A newer connection has its own timeout
+                if (connection === idle) {
+                    Log.d(TAG, "Releasing the warmed up browser, left idle")
+                    idle.unbind()
+                    connection = null
+                    idleRelease = null
+                }
+            }
+        }, IDLE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+    }
+
+    private fun cancelIdleRelease() {
+        idleRelease?.cancel(false)
+        idleRelease = null
+    }
+
+    private class WarmConnection(
+        private val context: Context,
+        val browserPackage: String,
+        @Volatile private var uri: Uri
+    ) : CustomTabsServiceConnection() {
+
+        @Volatile
+        var session: CustomTabsSession? = null
+            private set
+
+        override fun onCustomTabsServiceConnected(name: ComponentName, client: CustomTabsClient) {
+            Log.d(TAG, "CustomTabs Service connected for warm up")
+            client.warmup(0L)
+            val newSession = client.newSession(null)
+            newSession?.mayLaunchUrl(uri, null, null)
+            session = newSession
+        }
+
+        override fun onServiceDisconnected(name: ComponentName) {
+            Log.d(TAG, "CustomTabs Service disconnected")
+            session = null
+        }
+
+        fun mayLaunchUrl(uri: Uri) {
+            this.uri = uri
+            session?.mayLaunchUrl(uri, null, null)
+        }
+
+        fun unbind() {
+            try {
+                context.unbindService(this)
+            } catch (e: IllegalArgumentException) {
+                // The service was already unbound
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.auth0.android.provider
+
+/**
+ * Breakdown of the time it took to verify the ID token received on the last login.
+ * The verification runs on a background thread once the code is exchanged for the credentials.
+ *
+ *  * *decodeMillis*: Time spent decoding the ID token.
+ *  * *keysMillis*: Time spent waiting for the JSON Web Keys and preparing the signature verifier.
+ *  * *signatureMillis*: Time spent verifying the signature of the ID token.
+ *  * *claimsMillis*: Time spent verifying the claims of the ID token.
+ *  * *totalMillis*: Time from the credentials being received until the ID token was verified.
+ *
+ * @see WebAuthProvider.lastIdTokenVerificationMetrics
+ */
+public class IdTokenVerificationMetrics internal constructor(
+    /**
+     * Getter for the time spent decoding the ID token.
+     *
+     * @return the decoding time, in milliseconds.
+     */
+    public val decodeMillis: Long,
+    /**
+     * Getter for the time spent waiting for the JSON Web Keys and preparing the signature verifier.
+     * This is usually close to zero, as the keys are fetched while the code is exchanged.
+     *
+     * @return the wait time, in milliseconds.
+     */
+    public val keysMillis: Long,
+    /**
+     * Getter for the time spent verifying the signature of the ID token.
+     *
+     * @return the signature verification time, in milliseconds.
+     */
+    public val signatureMillis: Long,
+    /**
+     * Getter for the time spent verifying the claims of the ID token.
+     *
+     * @return the claims verification time, in milliseconds.
+     */
+    public val claimsMillis: Long,
+    /**
+     * Getter for the time from the credentials being received until the ID token was verified.
+     *
+     * @return the total verification time, in milliseconds.
+     */
+    public val totalMillis: Long
+) {
+
+    override fun toString(): String {
+        return "IdTokenVerificationMetrics(decodeMillis=$decodeMillis, keysMillis=$keysMillis, " +
+                "signatureMillis=$signatureMillis, claimsMillis=$claimsMillis, totalMillis=$totalMillis)"
+    }
+}
@@ -0,0 +1,133 @@
+package com.auth0.android.provider
+
+import com.auth0.android.request.internal.Jwt
+
+/**
+ * The claim checks of [IdTokenVerifier], compiled once from a set of [IdTokenVerificationOptions]
+ * so they can be repeated for every token without deriving the options again. Times are compared as
+ * epoch milliseconds, and nothing is allocated unless a check fails.
+ * See https://openid.net/specs/openid-connect-core-1_0-final.html#IDTokenValidation
+ *
+ * The clock of the options is ignored: the current time is given on each verification instead.
+ */
+internal class IdTokenVerificationPolicy(options: IdTokenVerificationOptions) {
+    private val issuer: String = options.issuer
+    private val audience: String = options.audience
+    private val nonce: String? = options.nonce
+    private val organization: String? = options.organization
+    private val organizationIsId: Boolean = options.organization?.startsWith("org_") == true
+    private val organizationName: String? = options.organization?.lowercase()
+    private val leewayMillis: Long = (options.clockSkew ?: DEFAULT_CLOCK_SKEW) * 1000L
+    private val maxAgeMillis: Long? = options.maxAge?.let { it * 1000L }
+
+    /**
+     * Verifies the claims of the given token.
+     *
+     * @param token      the ID Token to verify.
+     * @param nowMillis  the current time, in milliseconds since the epoch.
+     * @throws TokenValidationException If one of the claims is invalid.
+     */
+    @Throws(TokenValidationException::class)
+    fun verify(token: Jwt, nowMillis: Long) {
+        val tokenIssuer = token.issuer
+        if (tokenIssuer.isNullOrEmpty()) {
+            throw IssClaimMissingException()
+        }
+        if (tokenIssuer != issuer) {
+            throw IssClaimMismatchException(issuer, tokenIssuer)
+        }
+        if (token.subject.isNullOrEmpty()) {
+            throw SubClaimMissingException()
+        }
+        val tokenAudience = token.audience
+        if (tokenAudience.isEmpty()) {
+            throw AudClaimMissingException()
+        }
+        if (!tokenAudience.contains(audience)) {
+            throw AudClaimMismatchException(audience, tokenAudience)
+        }
+        val expiresAt = token.expiresAt ?: throw ExpClaimMissingException()
+        val expiresAtWithLeeway = expiresAt.time + leewayMillis
+        if (nowMillis > expiresAtWithLeeway) {
+            throw IdTokenExpiredException(nowMillis / 1000, expiresAtWithLeeway / 1000)
+        }
+        if (token.issuedAt == null) {
+            throw IatClaimMissingException()
+        }
+        if (nonce != null) {
+            val nonceClaim = token.nonce
+            if (nonceClaim.isNullOrEmpty()) {
+                throw NonceClaimMissingException()
+            }
+            if (nonce != nonceClaim) {
+                throw NonceClaimMismatchException(nonce, nonceClaim)
+            }
+        }
+        if (organization != null) {
+            if (organizationIsId) {
+                val orgClaim = token.organizationId
+                if (orgClaim.isNullOrEmpty()) {
+                    throw OrgClaimMissingException()
+                }
+                if (organization != orgClaim) {
+                    throw OrgClaimMismatchException(organization, orgClaim)
+                }
+            } else {
+                val orgNameClaim = token.organizationName
+                if (orgNameClaim.isNullOrEmpty()) {
+                    throw OrgNameClaimMissingException()
+                }
+                if (organizationName != orgNameClaim) {
+                    throw OrgNameClaimMismatchException(organization, orgNameClaim)
+                }
+            }
+        }
+        if (tokenAudience.size > 1) {
+            val azpClaim = token.authorizedParty
+            if (azpClaim.isNullOrEmpty()) {
+                throw AzpClaimMissingException()
+            }
+            if (audience != azpClaim) {
+                throw AzpClaimMismatchException(audience, azpClaim)
+            }
+        }
+        if (maxAgeMillis != null) {
+            val authTime = token.authenticationTime ?: throw AuthTimeClaimMissingException()
+            val authTimeWithMaxAge = authTime.time + maxAgeMillis + leewayMillis
+            if (nowMillis > authTimeWithMaxAge) {
+                throw AuthTimeClaimMismatchException(nowMillis / 1000, authTimeWithMaxAge / 1000)
+            }
+        }
+    }
+
+    internal companion object {
+        private const val DEFAULT_CLOCK_SKEW = 60 // 1 min = 60 sec
+
+        @Volatile
+        private var lastClaimsPolicy: ClaimsPolicy? = null
+
+        /**
+         * Returns a policy that only checks the issuer, audience and expiration related claims, reusing
+         * the last one created if it was for the same values. Meant for requests that validate the
+         * claims on every refresh.
+         */
+        fun forClaims(issuer: String, audience: String, leeway: Int?): IdTokenVerificationPolicy {
+            val last = lastClaimsPolicy
+            if (last != null && last.issuer == issuer && last.audience == audience && last.leeway == leeway) {
+                return last.policy
+            }
+            val options = IdTokenVerificationOptions(issuer, audience, null)
+            options.clockSkew = leeway
+            val policy = IdTokenVerificationPolicy(options)
+            lastClaimsPolicy = ClaimsPolicy(issuer, audience, leeway, policy)
+            return policy
+        }
+    }
+
+    private class ClaimsPolicy(
+        val issuer: String,
+        val audience: String,
+        val leeway: Int?,
+        val policy: IdTokenVerificationPolicy
+    )
+}
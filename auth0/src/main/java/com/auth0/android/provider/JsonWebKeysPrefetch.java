@@ -0,0 +1,104 @@
+package com.auth0.android.provider;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.auth0.android.Auth0Exception;
+import com.auth0.android.authentication.AuthenticationAPIClient;
+import com.auth0.android.authentication.AuthenticationException;
+import com.auth0.android.callback.Callback;
+import com.auth0.android.request.Request;
+import com.auth0.android.request.internal.CommonThreadSwitcher;
+import com.auth0.android.request.internal.JsonWebKey;
+import com.auth0.android.request.internal.ThreadSwitcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fetches the JSON Web Keys of the tenant ahead of the moment they're needed, so that the request runs
+ * in parallel with other work, like the code exchange. The result is handed to the callbacks given to
+ * {@link #getKeys(Callback)}, right away if it's already available or as soon as it arrives.
+ */
+class JsonWebKeysPrefetch {
+
+    private final Object lock = new Object();
+    private final List<Callback<Map<String, JsonWebKey>, AuthenticationException>> waiting = new ArrayList<>();
+    private boolean completed;
+    @Nullable
+    private Map<String, JsonWebKey> keys;
+    @Nullable
+    private AuthenticationException error;
+
+    private JsonWebKeysPrefetch() {
+    }
+
+    /**
+     * Starts fetching the JSON Web Keys in the background.
+     *
+     * @param apiClient the Authentication API client instance used to fetch the keys.
+     * @return the prefetch to get the keys from.
+     */
+    @NonNull
+    static JsonWebKeysPrefetch start(@NonNull AuthenticationAPIClient apiClient) {
+        return start(apiClient, CommonThreadSwitcher.getInstance());
+    }
+
+    @VisibleForTesting
+    @NonNull
+    static JsonWebKeysPrefetch start(@NonNull AuthenticationAPIClient apiClient, @NonNull ThreadSwitcher threadSwitcher) {
+        final JsonWebKeysPrefetch prefetch = new JsonWebKeysPrefetch();
+        final Request<Map<String, JsonWebKey>, AuthenticationException> request = apiClient.fetchSigningKeys();
+        threadSwitcher.backgroundThread(() -> {
+            try {
+                prefetch.complete(request.execute(), null);
+            } catch (AuthenticationException e) {
+                prefetch.complete(null, e);
+            } catch (Auth0Exception e) {
+                prefetch.complete(null, new AuthenticationException("Could not fetch the JSON Web Keys.", e));
+            }
+        });
+        return prefetch;
+    }
+
+    /**
+     * Delivers the fetched keys, or the error that prevented fetching them, to the given callback.
+     * The callback is invoked on the thread that asked for the keys if they already arrived,
+     * or on the background thread that fetched them otherwise. It's never posted to the main thread.
+     *
+     * @param callback where to receive the results.
+     */
+    void getKeys(@NonNull Callback<Map<String, JsonWebKey>, AuthenticationException> callback) {
+        synchronized (lock) {
+            if (!completed) {
+                waiting.add(callback);
+                return;
+            }
+        }
+        deliver(callback);
+    }
+
+    private void complete(@Nullable Map<String, JsonWebKey> keys, @Nullable AuthenticationException error) {
+        final List<Callback<Map<String, JsonWebKey>, AuthenticationException>> callbacks;
+        synchronized (lock) {
+            this.keys = keys;
+            this.error = error;
+            completed = true;
+            callbacks = new ArrayList<>(waiting);
+            waiting.clear();
+        }
+        for (Callback<Map<String, JsonWebKey>, AuthenticationException> callback : callbacks) {
+            deliver(callback);
+        }
+    }
+
+    private void deliver(@NonNull Callback<Map<String, JsonWebKey>, AuthenticationException> callback) {
+        if (error != null) {
+            callback.onFailure(error);
+        } else {
+            callback.onSuccess(keys);
+        }
+    }
+}
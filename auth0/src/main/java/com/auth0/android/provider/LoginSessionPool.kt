@@ -0,0 +1,131 @@
+package com.auth0.android.provider
+
+import androidx.annotation.VisibleForTesting
+import com.auth0.android.request.internal.CommonThreadSwitcher
+import com.auth0.android.request.internal.ThreadSwitcher
+import com.auth0.android.util.Clock
+import java.util.ArrayDeque
+import java.util.Deque
+
+/**
+ * The random values of a single login: the state, the nonce and the PKCE code verifier and challenge.
+ * Generated in advance by the [LoginSessionPool] so that starting a login doesn't need to.
+ */
+internal class LoginSession(
+    val state: String,
+    val nonce: String,
+    val codeVerifier: String,
+    val codeChallenge: String,
+    val createdAt: Long
+)
+
+/**
+ * Small pool of login sessions generated in the background, so that starting a login takes one
+ * instantly instead of generating random values and hashing the code verifier on the calling thread.
+ * Sessions are discarded once they're older than the given time to live, and each one is handed out once.
+ *
+ * @param capacity the number of sessions to keep ready.
+ * @param ttlMillis the time a session can be kept before it's discarded, in milliseconds.
+ */
+internal class LoginSessionPool @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE) constructor(
+    private val capacity: Int,
+    private val ttlMillis: Long,
+    private val algorithmHelper: AlgorithmHelper,
+    private val threadSwitcher: ThreadSwitcher,
+    private val clock: Clock
+) {
+    private val sessions: Deque<LoginSession> = ArrayDeque()
+    private var filling = false
+
+    init {
+        require(capacity > 0 && ttlMillis > 0) { "The capacity and the time to live must be positive." }
+    }
+
+    /**
+     * The number of sessions ready to be taken, including expired ones not discarded yet.
+     */
+    val size: Int
+        get() = synchronized(sessions) { sessions.size }
+
+    /**
+     * Tops up the pool in the background, unless it's already full or being filled.
+     */
+    fun fill() {
+        synchronized(sessions) {
+            if (filling || sessions.size >= capacity) {
+                return
+            }
+            filling = true
+        }
+        threadSwitcher.backgroundThread {
+            try {
+                while (true) {
+                    val session = generate()
+                    synchronized(sessions) {
+                        sessions.addLast(session)
+                        if (sessions.size >= capacity) {
+                            return@backgroundThread
+                        }
+                    }
+                }
+            } finally {
+                synchronized(sessions) { filling = false }
+            }
+        }
+    }
+
+    /**
+     * Takes a session from the pool and refills it in the background. If no valid session is
+     * ready, one is generated on the calling thread.
+     */
+    fun take(): LoginSession {
+        val pooled = synchronized(sessions) {
+            sessions.removeAll { isExpired(it) }
+            sessions.pollFirst()
+        }
+        fill()
+        return pooled ?: generate()
+    }
+
+    /**
+     * Whether the given session, taken from this pool, is older than the time to live and shouldn't be used anymore.
+     */
+    fun isExpired(session: LoginSession): Boolean =
+        clock.getCurrentTimeMillis() - session.createdAt >= ttlMillis
+
+    @VisibleForTesting(otherwise = VisibleForTesting.NONE)
+    fun clear() {
+        synchronized(sessions) { sessions.clear() }
+    }
+
+    private fun generate(): LoginSession {
+        val codeVerifier = algorithmHelper.generateCodeVerifier()
+        return LoginSession(
+            algorithmHelper.generateRandomString(),
+            algorithmHelper.generateRandomString(),
+            codeVerifier,
+            algorithmHelper.generateCodeChallenge(codeVerifier),
+            clock.getCurrentTimeMillis()
+        )
+    }
+
+    companion object {
+        private const val DEFAULT_CAPACITY = 2
+        private const val DEFAULT_TTL_MILLIS = 5 * 60 * 1000L
+
+        /**
+         * The pool shared by every login.
+         */
+        val shared: LoginSessionPool by lazy {
+            LoginSessionPool(
+                DEFAULT_CAPACITY,
+                DEFAULT_TTL_MILLIS,
+                AlgorithmHelper(),
+                CommonThreadSwitcher.getInstance(),
+                object : Clock {
+                    override fun getCurrentTimeMillis(): Long = System.currentTimeMillis()
+                }
+            )
+        }
+    }
+}
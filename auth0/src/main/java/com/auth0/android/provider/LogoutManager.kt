@@ -21,6 +21,7 @@ internal class LogoutManager(
     fun startLogout(context: Context) {
         addClientParameters(parameters)
         val uri = buildLogoutUri()
+        CustomTabsController.setTelemetry(account.telemetry)
         AuthenticationActivity.authenticateUsingBrowser(context, uri, launchAsTwa, ctOptions)
     }
 
@@ -3,7 +3,6 @@ package com.auth0.android.provider
 import android.content.Context
 import android.net.Uri
 import android.text.TextUtils
-import android.util.Base64
 import android.util.Log
 import androidx.annotation.ChecksSdkIntAtLeast
 import androidx.annotation.VisibleForTesting
@@ -12,11 +11,14 @@ import com.auth0.android.Auth0Exception
 import com.auth0.android.authentication.AuthenticationAPIClient
 import com.auth0.android.authentication.AuthenticationException
 import com.auth0.android.callback.Callback
+import com.auth0.android.request.internal.CommonThreadSwitcher
 import com.auth0.android.request.internal.Jwt
 import com.auth0.android.request.internal.OidcUtils
+import com.auth0.android.request.internal.ThreadSwitcher
 import com.auth0.android.result.Credentials
-import java.security.SecureRandom
+import com.auth0.android.util.Auth0Telemetry
 import java.util.*
+import java.util.concurrent.TimeUnit
 
 internal class OAuthManager(
     private val account: Auth0,
@@ -31,6 +33,7 @@ internal class OAuthManager(
     private val apiClient: AuthenticationAPIClient
     private var requestCode = 0
     private var pkce: PKCE? = null
+    private var loginSession: LoginSession? = null
 
     private var _currentTimeInMillis: Long? = null
 
@@ -44,11 +47,22 @@ internal class OAuthManager(
     private var idTokenVerificationLeeway: Int? = null
     private var idTokenVerificationIssuer: String? = null
 
+    @set:VisibleForTesting(otherwise = VisibleForTesting.PRIVATE)
+    internal var threadSwitcher: ThreadSwitcher = CommonThreadSwitcher.getInstance()
+
     @VisibleForTesting(otherwise = VisibleForTesting.PACKAGE_PRIVATE)
     fun setPKCE(pkce: PKCE?) {
         this.pkce = pkce
     }
 
+    /**
+     * Uses the given pre-generated values for the state, nonce and PKCE of this login,
+     * instead of taking them from the [LoginSessionPool].
+     */
+    fun setLoginSession(session: LoginSession?) {
+        loginSession = session
+    }
+
     fun setIdTokenVerificationLeeway(leeway: Int?) {
         idTokenVerificationLeeway = leeway
     }
@@ -58,13 +72,21 @@ internal class OAuthManager(
     }
 
     fun startAuthentication(context: Context, redirectUri: String, requestCode: Int) {
+        val uri = prepareAuthorizeUri(redirectUri)
+        this.requestCode = requestCode
+        CustomTabsController.setTelemetry(account.telemetry)
+        AuthenticationActivity.authenticateUsingBrowser(context, uri, launchAsTwa, ctOptions)
+    }
+
+    /**
+     * Completes the authorize parameters and builds the URI the browser will be launched with.
+     */
+    fun prepareAuthorizeUri(redirectUri: String): Uri {
         OidcUtils.includeDefaultScope(parameters)
         addPKCEParameters(parameters, redirectUri, headers)
         addClientParameters(parameters, redirectUri)
         addValidationParameters(parameters)
-        val uri = buildAuthorizeUri()
-        this.requestCode = requestCode
-        AuthenticationActivity.authenticateUsingBrowser(context, uri, launchAsTwa, ctOptions)
+        return buildAuthorizeUri()
     }
 
     fun setHeaders(headers: Map<String, String>) {
@@ -99,25 +121,34 @@ internal class OAuthManager(
             return true
         }
 
+        val span = account.telemetry.startSpan(Auth0Telemetry.REDIRECT_TO_CREDENTIALS)
+        // The keys are only needed once the code is exchanged, but fetching them in parallel saves a round trip
+        val jsonWebKeys = JsonWebKeysPrefetch.start(apiClient)
         // response_type=code
         pkce!!.getToken(
             values[KEY_CODE],
             object : Callback<Credentials, AuthenticationException> {
                 override fun onSuccess(credentials: Credentials) {
-                    assertValidIdToken(
-                        credentials.idToken,
-                        object : Callback<Void?, Auth0Exception> {
-                            override fun onSuccess(result: Void?) {
-                                callback.onSuccess(credentials)
-                            }
-
-                            override fun onFailure(error: Auth0Exception) {
-                                val wrappedError = AuthenticationException(
-                                    ERROR_VALUE_ID_TOKEN_VALIDATION_FAILED, error
-                                )
-                                callback.onFailure(wrappedError)
-                            }
-                        })
+                    // Decoding and verifying the ID token is too slow for the main thread
+                    threadSwitcher.backgroundThread {
+                        assertValidIdToken(
+                            credentials.idToken,
+                            jsonWebKeys,
+                            object : Callback<Void?, Auth0Exception> {
+                                override fun onSuccess(result: Void?) {
+                                    span.end(null)
+                                    threadSwitcher.mainThread { callback.onSuccess(credentials) }
+                                }
+
+                                override fun onFailure(error: Auth0Exception) {
+                                    val wrappedError = AuthenticationException(
+                                        ERROR_VALUE_ID_TOKEN_VALIDATION_FAILED, error
+                                    )
+                                    span.end(wrappedError)
+                                    threadSwitcher.mainThread { callback.onFailure(wrappedError) }
+                                }
+                            })
+                    }
                 }
 
                 override fun onFailure(error: AuthenticationException) {
@@ -127,6 +158,7 @@ internal class OAuthManager(
                             "Unable to complete authentication with PKCE. PKCE support can be enabled by setting Application Type to 'Native' and Token Endpoint Authentication Method to 'None' for this app at 'https://manage.auth0.com/#/applications/" + apiClient.clientId + "/settings'."
                         )
                     }
+                    span.end(error)
                     callback.onFailure(error)
                 }
             })
@@ -137,14 +169,20 @@ internal class OAuthManager(
         callback.onFailure(exception)
     }
 
+    /**
+     * Verifies the ID token on the calling thread, which must not be the main thread. The
+     * callback is invoked on the same thread, or on the one that fetched the JSON Web Keys.
+     */
     private fun assertValidIdToken(
         idToken: String?,
+        jsonWebKeys: JsonWebKeysPrefetch,
         validationCallback: Callback<Void?, Auth0Exception>
     ) {
         if (TextUtils.isEmpty(idToken)) {
             validationCallback.onFailure(IdTokenMissingException())
             return
         }
+        val startedAt = System.nanoTime()
         val decodedIdToken: Jwt = try {
             Jwt(idToken!!)
         } catch (error: Exception) {
@@ -153,6 +191,7 @@ internal class OAuthManager(
             )
             return
         }
+        val decodedAt = System.nanoTime()
         val signatureVerifierCallback: Callback<SignatureVerifier, TokenValidationException> =
             object : Callback<SignatureVerifier, TokenValidationException> {
                 override fun onFailure(error: TokenValidationException) {
@@ -160,6 +199,7 @@ internal class OAuthManager(
                 }
 
                 override fun onSuccess(result: SignatureVerifier) {
+                    val keysReadyAt = System.nanoTime()
                     val options = IdTokenVerificationOptions(
                         idTokenVerificationIssuer!!,
                         apiClient.clientId,
@@ -175,7 +215,17 @@ internal class OAuthManager(
                     options.clock = Date(currentTimeInMillis)
                     options.organization = parameters[KEY_ORGANIZATION]
                     try {
-                        IdTokenVerifier().verify(decodedIdToken, options, true)
+                        result.verify(decodedIdToken)
+                        val signatureVerifiedAt = System.nanoTime()
+                        IdTokenVerifier().verify(decodedIdToken, options, false)
+                        val claimsVerifiedAt = System.nanoTime()
+                        lastVerificationMetrics = IdTokenVerificationMetrics(
+                            TimeUnit.NANOSECONDS.toMillis(decodedAt - startedAt),
+                            TimeUnit.NANOSECONDS.toMillis(keysReadyAt - decodedAt),
+                            TimeUnit.NANOSECONDS.toMillis(signatureVerifiedAt - keysReadyAt),
+                            TimeUnit.NANOSECONDS.toMillis(claimsVerifiedAt - signatureVerifiedAt),
+                            TimeUnit.NANOSECONDS.toMillis(claimsVerifiedAt - startedAt)
+                        )
                         validationCallback.onSuccess(null)
                     } catch (exc: TokenValidationException) {
                         validationCallback.onFailure(exc)
@@ -183,7 +233,7 @@ internal class OAuthManager(
                 }
             }
         val tokenKeyId = decodedIdToken.keyId
-        SignatureVerifier.forAsymmetricAlgorithm(tokenKeyId, apiClient, signatureVerifierCallback)
+        SignatureVerifier.forAsymmetricAlgorithm(tokenKeyId, jsonWebKeys, signatureVerifierCallback)
     }
 
     //Helper Methods
@@ -244,8 +294,8 @@ internal class OAuthManager(
     }
 
     private fun addValidationParameters(parameters: MutableMap<String, String>) {
-        val state = getRandomString(parameters[KEY_STATE])
-        val nonce = getRandomString(parameters[KEY_NONCE])
+        val state = parameters[KEY_STATE] ?: takeLoginSession().state
+        val nonce = parameters[KEY_NONCE] ?: takeLoginSession().nonce
         parameters[KEY_STATE] = state
         parameters[KEY_NONCE] = nonce
     }
@@ -258,10 +308,15 @@ internal class OAuthManager(
 
     private fun createPKCE(redirectUri: String, headers: Map<String, String>) {
         if (pkce == null) {
-            pkce = PKCE(apiClient, redirectUri, headers)
+            val session = takeLoginSession()
+            pkce = PKCE(apiClient, redirectUri, headers, session.codeVerifier, session.codeChallenge)
         }
     }
 
+    private fun takeLoginSession(): LoginSession {
+        return loginSession ?: LoginSessionPool.shared.take().also { loginSession = it }
+    }
+
     companion object {
         private val TAG = OAuthManager::class.java.simpleName
         const val KEY_RESPONSE_TYPE = "response_type"
@@ -290,6 +345,13 @@ internal class OAuthManager(
         private const val KEY_ERROR_DESCRIPTION = "error_description"
         private const val KEY_CODE = "code"
 
+        /**
+         * The time breakdown of the last successful ID token verification.
+         */
+        @Volatile
+        var lastVerificationMetrics: IdTokenVerificationMetrics? = null
+            private set
+
         @JvmStatic
         @VisibleForTesting(otherwise = VisibleForTesting.PACKAGE_PRIVATE)
         @Throws(AuthenticationException::class)
@@ -309,21 +371,6 @@ internal class OAuthManager(
                 )
             }
         }
-
-        @VisibleForTesting(otherwise = VisibleForTesting.PACKAGE_PRIVATE)
-        fun getRandomString(defaultValue: String?): String {
-            return defaultValue ?: secureRandomString()
-        }
-
-        private fun secureRandomString(): String {
-            val sr = SecureRandom()
-            val randomBytes = ByteArray(32)
-            sr.nextBytes(randomBytes)
-            return Base64.encodeToString(
-                randomBytes,
-                Base64.URL_SAFE or Base64.NO_WRAP or Base64.NO_PADDING
-            )
-        }
     }
 
     init {
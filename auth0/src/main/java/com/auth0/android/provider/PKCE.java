@@ -47,6 +47,25 @@ class PKCE {
         this.headers = headers;
     }
 
+    /**
+     * Creates a new instance of this class with a Code Verifier and Code Challenge generated in advance.
+     *
+     * @param apiClient     to get the OAuth Token.
+     * @param redirectUri   going to be used in the OAuth code request.
+     * @param headers       HTTP headers added to the OAuth token request.
+     * @param codeVerifier  the Code Verifier to send in the token request.
+     * @param codeChallenge the Code Challenge generated from the Code Verifier.
+     * @see LoginSessionPool
+     */
+    PKCE(@NonNull AuthenticationAPIClient apiClient, @NonNull String redirectUri, @NonNull Map<String, String> headers,
+         @NonNull String codeVerifier, @NonNull String codeChallenge) {
+        this.apiClient = apiClient;
+        this.redirectUri = redirectUri;
+        this.codeVerifier = codeVerifier;
+        this.codeChallenge = codeChallenge;
+        this.headers = headers;
+    }
+
     /**
      * Returns the Code Challenge generated using a Code Verifier.
      *
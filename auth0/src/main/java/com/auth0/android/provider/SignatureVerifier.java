@@ -5,17 +5,16 @@ import androidx.annotation.Nullable;
 
 import com.auth0.android.authentication.AuthenticationAPIClient;
 import com.auth0.android.authentication.AuthenticationException;
-import com.auth0.android.callback.AuthenticationCallback;
 import com.auth0.android.callback.Callback;
+import com.auth0.android.request.internal.JsonWebKey;
 import com.auth0.android.request.internal.Jwt;
 
 import java.security.InvalidKeyException;
-import java.security.PublicKey;
 import java.util.List;
 import java.util.Map;
 
 /**
- * Abstract class meant to verify tokens signed with HS256 and RS256 signatures.
+ * Abstract class meant to verify tokens signed with asymmetric signatures.
  */
 abstract class SignatureVerifier {
 
@@ -33,7 +32,7 @@ abstract class SignatureVerifier {
      */
     void verify(@NonNull Jwt token) throws TokenValidationException {
         checkAlgorithm(token.getAlgorithm());
-        checkSignature(token.getParts());
+        checkSignature(token);
     }
 
     private void checkAlgorithm(String tokenAlgorithm) throws TokenValidationException {
@@ -42,23 +41,35 @@ abstract class SignatureVerifier {
         }
     }
 
-    abstract protected void checkSignature(@NonNull String[] tokenParts) throws TokenValidationException;
+    abstract protected void checkSignature(@NonNull Jwt token) throws TokenValidationException;
 
 
     /**
-     * Creates a new SignatureVerifier for Asymmetric algorithm ("RS256"). Signature check will actually happen.
+     * Creates a new SignatureVerifier for Asymmetric algorithms ("RS256", "PS256" or "ES256"). Signature check will actually happen.
      *
      * @param keyId     the id of the key used to sign this token. Obtained from the token's header
      * @param apiClient the Authentication API client instance. Used to fetch the JWKs
      * @param callback  where to receive the results
      */
     static void forAsymmetricAlgorithm(@Nullable final String keyId, @NonNull AuthenticationAPIClient apiClient, @NonNull final Callback<SignatureVerifier, TokenValidationException> callback) {
-        apiClient.fetchJsonWebKeys().start(new AuthenticationCallback<Map<String, PublicKey>>() {
+        forAsymmetricAlgorithm(keyId, JsonWebKeysPrefetch.start(apiClient), callback);
+    }
+
+    /**
+     * Creates a new SignatureVerifier for Asymmetric algorithms ("RS256", "PS256" or "ES256") using JSON Web Keys
+     * that were already requested. Verifiers are reused for keys seen before. Signature check will actually happen.
+     *
+     * @param keyId        the id of the key used to sign this token. Obtained from the token's header
+     * @param jsonWebKeys  the JWKs fetch started in advance
+     * @param callback     where to receive the results
+     */
+    static void forAsymmetricAlgorithm(@Nullable final String keyId, @NonNull JsonWebKeysPrefetch jsonWebKeys, @NonNull final Callback<SignatureVerifier, TokenValidationException> callback) {
+        jsonWebKeys.getKeys(new Callback<Map<String, JsonWebKey>, AuthenticationException>() {
             @Override
-            public void onSuccess(@Nullable Map<String, PublicKey> result) {
-                PublicKey publicKey = result.get(keyId);
+            public void onSuccess(@Nullable Map<String, JsonWebKey> result) {
+                JsonWebKey key = result != null ? result.get(keyId) : null;
                 try {
-                    callback.onSuccess(new AsymmetricSignatureVerifier(publicKey));
+                    callback.onSuccess(SignatureVerifierRegistry.getInstance().getVerifier(keyId, key));
                 } catch (InvalidKeyException e) {
                     callback.onFailure(new PublicKeyNotFoundException(keyId));
                 }
@@ -0,0 +1,64 @@
+package com.auth0.android.provider;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.auth0.android.request.internal.JsonWebKey;
+
+import java.security.InvalidKeyException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide registry of the signature verifiers created for each key ID, so that the verifier
+ * and its initialized signatures are reused by every login signed with the same key.
+ * A verifier is replaced when the key published under its ID, or the algorithm declared for it, changes.
+ */
+class SignatureVerifierRegistry {
+
+    private static final int MAX_VERIFIERS = 16;
+    private static final SignatureVerifierRegistry INSTANCE = new SignatureVerifierRegistry();
+
+    private final Map<String, AsymmetricSignatureVerifier> verifiers = new ConcurrentHashMap<>();
+
+    @NonNull
+    static SignatureVerifierRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the verifier for the given key, creating it if it's not registered yet.
+     *
+     * @param keyId the id of the key, obtained from the token's header.
+     * @param key   the key published under that id.
+     * @return the verifier for the key, which only accepts the algorithm declared for it.
+     * @throws InvalidKeyException if the key is null or not supported.
+     */
+    @NonNull
+    AsymmetricSignatureVerifier getVerifier(@Nullable String keyId, @Nullable JsonWebKey key) throws InvalidKeyException {
+        if (key == null) {
+            throw new InvalidKeyException("The key is missing");
+        }
+        if (keyId == null) {
+            return new AsymmetricSignatureVerifier(key.getPublicKey(), key.getAlgorithm());
+        }
+        AsymmetricSignatureVerifier verifier = verifiers.get(keyId);
+        if (verifier != null && verifier.getPublicKey().equals(key.getPublicKey())
+                && verifier.getAlgorithm().equals(key.getAlgorithm())) {
+            return verifier;
+        }
+        verifier = new AsymmetricSignatureVerifier(key.getPublicKey(), key.getAlgorithm());
+        if (verifiers.size() >= MAX_VERIFIERS) {
+            // Keys are rotated rarely, so dropping them all is simpler than tracking the oldest
+            verifiers.clear();
+        }
+        verifiers.put(keyId, verifier);
+        return verifier;
+    }
+
+    @VisibleForTesting
+    void clear() {
+        verifiers.clear();
+    }
+}
@@ -32,6 +32,22 @@ public object WebAuthProvider {
     internal var managerInstance: ResumableManager? = null
         private set
 
+    /**
+     * The time breakdown of the last time the browser was opened to log in or log out,
+     * or null if it wasn't opened yet since the app started.
+     */
+    @JvmStatic
+    public val lastBrowserLaunchMetrics: BrowserLaunchMetrics?
+        get() = CustomTabsController.getLastLaunchMetrics()
+
+    /**
+     * The time breakdown of the last successful ID token verification after a login,
+     * or null if no login was completed yet since the app started.
+     */
+    @JvmStatic
+    public val lastIdTokenVerificationMetrics: IdTokenVerificationMetrics?
+        get() = OAuthManager.lastVerificationMetrics
+
     // Public methods
     /**
      * Initialize the WebAuthProvider instance for logging out the user using an account. Additional settings can be configured
@@ -54,6 +70,8 @@ public object WebAuthProvider {
      */
     @JvmStatic
     public fun login(account: Auth0): Builder {
+        // Get the random values of the login ready while the builder is configured
+        LoginSessionPool.shared.fill()
         return Builder(account)
     }
 
@@ -77,12 +95,14 @@ public object WebAuthProvider {
         val success = managerInstance!!.resume(result)
         if (success) {
             resetManagerInstance()
+            CustomTabsWarmer.release()
         }
         return success
     }
 
     internal fun failure(exception: AuthenticationException) {
         managerInstance!!.failure(exception)
+        CustomTabsWarmer.release()
     }
 
     @JvmStatic
@@ -245,6 +265,10 @@ public object WebAuthProvider {
         private var ctOptions: CustomTabsOptions = CustomTabsOptions.newBuilder().build()
         private var leeway: Int? = null
         private var launchAsTwa: Boolean = false
+        private var preparedLogin: PreparedLogin? = null
+
+        @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE)
+        internal var loginSessionPool: LoginSessionPool = LoginSessionPool.shared
 
         /**
          * Use a custom state in the requests
@@ -466,6 +490,40 @@ public object WebAuthProvider {
             return this
         }
 
+        /**
+         * Prepares the login ahead of calling [start], so that the browser opens faster once it's called.
+         * The state, nonce and PKCE values are generated now, and the browser that will be used is bound,
+         * warmed up and told the authorize URL it's about to load, so it can resolve and connect to it in advance.
+         * The prepared values are used by the next call to [start] on this builder only, if it's made within
+         * 5 minutes. The browser is unbound after the same time if the login hasn't completed by then.
+         *
+         * Call it once the parameters of the login are configured, as soon as the user is likely to log in,
+         * for example when the login screen is displayed.
+         *
+         * @param context to bind the browser with
+         * @return the current builder instance
+         */
+        public fun warmUp(context: Context): Builder {
+            if (applyInvitationUrl() != null) {
+                return this
+            }
+            val redirectUri = resolveRedirectUri(context)
+            val prepared = PreparedLogin(redirectUri, loginSessionPool.take())
+            preparedLogin = prepared
+
+            val browserPackage = ctOptions.getPreferredPackage(context.packageManager) ?: return this
+            val manager = OAuthManager(account, object : Callback<Credentials, AuthenticationException> {
+                override fun onSuccess(result: Credentials) {}
+                override fun onFailure(error: AuthenticationException) {}
+            }, values, ctOptions, launchAsTwa)
+            manager.setHeaders(headers)
+            manager.setPKCE(pkce)
+            manager.setLoginSession(prepared.session)
+            val uri = manager.prepareAuthorizeUri(redirectUri)
+            CustomTabsWarmer.warmUp(context, browserPackage, uri)
+            return this
+        }
+
         /**
          * Request user Authentication. The result will be received in the callback.
          * An error is raised if there are no browser applications installed in the device, or if
@@ -491,35 +549,25 @@ public object WebAuthProvider {
                 callback.onFailure(ex)
                 return
             }
-            invitationUrl?.let {
-                val url = Uri.parse(it)
-                val organizationId = url.getQueryParameter(OAuthManager.KEY_ORGANIZATION)
-                val invitationId = url.getQueryParameter(OAuthManager.KEY_INVITATION)
-                if (organizationId.isNullOrBlank() || invitationId.isNullOrBlank()) {
-                    val ex = AuthenticationException(
-                        "a0.invalid_invitation_url",
-                        "The invitation URL provided doesn't contain the 'organization' or 'invitation' values."
-                    )
-                    callback.onFailure(ex)
-                    return
-                }
-                values[OAuthManager.KEY_ORGANIZATION] = organizationId
-                values[OAuthManager.KEY_INVITATION] = invitationId
+            applyInvitationUrl()?.let {
+                callback.onFailure(it)
+                return
+            }
+            val redirectUri = resolveRedirectUri(context)
+            // The prepared values are only valid for the redirect URI they were generated for, used once,
+            // and expire like the ones still in the pool
+            val prepared = preparedLogin?.takeIf {
+                it.redirectUri == redirectUri && !loginSessionPool.isExpired(it.session)
             }
+            preparedLogin = null
             val manager = OAuthManager(account, callback, values, ctOptions, launchAsTwa)
             manager.setHeaders(headers)
             manager.setPKCE(pkce)
+            manager.setLoginSession(prepared?.session)
             manager.setIdTokenVerificationLeeway(leeway)
             manager.setIdTokenVerificationIssuer(issuer)
             managerInstance = manager
-            if (redirectUri == null) {
-                redirectUri = CallbackHelper.getCallbackUri(
-                    scheme,
-                    context.applicationContext.packageName,
-                    account.getDomainUrl()
-                )
-            }
-            manager.startAuthentication(context, redirectUri!!, 110)
+            manager.startAuthentication(context, redirectUri, 110)
         }
 
         @JvmSynthetic
@@ -550,6 +598,39 @@ public object WebAuthProvider {
             }
         }
 
+        /**
+         * Adds the organization and invitation values of the invitation URL to the parameters.
+         *
+         * @return the error to report if the invitation URL is not valid, or null otherwise.
+         */
+        private fun applyInvitationUrl(): AuthenticationException? {
+            val url = Uri.parse(invitationUrl ?: return null)
+            val organizationId = url.getQueryParameter(OAuthManager.KEY_ORGANIZATION)
+            val invitationId = url.getQueryParameter(OAuthManager.KEY_INVITATION)
+            if (organizationId.isNullOrBlank() || invitationId.isNullOrBlank()) {
+                return AuthenticationException(
+                    "a0.invalid_invitation_url",
+                    "The invitation URL provided doesn't contain the 'organization' or 'invitation' values."
+                )
+            }
+            values[OAuthManager.KEY_ORGANIZATION] = organizationId
+            values[OAuthManager.KEY_INVITATION] = invitationId
+            return null
+        }
+
+        private fun resolveRedirectUri(context: Context): String {
+            if (redirectUri == null) {
+                redirectUri = CallbackHelper.getCallbackUri(
+                    scheme,
+                    context.applicationContext.packageName,
+                    account.getDomainUrl()
+                )
+            }
+            return redirectUri!!
+        }
+
+        private class PreparedLogin(val redirectUri: String, val session: LoginSession)
+
         private companion object {
             private const val KEY_AUDIENCE = "audience"
             private const val KEY_CONNECTION_SCOPE = "connection_scope"
@@ -1,7 +1,12 @@
 package com.auth0.android.request
 
+import androidx.annotation.FloatRange
 import androidx.annotation.VisibleForTesting
+import com.auth0.android.authentication.storage.Storage
+import com.auth0.android.request.internal.CachingDns
 import com.auth0.android.request.internal.GsonProvider
+import com.auth0.android.request.internal.RedactingLoggingInterceptor
+import com.auth0.android.request.internal.SharedTls
 import com.google.gson.Gson
 import okhttp3.*
 import okhttp3.Headers.Companion.toHeaders
@@ -25,7 +30,11 @@ public class DefaultClient @VisibleForTesting(otherwise = VisibleForTesting.PRIV
     private val defaultHeaders: Map<String, String>,
     enableLogging: Boolean,
     sslSocketFactory: SSLSocketFactory?,
-    trustManager: X509TrustManager?
+    trustManager: X509TrustManager?,
+    logger: (String) -> Unit = HttpLoggingInterceptor.Logger.DEFAULT::log,
+    loggingSampleRate: Double = 1.0,
+    dns: Dns? = null,
+    sharedTls: SharedTls? = null
 ) : NetworkingClient {
 
     /**
@@ -34,7 +43,8 @@ public class DefaultClient @VisibleForTesting(otherwise = VisibleForTesting.PRIV
      * @param connectTimeout the connection timeout, in seconds, to use when executing requests. Default is ten seconds.
      * @param readTimeout the read timeout, in seconds, to use when executing requests. Default is ten seconds.
      * @param defaultHeaders any headers that should be sent on all requests. If a specific request specifies a header with the same key as any header in the default headers, the header specified on the request will take precedence. Default is an empty map.
-     * @param enableLogging whether HTTP request and response info should be logged. This should only be set to `true` for debugging purposes in non-production environments, as sensitive information is included in the logs. Defaults to `false`.
+     * @param enableLogging whether HTTP request and response info should be logged. The method, path, headers, status, body sizes and timings are logged, with the tokens, codes, passwords and authorization headers redacted. Bodies are never logged. Defaults to `false`.
+     * @see Builder
      */
     public constructor(
         connectTimeout: Int = DEFAULT_TIMEOUT_SECONDS,
@@ -44,7 +54,8 @@ public class DefaultClient @VisibleForTesting(otherwise = VisibleForTesting.PRIV
     ) : this(connectTimeout,  readTimeout,  defaultHeaders, enableLogging, null, null)
 
     //TODO: receive this via internal constructor parameters
-    private val gson: Gson = GsonProvider.gson
+    // Null values are kept in the body, since they remove the keys of the user_metadata
+    private val gson: Gson = GsonProvider.gson.newBuilder().serializeNulls().create()
 
     @get:VisibleForTesting(otherwise = VisibleForTesting.PRIVATE)
     internal val okHttpClient: OkHttpClient
@@ -90,26 +101,170 @@ public class DefaultClient @VisibleForTesting(otherwise = VisibleForTesting.PRIV
         val builder = OkHttpClient.Builder()
 
         // logging
-        //TODO: OFF by default!
         if (enableLogging) {
-            val logger: Interceptor = HttpLoggingInterceptor()
-                .setLevel(HttpLoggingInterceptor.Level.BODY)
-            builder.addInterceptor(logger)
+            builder.addInterceptor(RedactingLoggingInterceptor(logger, loggingSampleRate))
         }
 
         // timeouts
         builder.connectTimeout(connectTimeout.toLong(), TimeUnit.SECONDS)
         builder.readTimeout(readTimeout.toLong(), TimeUnit.SECONDS)
 
+        // dns
+        if (dns != null) {
+            builder.dns(dns)
+        }
+
         // testing with ssl hook (internal constructor params visibility only)
         if (sslSocketFactory != null && trustManager != null) {
             builder.sslSocketFactory(sslSocketFactory, trustManager)
+        } else if (sharedTls != null) {
+            builder.sslSocketFactory(sharedTls.sslSocketFactory, sharedTls.trustManager)
+        }
+
+        // tls sessions and connections shared with other clients
+        if (sharedTls != null) {
+            builder.connectionSpecs(SharedTls.CONNECTION_SPECS)
+            builder.connectionPool(sharedTls.connectionPool)
         }
 
         okHttpClient = builder.build()
     }
 
 
+    /**
+     * Receives the lines logged when logging is enabled.
+     */
+    public fun interface Logger {
+        public fun log(message: String)
+    }
+
+    /**
+     * Builder for a [DefaultClient], to configure it beyond the constructor parameters.
+     *
+     * ```
+     * val client = DefaultClient.Builder()
+     *     .enableLogging(true)
+     *     .loggingSampleRate(0.1)
+     *     .build()
+     * ```
+     */
+    public class Builder {
+        private var connectTimeout = DEFAULT_TIMEOUT_SECONDS
+        private var readTimeout = DEFAULT_TIMEOUT_SECONDS
+        private var defaultHeaders: Map<String, String> = mapOf()
+        private var enableLogging = false
+        private var logger: (String) -> Unit = HttpLoggingInterceptor.Logger.DEFAULT::log
+        private var loggingSampleRate = 1.0
+        private var dnsCacheStorage: Storage? = null
+        private var dnsCacheTtlMillis = CachingDns.DEFAULT_TTL_MILLIS
+        private var shareTlsSessions = false
+
+        /**
+         * Sets the connection timeout, in seconds. Default is ten seconds.
+         */
+        public fun connectTimeout(seconds: Int): Builder {
+            connectTimeout = seconds
+            return this
+        }
+
+        /**
+         * Sets the read timeout, in seconds. Default is ten seconds.
+         */
+        public fun readTimeout(seconds: Int): Builder {
+            readTimeout = seconds
+            return this
+        }
+
+        /**
+         * Sets the headers that should be sent on all requests. Headers specified on a request take precedence.
+         */
+        public fun defaultHeaders(headers: Map<String, String>): Builder {
+            defaultHeaders = headers
+            return this
+        }
+
+        /**
+         * Whether HTTP request and response info should be logged. Sensitive values are redacted and bodies
+         * are never logged, only their sizes. Defaults to `false`.
+         */
+        public fun enableLogging(enabled: Boolean): Builder {
+            enableLogging = enabled
+            return this
+        }
+
+        /**
+         * Sets where the log lines are written. By default, they go to Logcat.
+         */
+        public fun logger(logger: Logger): Builder {
+            this.logger = logger::log
+            return this
+        }
+
+        /**
+         * Sets the fraction of the requests that are logged, between 0 and 1, so that logging can be
+         * left enabled under load. Defaults to 1, logging every request.
+         */
+        public fun loggingSampleRate(@FloatRange(from = 0.0, to = 1.0) rate: Double): Builder {
+            require(rate in 0.0..1.0) { "The sample rate must be between 0 and 1." }
+            loggingSampleRate = rate
+            return this
+        }
+
+        /**
+         * Caches the addresses resolved for the hosts requested, such as the Auth0 domain, so that most
+         * requests don't wait for a DNS lookup. Once the time to live passes, the cached addresses are still
+         * used while they are resolved again in the background. The last addresses resolved are kept in the
+         * given storage, so they are available right after the app restarts, and also used if a lookup fails.
+         * Disabled by default.
+         *
+         * ```
+         * DefaultClient.Builder()
+         *     .dnsCache(SharedPreferencesStorage(context, "com.auth0.dns"))
+         *     .build()
+         * ```
+         *
+         * @param storage where the last addresses resolved are kept across restarts.
+         * @param ttlMillis how long the addresses are used before resolving them again. Defaults to five minutes.
+         */
+        @JvmOverloads
+        public fun dnsCache(
+            storage: Storage,
+            ttlMillis: Long = CachingDns.DEFAULT_TTL_MILLIS
+        ): Builder {
+            require(ttlMillis > 0) { "The time to live must be positive." }
+            dnsCacheStorage = storage
+            dnsCacheTtlMillis = ttlMillis
+            return this
+        }
+
+        /**
+         * Whether to share the TLS sessions and connections with the other clients built with this option.
+         * A client can then reuse a connection opened by another one, and new connections to a host resume
+         * the TLS session of a previous one instead of doing a full handshake. Connections negotiate TLS 1.3
+         * when the device supports it, falling back to TLS 1.2. Defaults to `false`.
+         */
+        public fun shareTlsSessions(enabled: Boolean): Builder {
+            shareTlsSessions = enabled
+            return this
+        }
+
+        /**
+         * Creates the client with the configured values.
+         */
+        public fun build(): DefaultClient = DefaultClient(
+            connectTimeout,
+            readTimeout,
+            defaultHeaders,
+            enableLogging,
+            null,
+            null,
+            logger,
+            loggingSampleRate,
+            dnsCacheStorage?.let { CachingDns(it, dnsCacheTtlMillis) },
+            if (shareTlsSessions) SharedTls.default else null
+        )
+    }
+
     internal companion object {
         const val DEFAULT_TIMEOUT_SECONDS: Int = 10
         val APPLICATION_JSON_UTF8: MediaType =
@@ -8,12 +8,9 @@ import com.auth0.android.authentication.AuthenticationException
 import com.auth0.android.authentication.ParameterBuilder
 import com.auth0.android.callback.Callback
 import com.auth0.android.provider.*
-import com.auth0.android.provider.IdTokenVerificationOptions
-import com.auth0.android.provider.IdTokenVerifier
 import com.auth0.android.request.AuthenticationRequest
 import com.auth0.android.request.Request
 import com.auth0.android.result.Credentials
-import java.util.*
 
 internal open class BaseAuthenticationRequest(
     private val request: Request<Credentials, AuthenticationException>,
@@ -185,14 +182,8 @@ internal open class BaseAuthenticationRequest(
             } catch (error: Exception) {
                 throw UnexpectedIdTokenException(error)
             }
-            val options = IdTokenVerificationOptions(
-                idTokenVerificationIssuer,
-                clientId,
-                null
-            )
-            options.clockSkew = idTokenVerificationLeeway
-            options.clock = Date(currentTimeInMillis)
-            IdTokenVerifier().verify(decodedIdToken, options, false)
+            IdTokenVerificationPolicy.forClaims(idTokenVerificationIssuer, clientId, idTokenVerificationLeeway)
+                .verify(decodedIdToken, currentTimeInMillis)
         } catch (e: TokenValidationException) {
             throw AuthenticationException(ERROR_VALUE_ID_TOKEN_VALIDATION_FAILED, e)
         }
@@ -4,12 +4,18 @@ import androidx.annotation.VisibleForTesting
 import com.auth0.android.Auth0Exception
 import com.auth0.android.callback.Callback
 import com.auth0.android.request.*
+import com.auth0.android.util.Auth0Telemetry
 import kotlinx.coroutines.CoroutineDispatcher
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.withContext
+import java.io.ByteArrayInputStream
 import java.io.IOException
 import java.io.InputStreamReader
 import java.nio.charset.StandardCharsets
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+import kotlin.math.max
+import kotlin.math.min
 
 /**
  * Base class for every request on this library.
@@ -18,6 +24,13 @@ import java.nio.charset.StandardCharsets
  * @param client the client that will execute this request.
  * @param resultAdapter the adapter that will convert a successful response into the expected type.
  * @param errorAdapter the adapter that will convert a failed response into the expected type.
+ * @param telemetry where to report the duration and outcome of each execution.
+ * @param inFlightRequests where to collapse this request with identical ones running at the same time.
+ * Only given for idempotent requests.
+ * @param rateLimiter paces this request to honor the rate limits of the API, and retries it when rejected for
+ * exceeding them. When started asynchronously, such a request doesn't hold a thread while it waits for the limit:
+ * it's scheduled to try again once the limiter expects to allow it.
+ * @param rateLimitScheduler where the requests paced by a [rateLimiter] wait for it when started asynchronously.
  */
 internal open class BaseRequest<T, U : Auth0Exception>(
     method: HttpMethod,
@@ -25,7 +38,11 @@ internal open class BaseRequest<T, U : Auth0Exception>(
     private val client: NetworkingClient,
     private val resultAdapter: JsonAdapter<T>,
     private val errorAdapter: ErrorAdapter<U>,
-    private val threadSwitcher: ThreadSwitcher = CommonThreadSwitcher.getInstance()
+    private val threadSwitcher: ThreadSwitcher = CommonThreadSwitcher.getInstance(),
+    private val telemetry: Auth0Telemetry = Auth0Telemetry.NONE,
+    private val inFlightRequests: InFlightRequests? = null,
+    private val rateLimiter: RateLimiter? = null,
+    private val rateLimitScheduler: ScheduledExecutorService = RATE_LIMIT_SCHEDULER
 ) : Request<T, U> {
 
     private val options: RequestOptions = RequestOptions(method)
@@ -67,18 +84,30 @@ internal open class BaseRequest<T, U : Auth0Exception>(
      * @param callback the callback to post the results in. Uses the Main thread.
      */
     override fun start(callback: Callback<T, U>) {
-        threadSwitcher.backgroundThread {
-            try {
-                val result: T = execute()
-                threadSwitcher.mainThread {
-                    callback.onSuccess(result)
-                }
-            } catch (error: Auth0Exception) {
-                @Suppress("UNCHECKED_CAST") // https://youtrack.jetbrains.com/issue/KT-11774
-                val uError: U = error as? U ?: errorAdapter.fromException(error)
-                threadSwitcher.mainThread {
-                    callback.onFailure(uError)
-                }
+        if (rateLimiter != null) {
+            val pacedStart = PacedStart(rateLimiter, callback)
+            rateLimitScheduler.execute { pacedStart.attempt() }
+        } else {
+            threadSwitcher.backgroundThread {
+                deliver(callback) { execute() }
+            }
+        }
+    }
+
+    /**
+     * Runs the given execution and posts its result in the callback, on the Main thread.
+     */
+    private fun deliver(callback: Callback<T, U>, execution: () -> T) {
+        try {
+            val result: T = execution()
+            threadSwitcher.mainThread {
+                callback.onSuccess(result)
+            }
+        } catch (error: Auth0Exception) {
+            @Suppress("UNCHECKED_CAST") // https://youtrack.jetbrains.com/issue/KT-11774
+            val uError: U = error as? U ?: errorAdapter.fromException(error)
+            threadSwitcher.mainThread {
+                callback.onFailure(uError)
             }
         }
     }
@@ -115,15 +144,44 @@ internal open class BaseRequest<T, U : Auth0Exception>(
      * The result is parsed into a <T> value or a <U> exception is thrown if something went wrong.
      */
     @kotlin.jvm.Throws(Auth0Exception::class)
-    override fun execute(): T {
+    override fun execute(): T = execute(startSpan()) {
+        if (inFlightRequests != null) {
+            inFlightRequests.load(client, url, options) { load() }
+        } else {
+            load()
+        }
+    }
+
+    private fun startSpan(): Auth0Telemetry.Span {
+        val span = telemetry.startSpan(Auth0Telemetry.REQUEST)
+        span.setAttribute(Auth0Telemetry.ATTRIBUTE_HTTP_METHOD, options.method.toString())
+        return span
+    }
+
+    /**
+     * Parses the response given by the loader, and ends the span with the outcome.
+     */
+    private fun execute(span: Auth0Telemetry.Span, loader: () -> ServerResponse): T {
+        try {
+            val result = parse(span, loader)
+            span.end(null)
+            return result
+        } catch (error: Auth0Exception) {
+            span.end(error)
+            throw error
+        }
+    }
+
+    private fun parse(span: Auth0Telemetry.Span, loader: () -> ServerResponse): T {
         val response: ServerResponse
         try {
-            response = client.load(url, options)
+            response = loader()
         } catch (exception: IOException) {
             //1. Network exceptions, timeouts, etc
             val error: U = errorAdapter.fromException(exception)
             throw error
         }
+        span.setAttribute(Auth0Telemetry.ATTRIBUTE_HTTP_STATUS_CODE, response.statusCode.toLong())
 
         InputStreamReader(response.body, StandardCharsets.UTF_8).use { reader ->
             if (response.isSuccess()) {
@@ -158,4 +216,169 @@ internal open class BaseRequest<T, U : Auth0Exception>(
         }
     }
 
+    @Throws(IOException::class)
+    private fun load(): ServerResponse {
+        val limiter = rateLimiter ?: return client.load(url, options)
+        var retries = 0
+        var remainingWaitMillis = MAX_RATE_LIMIT_WAIT_MILLIS
+        while (true) {
+            val waitStartedAt = System.nanoTime()
+            if (!acquirePermit(limiter, remainingWaitMillis)) {
+                return rateLimitExceeded()
+            }
+            remainingWaitMillis -= TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStartedAt)
+            val response = send(limiter)
+            if (!shouldRetry(response, retries)) {
+                return response
+            }
+            retries++
+        }
+    }
+
+    @Throws(IOException::class)
+    private fun send(limiter: RateLimiter): ServerResponse {
+        val response = client.load(url, options)
+        limiter.onResponse(response.statusCode, response.headers)
+        return response
+    }
+
+    /**
+     * Whether the given response was rejected for exceeding the rate limit, and the request can be sent again
+     * once the limiter allows it. If so, the response is discarded.
+     */
+    private fun shouldRetry(response: ServerResponse, retries: Int): Boolean {
+        if (response.statusCode != RateLimiter.STATUS_TOO_MANY_REQUESTS || retries >= MAX_RATE_LIMIT_RETRIES) {
+            return false
+        }
+        response.body.close()
+        telemetry.increment(Auth0Telemetry.RATE_LIMITED)
+        return true
+    }
+
+    /**
+     * Takes a permit from the rate limiter, waiting for one at most the given time.
+     *
+     * @return whether a permit was taken.
+     */
+    @Throws(IOException::class)
+    private fun acquirePermit(limiter: RateLimiter, timeoutMillis: Long): Boolean {
+        if (limiter.tryAcquire()) {
+            return true
+        }
+        val span = telemetry.startSpan(Auth0Telemetry.RATE_LIMIT_WAIT)
+        span.setAttribute(Auth0Telemetry.ATTRIBUTE_QUEUE_DEPTH, limiter.queueDepth + 1L)
+        var error: IOException? = null
+        try {
+            return limiter.acquire(max(0L, timeoutMillis))
+        } catch (e: IOException) {
+            error = e
+            throw e
+        } finally {
+            span.end(error)
+        }
+    }
+
+    /**
+     * A request started asynchronously and paced by the rate limiter. Each attempt takes a permit if one is
+     * available, and otherwise schedules the next one for when the limiter expects it to be, so that no thread
+     * waits in between. Once it has a permit, the request is sent on a background thread.
+     */
+    private inner class PacedStart(
+        private val limiter: RateLimiter,
+        private val callback: Callback<T, U>
+    ) {
+        private val span = startSpan()
+        private var retries = 0
+        private var remainingWaitMillis = MAX_RATE_LIMIT_WAIT_MILLIS
+        private var wait: RateLimiter.Wait? = null
+        private var waitSpan: Auth0Telemetry.Span? = null
+
+        fun attempt() {
+            val currentWait = wait ?: if (limiter.tryAcquire()) {
+                sendWithPermit()
+                return
+            } else {
+                beginWait()
+            }
+            val delayMillis = currentWait.tryAcquire()
+            val waitedMillis = currentWait.waitedMillis
+            when {
+                delayMillis == 0L -> {
+                    endWait(waitedMillis)
+                    sendWithPermit()
+                }
+                waitedMillis >= remainingWaitMillis -> {
+                    currentWait.cancel()
+                    endWait(waitedMillis)
+                    threadSwitcher.backgroundThread {
+                        deliver(callback) { execute(span) { rateLimitExceeded() } }
+                    }
+                }
+                else -> rateLimitScheduler.schedule(
+                    { attempt() },
+                    min(delayMillis, remainingWaitMillis - waitedMillis),
+                    TimeUnit.MILLISECONDS
+                )
+            }
+        }
+
+        private fun beginWait(): RateLimiter.Wait {
+            val newWait = limiter.beginWait()
+            wait = newWait
+            waitSpan = telemetry.startSpan(Auth0Telemetry.RATE_LIMIT_WAIT).apply {
+                setAttribute(Auth0Telemetry.ATTRIBUTE_QUEUE_DEPTH, limiter.queueDepth.toLong())
+            }
+            return newWait
+        }
+
+        private fun endWait(waitedMillis: Long) {
+            remainingWaitMillis -= waitedMillis
+            waitSpan?.end(null)
+            waitSpan = null
+            wait = null
+        }
+
+        private fun sendWithPermit() {
+            threadSwitcher.backgroundThread {
+                val response = try {
+                    if (inFlightRequests != null) {
+                        inFlightRequests.load(client, url, options) { send(limiter) }
+                    } else {
+                        send(limiter)
+                    }
+                } catch (e: IOException) {
+                    deliver(callback) { execute(span) { throw e } }
+                    return@backgroundThread
+                }
+                if (shouldRetry(response, retries)) {
+                    retries++
+                    rateLimitScheduler.execute { attempt() }
+                } else {
+                    deliver(callback) { execute(span) { response } }
+                }
+            }
+        }
+    }
+
+    /**
+     * The response to fail with when waiting for the rate limit took too long, as if the API had
+     * rejected the request for exceeding it.
+     */
+    private fun rateLimitExceeded(): ServerResponse = ServerResponse(
+        RateLimiter.STATUS_TOO_MANY_REQUESTS,
+        ByteArrayInputStream(RATE_LIMIT_EXCEEDED_MESSAGE.toByteArray(StandardCharsets.UTF_8)),
+        emptyMap()
+    )
+
+    private companion object {
+        private const val MAX_RATE_LIMIT_RETRIES = 3
+        // The longest time a request waits for the rate limit, across all its retries
+        private const val MAX_RATE_LIMIT_WAIT_MILLIS = 60_000L
+        private const val RATE_LIMIT_EXCEEDED_MESSAGE =
+            "Too Many Requests: gave up waiting for the rate limit of the API."
+        private const val RATE_LIMIT_THREAD_NAME = "Auth0-RateLimit"
+
+        // Only takes the permits and schedules the next attempts, the requests are sent on the background threads
+        private val RATE_LIMIT_SCHEDULER: ScheduledExecutorService = newDaemonScheduler(RATE_LIMIT_THREAD_NAME)
+    }
 }
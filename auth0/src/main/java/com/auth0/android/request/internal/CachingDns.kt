@@ -0,0 +1,147 @@
+package com.auth0.android.request.internal
+
+import android.util.Log
+import com.auth0.android.authentication.storage.Storage
+import okhttp3.Dns
+import java.net.InetAddress
+import java.net.UnknownHostException
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Resolves host names through the given [Dns], keeping the addresses of each host for the given time to live.
+ * Once expired, the addresses are still served while they are resolved again in the background, so only the
+ * first lookup of a host ever waits for the resolver. The last addresses resolved for each host are kept in the
+ * storage, so they can be served right away after the app restarts, and also when the resolver fails.
+ *
+ * @param storage where the last addresses resolved are kept across restarts.
+ * @param ttlMillis how long the resolved addresses are served without resolving them again.
+ * @param maxStaleMillis how long after expiring the addresses can still be served while they are resolved again.
+ * Older addresses are resolved on the calling thread, and only served if that fails.
+ * @param delegate the resolver to use.
+ * @param threadSwitcher where the addresses are resolved again in the background.
+ * @param currentTimeMillis the source of the current time.
+ */
+internal class CachingDns(
+    private val storage: Storage,
+    private val ttlMillis: Long = DEFAULT_TTL_MILLIS,
+    private val maxStaleMillis: Long = DEFAULT_MAX_STALE_MILLIS,
+    private val delegate: Dns = Dns.SYSTEM,
+    private val threadSwitcher: ThreadSwitcher = CommonThreadSwitcher.getInstance(),
+    private val currentTimeMillis: () -> Long = { System.currentTimeMillis() }
+) : Dns {
+
+    private val entries: MutableMap<String, Entry> = ConcurrentHashMap()
+    private val refreshing: MutableSet<String> = Collections.newSetFromMap(ConcurrentHashMap())
+
+    init {
+        require(ttlMillis > 0 && maxStaleMillis >= 0) { "The time to live must be positive and the maximum staleness can't be negative." }
+    }
+
+    @Throws(UnknownHostException::class)
+    override fun lookup(hostname: String): List<InetAddress> {
+        val entry = entries[hostname] ?: readEntry(hostname)?.also { entries[hostname] = it }
+        val now = currentTimeMillis()
+        if (entry != null) {
+            val age = now - entry.resolvedAt
+            if (age in 0 until ttlMillis) {
+                return entry.addresses
+            }
+            if (age in 0 until ttlMillis + maxStaleMillis) {
+                refreshInBackground(hostname)
+                return entry.addresses
+            }
+        }
+        return try {
+            resolve(hostname)
+        } catch (e: UnknownHostException) {
+            // The last known addresses are better than failing the request
+            entry?.addresses ?: throw e
+        }
+    }
+
+    @Throws(UnknownHostException::class)
+    private fun resolve(hostname: String): List<InetAddress> {
+        val addresses = delegate.lookup(hostname)
+        if (addresses.isEmpty()) {
+            throw UnknownHostException("No addresses were resolved for $hostname")
+        }
+        val entry = Entry(addresses, currentTimeMillis())
+        if (entries.size >= MAX_HOSTS && !entries.containsKey(hostname)) {
+            // Only a few hosts are ever requested, so dropping them all is simpler than tracking the oldest
+            entries.clear()
+        }
+        entries[hostname] = entry
+        storage.store(storageKey(hostname), entry.serialize())
+        return addresses
+    }
+
+    private fun refreshInBackground(hostname: String) {
+        if (!refreshing.add(hostname)) {
+            return
+        }
+        threadSwitcher.backgroundThread {
+            try {
+                resolve(hostname)
+            } catch (e: UnknownHostException) {
+                Log.w(TAG, "Could not refresh the addresses of $hostname. The previous ones will be used.", e)
+            } finally {
+                refreshing.remove(hostname)
+            }
+        }
+    }
+
+    private fun readEntry(hostname: String): Entry? {
+        val serialized = storage.retrieveString(storageKey(hostname)) ?: return null
+        return Entry.deserialize(hostname, serialized)
+    }
+
+    private fun storageKey(hostname: String) = KEY_PREFIX + hostname
+
+    private class Entry(val addresses: List<InetAddress>, val resolvedAt: Long) {
+
+        fun serialize(): String = addresses.joinToString(
+            separator = ADDRESS_SEPARATOR,
+            prefix = "$resolvedAt$TIME_SEPARATOR"
+        ) { it.hostAddress.orEmpty() }
+
+        companion object {
+            /**
+             * Reads an entry written by [serialize], or returns null if it can't be read.
+             */
+            fun deserialize(hostname: String, serialized: String): Entry? {
+                val timeEnd = serialized.indexOf(TIME_SEPARATOR)
+                if (timeEnd <= 0) {
+                    return null
+                }
+                val resolvedAt = serialized.substring(0, timeEnd).toLongOrNull() ?: return null
+                val addresses = serialized.substring(timeEnd + 1)
+                    .split(ADDRESS_SEPARATOR)
+                    .mapNotNull { toAddress(hostname, it) }
+                return if (addresses.isEmpty()) null else Entry(addresses, resolvedAt)
+            }
+
+            private fun toAddress(hostname: String, literal: String): InetAddress? {
+                // Only IP literals are accepted, so that reading an entry never triggers a lookup
+                if (literal.isEmpty() || !(literal.contains(':') || literal.all { it.isDigit() || it == '.' })) {
+                    return null
+                }
+                return try {
+                    InetAddress.getByAddress(hostname, InetAddress.getByName(literal).address)
+                } catch (e: UnknownHostException) {
+                    null
+                }
+            }
+        }
+    }
+
+    internal companion object {
+        private val TAG = CachingDns::class.java.simpleName
+        private const val KEY_PREFIX = "com.auth0.dns."
+        private const val TIME_SEPARATOR = '|'
+        private const val ADDRESS_SEPARATOR = ","
+        private const val MAX_HOSTS = 8
+        const val DEFAULT_TTL_MILLIS: Long = 5 * 60 * 1000L
+        const val DEFAULT_MAX_STALE_MILLIS: Long = 24 * 60 * 60 * 1000L
+    }
+}
@@ -0,0 +1,28 @@
+package com.auth0.android.request.internal
+
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+
+/**
+ * How long the thread of a scheduler is kept alive once there's nothing scheduled.
+ */
+private const val IDLE_THREAD_TIMEOUT_SECONDS = 30L
+
+/**
+ * Creates a scheduler that runs its tasks on a single daemon thread. The thread is stopped once nothing is
+ * scheduled, so the scheduler doesn't need to be shut down: it's dropped along with the instance that owns it,
+ * and never keeps the process from exiting.
+ *
+ * @param name the name of the thread, to tell it apart in thread dumps.
+ */
+internal fun newDaemonScheduler(name: String): ScheduledExecutorService {
+    val scheduler = ScheduledThreadPoolExecutor(1) { runnable ->
+        Thread(runnable, name).apply { isDaemon = true }
+    }
+    scheduler.setKeepAliveTime(IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+    scheduler.allowCoreThreadTimeOut(true)
+    // Cancelled tasks would otherwise keep the thread alive until their delay passed
+    scheduler.removeOnCancelPolicy = true
+    return scheduler
+}
@@ -0,0 +1,57 @@
+package com.auth0.android.request.internal
+
+import java.util.*
+
+/**
+ * Computes the delay before retrying an operation that keeps failing. The delay doubles on every attempt,
+ * up to the given maximum, and half of it is randomized so that clients that failed together don't retry
+ * at the same time.
+ * @param initialDelayMillis the delay before the first retry, in milliseconds.
+ * @param maxDelayMillis the maximum delay between retries, in milliseconds.
+ */
+internal class ExponentialBackoff(
+    private val initialDelayMillis: Long = DEFAULT_INITIAL_DELAY_MILLIS,
+    private val maxDelayMillis: Long = DEFAULT_MAX_DELAY_MILLIS,
+    private val random: Random = Random()
+) {
+    private var attempt = 0
+
+    init {
+        require(initialDelayMillis > 0 && maxDelayMillis >= initialDelayMillis) {
+            "The delays must be positive and the maximum delay can't be lower than the initial one."
+        }
+    }
+
+    /**
+     * The number of retries computed since the last reset.
+     */
+    val attempts: Int
+        @Synchronized get() = attempt
+
+    /**
+     * Returns the delay to wait before the next retry, and moves to the next attempt.
+     */
+    @Synchronized
+    fun nextDelayMillis(): Long {
+        // Avoid overflowing the shift once the maximum delay is reached
+        val exponent = attempt.coerceAtMost(MAX_EXPONENT)
+        val delay = (initialDelayMillis shl exponent).coerceIn(initialDelayMillis, maxDelayMillis)
+        attempt++
+        val half = delay / 2
+        return delay - half + (random.nextDouble() * half).toLong()
+    }
+
+    /**
+     * Starts over from the initial delay. To be called once the operation succeeds.
+     */
+    @Synchronized
+    fun reset() {
+        attempt = 0
+    }
+
+    private companion object {
+        private const val DEFAULT_INITIAL_DELAY_MILLIS = 1000L
+        private const val DEFAULT_MAX_DELAY_MILLIS = 5 * 60 * 1000L
+        private const val MAX_EXPONENT = 30
+    }
+}
@@ -5,6 +5,7 @@ import com.auth0.android.result.Credentials
 import com.auth0.android.result.UserProfile
 import com.google.gson.Gson
 import com.google.gson.GsonBuilder
+import com.google.gson.JsonDeserializer
 import com.google.gson.reflect.TypeToken
 import java.security.PublicKey
 import java.text.SimpleDateFormat
@@ -21,11 +22,20 @@ internal object GsonProvider {
             String::class.java,
             PublicKey::class.java
         ).type
+        val signingKeysType = TypeToken.getParameterized(
+            Map::class.java,
+            String::class.java,
+            JsonWebKey::class.java
+        ).type
+        val jwksDeserializer = JwksDeserializer()
         gson = GsonBuilder()
             .registerTypeAdapterFactory(JsonRequiredTypeAdapterFactory())
             .registerTypeAdapter(UserProfile::class.java, UserProfileDeserializer())
             .registerTypeAdapter(Credentials::class.java, CredentialsDeserializer())
-            .registerTypeAdapter(jwksType, JwksDeserializer())
+            .registerTypeAdapter(signingKeysType, jwksDeserializer)
+            .registerTypeAdapter(jwksType, JsonDeserializer { json, typeOfT, context ->
+                jwksDeserializer.deserialize(json, typeOfT, context).mapValues { it.value.publicKey }
+            })
             .setDateFormat(DATE_FORMAT)
             .create()
         sdf = SimpleDateFormat(DATE_FORMAT, Locale.US)
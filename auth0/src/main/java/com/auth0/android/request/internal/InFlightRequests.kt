@@ -0,0 +1,142 @@
+package com.auth0.android.request.internal
+
+import com.auth0.android.request.NetworkingClient
+import com.auth0.android.request.RequestOptions
+import com.auth0.android.request.ServerResponse
+import java.io.ByteArrayInputStream
+import java.io.IOException
+import java.io.InterruptedIOException
+import java.util.concurrent.CountDownLatch
+
+/**
+ * Collapses identical requests that run at the same time into a single network call. A request is
+ * identical to another one when it's loaded by the same client, with the same method, URL, headers and
+ * parameters. The callers that arrive while the first one is loading wait for its response, and each of
+ * them receives its own copy of the body to parse. Only idempotent requests must be loaded through here.
+ */
+internal class InFlightRequests {
+
+    private val calls: MutableMap<Key, Call> = HashMap()
+
+    /**
+     * Loads the response using the given loader, unless an identical request is already being loaded,
+     * in which case its response is returned instead. The response body is only read into memory when
+     * other callers are waiting for it, otherwise the response is returned as it was loaded.
+     *
+     * @param client the client that loads the request.
+     * @param url the URL of the request.
+     * @param options the method, headers and parameters of the request.
+     * @param loader performs the network call.
+     * @return a response whose body can be read by the caller alone.
+     */
+    @Throws(IOException::class)
+    fun load(
+        client: NetworkingClient,
+        url: String,
+        options: RequestOptions,
+        loader: () -> ServerResponse
+    ): ServerResponse {
+        val key = Key(client, url, options)
+        val call: Call
+        val isOwner: Boolean
+        synchronized(calls) {
+            val existing = calls[key]
+            isOwner = existing == null
+            call = existing ?: Call().also { calls[key] = it }
+            if (!isOwner) {
+                call.waiters++
+            }
+        }
+        if (!isOwner) {
+            return call.await()
+        }
+        val response = try {
+            loader()
+        } catch (error: Throwable) {
+            finish(key)
+            call.complete(null, null, error)
+            throw error
+        }
+        // No caller can start waiting once the call is finished, so the response can be streamed if none did
+        if (finish(key) == 0) {
+            return response
+        }
+        val body = try {
+            response.body.use { it.readBytes() }
+        } catch (error: Throwable) {
+            call.complete(null, null, error)
+            throw error
+        }
+        call.complete(response, body, null)
+        return call.await()
+    }
+
+    /**
+     * Whether there's a request being loaded. Used for testing.
+     */
+    fun isEmpty(): Boolean = synchronized(calls) { calls.isEmpty() }
+
+    /**
+     * The number of callers waiting for a request that another caller is loading. Used for testing.
+     */
+    fun waitingCallers(): Int = synchronized(calls) { calls.values.sumOf { it.waiters } }
+
+    /**
+     * Removes the call of the given request, so that the next identical request is loaded again.
+     *
+     * @return the number of callers waiting for it.
+     */
+    private fun finish(key: Key): Int = synchronized(calls) {
+        calls.remove(key)!!.waiters
+    }
+
+    private data class Key(
+        val client: NetworkingClient,
+        val url: String,
+        val method: String,
+        val headers: Map<String, String>,
+        val parameters: Map<String, Any>
+    ) {
+        constructor(client: NetworkingClient, url: String, options: RequestOptions) : this(
+            client, url, options.method.toString(), options.headers.toMap(), options.parameters.toMap()
+        )
+    }
+
+    private class Call {
+        private val done = CountDownLatch(1)
+
+        /**
+         * The number of callers waiting for this call, only changed while holding the lock of the calls.
+         */
+        var waiters = 0
+        private var response: ServerResponse? = null
+        private var body: ByteArray? = null
+        private var error: Throwable? = null
+
+        fun complete(response: ServerResponse?, body: ByteArray?, error: Throwable?) {
+            this.response = response
+            this.body = body
+            this.error = error
+            done.countDown()
+        }
+
+        @Throws(IOException::class)
+        fun await(): ServerResponse {
+            try {
+                done.await()
+            } catch (e: InterruptedException) {
+                Thread.currentThread().interrupt()
+                throw InterruptedIOException("Interrupted while waiting for an identical request.")
+            }
+            when (val error = error) {
+                null -> Unit
+                is IOException -> throw error
+                is RuntimeException -> throw error
+                is Error -> throw error
+                else -> throw IOException(error)
+            }
+            val response = response!!
+            return ServerResponse(response.statusCode, ByteArrayInputStream(body), response.headers)
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.auth0.android.request.internal
+
+import java.security.PublicKey
+
+/**
+ * A public key of the JSON Web Key Set, along with the algorithm the set declares it's used with.
+ * Tokens signed with this key are only accepted when signed with that algorithm.
+ *
+ * @param algorithm the `alg` of the key, like "RS256".
+ * @param publicKey the public key.
+ */
+internal data class JsonWebKey(val algorithm: String, val publicKey: PublicKey)
@@ -10,52 +10,57 @@ import java.lang.reflect.Type
 import java.math.BigInteger
 import java.security.KeyFactory
 import java.security.NoSuchAlgorithmException
-import java.security.PublicKey
+import java.security.spec.ECFieldFp
+import java.security.spec.ECParameterSpec
+import java.security.spec.ECPoint
+import java.security.spec.ECPublicKeySpec
+import java.security.spec.EllipticCurve
 import java.security.spec.InvalidKeySpecException
 import java.security.spec.RSAPublicKeySpec
 
-internal class JwksDeserializer : JsonDeserializer<Map<String, PublicKey>> {
+/**
+ * Reads the signing keys of a JSON Web Key Set, by key ID. Each key keeps the algorithm the set declares for it.
+ */
+internal class JwksDeserializer : JsonDeserializer<Map<String, JsonWebKey>> {
     @Throws(JsonParseException::class)
     override fun deserialize(
         json: JsonElement,
         typeOfT: Type,
         context: JsonDeserializationContext
-    ): Map<String, PublicKey> {
+    ): Map<String, JsonWebKey> {
         if (!json.isJsonObject || json.isJsonNull || json.asJsonObject.entrySet().isEmpty()) {
             throw JsonParseException("jwks json must be a valid and non-empty json object")
         }
-        val jwks = mutableMapOf<String, PublicKey>()
+        val jwks = mutableMapOf<String, JsonWebKey>()
         val keys = json.asJsonObject.getAsJsonArray("keys")
         for (k in keys) {
             val currentKey = k.asJsonObject
             val keyAlg = context.deserialize<String>(currentKey["alg"], String::class.java)
             val keyUse = context.deserialize<String>(currentKey["use"], String::class.java)
-            if (RSA_ALGORITHM != keyAlg || USE_SIGNING != keyUse) {
+            if (keyAlg == null || keyAlg !in SUPPORTED_ALGORITHMS || USE_SIGNING != keyUse) {
                 //Key not supported at this time
                 continue
             }
             val keyType = context.deserialize<String>(currentKey["kty"], String::class.java)
             val keyId = context.deserialize<String>(currentKey["kid"], String::class.java)
-            val keyModulus = context.deserialize<String>(currentKey["n"], String::class.java)
-            val keyPublicExponent = context.deserialize<String>(currentKey["e"], String::class.java)
             try {
-                val kf = KeyFactory.getInstance(keyType)
-                val modulus = BigInteger(
-                    1,
-                    Base64.decode(
-                        keyModulus,
-                        Base64.URL_SAFE or Base64.NO_PADDING or Base64.NO_WRAP
-                    )
-                )
-                val exponent = BigInteger(
-                    1,
-                    Base64.decode(
-                        keyPublicExponent,
-                        Base64.URL_SAFE or Base64.NO_PADDING or Base64.NO_WRAP
-                    )
-                )
-                val pub = kf.generatePublic(RSAPublicKeySpec(modulus, exponent))
-                jwks[keyId] = pub
+                val pub = if (keyAlg == EC_ALGORITHM) {
+                    val curve = context.deserialize<String>(currentKey["crv"], String::class.java)
+                    if (curve != P256_CURVE) {
+                        throw InvalidKeySpecException("Unsupported curve $curve")
+                    }
+                    val x = context.deserialize<String>(currentKey["x"], String::class.java)
+                    val y = context.deserialize<String>(currentKey["y"], String::class.java)
+                    val point = ECPoint(decodeUnsigned(x), decodeUnsigned(y))
+                    KeyFactory.getInstance(keyType).generatePublic(ECPublicKeySpec(point, P256))
+                } else {
+                    val keyModulus = context.deserialize<String>(currentKey["n"], String::class.java)
+                    val keyPublicExponent = context.deserialize<String>(currentKey["e"], String::class.java)
+                    val modulus = decodeUnsigned(keyModulus)
+                    val exponent = decodeUnsigned(keyPublicExponent)
+                    KeyFactory.getInstance(keyType).generatePublic(RSAPublicKeySpec(modulus, exponent))
+                }
+                jwks[keyId] = JsonWebKey(keyAlg, pub)
             } catch (e: NoSuchAlgorithmException) {
                 Log.e(
                     JwksDeserializer::class.java.simpleName,
@@ -74,8 +79,33 @@ internal class JwksDeserializer : JsonDeserializer<Map<String, PublicKey>> {
         return jwks.toMap()
     }
 
+    private fun decodeUnsigned(value: String?): BigInteger {
+        if (value == null) {
+            throw InvalidKeySpecException("Missing key parameter")
+        }
+        return BigInteger(1, Base64.decode(value, Base64.URL_SAFE or Base64.NO_PADDING or Base64.NO_WRAP))
+    }
+
     companion object {
         private const val RSA_ALGORITHM = "RS256"
+        private const val RSA_PSS_ALGORITHM = "PS256"
+        private const val EC_ALGORITHM = "ES256"
         private const val USE_SIGNING = "sig"
+        private const val P256_CURVE = "P-256"
+        private val SUPPORTED_ALGORITHMS = setOf(RSA_ALGORITHM, RSA_PSS_ALGORITHM, EC_ALGORITHM)
+
+        /**
+         * The domain parameters of the P-256 curve, also known as secp256r1, from FIPS 186-4.
+         * Hardcoded since looking them up by name isn't available on every API level.
+         */
+        private val P256: ECParameterSpec by lazy {
+            val p = BigInteger("ffffffff00000001000000000000000000000000ffffffffffffffffffffffff", 16)
+            val a = BigInteger("ffffffff00000001000000000000000000000000fffffffffffffffffffffffc", 16)
+            val b = BigInteger("5ac635d8aa3a93e7b3ebbd55769886bc651d06b0cc53b0f63bce3c3e27d2604b", 16)
+            val gx = BigInteger("6b17d1f2e12c4247f8bce6e563a440f277037d812deb33a0f4a13945d898c296", 16)
+            val gy = BigInteger("4fe342e2fe1a7f9b8ee7eb4a7c0f9e162bce33576b315ececbb6406837bf51f5", 16)
+            val n = BigInteger("ffffffff00000000ffffffffffffffffbce6faada7179e84f3b9cac2fc632551", 16)
+            ECParameterSpec(EllipticCurve(ECFieldFp(p), a, b), ECPoint(gx, gy), n, 1)
+        }
     }
 }
\ No newline at end of file
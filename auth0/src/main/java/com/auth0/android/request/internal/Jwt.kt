@@ -8,7 +8,7 @@ import java.util.*
 /**
  * Internal class meant to decode the given token of type JWT and provide access to its claims.
  */
-internal class Jwt(rawToken: String) {
+internal class Jwt(private val rawToken: String) {
 
     private val decodedHeader: Map<String, Any>
     private val decodedPayload: Map<String, Any>
@@ -30,6 +30,12 @@ internal class Jwt(rawToken: String) {
     val authenticationTime: Date?
     val audience: List<String>
 
+    /**
+     * The length of the signed content of the token: the encoded header and payload and the dot between them.
+     */
+    val signingInputLength: Int
+        get() = parts[0].length + 1 + parts[1].length
+
     init {
         parts = splitToken(rawToken)
         val jsonHeader = decodeBase64(parts[0])
@@ -60,6 +66,12 @@ internal class Jwt(rawToken: String) {
         }
     }
 
+    /**
+     * Returns the ASCII bytes of the whole token. The signed content is the range
+     * from 0 to [signingInputLength], so it can be verified without joining the parts again.
+     */
+    fun toAsciiBytes(): ByteArray = rawToken.toByteArray(Charsets.US_ASCII)
+
     companion object {
         fun splitToken(token: String): Array<String> {
             var parts = token.split(".").toTypedArray()
@@ -0,0 +1,243 @@
+package com.auth0.android.request.internal
+
+import java.io.InterruptedIOException
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+import kotlin.math.ceil
+import kotlin.math.max
+import kotlin.math.min
+
+/**
+ * Token bucket that paces the requests sent to an API with rate limits. Every request takes a token from
+ * the bucket, and waits for one to be refilled when it's empty. The size of the bucket and its refill
+ * rate are learnt from the `x-ratelimit-limit`, `x-ratelimit-remaining` and `x-ratelimit-reset` headers of
+ * the responses, so nothing is throttled until the API reports its limits. After a `429` response, every
+ * request waits until the time the API reported the limit resets, or an increasing delay when it didn't.
+ *
+ * @param currentTimeMillis the source of the current time.
+ * @param backoff the delays to wait after a `429` response without a reset time.
+ */
+internal class RateLimiter(
+    private val currentTimeMillis: () -> Long = { System.currentTimeMillis() },
+    private val backoff: ExponentialBackoff = ExponentialBackoff()
+) {
+    // Fair, so that the waiting requests are sent in the order they arrived
+    private val lock = ReentrantLock(true)
+    private val tokenAvailable = lock.newCondition()
+
+    private var capacity = Double.POSITIVE_INFINITY
+    private var tokens = Double.POSITIVE_INFINITY
+    private var refillPerMilli = 0.0
+    private var refilledAt = currentTimeMillis()
+    private var blockedUntil = 0L
+    private var waiting = 0
+    private var throttled = 0L
+
+    /**
+     * The number of requests waiting for a token.
+     */
+    val queueDepth: Int
+        get() = lock.withLock { waiting }
+
+    /**
+     * The total time the requests have waited for a token, in milliseconds.
+     */
+    val throttledMillis: Long
+        get() = lock.withLock { throttled }
+
+    /**
+     * Takes a token if one is available right away and no other request is waiting for one.
+     *
+     * @return whether a token was taken.
+     */
+    fun tryAcquire(): Boolean = lock.withLock {
+        refill()
+        if (waiting == 0 && canTake(currentTimeMillis())) {
+            tokens -= 1
+            true
+        } else {
+            false
+        }
+    }
+
+    /**
+     * Takes a token, waiting until one is available or the timeout passes.
+     *
+     * @param timeoutMillis the longest time to wait for a token, in milliseconds.
+     * @return whether a token was taken before the timeout passed.
+     */
+    @Throws(InterruptedIOException::class)
+    fun acquire(timeoutMillis: Long): Boolean {
+        lock.withLock {
+            val startedAt = currentTimeMillis()
+            val deadline = startedAt + timeoutMillis
+            waiting++
+            try {
+                while (true) {
+                    refill()
+                    val now = currentTimeMillis()
+                    if (canTake(now)) {
+                        tokens -= 1
+                        return true
+                    }
+                    if (now >= deadline) {
+                        return false
+                    }
+                    tokenAvailable.await(min(waitMillis(now), deadline - now), TimeUnit.MILLISECONDS)
+                }
+            } catch (e: InterruptedException) {
+                Thread.currentThread().interrupt()
+                throw InterruptedIOException("Interrupted while waiting for the rate limit.")
+            } finally {
+                waiting--
+                throttled += max(0L, currentTimeMillis() - startedAt)
+            }
+        }
+    }
+
+    /**
+     * Starts waiting for a token without blocking the calling thread. The request is counted in [queueDepth],
+     * and [tryAcquire] doesn't take the tokens ahead of it, until it takes a token or gives up.
+     *
+     * @return the wait, to take the token with once it's available.
+     */
+    fun beginWait(): Wait = lock.withLock {
+        waiting++
+        Wait(currentTimeMillis())
+    }
+
+    /**
+     * A request waiting for a token without blocking a thread, started with [beginWait].
+     */
+    inner class Wait internal constructor(private val startedAt: Long) {
+        private var ended = false
+
+        /**
+         * The time waited so far, in milliseconds.
+         */
+        val waitedMillis: Long
+            get() = max(0L, currentTimeMillis() - startedAt)
+
+        /**
+         * Takes a token if one is available, which ends the wait.
+         *
+         * @return zero if a token was taken, or the time to wait before trying again, in milliseconds.
+         */
+        fun tryAcquire(): Long = lock.withLock {
+            check(!ended) { "The wait already ended." }
+            refill()
+            val now = currentTimeMillis()
+            if (canTake(now)) {
+                tokens -= 1
+                end(now)
+                0L
+            } else {
+                waitMillis(now)
+            }
+        }
+
+        /**
+         * Gives up waiting without taking a token.
+         */
+        fun cancel() {
+            lock.withLock {
+                if (!ended) {
+                    end(currentTimeMillis())
+                }
+            }
+        }
+
+        private fun end(now: Long) {
+            ended = true
+            waiting--
+            throttled += max(0L, now - startedAt)
+        }
+    }
+
+    /**
+     * Adapts the bucket to the limits reported in the headers of a response.
+     *
+     * @param statusCode the status code of the response.
+     * @param headers the headers of the response.
+     */
+    fun onResponse(statusCode: Int, headers: Map<String, List<String>>) {
+        val limit = header(headers, HEADER_LIMIT)
+        val remaining = header(headers, HEADER_REMAINING)
+        val resetAt = header(headers, HEADER_RESET)?.let { TimeUnit.SECONDS.toMillis(it) }
+        lock.withLock {
+            refill()
+            val now = currentTimeMillis()
+            if (limit != null && limit > 0) {
+                capacity = limit.toDouble()
+                tokens = min(tokens, capacity)
+            }
+            if (remaining != null) {
+                // The bucket is shared with every other client of the tenant, so the server knows best
+                tokens = min(tokens, remaining.toDouble())
+            }
+            if (limit != null && remaining != null && resetAt != null && resetAt > now) {
+                refillPerMilli = max((limit - remaining).toDouble() / (resetAt - now), MIN_REFILL_PER_MILLI)
+            } else if ((limit != null || remaining != null) && refillPerMilli == 0.0) {
+                refillPerMilli = MIN_REFILL_PER_MILLI
+            }
+            if (statusCode == STATUS_TOO_MANY_REQUESTS) {
+                val retryAt = if (resetAt != null && resetAt > now) resetAt else now + backoff.nextDelayMillis()
+                blockedUntil = max(blockedUntil, retryAt)
+            } else {
+                backoff.reset()
+            }
+            tokenAvailable.signalAll()
+        }
+    }
+
+    private fun canTake(now: Long): Boolean = now >= blockedUntil && tokens >= 1
+
+    private fun waitMillis(now: Long): Long {
+        val untilUnblocked = blockedUntil - now
+        val untilRefilled = when {
+            tokens >= 1 -> 0L
+            refillPerMilli > 0 -> ceil((1 - tokens) / refillPerMilli).toLong()
+            else -> MAX_WAIT_MILLIS
+        }
+        return max(untilUnblocked, untilRefilled).coerceIn(1, MAX_WAIT_MILLIS)
+    }
+
+    private fun refill() {
+        val now = currentTimeMillis()
+        val elapsed = now - refilledAt
+        if (elapsed > 0) {
+            tokens = min(capacity, tokens + elapsed * refillPerMilli)
+        }
+        refilledAt = now
+    }
+
+    private fun header(headers: Map<String, List<String>>, name: String): Long? =
+        headers.entries
+            .firstOrNull { it.key.equals(name, ignoreCase = true) }
+            ?.value?.firstOrNull()
+            ?.trim()?.toLongOrNull()
+
+    internal companion object {
+        const val STATUS_TOO_MANY_REQUESTS = 429
+        private const val HEADER_LIMIT = "x-ratelimit-limit"
+        private const val HEADER_REMAINING = "x-ratelimit-remaining"
+        private const val HEADER_RESET = "x-ratelimit-reset"
+
+        // One token per minute, when the headers don't allow computing the rate
+        private const val MIN_REFILL_PER_MILLI = 1.0 / 60_000
+        // Wake up regularly, in case the limits changed without a response signalling it
+        private const val MAX_WAIT_MILLIS = 1000L
+
+        private val limiters = ConcurrentHashMap<String, RateLimiter>()
+
+        /**
+         * Returns the limiter shared by every request sent to the given domain, since the API limits
+         * apply to the whole tenant.
+         */
+        fun forDomain(domainUrl: String): RateLimiter =
+            limiters.getOrPut(domainUrl.lowercase(Locale.ROOT)) { RateLimiter() }
+    }
+}
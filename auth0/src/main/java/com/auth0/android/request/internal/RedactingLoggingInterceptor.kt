@@ -0,0 +1,158 @@
+package com.auth0.android.request.internal
+
+import okhttp3.*
+import okio.Buffer
+import okio.BufferedSource
+import okio.ForwardingSource
+import okio.buffer
+import java.io.IOException
+import java.util.*
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Logs the method, path, headers, status, body sizes and timings of the requests, without their bodies.
+ * Bodies are never read by this interceptor: the size of the response body is counted while the caller
+ * consumes it, and logged once it has been read or closed. The values of the sensitive query parameters
+ * and headers are replaced with [REDACTED].
+ *
+ * @param logger where to write the log lines.
+ * @param sampleRate the fraction of the requests to log, between 0 and 1. Requests that are not sampled
+ * are not measured at all.
+ * @param random the source of the sampling decisions, returning values between 0 (inclusive) and 1 (exclusive).
+ */
+internal class RedactingLoggingInterceptor(
+    private val logger: (String) -> Unit,
+    private val sampleRate: Double = 1.0,
+    private val random: () -> Double = { ThreadLocalRandom.current().nextDouble() }
+) : Interceptor {
+
+    init {
+        require(sampleRate in 0.0..1.0) { "The sample rate must be between 0 and 1." }
+    }
+
+    @Throws(IOException::class)
+    override fun intercept(chain: Interceptor.Chain): Response {
+        val request = chain.request()
+        if (sampleRate < 1.0 && random() >= sampleRate) {
+            return chain.proceed(request)
+        }
+        val method = request.method
+        val path = redactedPath(request.url)
+        logger("--> $method $path (${bodySize(request.body?.contentLength())})")
+        logHeaders(request.headers)
+
+        val startedAt = System.nanoTime()
+        val response = try {
+            chain.proceed(request)
+        } catch (e: IOException) {
+            logger("<-- HTTP FAILED $method $path (${elapsedMillis(startedAt)}ms): $e")
+            throw e
+        }
+        logger("<-- ${response.code} $method $path (${elapsedMillis(startedAt)}ms, ${bodySize(response.body?.contentLength())})")
+        logHeaders(response.headers)
+
+        val body = response.body ?: return response
+        val countingBody = CountingResponseBody(body) { bytesRead ->
+            logger("<-- END $method $path ($bytesRead-byte body read, ${elapsedMillis(startedAt)}ms)")
+        }
+        return response.newBuilder()
+            .body(countingBody)
+            .build()
+    }
+
+    private fun logHeaders(headers: Headers) {
+        for (i in 0 until headers.size) {
+            val name = headers.name(i)
+            val value = if (isSensitiveHeader(name)) REDACTED else headers.value(i)
+            logger("$name: $value")
+        }
+    }
+
+    /**
+     * Wraps a response body to count the bytes read from it, reporting the total once, when the body
+     * is exhausted or closed, whichever happens first.
+     */
+    private class CountingResponseBody(
+        private val delegate: ResponseBody,
+        private val onComplete: (bytesRead: Long) -> Unit
+    ) : ResponseBody() {
+        private val completed = AtomicBoolean()
+        private var bytesRead = 0L
+        private val source: BufferedSource by lazy {
+            object : ForwardingSource(delegate.source()) {
+                override fun read(sink: Buffer, byteCount: Long): Long {
+                    val read = super.read(sink, byteCount)
+                    if (read == -1L) {
+                        complete()
+                    } else {
+                        bytesRead += read
+                    }
+                    return read
+                }
+
+                override fun close() {
+                    complete()
+                    super.close()
+                }
+            }.buffer()
+        }
+
+        override fun contentType(): MediaType? = delegate.contentType()
+
+        override fun contentLength(): Long = delegate.contentLength()
+
+        override fun source(): BufferedSource = source
+
+        private fun complete() {
+            if (completed.compareAndSet(false, true)) {
+                onComplete(bytesRead)
+            }
+        }
+    }
+
+    internal companion object {
+        const val REDACTED = "██"
+
+        private val SENSITIVE_PARAMETERS = setOf(
+            "access_token", "refresh_token", "id_token", "code", "password", "client_secret"
+        )
+        private val SENSITIVE_HEADERS = setOf(
+            "authorization", "proxy-authorization", "cookie", "set-cookie"
+        )
+
+        fun isSensitiveHeader(name: String): Boolean =
+            SENSITIVE_HEADERS.contains(name.lowercase(Locale.ROOT))
+
+        /**
+         * Returns the path and query of the URL, with the values of the sensitive parameters redacted.
+         */
+        fun redactedPath(url: HttpUrl): String {
+            if (url.querySize == 0) {
+                return url.encodedPath
+            }
+            val builder = StringBuilder(url.encodedPath).append('?')
+            for (i in 0 until url.querySize) {
+                if (i > 0) {
+                    builder.append('&')
+                }
+                val name = url.queryParameterName(i)
+                builder.append(name)
+                val value = url.queryParameterValue(i) ?: continue
+                builder.append('=')
+                    .append(if (SENSITIVE_PARAMETERS.contains(name)) REDACTED else value)
+            }
+            return builder.toString()
+        }
+
+        private fun bodySize(contentLength: Long?): String = when {
+            contentLength == null -> "no body"
+            contentLength < 0 -> "unknown-length body"
+            else -> "$contentLength-byte body"
+        }
+
+        private fun elapsedMillis(startedAt: Long): Long =
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)
+    }
+}
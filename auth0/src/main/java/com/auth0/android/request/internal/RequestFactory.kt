@@ -3,6 +3,7 @@ package com.auth0.android.request.internal
 import androidx.annotation.VisibleForTesting
 import com.auth0.android.Auth0Exception
 import com.auth0.android.request.*
+import com.auth0.android.util.Auth0Telemetry
 import com.auth0.android.util.Auth0UserAgent
 import java.io.Reader
 import java.util.*
@@ -17,6 +18,12 @@ internal class RequestFactory<U : Auth0Exception> internal constructor(
         private const val ACCEPT_LANGUAGE_HEADER = "Accept-Language"
         private const val AUTH0_CLIENT_INFO_HEADER = Auth0UserAgent.HEADER_NAME
 
+        /**
+         * Shared by every factory, so that identical GET requests created by different API clients
+         * running at the same time are also collapsed into a single network call.
+         */
+        val inFlightRequests = InFlightRequests()
+
         val defaultLocale: String
             get() {
                 val language = Locale.getDefault().toString()
@@ -26,6 +33,16 @@ internal class RequestFactory<U : Auth0Exception> internal constructor(
 
     private val baseHeaders = mutableMapOf(Pair(ACCEPT_LANGUAGE_HEADER, defaultLocale))
 
+    /**
+     * Where the requests created from now on report their executions.
+     */
+    var telemetry: Auth0Telemetry = Auth0Telemetry.NONE
+
+    /**
+     * Paces the requests created from now on to honor the rate limits of the API, if any.
+     */
+    var rateLimiter: RateLimiter? = null
+
     fun <T> post(
         url: String,
         resultAdapter: JsonAdapter<T>
@@ -69,7 +86,18 @@ internal class RequestFactory<U : Auth0Exception> internal constructor(
         resultAdapter: JsonAdapter<T>,
         errorAdapter: ErrorAdapter<U>,
         threadSwitcher: ThreadSwitcher
-    ): Request<T, U> = BaseRequest(method, url, client, resultAdapter, errorAdapter, threadSwitcher)
+    ): Request<T, U> =
+        BaseRequest(
+            method,
+            url,
+            client,
+            resultAdapter,
+            errorAdapter,
+            threadSwitcher,
+            telemetry,
+            if (method is HttpMethod.GET) inFlightRequests else null,
+            rateLimiter
+        )
 
 
     private fun <T> setupRequest(
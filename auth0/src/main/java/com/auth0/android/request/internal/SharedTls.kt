@@ -0,0 +1,57 @@
+package com.auth0.android.request.internal
+
+import okhttp3.ConnectionPool
+import okhttp3.ConnectionSpec
+import okhttp3.TlsVersion
+import java.security.KeyStore
+import javax.net.ssl.SSLContext
+import javax.net.ssl.SSLSocketFactory
+import javax.net.ssl.TrustManagerFactory
+import javax.net.ssl.X509TrustManager
+
+/**
+ * TLS setup shared by the clients that use it: a single [SSLContext], whose client session cache lets new
+ * connections to a host resume the TLS session of a previous one instead of doing a full handshake, and a
+ * single connection pool, so that a client can reuse the connections opened by another one.
+ * Sockets negotiate TLS v1.3 when the device supports it, and TLS v1.2 otherwise.
+ *
+ * @param sslContext the context whose sockets and session cache are shared.
+ * @param trustManager the trust manager the context was initialized with.
+ */
+internal class SharedTls(
+    sslContext: SSLContext,
+    val trustManager: X509TrustManager
+) {
+    val sslSocketFactory: SSLSocketFactory = TLSSocketFactory(sslContext.socketFactory)
+    val connectionPool: ConnectionPool = ConnectionPool()
+
+    init {
+        sslContext.clientSessionContext.sessionTimeout = SESSION_TIMEOUT_SECONDS
+    }
+
+    internal companion object {
+        private const val SESSION_TIMEOUT_SECONDS = 24 * 60 * 60
+
+        /**
+         * Only TLS v1.3 and v1.2 connections, with the modern cipher suites, and plain HTTP for local testing.
+         */
+        val CONNECTION_SPECS: List<ConnectionSpec> = listOf(
+            ConnectionSpec.Builder(ConnectionSpec.MODERN_TLS)
+                .tlsVersions(TlsVersion.TLS_1_3, TlsVersion.TLS_1_2)
+                .build(),
+            ConnectionSpec.CLEARTEXT
+        )
+
+        /**
+         * The instance that trusts the system certificate authorities, created when first used.
+         */
+        val default: SharedTls by lazy {
+            val factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm())
+            factory.init(null as KeyStore?)
+            val trustManager = factory.trustManagers.filterIsInstance<X509TrustManager>().first()
+            val sslContext = SSLContext.getInstance("TLS")
+            sslContext.init(null, arrayOf(trustManager), null)
+            SharedTls(sslContext, trustManager)
+        }
+    }
+}
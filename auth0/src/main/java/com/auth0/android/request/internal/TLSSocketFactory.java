@@ -5,25 +5,30 @@ import androidx.annotation.VisibleForTesting;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 
 /**
- * Enables TLS v1.2 when creating SSLSockets.
+ * Enables TLS v1.3, when the device supports it, and TLS v1.2 when creating SSLSockets.
+ * Older protocol versions are disabled.
  * <p/>
- * For some reason, android supports TLS v1.2 from API 16, but enables it by
- * default only from API 20.
+ * Android supports TLS v1.3 from API 29, and TLS v1.2 from API 16, although the
+ * latter is enabled by default only from API 20.
  * @link https://developer.android.com/reference/javax/net/ssl/SSLSocket.html
  * @see SSLSocketFactory
  */
-class TLS12SocketFactory extends SSLSocketFactory {
-    private static final String[] TLS_V12_ONLY = { "TLSv1.2" };
+class TLSSocketFactory extends SSLSocketFactory {
+    private static final String TLS_V13 = "TLSv1.3";
+    private static final String TLS_V12 = "TLSv1.2";
 
     @VisibleForTesting
     private final SSLSocketFactory delegate;
 
-    TLS12SocketFactory(SSLSocketFactory base) {
+    TLSSocketFactory(SSLSocketFactory base) {
         this.delegate = base;
     }
 
@@ -64,8 +69,22 @@ class TLS12SocketFactory extends SSLSocketFactory {
 
     private static Socket patch(Socket s) {
         if (s instanceof SSLSocket) {
-            ((SSLSocket) s).setEnabledProtocols(TLS_V12_ONLY);
+            SSLSocket socket = (SSLSocket) s;
+            socket.setEnabledProtocols(protocolsFor(socket.getSupportedProtocols()));
         }
         return s;
     }
+
+    /**
+     * Picks TLS v1.3 and v1.2 out of the supported protocols. TLS v1.2 is always enabled,
+     * so that the handshake fails explicitly on devices that don't support it.
+     */
+    private static String[] protocolsFor(String[] supported) {
+        List<String> protocols = new ArrayList<>(2);
+        if (supported != null && Arrays.asList(supported).contains(TLS_V13)) {
+            protocols.add(TLS_V13);
+        }
+        protocols.add(TLS_V12);
+        return protocols.toArray(new String[0]);
+    }
 }
\ No newline at end of file
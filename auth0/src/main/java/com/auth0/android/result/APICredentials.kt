@@ -0,0 +1,44 @@
+package com.auth0.android.result
+
+import java.util.*
+
+/**
+ * Holds an Access Token issued for a specific API (audience), obtained by exchanging the Refresh Token.
+ *
+ *  * *accessToken*: Access Token for the API
+ *  * *type*: The type of the received Access Token.
+ *  * *expiresAt*: The token expiration date.
+ *  * *scope*: The token's granted scope.
+ *
+ */
+public class APICredentials(
+    /**
+     * Getter for the Access Token for the API.
+     *
+     * @return the Access Token.
+     */
+    public val accessToken: String,
+    /**
+     * Getter for the type of the received Token.
+     *
+     * @return the token type.
+     */
+    public val type: String,
+    /**
+     * Getter for the expiration date of the Access Token.
+     *
+     * @return the expiration date of this Access Token
+     */
+    public val expiresAt: Date,
+    /**
+     * Getter for the access token's granted scope.
+     *
+     * @return the granted scope.
+     */
+    public val scope: String?
+) {
+
+    override fun toString(): String {
+        return "APICredentials(accessToken='xxxxx', type='$type', expiresAt='$expiresAt', scope='$scope')"
+    }
+}
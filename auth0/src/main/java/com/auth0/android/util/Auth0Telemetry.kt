@@ -0,0 +1,171 @@
+package com.auth0.android.util
+
+/**
+ * Receives the counters and spans emitted by the SDK, to export them to a metrics or tracing backend.
+ * Register an implementation with [com.auth0.android.Auth0.telemetry] before creating the API clients,
+ * credentials managers and Web Auth logins that should report to it.
+ *
+ * The methods can be invoked from any thread, including the main thread, so they must return quickly.
+ * By default nothing is reported, see [NONE].
+ *
+ * ```
+ * auth0.telemetry = object : Auth0Telemetry {
+ *     override fun increment(name: String) {
+ *         registry.counter(name).increment()
+ *     }
+ *
+ *     override fun startSpan(name: String): Auth0Telemetry.Span {
+ *         val sample = Timer.start(registry)
+ *         return object : Auth0Telemetry.Span {
+ *             override fun setAttribute(key: String, value: String) {}
+ *             override fun setAttribute(key: String, value: Long) {}
+ *             override fun end(error: Throwable?) {
+ *                 sample.stop(registry.timer(name, "error", (error != null).toString()))
+ *             }
+ *         }
+ *     }
+ * }
+ * ```
+ */
+public interface Auth0Telemetry {
+
+    /**
+     * Increments by one the counter with the given name.
+     *
+     * @param name the name of the counter, one of the constants of this interface.
+     */
+    public fun increment(name: String)
+
+    /**
+     * Starts measuring an operation. The returned span is ended exactly once, when the operation completes.
+     *
+     * @param name the name of the operation, one of the constants of this interface.
+     * @return the span representing the operation.
+     */
+    public fun startSpan(name: String): Span
+
+    /**
+     * An operation being measured.
+     */
+    public interface Span {
+        /**
+         * Adds a value that describes the operation.
+         */
+        public fun setAttribute(key: String, value: String)
+
+        /**
+         * Adds a numeric value that describes the operation.
+         */
+        public fun setAttribute(key: String, value: Long)
+
+        /**
+         * Marks the end of the operation.
+         *
+         * @param error the error the operation failed with, or null if it succeeded.
+         */
+        public fun end(error: Throwable?)
+    }
+
+    public companion object {
+        /**
+         * Span of every HTTP request made by the API clients.
+         * Has the [ATTRIBUTE_HTTP_METHOD] attribute, and [ATTRIBUTE_HTTP_STATUS_CODE] if a response was received.
+         */
+        @JvmField
+        public val REQUEST: String = "auth0.request"
+
+        /**
+         * Counter of the credentials served from memory, without reading or decrypting the storage.
+         */
+        @JvmField
+        public val CREDENTIALS_CACHE_HIT: String = "auth0.credentials.cache_hit"
+
+        /**
+         * Counter of the credentials that had to be read from the storage.
+         */
+        @JvmField
+        public val CREDENTIALS_CACHE_MISS: String = "auth0.credentials.cache_miss"
+
+        /**
+         * Span of the renewal of the credentials with the Refresh Token.
+         */
+        @JvmField
+        public val CREDENTIALS_RENEW: String = "auth0.credentials.renew"
+
+        /**
+         * Span of the encryption of the credentials.
+         */
+        @JvmField
+        public val CRYPTO_ENCRYPT: String = "auth0.crypto.encrypt"
+
+        /**
+         * Span of the decryption of the credentials.
+         */
+        @JvmField
+        public val CRYPTO_DECRYPT: String = "auth0.crypto.decrypt"
+
+        /**
+         * Span of the retrieval of a key from the Android KeyStore, including its generation when it didn't exist.
+         */
+        @JvmField
+        public val KEYSTORE_KEY: String = "auth0.crypto.keystore_key"
+
+        /**
+         * Span from the request to open the browser until it's opened.
+         * Has the [ATTRIBUTE_WARM_SESSION] and [ATTRIBUTE_TWA] attributes.
+         */
+        @JvmField
+        public val BROWSER_LAUNCH: String = "auth0.webauth.browser_launch"
+
+        /**
+         * Span from the redirect back to the app until the credentials are delivered, covering the code
+         * exchange and the ID token verification.
+         */
+        @JvmField
+        public val REDIRECT_TO_CREDENTIALS: String = "auth0.webauth.redirect_to_credentials"
+
+        /**
+         * Span of the time a Management API request waited to honor the rate limits of the tenant.
+         * Only started when the request has to wait. Has the [ATTRIBUTE_QUEUE_DEPTH] attribute.
+         */
+        @JvmField
+        public val RATE_LIMIT_WAIT: String = "auth0.management.rate_limit_wait"
+
+        /**
+         * Counter of the Management API requests rejected for exceeding the rate limits, and sent again.
+         */
+        @JvmField
+        public val RATE_LIMITED: String = "auth0.management.rate_limited"
+
+        @JvmField
+        public val ATTRIBUTE_HTTP_METHOD: String = "http.method"
+
+        @JvmField
+        public val ATTRIBUTE_HTTP_STATUS_CODE: String = "http.status_code"
+
+        @JvmField
+        public val ATTRIBUTE_WARM_SESSION: String = "warm_session"
+
+        @JvmField
+        public val ATTRIBUTE_TWA: String = "twa"
+
+        @JvmField
+        public val ATTRIBUTE_QUEUE_DEPTH: String = "queue_depth"
+
+        /**
+         * Reports nothing. Its spans are a shared instance that does no work, so measuring costs nothing.
+         */
+        @JvmField
+        public val NONE: Auth0Telemetry = object : Auth0Telemetry {
+            private val noSpan = object : Span {
+                override fun setAttribute(key: String, value: String) {}
+                override fun setAttribute(key: String, value: Long) {}
+                override fun end(error: Throwable?) {}
+            }
+
+            override fun increment(name: String) {}
+
+            override fun startSpan(name: String): Span = noSpan
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.auth0.android.authentication
+
+import android.Manifest
+import android.content.Context
+import android.net.ConnectivityManager
+import com.auth0.android.NetworkErrorException
+import com.auth0.android.authentication.storage.Storage
+import com.auth0.android.request.Request
+import com.auth0.android.request.internal.ExponentialBackoff
+import com.nhaarman.mockitokotlin2.*
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.`is`
+import org.hamcrest.Matchers.greaterThan
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+import org.robolectric.Shadows.shadowOf
+import java.io.IOException
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
+
+@RunWith(RobolectricTestRunner::class)
+public class TokenRevocationQueueTest {
+
+    private lateinit var client: AuthenticationAPIClient
+    private lateinit var storage: Storage
+    private lateinit var request: Request<Void?, AuthenticationException>
+    private lateinit var executor: ScheduledExecutorService
+    private val scheduled = mutableListOf<Pair<Runnable, Long>>()
+
+    @Before
+    public fun setUp() {
+        client = mock()
+        storage = mock()
+        request = mock()
+        executor = mock()
+        whenever(client.revokeToken(any())).thenReturn(request)
+        whenever(executor.schedule(any<Runnable>(), any(), any())).thenAnswer {
+            scheduled.add(it.getArgument<Runnable>(0) to it.getArgument<Long>(1))
+            mock<ScheduledFuture<Any>>()
+        }
+    }
+
+    @Test
+    public fun shouldStoreAndRevokeTheToken() {
+        val queue = createQueue()
+        queue.revoke("refreshToken")
+        verify(storage).store(KEY_PENDING_TOKENS, "[\"refreshToken\"]")
+        assertThat(queue.pendingCount, `is`(1))
+        verifyNoInteractions(client)
+
+        runLastScheduled()
+        verify(client).revokeToken("refreshToken")
+        verify(request).execute()
+        verify(storage).remove(KEY_PENDING_TOKENS)
+        assertThat(queue.pendingCount, `is`(0))
+    }
+
+    @Test
+    public fun shouldIgnoreTokensThatArePending() {
+        val queue = createQueue()
+        queue.revoke("refreshToken")
+        queue.revoke("refreshToken")
+        verify(storage, times(1)).store(KEY_PENDING_TOKENS, "[\"refreshToken\"]")
+
+        runLastScheduled()
+        verify(request, times(1)).execute()
+    }
+
+    @Test
+    public fun shouldRetryWithIncreasingDelayWhileOffline() {
+        val queue = createQueue()
+        whenever(request.execute())
+            .thenThrow(AuthenticationException("Failed", NetworkErrorException(IOException())))
+            .thenThrow(AuthenticationException("Failed", NetworkErrorException(IOException())))
+            .thenReturn(null)
+        queue.revoke("refreshToken")
+
+        runLastScheduled()
+        assertThat(queue.pendingCount, `is`(1))
+        val firstDelay = scheduled.last().second
+        assertThat(firstDelay, greaterThan(0L))
+        runLastScheduled()
+        assertThat(queue.pendingCount, `is`(1))
+        assertThat(scheduled.last().second, greaterThan(firstDelay))
+        runLastScheduled()
+        assertThat(queue.pendingCount, `is`(0))
+        verify(request, times(3)).execute()
+        verify(storage).remove(KEY_PENDING_TOKENS)
+    }
+
+    @Test
+    public fun shouldRetryWhenTheServerIsUnavailable() {
+        val queue = createQueue()
+        whenever(request.execute())
+            .thenThrow(AuthenticationException("Service Unavailable", 503))
+            .thenThrow(AuthenticationException("Too Many Requests", 429))
+            .thenReturn(null)
+        queue.revoke("refreshToken")
+
+        runLastScheduled()
+        runLastScheduled()
+        assertThat(queue.pendingCount, `is`(1))
+        runLastScheduled()
+        assertThat(queue.pendingCount, `is`(0))
+    }
+
+    @Test
+    public fun shouldDropTokensRejectedByTheServer() {
+        val queue = createQueue()
+        whenever(client.revokeToken("invalidToken")).thenReturn(mock {
+            on { execute() } doThrow AuthenticationException(mapOf("error" to "invalid_request"), 400)
+        })
+        queue.revoke("invalidToken")
+        queue.revoke("refreshToken")
+
+        runLastScheduled()
+        verify(request).execute()
+        assertThat(queue.pendingCount, `is`(0))
+        assertThat(scheduled.size, `is`(0))
+        verify(storage).remove(KEY_PENDING_TOKENS)
+    }
+
+    @Test
+    public fun shouldRevokeTheTokensLeftPending() {
+        whenever(storage.retrieveString(KEY_PENDING_TOKENS)).thenReturn("[\"firstToken\",\"secondToken\"]")
+        val queue = createQueue()
+        assertThat(queue.pendingCount, `is`(2))
+        assertThat(scheduled.single().second, `is`(0L))
+
+        runLastScheduled()
+        verify(client).revokeToken("firstToken")
+        verify(client).revokeToken("secondToken")
+        assertThat(queue.pendingCount, `is`(0))
+    }
+
+    @Test
+    public fun shouldDiscardUnreadablePendingTokens() {
+        whenever(storage.retrieveString(KEY_PENDING_TOKENS)).thenReturn("{")
+        val queue = createQueue()
+        assertThat(queue.pendingCount, `is`(0))
+        verify(storage).remove(KEY_PENDING_TOKENS)
+        verify(executor, never()).schedule(any<Runnable>(), any(), any<TimeUnit>())
+    }
+
+    @Test
+    public fun shouldWatchConnectivityWhileOfflineIfAllowed() {
+        val context: Context = RuntimeEnvironment.getApplication()
+        shadowOf(RuntimeEnvironment.getApplication()).grantPermissions(Manifest.permission.ACCESS_NETWORK_STATE)
+        val connectivityManager =
+            context.getSystemService(Context.CONNECTIVITY_SERVICE) as ConnectivityManager
+        val queue = createQueue(context)
+        whenever(request.execute())
+            .thenThrow(AuthenticationException("Failed", NetworkErrorException(IOException())))
+            .thenReturn(null)
+        queue.revoke("refreshToken")
+
+        runLastScheduled()
+        val callbacks = shadowOf(connectivityManager).networkCallbacks
+        assertThat(callbacks.size, `is`(1))
+        callbacks.first().onAvailable(mock())
+        assertThat(scheduled.last().second, `is`(0L))
+        runLastScheduled()
+        assertThat(queue.pendingCount, `is`(0))
+        assertThat(shadowOf(connectivityManager).networkCallbacks.size, `is`(0))
+    }
+
+    @Test
+    public fun shouldNotWatchConnectivityWithoutPermission() {
+        val context: Context = RuntimeEnvironment.getApplication()
+        shadowOf(RuntimeEnvironment.getApplication()).denyPermissions(Manifest.permission.ACCESS_NETWORK_STATE)
+        val connectivityManager =
+            context.getSystemService(Context.CONNECTIVITY_SERVICE) as ConnectivityManager
+        val queue = createQueue(context)
+        whenever(request.execute())
+            .thenThrow(AuthenticationException("Failed", NetworkErrorException(IOException())))
+        queue.revoke("refreshToken")
+
+        runLastScheduled()
+        assertThat(shadowOf(connectivityManager).networkCallbacks.size, `is`(0))
+        assertThat(queue.pendingCount, `is`(1))
+    }
+
+    private fun createQueue(context: Context? = null): TokenRevocationQueue {
+        return TokenRevocationQueue(client, storage, context, executor, ExponentialBackoff(1000, 60000))
+    }
+
+    private fun runLastScheduled() {
+        val (runnable, _) = scheduled.last()
+        scheduled.clear()
+        runnable.run()
+    }
+
+    private companion object {
+        private const val KEY_PENDING_TOKENS = "com.auth0.pending_token_revocations"
+    }
+}
@@ -0,0 +1,66 @@
+package com.auth0.android.authentication.storage
+
+import android.util.Base64
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.`is`
+import org.hamcrest.Matchers.notNullValue
+import org.hamcrest.Matchers.nullValue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+@RunWith(RobolectricTestRunner::class)
+public class CredentialsEnvelopeTest {
+
+    @Test
+    public fun shouldEncodeAndDecode() {
+        val payload = byteArrayOf(1, 2, 3, 4, 5)
+        val encoded = CredentialsEnvelope(1234567890123L, true, payload).encode()
+
+        val decoded = CredentialsEnvelope.decode(encoded)
+        assertThat(decoded, `is`(notNullValue()))
+        assertThat(decoded!!.expiresAt, `is`(1234567890123L))
+        assertThat(decoded.canRefresh, `is`(true))
+        assertThat(decoded.payload, `is`(payload))
+    }
+
+    @Test
+    public fun shouldReadHeaderWithoutPayload() {
+        val encoded = CredentialsEnvelope(987654321L, false, ByteArray(512)).encode()
+
+        val header = CredentialsEnvelope.readHeader(encoded)
+        assertThat(header, `is`(notNullValue()))
+        assertThat(header!!.expiresAt, `is`(987654321L))
+        assertThat(header.canRefresh, `is`(false))
+    }
+
+    @Test
+    public fun shouldUseHeaderAsAssociatedData() {
+        val envelope = CredentialsEnvelope(42L, true, byteArrayOf(7))
+        assertThat(envelope.header, `is`(CredentialsEnvelope.header(42L, true)))
+        assertThat(envelope.header.size, `is`(10))
+        assertThat(envelope.header[0], `is`(1.toByte()))
+    }
+
+    @Test
+    public fun shouldRejectUnknownVersion() {
+        val bytes = CredentialsEnvelope(42L, true, byteArrayOf(7, 7, 7)).let {
+            Base64.decode(it.encode(), Base64.NO_WRAP)
+        }
+        bytes[0] = 2
+        val encoded = Base64.encodeToString(bytes, Base64.NO_WRAP)
+
+        assertThat(CredentialsEnvelope.readHeader(encoded), `is`(nullValue()))
+        assertThat(CredentialsEnvelope.decode(encoded), `is`(nullValue()))
+    }
+
+    @Test
+    public fun shouldRejectInvalidValues() {
+        assertThat(CredentialsEnvelope.readHeader("short"), `is`(nullValue()))
+        assertThat(CredentialsEnvelope.decode("AAAA"), `is`(nullValue()))
+        assertThat(
+            CredentialsEnvelope.decode(Base64.encodeToString(ByteArray(10), Base64.NO_WRAP)),
+            `is`(nullValue())
+        )
+    }
+}
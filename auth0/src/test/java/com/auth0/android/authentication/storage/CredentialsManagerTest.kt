@@ -1,12 +1,18 @@
 package com.auth0.android.authentication.storage
 
+import android.os.SystemClock
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleOwner
+import androidx.lifecycle.LifecycleRegistry
 import com.auth0.android.authentication.AuthenticationAPIClient
 import com.auth0.android.authentication.AuthenticationException
 import com.auth0.android.callback.Callback
 import com.auth0.android.request.Request
 import com.auth0.android.request.internal.Jwt
+import com.auth0.android.result.APICredentials
 import com.auth0.android.result.Credentials
 import com.auth0.android.result.CredentialsMock
+import com.auth0.android.util.Auth0Telemetry
 import com.auth0.android.util.Clock
 import com.nhaarman.mockitokotlin2.*
 import kotlinx.coroutines.ExperimentalCoroutinesApi
@@ -27,10 +33,14 @@ import org.mockito.Mock
 import org.mockito.Mockito
 import org.mockito.MockitoAnnotations
 import org.robolectric.RobolectricTestRunner
+import org.robolectric.shadows.ShadowLooper
 import java.lang.Exception
 import java.lang.IllegalArgumentException
 import java.util.*
+import java.util.concurrent.CountDownLatch
 import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
 
 @RunWith(RobolectricTestRunner::class)
 public class CredentialsManagerTest {
@@ -62,6 +72,7 @@ public class CredentialsManagerTest {
     @Before
     public fun setUp() {
         MockitoAnnotations.openMocks(this)
+        Mockito.`when`(client.telemetry).thenReturn(Auth0Telemetry.NONE)
         val credentialsManager = CredentialsManager(client, storage, jwtDecoder, serialExecutor)
         manager = Mockito.spy(credentialsManager)
         //Needed to test expiration verification
@@ -831,6 +842,7 @@ public class CredentialsManagerTest {
         verify(storage).remove("com.auth0.expires_at")
         verify(storage).remove("com.auth0.scope")
         verify(storage).remove("com.auth0.cache_expires_at")
+        verify(storage).retrieveString("com.auth0.api_credentials_keys")
         verifyNoMoreInteractions(storage)
     }
 
@@ -920,6 +932,14 @@ public class CredentialsManagerTest {
         MatcherAssert.assertThat(credentials.scope, Is.`is`("openid profile"))
     }
 
+    @Test
+    public fun shouldReportToTheTelemetryOfTheClient() {
+        val telemetry = mock<Auth0Telemetry>()
+        Mockito.`when`(client.telemetry).thenReturn(telemetry)
+        val manager = CredentialsManager(client, storage)
+        MatcherAssert.assertThat(manager.telemetry, Is.`is`(telemetry))
+    }
+
     @Test
     public fun shouldUseCustomClock() {
         val manager = CredentialsManager(client, storage)
@@ -1065,6 +1085,553 @@ public class CredentialsManagerTest {
         MatcherAssert.assertThat(retrievedCredentials.scope, Is.`is`("scope"))
     }
 
+    /*
+     * Credentials index tests
+     */
+    @Test
+    public fun shouldReadTheStorageOnlyOnceToCheckValidCredentials() {
+        Mockito.`when`(storage.retrieveLong("com.auth0.expires_at")).thenReturn(CredentialsMock.ONE_HOUR_AHEAD_MS)
+        Mockito.`when`(storage.retrieveString("com.auth0.access_token")).thenReturn("accessToken")
+        MatcherAssert.assertThat(manager.hasValidCredentials(), Is.`is`(true))
+        MatcherAssert.assertThat(manager.hasValidCredentials(ONE_HOUR_SECONDS - 1), Is.`is`(true))
+        MatcherAssert.assertThat(manager.hasValidCredentials(ONE_HOUR_SECONDS), Is.`is`(false))
+
+        verify(storage, times(1)).retrieveString("com.auth0.access_token")
+        verify(storage, times(1)).retrieveLong("com.auth0.expires_at")
+    }
+
+    @Test
+    public fun shouldKeepValidCredentialsCheckUpdatedWithoutReadingTheStorage() {
+        manager.saveCredentials(
+            CredentialsMock("idToken", "accessToken", "type", "refreshToken", Date(CredentialsMock.CURRENT_TIME_MS), "scope")
+        )
+        MatcherAssert.assertThat(manager.hasValidCredentials(), Is.`is`(true))
+        manager.clearCredentials()
+        MatcherAssert.assertThat(manager.hasValidCredentials(), Is.`is`(false))
+
+        verify(storage, never()).retrieveString(any())
+        verify(storage, never()).retrieveLong(any())
+    }
+
+    /*
+     * Valid credentials fast path tests
+     */
+    @Test
+    public fun shouldGetValidCredentialsWithoutUsingTheExecutor() {
+        val executor = mock<Executor>()
+        val manager = managerWithExecutor(executor)
+        val credentials = CredentialsMock(
+            "idToken", "accessToken", "type", "refreshToken", Date(CredentialsMock.ONE_HOUR_AHEAD_MS), "openid profile"
+        )
+        manager.saveCredentials(credentials)
+
+        MatcherAssert.assertThat(manager.getCredentialsIfValid(), Is.`is`(credentials))
+        manager.getCredentials("profile openid", 0, emptyMap(), false, callback)
+        verify(callback).onSuccess(credentials)
+        verifyNoInteractions(executor)
+        verify(storage, never()).retrieveString(any())
+        verify(storage, never()).retrieveLong(any())
+    }
+
+    @Test
+    public fun shouldUseTheExecutorWhenCredentialsNeedToBeRenewed() {
+        val executor = mock<Executor>()
+        val manager = managerWithExecutor(executor)
+        manager.saveCredentials(
+            CredentialsMock("idToken", "accessToken", "type", "refreshToken", Date(CredentialsMock.ONE_HOUR_AHEAD_MS), "openid")
+        )
+
+        manager.getCredentials("openid", ONE_HOUR_SECONDS.toInt(), emptyMap(), false, callback)
+        manager.getCredentials("openid email", 0, emptyMap(), false, callback)
+        manager.getCredentials("openid", 0, emptyMap(), true, callback)
+        verify(executor, times(3)).execute(any())
+        verifyNoInteractions(callback)
+    }
+
+    @Test
+    public fun shouldReportTheCacheHitsAndMissesToTheTelemetry() {
+        val telemetry = mock<Auth0Telemetry>()
+        val manager = managerWithExecutor(mock())
+        manager.telemetry = telemetry
+        manager.saveCredentials(
+            CredentialsMock("idToken", "accessToken", "type", "refreshToken", Date(CredentialsMock.ONE_HOUR_AHEAD_MS), "openid")
+        )
+
+        manager.getCredentials("openid", 0, emptyMap(), false, callback)
+        manager.getCredentials("openid", 0, emptyMap(), true, callback)
+        verify(telemetry).increment(Auth0Telemetry.CREDENTIALS_CACHE_HIT)
+        verify(telemetry).increment(Auth0Telemetry.CREDENTIALS_CACHE_MISS)
+    }
+
+    @Test
+    public fun shouldNotGetCredentialsIfValidWhenTheyNeedToBeRenewed() {
+        manager.saveCredentials(
+            CredentialsMock("idToken", "accessToken", "type", "refreshToken", Date(CredentialsMock.ONE_HOUR_AHEAD_MS), "openid profile")
+        )
+        MatcherAssert.assertThat(manager.getCredentialsIfValid("profile  openid", 0), Is.`is`(Matchers.notNullValue()))
+        MatcherAssert.assertThat(manager.getCredentialsIfValid("openid", 0), Is.`is`(Matchers.nullValue()))
+        MatcherAssert.assertThat(
+            manager.getCredentialsIfValid(null, ONE_HOUR_SECONDS.toInt()),
+            Is.`is`(Matchers.nullValue())
+        )
+        manager.clearCredentials()
+        MatcherAssert.assertThat(manager.getCredentialsIfValid(), Is.`is`(Matchers.nullValue()))
+    }
+
+    @Test
+    public fun shouldReadTheStorageOnlyOnceToGetCredentialsIfValid() {
+        Mockito.`when`(storage.retrieveString("com.auth0.id_token")).thenReturn("idToken")
+        Mockito.`when`(storage.retrieveString("com.auth0.access_token")).thenReturn("accessToken")
+        Mockito.`when`(storage.retrieveString("com.auth0.refresh_token")).thenReturn("refreshToken")
+        Mockito.`when`(storage.retrieveString("com.auth0.token_type")).thenReturn("type")
+        Mockito.`when`(storage.retrieveString("com.auth0.scope")).thenReturn("scope")
+        Mockito.`when`(storage.retrieveLong("com.auth0.expires_at")).thenReturn(CredentialsMock.ONE_HOUR_AHEAD_MS)
+
+        val credentials = manager.getCredentialsIfValid()
+        MatcherAssert.assertThat(credentials, Is.`is`(Matchers.notNullValue()))
+        MatcherAssert.assertThat(credentials!!.accessToken, Is.`is`("accessToken"))
+        MatcherAssert.assertThat(credentials.scope, Is.`is`("scope"))
+        MatcherAssert.assertThat(manager.getCredentialsIfValid("scope", 0), Is.`is`(credentials))
+        verify(storage, times(1)).retrieveString("com.auth0.access_token")
+        verify(storage, times(1)).retrieveLong("com.auth0.expires_at")
+    }
+
+    @Test
+    public fun shouldNotKeepCredentialsClearedWhileGettingThemIfValid() {
+        prepareCredentialsClearedWhileReadingThem()
+
+        MatcherAssert.assertThat(manager.getCredentialsIfValid(), Is.`is`(Matchers.nullValue()))
+        MatcherAssert.assertThat(manager.getCredentialsIfValid(), Is.`is`(Matchers.notNullValue()))
+        verify(storage, times(2)).retrieveString("com.auth0.access_token")
+    }
+
+    @Test
+    public fun shouldNotKeepCredentialsClearedWhileGettingThem() {
+        prepareCredentialsClearedWhileReadingThem()
+
+        manager.getCredentials(callback)
+        manager.getCredentials(callback)
+        verify(callback, times(2)).onSuccess(any())
+        verify(storage, times(2)).retrieveString("com.auth0.access_token")
+    }
+
+    @Test
+    public fun shouldNotGetCredentialsIfValidWhenNoneAreStored() {
+        MatcherAssert.assertThat(manager.getCredentialsIfValid(), Is.`is`(Matchers.nullValue()))
+    }
+
+    /*
+     * API credentials tests
+     */
+    @Test
+    public fun shouldGetApiCredentialsUsingTheRefreshToken() {
+        val apiCallback = mock<Callback<APICredentials, CredentialsManagerException>>()
+        val apiCredentialsCaptor = argumentCaptor<APICredentials>()
+        prepareApiCredentialsRequest("refreshToken", null)
+
+        manager.getApiCredentials("https://api.example.com", "read:messages", 0, apiCallback)
+        verify(request).addParameter("audience", "https://api.example.com")
+        verify(request).addParameter("scope", "read:messages")
+        verify(apiCallback).onSuccess(apiCredentialsCaptor.capture())
+        val apiCredentials = apiCredentialsCaptor.firstValue
+        MatcherAssert.assertThat(apiCredentials.accessToken, Is.`is`("apiAccessToken"))
+        MatcherAssert.assertThat(apiCredentials.type, Is.`is`("Bearer"))
+        MatcherAssert.assertThat(apiCredentials.expiresAt.time, Is.`is`(CredentialsMock.ONE_HOUR_AHEAD_MS))
+        MatcherAssert.assertThat(apiCredentials.scope, Is.`is`("read:messages"))
+        verify(storage).store(
+            ArgumentMatchers.eq("com.auth0.api_credentials.https://api.example.com::read:messages"),
+            ArgumentMatchers.anyString()
+        )
+        verify(storage).store("com.auth0.api_credentials_keys", "[\"https://api.example.com::read:messages\"]")
+        verify(storage, never()).store(ArgumentMatchers.eq("com.auth0.refresh_token"), ArgumentMatchers.anyString())
+    }
+
+    @Test
+    public fun shouldKeepApiCredentialsForEachAudienceAndScope() {
+        val apiCallback = mock<Callback<APICredentials, CredentialsManagerException>>()
+        prepareApiCredentialsRequest("refreshToken", null)
+
+        manager.getApiCredentials("https://api.example.com", "read:messages write:messages", 0, apiCallback)
+        manager.getApiCredentials("https://other.example.com", apiCallback)
+        manager.getApiCredentials("https://api.example.com", "write:messages read:messages", 0, apiCallback)
+        manager.getApiCredentials("https://other.example.com", apiCallback)
+        verify(request, times(2)).execute()
+        verify(apiCallback, times(4)).onSuccess(any())
+    }
+
+    @Test
+    public fun shouldGetStoredApiCredentialsWithoutRenewingThem() {
+        val apiCallback = mock<Callback<APICredentials, CredentialsManagerException>>()
+        val apiCredentialsCaptor = argumentCaptor<APICredentials>()
+        Mockito.`when`(storage.retrieveString("com.auth0.api_credentials.https://api.example.com::"))
+            .thenReturn("{\"access_token\":\"storedAccessToken\",\"token_type\":\"Bearer\",\"expires_at\":${CredentialsMock.ONE_HOUR_AHEAD_MS}}")
+
+        manager.getApiCredentials("https://api.example.com", apiCallback)
+        manager.getApiCredentials("https://api.example.com", apiCallback)
+        verify(apiCallback, times(2)).onSuccess(apiCredentialsCaptor.capture())
+        MatcherAssert.assertThat(apiCredentialsCaptor.firstValue.accessToken, Is.`is`("storedAccessToken"))
+        MatcherAssert.assertThat(apiCredentialsCaptor.firstValue.expiresAt.time, Is.`is`(CredentialsMock.ONE_HOUR_AHEAD_MS))
+        verify(storage, times(1)).retrieveString("com.auth0.api_credentials.https://api.example.com::")
+        verifyNoInteractions(client)
+    }
+
+    @Test
+    public fun shouldRenewExpiredApiCredentials() {
+        val apiCallback = mock<Callback<APICredentials, CredentialsManagerException>>()
+        Mockito.`when`(storage.retrieveString("com.auth0.api_credentials.https://api.example.com::"))
+            .thenReturn("{\"access_token\":\"storedAccessToken\",\"token_type\":\"Bearer\",\"expires_at\":${CredentialsMock.CURRENT_TIME_MS}}")
+        prepareApiCredentialsRequest("refreshToken", null)
+
+        manager.getApiCredentials("https://api.example.com", apiCallback)
+        verify(request).execute()
+        verify(apiCallback).onSuccess(check {
+            MatcherAssert.assertThat(it.accessToken, Is.`is`("apiAccessToken"))
+        })
+    }
+
+    @Test
+    public fun shouldRenewApiCredentialsWhenTheyWillExpireBeforeMinTtl() {
+        val apiCallback = mock<Callback<APICredentials, CredentialsManagerException>>()
+        prepareApiCredentialsRequest("refreshToken", null)
+
+        manager.getApiCredentials("https://api.example.com", null, 0, apiCallback)
+        manager.getApiCredentials("https://api.example.com", null, ONE_HOUR_SECONDS.toInt(), apiCallback)
+        verify(request, times(2)).execute()
+        verify(apiCallback).onSuccess(any())
+        verify(apiCallback).onFailure(exceptionCaptor.capture())
+        MatcherAssert.assertThat(
+            exceptionCaptor.firstValue.message,
+            Is.`is`("The lifetime of the renewed Access Token (0) is less than the minTTL requested (3600). Increase the 'Token Expiration' setting of your Auth0 API in the dashboard, or request a lower minTTL.")
+        )
+    }
+
+    @Test
+    public fun shouldNotStoreTheRotatedRefreshTokenWhenTheCredentialsAreClearedDuringTheRenewal() {
+        val apiCallback = mock<Callback<APICredentials, CredentialsManagerException>>()
+        Mockito.`when`(storage.retrieveString("com.auth0.refresh_token")).thenReturn("refreshToken")
+        Mockito.`when`(client.renewAuth("refreshToken")).thenReturn(request)
+        Mockito.`when`(request.execute()).thenAnswer {
+            manager.clearCredentials()
+            Credentials(
+                "", "apiAccessToken", "Bearer", "rotatedRefreshToken", Date(CredentialsMock.ONE_HOUR_AHEAD_MS), null
+            )
+        }
+
+        manager.getApiCredentials("https://api.example.com", apiCallback)
+        verify(storage, never()).store(eq("com.auth0.refresh_token"), any<String>())
+        verify(storage, never()).store(ArgumentMatchers.startsWith("com.auth0.api_credentials"), any<String>())
+        verify(apiCallback).onFailure(exceptionCaptor.capture())
+        MatcherAssert.assertThat(
+            exceptionCaptor.firstValue.message,
+            Is.`is`("The credentials were cleared while the API credentials were being renewed.")
+        )
+        MatcherAssert.assertThat(manager.getCredentialsIfValid(), Is.`is`(Matchers.nullValue()))
+    }
+
+    @Test
+    public fun shouldStoreTheRotatedRefreshTokenWhenGettingApiCredentials() {
+        val apiCallback = mock<Callback<APICredentials, CredentialsManagerException>>()
+        manager.saveCredentials(
+            CredentialsMock("idToken", "accessToken", "type", "refreshToken", Date(CredentialsMock.ONE_HOUR_AHEAD_MS), "openid")
+        )
+        prepareApiCredentialsRequest("refreshToken", "rotatedRefreshToken")
+
+        manager.getApiCredentials("https://api.example.com", apiCallback)
+        verify(storage).store("com.auth0.refresh_token", "rotatedRefreshToken")
+        MatcherAssert.assertThat(
+            manager.getCredentialsIfValid()!!.refreshToken,
+            Is.`is`("rotatedRefreshToken")
+        )
+    }
+
+    @Test
+    public fun shouldFailToGetApiCredentialsWithoutRefreshToken() {
+        val apiCallback = mock<Callback<APICredentials, CredentialsManagerException>>()
+        manager.getApiCredentials("https://api.example.com", apiCallback)
+        verify(apiCallback).onFailure(exceptionCaptor.capture())
+        MatcherAssert.assertThat(
+            exceptionCaptor.firstValue.message,
+            Is.`is`("Credentials need to be renewed but no Refresh Token is available to renew them.")
+        )
+        verifyNoInteractions(client)
+    }
+
+    @Test
+    public fun shouldFailToGetApiCredentialsWhenTheRequestFails() {
+        val apiCallback = mock<Callback<APICredentials, CredentialsManagerException>>()
+        prepareApiCredentialsRequest("refreshToken", null)
+        val authenticationException = mock<AuthenticationException>()
+        Mockito.`when`(request.execute()).thenThrow(authenticationException)
+
+        manager.getApiCredentials("https://api.example.com", apiCallback)
+        verify(apiCallback).onFailure(exceptionCaptor.capture())
+        MatcherAssert.assertThat(exceptionCaptor.firstValue.cause, Is.`is`(authenticationException))
+        verify(storage, never()).store(ArgumentMatchers.eq("com.auth0.api_credentials_keys"), ArgumentMatchers.anyString())
+    }
+
+    @Test
+    public fun shouldClearApiCredentials() {
+        val apiCallback = mock<Callback<APICredentials, CredentialsManagerException>>()
+        prepareApiCredentialsRequest("refreshToken", null)
+        manager.getApiCredentials("https://api.example.com", apiCallback)
+        Mockito.`when`(storage.retrieveString("com.auth0.api_credentials_keys"))
+            .thenReturn("[\"https://api.example.com::\",\"https://other.example.com::\"]")
+
+        manager.clearCredentials()
+        verify(storage).remove("com.auth0.api_credentials.https://api.example.com::")
+        verify(storage).remove("com.auth0.api_credentials.https://other.example.com::")
+        verify(storage).remove("com.auth0.api_credentials_keys")
+        manager.getApiCredentials("https://api.example.com", apiCallback)
+        verify(request, times(2)).execute()
+    }
+
+    /*
+     * Credentials listener tests
+     */
+    @Test
+    public fun shouldNotifyListenersWhenCredentialsAreSavedAndCleared() {
+        val listener = mock<CredentialsListener>()
+        val eventCaptor = argumentCaptor<CredentialsEvent>()
+        manager.addCredentialsListener(listener)
+        val expiresAt = Date(CredentialsMock.ONE_HOUR_AHEAD_MS)
+        manager.saveCredentials(
+            CredentialsMock("idToken", "accessToken", "type", "refreshToken", expiresAt, "scope")
+        )
+        manager.clearCredentials()
+
+        verify(listener, times(2)).onCredentialsChanged(eventCaptor.capture())
+        MatcherAssert.assertThat(eventCaptor.firstValue.type, Is.`is`(CredentialsEvent.Type.SAVED))
+        MatcherAssert.assertThat(eventCaptor.firstValue.expiresAt, Is.`is`(expiresAt))
+        MatcherAssert.assertThat(eventCaptor.secondValue.type, Is.`is`(CredentialsEvent.Type.CLEARED))
+        MatcherAssert.assertThat(eventCaptor.secondValue.expiresAt, Is.`is`(Matchers.nullValue()))
+    }
+
+    @Test
+    public fun shouldNotifyListenersWhenCredentialsAreRenewed() {
+        val listener = mock<CredentialsListener>()
+        val eventCaptor = argumentCaptor<CredentialsEvent>()
+        Mockito.`when`(storage.retrieveString("com.auth0.access_token")).thenReturn("accessToken")
+        Mockito.`when`(storage.retrieveString("com.auth0.refresh_token")).thenReturn("refreshToken")
+        Mockito.`when`(storage.retrieveLong("com.auth0.expires_at")).thenReturn(CredentialsMock.CURRENT_TIME_MS)
+        Mockito.`when`(client.renewAuth("refreshToken")).thenReturn(request)
+        val newDate = Date(CredentialsMock.ONE_HOUR_AHEAD_MS)
+        Mockito.`when`(request.execute())
+            .thenReturn(Credentials("newId", "newAccess", "newType", null, newDate, "scope"))
+        manager.addCredentialsListener(listener)
+        manager.getCredentials(callback)
+
+        verify(callback).onSuccess(any())
+        verify(listener).onCredentialsChanged(eventCaptor.capture())
+        MatcherAssert.assertThat(eventCaptor.firstValue.type, Is.`is`(CredentialsEvent.Type.RENEWED))
+        MatcherAssert.assertThat(eventCaptor.firstValue.expiresAt, Is.`is`(newDate))
+    }
+
+    @Test
+    public fun shouldNotifyListenersWhenCredentialsAreExpiringSoon() {
+        val listener = mock<CredentialsListener>()
+        val eventCaptor = argumentCaptor<CredentialsEvent>()
+        manager.setExpiringSoonThreshold(120)
+        manager.addCredentialsListener(listener)
+        val expiresAt = Date(CredentialsMock.ONE_HOUR_AHEAD_MS)
+        manager.saveCredentials(
+            CredentialsMock("idToken", "accessToken", "type", "refreshToken", expiresAt, "scope")
+        )
+
+        ShadowLooper.idleMainLooper(ONE_HOUR_SECONDS - 121, TimeUnit.SECONDS)
+        verify(listener, times(1)).onCredentialsChanged(any())
+        ShadowLooper.idleMainLooper(1, TimeUnit.SECONDS)
+        verify(listener, times(2)).onCredentialsChanged(eventCaptor.capture())
+        MatcherAssert.assertThat(eventCaptor.secondValue.type, Is.`is`(CredentialsEvent.Type.EXPIRING_SOON))
+        MatcherAssert.assertThat(eventCaptor.secondValue.expiresAt, Is.`is`(expiresAt))
+    }
+
+    @Test
+    public fun shouldScheduleExpiringSoonForStoredCredentialsWhenFirstListenerIsAdded() {
+        val listener = mock<CredentialsListener>()
+        Mockito.`when`(storage.retrieveString("com.auth0.access_token")).thenReturn("accessToken")
+        Mockito.`when`(storage.retrieveLong("com.auth0.expires_at"))
+            .thenReturn(CredentialsMock.CURRENT_TIME_MS + 30 * 1000)
+        manager.addCredentialsListener(listener)
+
+        ShadowLooper.idleMainLooper()
+        verify(listener).onCredentialsChanged(check {
+            MatcherAssert.assertThat(it.type, Is.`is`(CredentialsEvent.Type.EXPIRING_SOON))
+        })
+    }
+
+    @Test
+    public fun shouldScheduleExpiringSoonWhenTheFirstListenersAreAddedConcurrently() {
+        val listeners = (1..LISTENERS).map { mock<CredentialsListener>() }
+        Mockito.`when`(storage.retrieveString("com.auth0.access_token")).thenReturn("accessToken")
+        Mockito.`when`(storage.retrieveLong("com.auth0.expires_at"))
+            .thenReturn(CredentialsMock.CURRENT_TIME_MS + 30 * 1000)
+        val executor = Executors.newFixedThreadPool(LISTENERS)
+        try {
+            val start = CountDownLatch(1)
+            val registrations = listeners.map { listener ->
+                executor.submit {
+                    start.await()
+                    manager.addCredentialsListener(listener)
+                }
+            }
+            start.countDown()
+            registrations.forEach { it.get(5, TimeUnit.SECONDS) }
+        } finally {
+            executor.shutdownNow()
+        }
+
+        ShadowLooper.idleMainLooper()
+        listeners.forEach { listener ->
+            verify(listener).onCredentialsChanged(check {
+                MatcherAssert.assertThat(it.type, Is.`is`(CredentialsEvent.Type.EXPIRING_SOON))
+            })
+        }
+    }
+
+    @Test
+    public fun shouldScheduleExpiringSoonAgainWhenAListenerIsAddedAfterRemovingThemAll() {
+        val listener = mock<CredentialsListener>()
+        Mockito.`when`(storage.retrieveString("com.auth0.access_token")).thenReturn("accessToken")
+        Mockito.`when`(storage.retrieveLong("com.auth0.expires_at"))
+            .thenReturn(CredentialsMock.CURRENT_TIME_MS + 30 * 1000)
+        manager.addCredentialsListener(listener)
+        manager.removeCredentialsListener(listener)
+        manager.addCredentialsListener(listener)
+
+        ShadowLooper.idleMainLooper()
+        verify(listener).onCredentialsChanged(check {
+            MatcherAssert.assertThat(it.type, Is.`is`(CredentialsEvent.Type.EXPIRING_SOON))
+        })
+    }
+
+    @Test
+    public fun shouldNotNotifyExpiringSoonAfterCredentialsAreCleared() {
+        val listener = mock<CredentialsListener>()
+        manager.addCredentialsListener(listener)
+        manager.saveCredentials(
+            CredentialsMock("idToken", "accessToken", "type", "refreshToken", Date(CredentialsMock.ONE_HOUR_AHEAD_MS), "scope")
+        )
+        manager.clearCredentials()
+
+        ShadowLooper.idleMainLooper(ONE_HOUR_SECONDS, TimeUnit.SECONDS)
+        val eventCaptor = argumentCaptor<CredentialsEvent>()
+        verify(listener, times(2)).onCredentialsChanged(eventCaptor.capture())
+        MatcherAssert.assertThat(
+            eventCaptor.allValues.map { it.type },
+            Is.`is`(listOf(CredentialsEvent.Type.SAVED, CredentialsEvent.Type.CLEARED))
+        )
+    }
+
+    @Test
+    public fun shouldNotifyExpiringSoonWhenTheAppComesToTheForegroundAfterTheDeviceSlept() {
+        val listener = mock<CredentialsListener>()
+        val eventCaptor = argumentCaptor<CredentialsEvent>()
+        val processLifecycle = LifecycleRegistry(mock<LifecycleOwner>())
+        processLifecycle.currentState = Lifecycle.State.CREATED
+        manager.processLifecycle = processLifecycle
+        manager.addCredentialsListener(listener)
+        val expiresAt = Date(CredentialsMock.ONE_HOUR_AHEAD_MS)
+        manager.saveCredentials(
+            CredentialsMock("idToken", "accessToken", "type", "refreshToken", expiresAt, "scope")
+        )
+        ShadowLooper.idleMainLooper()
+
+        // The main thread's clock doesn't advance while the device sleeps
+        Mockito.doReturn(SystemClock.elapsedRealtime() + ONE_HOUR_SECONDS * 1000).`when`(manager).elapsedRealtime
+        ShadowLooper.idleMainLooper()
+        verify(listener, times(1)).onCredentialsChanged(any())
+        processLifecycle.currentState = Lifecycle.State.STARTED
+
+        verify(listener, times(2)).onCredentialsChanged(eventCaptor.capture())
+        MatcherAssert.assertThat(eventCaptor.secondValue.type, Is.`is`(CredentialsEvent.Type.EXPIRING_SOON))
+        MatcherAssert.assertThat(eventCaptor.secondValue.expiresAt, Is.`is`(expiresAt))
+    }
+
+    @Test
+    public fun shouldWaitForTheExpiringSoonTimeWhenTheAppComesToTheForegroundBeforeIt() {
+        val listener = mock<CredentialsListener>()
+        val eventCaptor = argumentCaptor<CredentialsEvent>()
+        val processLifecycle = LifecycleRegistry(mock<LifecycleOwner>())
+        processLifecycle.currentState = Lifecycle.State.CREATED
+        manager.processLifecycle = processLifecycle
+        manager.addCredentialsListener(listener)
+        manager.saveCredentials(
+            CredentialsMock("idToken", "accessToken", "type", "refreshToken", Date(CredentialsMock.ONE_HOUR_AHEAD_MS), "scope")
+        )
+        ShadowLooper.idleMainLooper()
+        processLifecycle.currentState = Lifecycle.State.STARTED
+
+        ShadowLooper.idleMainLooper(ONE_HOUR_SECONDS - 61, TimeUnit.SECONDS)
+        verify(listener, times(1)).onCredentialsChanged(any())
+        ShadowLooper.idleMainLooper(1, TimeUnit.SECONDS)
+        verify(listener, times(2)).onCredentialsChanged(eventCaptor.capture())
+        MatcherAssert.assertThat(eventCaptor.secondValue.type, Is.`is`(CredentialsEvent.Type.EXPIRING_SOON))
+    }
+
+    @Test
+    public fun shouldStopCheckingExpiringSoonWhenTheListenersAreRemoved() {
+        val listener = mock<CredentialsListener>()
+        val processLifecycle = LifecycleRegistry(mock<LifecycleOwner>())
+        manager.processLifecycle = processLifecycle
+        manager.addCredentialsListener(listener)
+        ShadowLooper.idleMainLooper()
+        MatcherAssert.assertThat(processLifecycle.observerCount, Is.`is`(1))
+
+        manager.removeCredentialsListener(listener)
+        ShadowLooper.idleMainLooper()
+        MatcherAssert.assertThat(processLifecycle.observerCount, Is.`is`(0))
+    }
+
+    @Test
+    public fun shouldNotNotifyRemovedListeners() {
+        val listener = mock<CredentialsListener>()
+        manager.addCredentialsListener(listener)
+        manager.removeCredentialsListener(listener)
+        manager.saveCredentials(
+            CredentialsMock("idToken", "accessToken", "type", "refreshToken", Date(CredentialsMock.ONE_HOUR_AHEAD_MS), "scope")
+        )
+        verifyNoMoreInteractions(listener)
+    }
+
+    /**
+     * Clears the credentials the first time the storage is read, right after their expiration is read.
+     */
+    private fun prepareCredentialsClearedWhileReadingThem() {
+        Mockito.`when`(storage.retrieveString("com.auth0.id_token")).thenReturn("idToken")
+        Mockito.`when`(storage.retrieveString("com.auth0.access_token")).thenReturn("accessToken")
+        Mockito.`when`(storage.retrieveString("com.auth0.refresh_token")).thenReturn("refreshToken")
+        Mockito.`when`(storage.retrieveString("com.auth0.token_type")).thenReturn("type")
+        Mockito.`when`(storage.retrieveLong("com.auth0.expires_at"))
+            .thenAnswer {
+                manager.clearCredentials()
+                CredentialsMock.ONE_HOUR_AHEAD_MS
+            }
+            .thenReturn(CredentialsMock.ONE_HOUR_AHEAD_MS)
+    }
+
+    private fun prepareApiCredentialsRequest(refreshToken: String, rotatedRefreshToken: String?) {
+        Mockito.`when`(storage.retrieveString("com.auth0.refresh_token")).thenReturn(refreshToken)
+        Mockito.`when`(client.renewAuth(refreshToken)).thenReturn(request)
+        Mockito.`when`(request.execute()).thenAnswer {
+            Credentials(
+                "",
+                "apiAccessToken",
+                "Bearer",
+                rotatedRefreshToken,
+                Date(CredentialsMock.ONE_HOUR_AHEAD_MS),
+                null
+            )
+        }
+    }
+
+    private fun managerWithExecutor(executor: Executor): CredentialsManager {
+        val manager = CredentialsManager(client, storage, jwtDecoder, executor)
+        manager.setClock(object : Clock {
+            override fun getCurrentTimeMillis(): Long = CredentialsMock.CURRENT_TIME_MS
+        })
+        return manager
+    }
+
     private fun prepareJwtDecoderMock(expiresAt: Date?) {
         val jwtMock = mock<Jwt>()
         Mockito.`when`(jwtMock.expiresAt).thenReturn(expiresAt)
@@ -1073,5 +1640,6 @@ public class CredentialsManagerTest {
 
     private companion object {
         private const val ONE_HOUR_SECONDS = (60 * 60).toLong()
+        private const val LISTENERS = 4
     }
 }
\ No newline at end of file
@@ -26,6 +26,7 @@ import org.robolectric.annotation.Config;
 import org.robolectric.util.ReflectionHelpers;
 
 import java.io.IOException;
+import java.lang.reflect.Modifier;
 import java.math.BigInteger;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
@@ -37,6 +38,7 @@ import java.security.NoSuchProviderException;
 import java.security.PrivateKey;
 import java.security.ProviderException;
 import java.security.UnrecoverableEntryException;
+import java.security.UnrecoverableKeyException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.spec.AlgorithmParameterSpec;
@@ -44,12 +46,14 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.concurrent.TimeUnit;
 
+import javax.crypto.AEADBadTagException;
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.KeyGenerator;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 import javax.security.auth.x500.X500Principal;
 
@@ -1340,6 +1344,327 @@ public class CryptoUtilTest {
     }
 
 
+    /*
+     * INLINE IV (AES) tests
+     */
+
+    @Test
+    public void shouldAESEncryptDataWithInlineIV() throws Exception {
+        byte[] aesKey = "aes-decrypted-key".getBytes();
+        byte[] data = "data".getBytes();
+        byte[] associatedData = "header".getBytes();
+        byte[] encryptedData = new byte[]{0, 1, 2, 3, 4, 5};
+        byte[] iv = new byte[]{99, 99, 11, 11};
+
+        doReturn(aesKey).when(cryptoUtil).getAESKey();
+        PowerMockito.when(aesCipher.doFinal(data)).thenReturn(encryptedData);
+        PowerMockito.when(aesCipher.getIV()).thenReturn(iv);
+
+        final byte[] encrypted = cryptoUtil.encryptWithInlineIV(data, associatedData);
+
+        Mockito.verify(aesCipher).init(eq(Cipher.ENCRYPT_MODE), any(SecretKey.class));
+        Mockito.verify(aesCipher).updateAAD(associatedData);
+        Mockito.verify(storage, never()).store(eq(KEY_ALIAS + "_iv"), anyString());
+        assertThat(encrypted, is(new byte[]{1, 4, 99, 99, 11, 11, 0, 1, 2, 3, 4, 5}));
+    }
+
+    @Test
+    public void shouldAESDecryptDataWithInlineIV() throws Exception {
+        ArgumentCaptor<GCMParameterSpec> gcmParameterSpecCaptor = ArgumentCaptor.forClass(GCMParameterSpec.class);
+        byte[] aesKey = "aes-decrypted-key".getBytes();
+        byte[] associatedData = "header".getBytes();
+        byte[] input = new byte[]{1, 4, 99, 99, 11, 11, 0, 1, 2, 3, 4, 5};
+        byte[] decryptedData = "data".getBytes();
+
+        doReturn(aesKey).when(cryptoUtil).getAESKey();
+        PowerMockito.when(aesCipher.doFinal(input, 6, 6)).thenReturn(decryptedData);
+
+        final byte[] decrypted = cryptoUtil.decryptWithInlineIV(input, associatedData);
+
+        Mockito.verify(aesCipher).init(eq(Cipher.DECRYPT_MODE), any(SecretKey.class), gcmParameterSpecCaptor.capture());
+        assertThat(gcmParameterSpecCaptor.getValue().getIV(), is(new byte[]{99, 99, 11, 11}));
+        assertThat(gcmParameterSpecCaptor.getValue().getTLen(), is(128));
+        Mockito.verify(aesCipher).updateAAD(associatedData);
+        Mockito.verify(storage, never()).retrieveString(KEY_ALIAS + "_iv");
+        assertThat(decrypted, is(decryptedData));
+    }
+
+    @Test
+    public void shouldThrowOnUnknownFormatWhenTryingToAESDecryptWithInlineIV() {
+        Assert.assertThrows("The encrypted input has an unknown format and cannot be recovered. Please discard it.", CryptoException.class, () -> {
+            cryptoUtil.decryptWithInlineIV(new byte[]{9, 4, 99, 99, 11, 11, 0, 1}, new byte[0]);
+        });
+        Mockito.verifyNoInteractions(aesCipher);
+    }
+
+    @Test
+    public void shouldThrowOnTruncatedInputWhenTryingToAESDecryptWithInlineIV() {
+        Assert.assertThrows("The AES encrypted input is corrupted and cannot be recovered. Please discard it.", CryptoException.class, () -> {
+            cryptoUtil.decryptWithInlineIV(new byte[]{1, 12, 99, 99}, new byte[0]);
+        });
+        Mockito.verifyNoInteractions(aesCipher);
+    }
+
+    @Test
+    public void shouldThrowButNotDeleteAESKeysOnAEADBadTagExceptionWhenTryingToAESDecryptWithInlineIV() throws Exception {
+        Assert.assertThrows("The AES encrypted input is corrupted and cannot be recovered. Please discard it.", CryptoException.class, () -> {
+            doReturn(new byte[]{11, 22, 33}).when(cryptoUtil).getAESKey();
+            doThrow(new AEADBadTagException()).when(aesCipher).doFinal(any(byte[].class), anyInt(), anyInt());
+
+            cryptoUtil.decryptWithInlineIV(new byte[]{1, 2, 99, 99, 0, 1}, "tampered".getBytes());
+        });
+
+        Mockito.verify(keyStore, never()).deleteEntry(KEY_ALIAS);
+        Mockito.verify(storage, never()).remove(KEY_ALIAS);
+    }
+
+    /*
+     * KEYSTORE AES KEY MODE tests
+     */
+
+    @Test
+    @Config(sdk = 23)
+    public void shouldCreateKeyStoreAESKeyIfMissingOnAPI23AndUp() throws Exception {
+        ReflectionHelpers.setStaticField(Build.VERSION.class, "SDK_INT", 23);
+        PowerMockito.when(keyStore.getKey(KEY_ALIAS + "_aes", null)).thenReturn(null);
+        KeyGenParameterSpec spec = PowerMockito.mock(KeyGenParameterSpec.class);
+        KeyGenParameterSpec.Builder builder = newKeyGenParameterSpecBuilder(spec);
+        PowerMockito.whenNew(KeyGenParameterSpec.Builder.class).withArguments(KEY_ALIAS + "_aes", KeyProperties.PURPOSE_DECRYPT | KeyProperties.PURPOSE_ENCRYPT).thenReturn(builder);
+        PowerMockito.when(KeyGenerator.getInstance(ALGORITHM_AES, ANDROID_KEY_STORE)).thenReturn(keyGenerator);
+        SecretKey expectedKey = PowerMockito.mock(SecretKey.class);
+        PowerMockito.when(keyGenerator.generateKey()).thenReturn(expectedKey);
+
+        final SecretKey key = cryptoUtil.getKeyStoreAESKey();
+
+        Mockito.verify(builder).setKeySize(256);
+        Mockito.verify(builder).setBlockModes(KeyProperties.BLOCK_MODE_GCM);
+        Mockito.verify(builder).setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE);
+        Mockito.verify(keyGenerator).init(spec);
+        assertThat(key, is(expectedKey));
+    }
+
+    @Test
+    @Config(sdk = 23)
+    public void shouldUseExistingKeyStoreAESKeyOnAPI23AndUp() throws Exception {
+        ReflectionHelpers.setStaticField(Build.VERSION.class, "SDK_INT", 23);
+        SecretKey expectedKey = PowerMockito.mock(SecretKey.class);
+        PowerMockito.when(keyStore.getKey(KEY_ALIAS + "_aes", null)).thenReturn(expectedKey);
+
+        final SecretKey key = cryptoUtil.getKeyStoreAESKey();
+
+        Mockito.verify(keyGenerator, never()).generateKey();
+        assertThat(key, is(expectedKey));
+    }
+
+    @Test
+    @Config(sdk = 23)
+    public void shouldDeleteKeyStoreAESKeyAndThrowOnUnrecoverableKeyException() throws Exception {
+        ReflectionHelpers.setStaticField(Build.VERSION.class, "SDK_INT", 23);
+        Assert.assertThrows("The existing AES key could not be recovered and has been deleted. You can safely retry this operation.", CryptoException.class, () -> {
+            PowerMockito.when(keyStore.getKey(KEY_ALIAS + "_aes", null)).thenThrow(new UnrecoverableKeyException());
+            cryptoUtil.getKeyStoreAESKey();
+        });
+        Mockito.verify(keyStore).deleteEntry(KEY_ALIAS + "_aes");
+        Mockito.verify(keyStore, never()).deleteEntry(KEY_ALIAS);
+    }
+
+    @Test
+    @Config(sdk = 22)
+    public void shouldIgnoreKeyStoreAESKeyModeBelowAPI23() throws Exception {
+        ReflectionHelpers.setStaticField(Build.VERSION.class, "SDK_INT", 22);
+        cryptoUtil.setKeyStoreAESKeyMode(true);
+        byte[] aesKey = "aes-decrypted-key".getBytes();
+        doReturn(aesKey).when(cryptoUtil).getAESKey();
+        PowerMockito.when(aesCipher.getIV()).thenReturn(new byte[]{99, 99});
+        PowerMockito.mockStatic(Base64.class);
+        PowerMockito.when(Base64.encode(any(byte[].class), eq(Base64.DEFAULT))).thenReturn("iv-data".getBytes());
+
+        cryptoUtil.encrypt("data".getBytes());
+
+        Mockito.verify(cryptoUtil, never()).getKeyStoreAESKey();
+        Mockito.verify(storage, never()).remove(KEY_ALIAS);
+    }
+
+    @Test
+    @Config(sdk = 23)
+    public void shouldEncryptWithKeyStoreAESKeyAndKeepRSAProtectedKey() throws Exception {
+        ReflectionHelpers.setStaticField(Build.VERSION.class, "SDK_INT", 23);
+        cryptoUtil.setKeyStoreAESKeyMode(true);
+        SecretKey keyStoreKey = PowerMockito.mock(SecretKey.class);
+        doReturn(keyStoreKey).when(cryptoUtil).getKeyStoreAESKey();
+        byte[] data = "data".getBytes();
+        byte[] encryptedData = new byte[]{0, 1, 2, 3, 4, 5};
+        PowerMockito.when(aesCipher.doFinal(data)).thenReturn(encryptedData);
+        PowerMockito.when(aesCipher.getIV()).thenReturn(new byte[]{99, 99});
+        PowerMockito.when(storage.retrieveString(KEY_ALIAS)).thenReturn("rsa-protected-aes-key");
+        PowerMockito.mockStatic(Base64.class);
+        PowerMockito.when(Base64.encode(any(byte[].class), eq(Base64.DEFAULT))).thenReturn("iv-data".getBytes());
+
+        final byte[] encrypted = cryptoUtil.encrypt(data);
+
+        Mockito.verify(aesCipher).init(Cipher.ENCRYPT_MODE, keyStoreKey);
+        Mockito.verify(cryptoUtil, never()).getAESKey();
+        Mockito.verify(storage, never()).remove(KEY_ALIAS);
+        Mockito.verify(storage).store(KEY_ALIAS + "_iv", "iv-data");
+        assertThat(encrypted, is(encryptedData));
+    }
+
+    @Test
+    @Config(sdk = 23)
+    public void shouldDeleteRSAProtectedKeyWhenCompletingTheMigration() throws Exception {
+        ReflectionHelpers.setStaticField(Build.VERSION.class, "SDK_INT", 23);
+        cryptoUtil.setKeyStoreAESKeyMode(true);
+        PowerMockito.when(storage.retrieveString(KEY_ALIAS)).thenReturn("rsa-protected-aes-key");
+
+        cryptoUtil.completeKeyStoreAESKeyMigration();
+
+        Mockito.verify(storage).remove(KEY_ALIAS);
+        Mockito.verify(storage, never()).remove(OLD_KEY_ALIAS);
+        Mockito.verify(keyStore, never()).deleteEntry(KEY_ALIAS);
+    }
+
+    @Test
+    @Config(sdk = 23)
+    public void shouldKeepRSAProtectedKeyWhenCompletingTheMigrationWithoutKeyStoreAESKeyMode() throws Exception {
+        ReflectionHelpers.setStaticField(Build.VERSION.class, "SDK_INT", 23);
+        PowerMockito.when(storage.retrieveString(KEY_ALIAS)).thenReturn("rsa-protected-aes-key");
+
+        cryptoUtil.completeKeyStoreAESKeyMigration();
+
+        Mockito.verify(storage, never()).remove(KEY_ALIAS);
+    }
+
+    @Test
+    @Config(sdk = 23)
+    public void shouldDecryptWithKeyStoreAESKeyWhenStoredBeforeTheMigrationCompleted() throws Exception {
+        ReflectionHelpers.setStaticField(Build.VERSION.class, "SDK_INT", 23);
+        cryptoUtil.setKeyStoreAESKeyMode(true);
+        SecretKey keyStoreKey = PowerMockito.mock(SecretKey.class);
+        doReturn(keyStoreKey).when(cryptoUtil).getKeyStoreAESKey();
+        doReturn("aes-decrypted-key".getBytes()).when(cryptoUtil).getAESKey();
+        PowerMockito.when(storage.retrieveString(KEY_ALIAS)).thenReturn("rsa-protected-aes-key");
+        PowerMockito.when(storage.retrieveString(KEY_ALIAS + "_iv")).thenReturn("iv-data");
+        PowerMockito.mockStatic(Base64.class);
+        PowerMockito.when(Base64.decode("iv-data", Base64.DEFAULT)).thenReturn(new byte[]{99, 99});
+        byte[] data = "data".getBytes();
+        PowerMockito.when(aesCipher.doFinal(data))
+                .thenThrow(new BadPaddingException())
+                .thenReturn(new byte[]{5, 6});
+
+        final byte[] decrypted = cryptoUtil.decrypt(data);
+
+        Mockito.verify(aesCipher).init(eq(Cipher.DECRYPT_MODE), any(SecretKey.class), any(IvParameterSpec.class));
+        Mockito.verify(aesCipher).init(eq(Cipher.DECRYPT_MODE), eq(keyStoreKey), any(GCMParameterSpec.class));
+        Mockito.verify(storage, never()).remove(KEY_ALIAS);
+        assertThat(decrypted, is(new byte[]{5, 6}));
+    }
+
+    @Test
+    @Config(sdk = 23)
+    public void shouldDecryptWithRSAProtectedAESKeyUntilMigrated() throws Exception {
+        ReflectionHelpers.setStaticField(Build.VERSION.class, "SDK_INT", 23);
+        cryptoUtil.setKeyStoreAESKeyMode(true);
+        byte[] aesKey = "aes-decrypted-key".getBytes();
+        doReturn(aesKey).when(cryptoUtil).getAESKey();
+        PowerMockito.when(storage.retrieveString(KEY_ALIAS)).thenReturn("rsa-protected-aes-key");
+        PowerMockito.when(storage.retrieveString(KEY_ALIAS + "_iv")).thenReturn("iv-data");
+        PowerMockito.mockStatic(Base64.class);
+        PowerMockito.when(Base64.decode("iv-data", Base64.DEFAULT)).thenReturn(new byte[]{99, 99});
+
+        cryptoUtil.decrypt("data".getBytes());
+
+        Mockito.verify(cryptoUtil, never()).getKeyStoreAESKey();
+        Mockito.verify(aesCipher).init(eq(Cipher.DECRYPT_MODE), any(SecretKey.class), any(IvParameterSpec.class));
+    }
+
+    @Test
+    @Config(sdk = 23)
+    public void shouldDecryptWithKeyStoreAESKeyOnceMigrated() throws Exception {
+        ReflectionHelpers.setStaticField(Build.VERSION.class, "SDK_INT", 23);
+        cryptoUtil.setKeyStoreAESKeyMode(true);
+        SecretKey keyStoreKey = PowerMockito.mock(SecretKey.class);
+        doReturn(keyStoreKey).when(cryptoUtil).getKeyStoreAESKey();
+        PowerMockito.when(storage.retrieveString(KEY_ALIAS + "_iv")).thenReturn("iv-data");
+        PowerMockito.mockStatic(Base64.class);
+        PowerMockito.when(Base64.decode("iv-data", Base64.DEFAULT)).thenReturn(new byte[]{99, 99});
+        ArgumentCaptor<GCMParameterSpec> gcmParameterSpecCaptor = ArgumentCaptor.forClass(GCMParameterSpec.class);
+
+        cryptoUtil.decrypt("data".getBytes());
+
+        Mockito.verify(cryptoUtil, never()).getAESKey();
+        Mockito.verify(aesCipher).init(eq(Cipher.DECRYPT_MODE), eq(keyStoreKey), gcmParameterSpecCaptor.capture());
+        assertThat(gcmParameterSpecCaptor.getValue().getIV(), is(new byte[]{99, 99}));
+    }
+
+    @Test
+    @Config(sdk = 23)
+    public void shouldEncryptWithInlineIVUsingKeyStoreAESKey() throws Exception {
+        ReflectionHelpers.setStaticField(Build.VERSION.class, "SDK_INT", 23);
+        cryptoUtil.setKeyStoreAESKeyMode(true);
+        SecretKey keyStoreKey = PowerMockito.mock(SecretKey.class);
+        doReturn(keyStoreKey).when(cryptoUtil).getKeyStoreAESKey();
+        byte[] data = "data".getBytes();
+        PowerMockito.when(aesCipher.doFinal(data)).thenReturn(new byte[]{5, 6});
+        PowerMockito.when(aesCipher.getIV()).thenReturn(new byte[]{99, 99});
+
+        final byte[] encrypted = cryptoUtil.encryptWithInlineIV(data, new byte[0]);
+
+        assertThat(encrypted, is(new byte[]{2, 2, 99, 99, 5, 6}));
+        Mockito.verify(cryptoUtil, never()).getAESKey();
+    }
+
+    @Test
+    @Config(sdk = 23)
+    public void shouldDecryptWithInlineIVUsingTheKeyOfTheFormat() throws Exception {
+        ReflectionHelpers.setStaticField(Build.VERSION.class, "SDK_INT", 23);
+        cryptoUtil.setKeyStoreAESKeyMode(true);
+        SecretKey keyStoreKey = PowerMockito.mock(SecretKey.class);
+        doReturn(keyStoreKey).when(cryptoUtil).getKeyStoreAESKey();
+        doReturn("aes-decrypted-key".getBytes()).when(cryptoUtil).getAESKey();
+
+        cryptoUtil.decryptWithInlineIV(new byte[]{1, 2, 99, 99, 5, 6}, new byte[0]);
+        Mockito.verify(cryptoUtil).getAESKey();
+        Mockito.verify(cryptoUtil, never()).getKeyStoreAESKey();
+
+        cryptoUtil.decryptWithInlineIV(new byte[]{2, 2, 99, 99, 5, 6}, new byte[0]);
+        Mockito.verify(cryptoUtil).getKeyStoreAESKey();
+        Mockito.verify(aesCipher).init(eq(Cipher.DECRYPT_MODE), eq(keyStoreKey), any(GCMParameterSpec.class));
+    }
+
+    /*
+     * WARM UP tests
+     */
+
+    @Test
+    public void shouldWarmUpRSAProtectedAESKey() throws Exception {
+        doReturn(new byte[32]).when(cryptoUtil).getAESKey();
+
+        cryptoUtil.warmUp();
+
+        Mockito.verify(cryptoUtil).getAESKey();
+        Mockito.verify(cryptoUtil, never()).getKeyStoreAESKey();
+    }
+
+    @Test
+    @Config(sdk = 23)
+    public void shouldWarmUpKeyStoreAESKey() throws Exception {
+        ReflectionHelpers.setStaticField(Build.VERSION.class, "SDK_INT", 23);
+        cryptoUtil.setKeyStoreAESKeyMode(true);
+        doReturn(PowerMockito.mock(SecretKey.class)).when(cryptoUtil).getKeyStoreAESKey();
+
+        cryptoUtil.warmUp();
+
+        Mockito.verify(cryptoUtil).getKeyStoreAESKey();
+        Mockito.verify(cryptoUtil, never()).getAESKey();
+    }
+
+    @Test
+    public void shouldProvisionKeysInSynchronizedMethods() throws Exception {
+        assertThat(Modifier.isSynchronized(CryptoUtil.class.getDeclaredMethod("getRSAKeyEntry").getModifiers()), is(true));
+        assertThat(Modifier.isSynchronized(CryptoUtil.class.getDeclaredMethod("getAESKey").getModifiers()), is(true));
+        assertThat(Modifier.isSynchronized(CryptoUtil.class.getDeclaredMethod("getKeyStoreAESKey").getModifiers()), is(true));
+    }
+
     /*
      * Helper methods
      */
@@ -0,0 +1,295 @@
+package com.auth0.android.authentication.storage
+
+import com.auth0.android.authentication.AuthenticationAPIClient
+import com.auth0.android.callback.Callback
+import com.auth0.android.result.Credentials
+import com.auth0.android.result.CredentialsMock
+import com.nhaarman.mockitokotlin2.*
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.*
+import org.junit.Assert.assertThrows
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.Mock
+import org.mockito.MockitoAnnotations
+import org.robolectric.RobolectricTestRunner
+import java.util.*
+import java.util.concurrent.Executor
+
+@RunWith(RobolectricTestRunner::class)
+public class MultiAccountCredentialsManagerTest {
+    @Mock
+    private lateinit var client: AuthenticationAPIClient
+
+    @Mock
+    private lateinit var callback: Callback<Credentials, CredentialsManagerException>
+
+    private lateinit var storage: InMemoryStorage
+    private val delegates: MutableMap<Storage, BaseCredentialsManager> = LinkedHashMap()
+    private val delegateUserIds: MutableList<String> = mutableListOf()
+    private val delegateExecutors: MutableList<Executor> = mutableListOf()
+    private val credentialsCaptor: KArgumentCaptor<Credentials> = argumentCaptor()
+    private val exceptionCaptor: KArgumentCaptor<CredentialsManagerException> = argumentCaptor()
+
+    @Before
+    public fun setUp() {
+        MockitoAnnotations.openMocks(this)
+        storage = InMemoryStorage()
+        delegates.clear()
+        delegateUserIds.clear()
+        delegateExecutors.clear()
+    }
+
+    private fun createManager(maxCachedSessions: Int = 2): MultiAccountCredentialsManager {
+        return MultiAccountCredentialsManager(client, storage, maxCachedSessions) { userId, accountStorage, executor ->
+            delegateUserIds.add(userId)
+            delegateExecutors.add(executor)
+            mock<BaseCredentialsManager>().also { delegates[accountStorage] = it }
+        }
+    }
+
+    private fun createCredentials(accessToken: String, expiresAt: Long = CredentialsMock.ONE_HOUR_AHEAD_MS) =
+        CredentialsMock("idToken", accessToken, "type", "refreshToken", Date(expiresAt), "openid")
+
+    @Test
+    public fun shouldMakeFirstSavedAccountActive() {
+        val manager = createManager()
+        val credentials = createCredentials("aliceToken")
+        manager.saveCredentials("alice", credentials)
+        manager.saveCredentials("bob", createCredentials("bobToken"))
+
+        assertThat(manager.activeAccount, `is`("alice"))
+        assertThat(manager.accounts, contains("alice", "bob"))
+        assertThat(delegates.size, `is`(2))
+        verify(delegates.values.first()).saveCredentials(credentials)
+    }
+
+    @Test
+    public fun shouldKeepAccountsApartInStorage() {
+        val manager = createManager()
+        manager.saveCredentials("alice", createCredentials("aliceToken"))
+        manager.saveCredentials("bob", createCredentials("bobToken"))
+
+        val (aliceStorage, bobStorage) = delegates.keys.toList()
+        aliceStorage.store("com.auth0.credentials", "alice")
+        bobStorage.store("com.auth0.credentials", "bob")
+        assertThat(storage.values["com.auth0.accounts.alice.com.auth0.credentials"], `is`<Any>("alice"))
+        assertThat(storage.values["com.auth0.accounts.bob.com.auth0.credentials"], `is`<Any>("bob"))
+    }
+
+    @Test
+    public fun shouldShareASingleSerialExecutorAcrossAccounts() {
+        val manager = createManager()
+        manager.saveCredentials("alice", createCredentials("aliceToken"))
+        manager.saveCredentials("bob", createCredentials("bobToken"))
+
+        assertThat(delegateUserIds, contains("alice", "bob"))
+        assertThat(delegateExecutors, hasSize(2))
+        assertThat(delegateExecutors[0], `is`(sameInstance(delegateExecutors[1])))
+    }
+
+    @Test
+    public fun shouldRestoreAccountsIndexFromStorage() {
+        val manager = createManager()
+        manager.saveCredentials("alice", createCredentials("aliceToken"))
+        manager.saveCredentials("bob", createCredentials("bobToken"))
+        manager.switchAccount("bob")
+
+        val restored = createManager()
+        assertThat(restored.accounts, contains("alice", "bob"))
+        assertThat(restored.activeAccount, `is`("bob"))
+    }
+
+    @Test
+    public fun shouldIgnoreUnreadableAccountsIndex() {
+        storage.store("com.auth0.accounts", "{not a list")
+        storage.store("com.auth0.accounts_active", "alice")
+        val manager = createManager()
+        assertThat(manager.accounts, `is`(empty()))
+        assertThat(manager.activeAccount, `is`(nullValue()))
+    }
+
+    @Test
+    public fun shouldThrowWhenSwitchingToUnknownAccount() {
+        val manager = createManager()
+        val exception = assertThrows(CredentialsManagerException::class.java) {
+            manager.switchAccount("alice")
+        }
+        assertThat(exception.message, `is`("No Credentials were previously set for the account 'alice'."))
+    }
+
+    @Test
+    public fun shouldThrowWhenSavingWithoutActiveAccount() {
+        val manager = createManager()
+        assertThrows(CredentialsManagerException::class.java) {
+            manager.saveCredentials(createCredentials("token"))
+        }
+    }
+
+    @Test
+    public fun shouldFailToGetCredentialsWithoutActiveAccount() {
+        val manager = createManager()
+        manager.getCredentials(callback)
+        verify(callback).onFailure(exceptionCaptor.capture())
+        assertThat(
+            exceptionCaptor.firstValue.message,
+            `is`("No account is active. Save some credentials or switch to a previously saved account first.")
+        )
+        assertThat(manager.hasValidCredentials(), `is`(false))
+    }
+
+    @Test
+    public fun shouldServeCachedCredentialsOfActiveAccount() {
+        val manager = createManager()
+        val bobCredentials = createCredentials("bobToken")
+        manager.saveCredentials("alice", createCredentials("aliceToken"))
+        manager.saveCredentials("bob", bobCredentials)
+        manager.switchAccount("bob")
+
+        manager.getCredentials(callback)
+        verify(callback).onSuccess(credentialsCaptor.capture())
+        assertThat(credentialsCaptor.firstValue, `is`(sameInstance(bobCredentials)))
+        delegates.values.forEach {
+            verify(it, never()).getCredentials(any(), any(), any())
+        }
+    }
+
+    @Test
+    public fun shouldDelegateWhenCachedCredentialsWillExpire() {
+        val manager = createManager()
+        manager.saveCredentials("alice", createCredentials("aliceToken", CredentialsMock.CURRENT_TIME_MS + 30 * 1000))
+        val delegate = delegates.values.first()
+
+        manager.getCredentials(null, 60, callback)
+        verify(delegate).getCredentials(eq(null), eq(60), any())
+    }
+
+    @Test
+    public fun shouldDelegateWhenScopeChanged() {
+        val manager = createManager()
+        manager.saveCredentials("alice", createCredentials("aliceToken"))
+        val delegate = delegates.values.first()
+
+        manager.getCredentials("openid offline_access", 0, callback)
+        verify(delegate).getCredentials(eq("openid offline_access"), eq(0), any())
+    }
+
+    @Test
+    public fun shouldEvictLeastRecentlyUsedSessions() {
+        val manager = createManager(maxCachedSessions = 2)
+        manager.saveCredentials("alice", createCredentials("aliceToken"))
+        manager.saveCredentials("bob", createCredentials("bobToken"))
+        manager.saveCredentials("carol", createCredentials("carolToken"))
+        val aliceDelegate = delegates.values.first()
+
+        manager.getCredentials("alice", null, 0, callback)
+        verify(aliceDelegate).getCredentials(eq(null), eq(0), any())
+
+        manager.getCredentials("carol", null, 0, callback)
+        verify(delegates.values.last(), never()).getCredentials(any(), any(), any())
+    }
+
+    @Test
+    public fun shouldCacheCredentialsObtainedFromDelegate() {
+        val manager = createManager(maxCachedSessions = 1)
+        manager.saveCredentials("alice", createCredentials("aliceToken"))
+        manager.saveCredentials("bob", createCredentials("bobToken"))
+        val aliceDelegate = delegates.values.first()
+        val renewed = createCredentials("renewedAliceToken")
+        doAnswer { invocation ->
+            invocation.getArgument<Callback<Credentials, CredentialsManagerException>>(2).onSuccess(renewed)
+        }.whenever(aliceDelegate).getCredentials(any(), any(), any())
+
+        manager.getCredentials("alice", null, 0, callback)
+        manager.getCredentials("alice", null, 0, callback)
+        verify(aliceDelegate, times(1)).getCredentials(any(), any(), any())
+        verify(callback, times(2)).onSuccess(renewed)
+    }
+
+    @Test
+    public fun shouldNotCacheSessionsWhenDisabled() {
+        val manager = createManager(maxCachedSessions = 0)
+        manager.saveCredentials("alice", createCredentials("aliceToken"))
+        manager.getCredentials(callback)
+        verify(delegates.values.first()).getCredentials(eq(null), eq(0), any())
+    }
+
+    @Test
+    public fun shouldCheckValidCredentialsOfActiveAccount() {
+        val manager = createManager()
+        manager.saveCredentials("alice", createCredentials("aliceToken"))
+        val delegate = delegates.values.first()
+        whenever(delegate.hasValidCredentials(120)).thenReturn(true)
+
+        assertThat(manager.hasValidCredentials(120), `is`(true))
+        assertThat(manager.hasValidCredentials("bob", 120), `is`(false))
+    }
+
+    @Test
+    public fun shouldRemoveActiveAccountOnClear() {
+        val manager = createManager()
+        manager.saveCredentials("alice", createCredentials("aliceToken"))
+        manager.saveCredentials("bob", createCredentials("bobToken"))
+        val aliceDelegate = delegates.values.first()
+
+        manager.clearCredentials()
+        verify(aliceDelegate).clearCredentials()
+        assertThat(manager.activeAccount, `is`(nullValue()))
+        assertThat(manager.accounts, contains("bob"))
+        assertThat(storage.values.containsKey("com.auth0.accounts_active"), `is`(false))
+
+        manager.getCredentials("alice", null, 0, callback)
+        verify(callback).onFailure(any())
+    }
+
+    @Test
+    public fun shouldRemoveNonActiveAccount() {
+        val manager = createManager()
+        manager.saveCredentials("alice", createCredentials("aliceToken"))
+        manager.saveCredentials("bob", createCredentials("bobToken"))
+
+        manager.removeAccount("bob")
+        assertThat(manager.activeAccount, `is`("alice"))
+        assertThat(manager.accounts, contains("alice"))
+        verify(delegates.values.last()).clearCredentials()
+    }
+
+    @Test
+    public fun shouldNotifyListenersAboutTheActiveAccountOnly() {
+        val manager = createManager()
+        val listener = mock<CredentialsListener>()
+        val eventCaptor = argumentCaptor<CredentialsEvent>()
+        manager.addCredentialsListener(listener)
+        val aliceCredentials = createCredentials("aliceToken")
+        manager.saveCredentials("alice", aliceCredentials)
+        manager.saveCredentials("bob", createCredentials("bobToken"))
+        manager.removeAccount("bob")
+        manager.removeAccount("alice")
+
+        verify(listener, times(2)).onCredentialsChanged(eventCaptor.capture())
+        assertThat(eventCaptor.firstValue.type, `is`(CredentialsEvent.Type.SAVED))
+        assertThat(eventCaptor.firstValue.expiresAt, `is`(aliceCredentials.expiresAt))
+        assertThat(eventCaptor.secondValue.type, `is`(CredentialsEvent.Type.CLEARED))
+    }
+
+    private class InMemoryStorage : Storage {
+        val values: MutableMap<String, Any> = HashMap()
+
+        override fun store(name: String, value: Long?) = put(name, value)
+        override fun store(name: String, value: Int?) = put(name, value)
+        override fun store(name: String, value: String?) = put(name, value)
+        override fun store(name: String, value: Boolean?) = put(name, value)
+        override fun retrieveLong(name: String): Long? = values[name] as Long?
+        override fun retrieveString(name: String): String? = values[name] as String?
+        override fun retrieveInteger(name: String): Int? = values[name] as Int?
+        override fun retrieveBoolean(name: String): Boolean? = values[name] as Boolean?
+        override fun remove(name: String) {
+            values.remove(name)
+        }
+
+        private fun put(name: String, value: Any?) {
+            if (value == null) values.remove(name) else values[name] = value
+        }
+    }
+}
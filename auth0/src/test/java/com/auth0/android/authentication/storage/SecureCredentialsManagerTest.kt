@@ -5,6 +5,8 @@ import android.app.KeyguardManager
 import android.content.Context
 import android.content.Intent
 import android.os.Build.VERSION
+import android.os.Looper
+import android.os.SystemClock
 import android.util.Base64
 import androidx.activity.ComponentActivity
 import androidx.activity.result.ActivityResult
@@ -13,6 +15,9 @@ import androidx.activity.result.ActivityResultLauncher
 import androidx.activity.result.ActivityResultRegistry
 import androidx.activity.result.contract.ActivityResultContract
 import androidx.core.app.ActivityOptionsCompat
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleOwner
+import androidx.lifecycle.LifecycleRegistry
 import com.auth0.android.Auth0
 import com.auth0.android.authentication.AuthenticationAPIClient
 import com.auth0.android.authentication.AuthenticationException
@@ -47,6 +52,7 @@ import org.mockito.Mockito
 import org.mockito.MockitoAnnotations
 import org.robolectric.Robolectric
 import org.robolectric.RobolectricTestRunner
+import org.robolectric.Shadows
 import org.robolectric.annotation.Config
 import org.robolectric.util.ReflectionHelpers
 import java.lang.reflect.Modifier
@@ -88,6 +94,8 @@ public class SecureCredentialsManagerTest {
     public val exception: ExpectedException = ExpectedException.none()
     private lateinit var manager: SecureCredentialsManager
     private lateinit var gson: Gson
+    private val processLifecycleOwner = mock<LifecycleOwner>()
+    private lateinit var processLifecycle: LifecycleRegistry
 
     @Before
     public fun setUp() {
@@ -102,6 +110,9 @@ public class SecureCredentialsManagerTest {
             SecureCredentialsManager(client, storage, crypto, jwtDecoder, serialExecutor)
         manager = Mockito.spy(secureCredentialsManager)
         Mockito.doReturn(CredentialsMock.CURRENT_TIME_MS).`when`(manager).currentTimeInMillis
+        processLifecycle = LifecycleRegistry(processLifecycleOwner)
+        processLifecycle.currentState = Lifecycle.State.RESUMED
+        manager.processLifecycle = processLifecycle
         gson = GsonProvider.gson
     }
 
@@ -140,6 +151,9 @@ public class SecureCredentialsManagerTest {
             .store("com.auth0.credentials_access_token_expires_at", sharedExpirationTime)
         verify(storage).store("com.auth0.credentials_can_refresh", true)
         verifyNoMoreInteractions(storage)
+        val inOrder = Mockito.inOrder(storage, crypto)
+        inOrder.verify(storage).store(eq("com.auth0.credentials"), any<String>())
+        inOrder.verify(crypto).completeKeyStoreAESKeyMigration()
         val encodedJson = stringCaptor.firstValue
         MatcherAssert.assertThat(encodedJson, Is.`is`(Matchers.notNullValue()))
         val decoded = Base64.decode(encodedJson, Base64.DEFAULT)
@@ -1130,6 +1144,7 @@ public class SecureCredentialsManagerTest {
         verify(storage).remove("com.auth0.credentials_expires_at")
         verify(storage).remove("com.auth0.credentials_access_token_expires_at")
         verify(storage).remove("com.auth0.credentials_can_refresh")
+        verify(storage).remove("com.auth0.credentials_record")
         verifyNoMoreInteractions(storage)
     }
 
@@ -1724,6 +1739,411 @@ public class SecureCredentialsManagerTest {
         MatcherAssert.assertThat(processed, Is.`is`(false))
     }
 
+    /*
+     * Concurrent requests and authentication validity tests
+     */
+    @Test
+    public fun shouldServeConcurrentRequestsWithASingleAuthentication() {
+        val expiresAt = Date(CredentialsMock.ONE_HOUR_AHEAD_MS)
+        val storedJson = insertTestCredentials(true, true, false, expiresAt, "scope")
+        val activity = prepareAuthenticationActivity()
+        val secondCallback = mock<Callback<Credentials, CredentialsManagerException>>()
+
+        manager.getCredentials(callback)
+        manager.getCredentials(secondCallback)
+        verify(activity, times(1)).startActivityForResult(any(), eq(123))
+        verifyNoMoreInteractions(callback, secondCallback)
+
+        val processed = manager.checkAuthenticationResult(123, Activity.RESULT_OK)
+        MatcherAssert.assertThat(processed, Is.`is`(true))
+        verify(crypto, times(1)).decrypt(storedJson.toByteArray())
+        verify(callback).onSuccess(credentialsCaptor.capture())
+        verify(secondCallback).onSuccess(credentialsCaptor.capture())
+        MatcherAssert.assertThat(credentialsCaptor.firstValue.accessToken, Is.`is`("accessToken"))
+        MatcherAssert.assertThat(credentialsCaptor.secondValue.accessToken, Is.`is`("accessToken"))
+
+        val retryCheck = manager.checkAuthenticationResult(123, Activity.RESULT_OK)
+        MatcherAssert.assertThat(retryCheck, Is.`is`(false))
+    }
+
+    @Test
+    public fun shouldEvaluateEachConcurrentRequestWithItsOwnValues() {
+        val expiresAt = Date(CredentialsMock.ONE_HOUR_AHEAD_MS)
+        val storedJson = insertTestCredentials(true, true, true, expiresAt, "scope")
+        prepareAuthenticationActivity()
+        val secondCallback = mock<Callback<Credentials, CredentialsManagerException>>()
+        val newDate = Date(CredentialsMock.ONE_HOUR_AHEAD_MS + ONE_HOUR_SECONDS * 1000)
+        val renewedCredentials =
+            Credentials("newId", "newAccess", "newType", null, newDate, "other scope")
+        Mockito.`when`(client.renewAuth("refreshToken")).thenReturn(request)
+        Mockito.`when`(request.execute()).thenReturn(renewedCredentials)
+        Mockito.`when`(crypto.encrypt(any())).thenReturn(byteArrayOf(12))
+
+        manager.getCredentials(callback)
+        manager.getCredentials("other scope", 0, mapOf("some" to "value"), secondCallback)
+        manager.checkAuthenticationResult(123, Activity.RESULT_OK)
+
+        verify(crypto, times(1)).decrypt(storedJson.toByteArray())
+        verify(callback).onSuccess(credentialsCaptor.capture())
+        MatcherAssert.assertThat(credentialsCaptor.firstValue.accessToken, Is.`is`("accessToken"))
+        verify(request).addParameters(mapOf("some" to "value"))
+        verify(request).addParameter("scope", "other scope")
+        verify(secondCallback).onSuccess(credentialsCaptor.capture())
+        MatcherAssert.assertThat(credentialsCaptor.secondValue.accessToken, Is.`is`("newAccess"))
+        MatcherAssert.assertThat(credentialsCaptor.secondValue.refreshToken, Is.`is`("refreshToken"))
+    }
+
+    @Test
+    public fun shouldFailAllConcurrentRequestsWhenAuthenticationFails() {
+        val expiresAt = Date(CredentialsMock.ONE_HOUR_AHEAD_MS)
+        insertTestCredentials(true, true, false, expiresAt, "scope")
+        prepareAuthenticationActivity()
+        val secondCallback = mock<Callback<Credentials, CredentialsManagerException>>()
+
+        manager.getCredentials(callback)
+        manager.getCredentials(secondCallback)
+        val processed = manager.checkAuthenticationResult(123, Activity.RESULT_CANCELED)
+        MatcherAssert.assertThat(processed, Is.`is`(true))
+        verify(callback).onFailure(exceptionCaptor.capture())
+        verify(secondCallback).onFailure(exceptionCaptor.capture())
+        MatcherAssert.assertThat(
+            exceptionCaptor.firstValue.message,
+            Is.`is`("The user didn't pass the authentication challenge.")
+        )
+        MatcherAssert.assertThat(
+            exceptionCaptor.secondValue.message,
+            Is.`is`("The user didn't pass the authentication challenge.")
+        )
+        verify(crypto, never()).decrypt(any())
+    }
+
+    @Test
+    public fun shouldNotAskForAuthenticationAgainWithinTheValidityWindow() {
+        val expiresAt = Date(CredentialsMock.ONE_HOUR_AHEAD_MS)
+        val storedJson = insertTestCredentials(true, true, false, expiresAt, "scope")
+        val activity = prepareAuthenticationActivity()
+        manager.setAuthenticationValidity(60)
+
+        manager.getCredentials(callback)
+        manager.checkAuthenticationResult(123, Activity.RESULT_OK)
+        manager.getCredentials(callback)
+        manager.getCredentials(callback)
+
+        verify(activity, times(1)).startActivityForResult(any(), eq(123))
+        verify(crypto, times(1)).decrypt(storedJson.toByteArray())
+        verify(callback, times(3)).onSuccess(credentialsCaptor.capture())
+        credentialsCaptor.allValues.forEach {
+            MatcherAssert.assertThat(it.accessToken, Is.`is`("accessToken"))
+        }
+    }
+
+    @Test
+    public fun shouldAskForAuthenticationAgainAfterTheValidityWindow() {
+        val expiresAt = Date(CredentialsMock.ONE_HOUR_AHEAD_MS)
+        insertTestCredentials(true, true, false, expiresAt, "scope")
+        val activity = prepareAuthenticationActivity()
+        manager.setAuthenticationValidity(60)
+
+        manager.getCredentials(callback)
+        manager.checkAuthenticationResult(123, Activity.RESULT_OK)
+        Mockito.doReturn(SystemClock.elapsedRealtime() + 60 * 1000).`when`(manager).elapsedRealtime
+        manager.getCredentials(callback)
+
+        verify(activity, times(2)).startActivityForResult(any(), eq(123))
+        verify(callback, times(1)).onSuccess(any())
+    }
+
+    @Test
+    public fun shouldNotMeasureTheValidityWindowWithTheWallClock() {
+        val expiresAt = Date(CredentialsMock.ONE_HOUR_AHEAD_MS)
+        insertTestCredentials(true, true, false, expiresAt, "scope")
+        val activity = prepareAuthenticationActivity()
+        manager.setAuthenticationValidity(60)
+
+        manager.getCredentials(callback)
+        manager.checkAuthenticationResult(123, Activity.RESULT_OK)
+        Mockito.doReturn(CredentialsMock.CURRENT_TIME_MS - 60 * 60 * 1000).`when`(manager).currentTimeInMillis
+        manager.getCredentials(callback)
+        Mockito.doReturn(SystemClock.elapsedRealtime() + 60 * 1000).`when`(manager).elapsedRealtime
+        manager.getCredentials(callback)
+
+        verify(activity, times(2)).startActivityForResult(any(), eq(123))
+        verify(callback, times(2)).onSuccess(any())
+    }
+
+    @Test
+    public fun shouldAskForAuthenticationAgainWhenTheScreenIsTurnedOff() {
+        val expiresAt = Date(CredentialsMock.ONE_HOUR_AHEAD_MS)
+        insertTestCredentials(true, true, false, expiresAt, "scope")
+        val activity = prepareAuthenticationActivity()
+        manager.setAuthenticationValidity(60)
+
+        manager.getCredentials(callback)
+        manager.checkAuthenticationResult(123, Activity.RESULT_OK)
+        activity.application.sendBroadcast(Intent(Intent.ACTION_SCREEN_OFF))
+        Shadows.shadowOf(Looper.getMainLooper()).idle()
+        manager.getCredentials(callback)
+
+        verify(activity, times(2)).startActivityForResult(any(), eq(123))
+    }
+
+    @Test
+    public fun shouldAskForAuthenticationAgainWhenTheAppGoesToTheBackground() {
+        val expiresAt = Date(CredentialsMock.ONE_HOUR_AHEAD_MS)
+        insertTestCredentials(true, true, false, expiresAt, "scope")
+        val activity = prepareAuthenticationActivity()
+        manager.setAuthenticationValidity(60)
+
+        manager.getCredentials(callback)
+        manager.checkAuthenticationResult(123, Activity.RESULT_OK)
+        processLifecycle.currentState = Lifecycle.State.CREATED
+        manager.getCredentials(callback)
+
+        verify(activity, times(2)).startActivityForResult(any(), eq(123))
+    }
+
+    @Test
+    public fun shouldNotStartTheValidityWindowWhenTheAppIsInTheBackground() {
+        val expiresAt = Date(CredentialsMock.ONE_HOUR_AHEAD_MS)
+        insertTestCredentials(true, true, false, expiresAt, "scope")
+        val activity = prepareAuthenticationActivity()
+        manager.setAuthenticationValidity(60)
+        processLifecycle.currentState = Lifecycle.State.CREATED
+
+        manager.getCredentials(callback)
+        manager.checkAuthenticationResult(123, Activity.RESULT_OK)
+        manager.getCredentials(callback)
+
+        verify(activity, times(2)).startActivityForResult(any(), eq(123))
+        MatcherAssert.assertThat(processLifecycle.observerCount, Is.`is`(0))
+    }
+
+    @Test
+    public fun shouldRegisterTheInvalidationOnceAndUnregisterItWhenTheWindowEnds() {
+        val expiresAt = Date(CredentialsMock.ONE_HOUR_AHEAD_MS)
+        insertTestCredentials(true, true, false, expiresAt, "scope")
+        val activity = prepareAuthenticationActivity()
+        val screenOff = Intent(Intent.ACTION_SCREEN_OFF)
+        manager.setAuthenticationValidity(60)
+
+        repeat(2) {
+            manager.getCredentials(callback)
+            manager.checkAuthenticationResult(123, Activity.RESULT_OK)
+            Mockito.doReturn(SystemClock.elapsedRealtime() + 60 * 1000).`when`(manager).elapsedRealtime
+            manager.getCredentials(callback)
+            Mockito.doCallRealMethod().`when`(manager).elapsedRealtime
+        }
+        MatcherAssert.assertThat(processLifecycle.observerCount, Is.`is`(1))
+        MatcherAssert.assertThat(
+            Shadows.shadowOf(activity.application).getReceiversForIntent(screenOff).size,
+            Is.`is`(1)
+        )
+
+        manager.clearCredentials()
+        Shadows.shadowOf(Looper.getMainLooper()).idle()
+
+        MatcherAssert.assertThat(processLifecycle.observerCount, Is.`is`(0))
+        MatcherAssert.assertThat(
+            Shadows.shadowOf(activity.application).getReceiversForIntent(screenOff).size,
+            Is.`is`(0)
+        )
+    }
+
+    @Test
+    public fun shouldAskForAuthenticationAgainAfterClearingTheCredentials() {
+        val expiresAt = Date(CredentialsMock.ONE_HOUR_AHEAD_MS)
+        insertTestCredentials(true, true, false, expiresAt, "scope")
+        val activity = prepareAuthenticationActivity()
+        manager.setAuthenticationValidity(60)
+
+        manager.getCredentials(callback)
+        manager.checkAuthenticationResult(123, Activity.RESULT_OK)
+        manager.clearCredentials()
+        manager.getCredentials(callback)
+
+        verify(activity, times(2)).startActivityForResult(any(), eq(123))
+    }
+
+    @Test
+    public fun shouldFailTheWaitingRequestsWhenTheActivityIsResumedWithoutTheResult() {
+        val expiresAt = Date(CredentialsMock.ONE_HOUR_AHEAD_MS)
+        insertTestCredentials(true, true, false, expiresAt, "scope")
+        val controller = Robolectric.buildActivity(Activity::class.java).create().start().resume()
+        requireAuthenticationWithLockScreen(controller.get())
+
+        manager.getCredentials(callback)
+        MatcherAssert.assertThat(
+            Shadows.shadowOf(controller.get()).nextStartedActivityForResult,
+            Is.`is`(Matchers.notNullValue())
+        )
+        controller.pause().resume()
+
+        verify(callback).onFailure(exceptionCaptor.capture())
+        MatcherAssert.assertThat(
+            exceptionCaptor.firstValue.message,
+            Is.`is`("The LockScreen was closed before its result was received.")
+        )
+        manager.getCredentials(callback)
+        MatcherAssert.assertThat(
+            Shadows.shadowOf(controller.get()).nextStartedActivityForResult,
+            Is.`is`(Matchers.notNullValue())
+        )
+    }
+
+    @Test
+    public fun shouldNotFailTheWaitingRequestsWhenTheResultArrivesBeforeTheActivityIsResumed() {
+        val expiresAt = Date(CredentialsMock.ONE_HOUR_AHEAD_MS)
+        insertTestCredentials(true, true, false, expiresAt, "scope")
+        val controller = Robolectric.buildActivity(Activity::class.java).create().start().resume()
+        requireAuthenticationWithLockScreen(controller.get())
+
+        manager.getCredentials(callback)
+        controller.pause()
+        manager.checkAuthenticationResult(123, Activity.RESULT_OK)
+        controller.resume()
+
+        verify(callback).onSuccess(any())
+        verify(callback, never()).onFailure(any())
+    }
+
+    @Test
+    public fun shouldFailTheWaitingRequestsWhenTheActivityIsDestroyed() {
+        val expiresAt = Date(CredentialsMock.ONE_HOUR_AHEAD_MS)
+        insertTestCredentials(true, true, false, expiresAt, "scope")
+        val controller = Robolectric.buildActivity(Activity::class.java).create().start().resume()
+        requireAuthenticationWithLockScreen(controller.get())
+
+        manager.getCredentials(callback)
+        controller.pause().stop().destroy()
+
+        verify(callback).onFailure(exceptionCaptor.capture())
+        MatcherAssert.assertThat(
+            exceptionCaptor.firstValue.message,
+            Is.`is`("The LockScreen was closed before its result was received.")
+        )
+
+        // The recreated activity requires authentication again, and shows the LockScreen on the next request
+        val recreated = Robolectric.buildActivity(Activity::class.java).create().start().resume()
+        requireAuthenticationWithLockScreen(recreated.get())
+        manager.getCredentials(callback)
+        MatcherAssert.assertThat(
+            Shadows.shadowOf(recreated.get()).nextStartedActivityForResult,
+            Is.`is`(Matchers.notNullValue())
+        )
+        MatcherAssert.assertThat(
+            Shadows.shadowOf(controller.get()).nextStartedActivityForResult,
+            Is.`is`(Matchers.nullValue())
+        )
+    }
+
+    @Test
+    public fun shouldNotAllowNegativeAuthenticationValidity() {
+        assertThrows(IllegalArgumentException::class.java) {
+            manager.setAuthenticationValidity(-1)
+        }
+    }
+
+    /*
+     * Credentials listener tests
+     */
+    @Test
+    public fun shouldNotifyListenersWhenCredentialsAreSavedAndCleared() {
+        val listener = mock<CredentialsListener>()
+        val eventCaptor = argumentCaptor<CredentialsEvent>()
+        Mockito.`when`(crypto.encrypt(any())).thenReturn(byteArrayOf(12))
+        manager.addCredentialsListener(listener)
+        val expiresAt = Date(CredentialsMock.ONE_HOUR_AHEAD_MS)
+        manager.saveCredentials(
+            CredentialsMock("idToken", "accessToken", "type", "refreshToken", expiresAt, "scope")
+        )
+        manager.clearCredentials()
+
+        verify(listener, times(2)).onCredentialsChanged(eventCaptor.capture())
+        MatcherAssert.assertThat(eventCaptor.firstValue.type, Is.`is`(CredentialsEvent.Type.SAVED))
+        MatcherAssert.assertThat(eventCaptor.firstValue.expiresAt, Is.`is`(expiresAt))
+        MatcherAssert.assertThat(eventCaptor.secondValue.type, Is.`is`(CredentialsEvent.Type.CLEARED))
+    }
+
+    @Test
+    public fun shouldNotifyListenersWhenCredentialsAreRenewed() {
+        val listener = mock<CredentialsListener>()
+        val eventCaptor = argumentCaptor<CredentialsEvent>()
+        val expiresAt = Date(CredentialsMock.CURRENT_TIME_MS)
+        insertTestCredentials(false, true, true, expiresAt, "scope")
+        Mockito.`when`(client.renewAuth("refreshToken")).thenReturn(request)
+        val newDate = Date(CredentialsMock.ONE_HOUR_AHEAD_MS)
+        Mockito.`when`(request.execute())
+            .thenReturn(Credentials("newId", "newAccess", "newType", null, newDate, "scope"))
+        Mockito.`when`(crypto.encrypt(any())).thenReturn(byteArrayOf(12))
+        manager.addCredentialsListener(listener)
+        manager.getCredentials(callback)
+
+        verify(callback).onSuccess(any())
+        verify(listener).onCredentialsChanged(eventCaptor.capture())
+        MatcherAssert.assertThat(eventCaptor.firstValue.type, Is.`is`(CredentialsEvent.Type.RENEWED))
+        MatcherAssert.assertThat(eventCaptor.firstValue.expiresAt, Is.`is`(newDate))
+    }
+
+    @Test
+    public fun shouldNotifyExpiringSoonWhenTheScreenIsTurnedOnAfterTheDeviceSlept() {
+        val listener = mock<CredentialsListener>()
+        val eventCaptor = argumentCaptor<CredentialsEvent>()
+        val application = Robolectric.buildActivity(Activity::class.java).create().get().application
+        manager.applicationContext = application
+        Mockito.`when`(crypto.encrypt(any())).thenReturn(byteArrayOf(12))
+        manager.addCredentialsListener(listener)
+        val expiresAt = Date(CredentialsMock.ONE_HOUR_AHEAD_MS)
+        manager.saveCredentials(
+            CredentialsMock("idToken", "accessToken", "type", "refreshToken", expiresAt, "scope")
+        )
+        Shadows.shadowOf(Looper.getMainLooper()).idle()
+
+        // The main thread's clock doesn't advance while the device sleeps
+        Mockito.doReturn(SystemClock.elapsedRealtime() + ONE_HOUR_SECONDS * 1000).`when`(manager).elapsedRealtime
+        Shadows.shadowOf(Looper.getMainLooper()).idle()
+        verify(listener, times(1)).onCredentialsChanged(any())
+        application.sendBroadcast(Intent(Intent.ACTION_SCREEN_ON))
+        Shadows.shadowOf(Looper.getMainLooper()).idle()
+
+        verify(listener, times(2)).onCredentialsChanged(eventCaptor.capture())
+        MatcherAssert.assertThat(eventCaptor.secondValue.type, Is.`is`(CredentialsEvent.Type.EXPIRING_SOON))
+        MatcherAssert.assertThat(eventCaptor.secondValue.expiresAt, Is.`is`(expiresAt))
+    }
+
+    /*
+     * Credentials index tests
+     */
+    @Test
+    public fun shouldReadTheStorageOnlyOnceToCheckValidCredentials() {
+        insertTestCredentials(true, true, false, Date(CredentialsMock.ONE_HOUR_AHEAD_MS), "scope")
+        Mockito.`when`(storage.retrieveLong("com.auth0.credentials_access_token_expires_at"))
+            .thenReturn(CredentialsMock.ONE_HOUR_AHEAD_MS)
+        MatcherAssert.assertThat(manager.hasValidCredentials(), Is.`is`(true))
+        MatcherAssert.assertThat(manager.hasValidCredentials(ONE_HOUR_SECONDS - 1), Is.`is`(true))
+        MatcherAssert.assertThat(manager.hasValidCredentials(ONE_HOUR_SECONDS), Is.`is`(false))
+
+        verify(storage, times(1)).retrieveString("com.auth0.credentials")
+        verify(storage, times(1)).retrieveLong("com.auth0.credentials_access_token_expires_at")
+        verify(storage, times(1)).retrieveBoolean("com.auth0.credentials_can_refresh")
+        verifyNoMoreInteractions(storage)
+    }
+
+    @Test
+    public fun shouldKeepValidCredentialsCheckUpdatedWithoutReadingTheStorage() {
+        Mockito.`when`(crypto.encrypt(any())).thenReturn(byteArrayOf(12))
+        manager.saveCredentials(
+            CredentialsMock("idToken", "accessToken", "type", null, Date(CredentialsMock.ONE_HOUR_AHEAD_MS), "scope")
+        )
+        MatcherAssert.assertThat(manager.hasValidCredentials(), Is.`is`(true))
+        MatcherAssert.assertThat(manager.hasValidCredentials(ONE_HOUR_SECONDS), Is.`is`(false))
+        manager.clearCredentials()
+        MatcherAssert.assertThat(manager.hasValidCredentials(), Is.`is`(false))
+
+        verify(storage, never()).retrieveString(any())
+        verify(storage, never()).retrieveLong(any())
+        verify(storage, never()).retrieveBoolean(any())
+    }
+
     /*
      * Custom Clock
      */
@@ -1883,6 +2303,125 @@ public class SecureCredentialsManagerTest {
         assertTrue(Modifier.isSynchronized(method.modifiers))
     }
 
+    /*
+     * Single record storage tests
+     */
+    @Test
+    public fun shouldSaveCredentialsAsSingleRecord() {
+        manager.useSingleRecordStorage(true)
+        val expirationTime = CredentialsMock.ONE_HOUR_AHEAD_MS
+        val credentials: Credentials = CredentialsMock(
+            "idToken",
+            "accessToken",
+            "type",
+            "refreshToken",
+            Date(expirationTime),
+            "scope"
+        )
+        val json = gson.toJson(credentials)
+        val header = CredentialsEnvelope.header(expirationTime, true)
+        Mockito.`when`(crypto.encryptWithInlineIV(json.toByteArray(), header))
+            .thenReturn(json.toByteArray())
+        manager.saveCredentials(credentials)
+        verify(storage).store(eq("com.auth0.credentials_record"), stringCaptor.capture())
+        verify(storage).retrieveString("com.auth0.credentials")
+        verifyNoMoreInteractions(storage)
+        verify(crypto, never()).encrypt(any())
+        val record = CredentialsEnvelope.decode(stringCaptor.firstValue)
+        MatcherAssert.assertThat(record, Is.`is`(Matchers.notNullValue()))
+        MatcherAssert.assertThat(record!!.expiresAt, Is.`is`(expirationTime))
+        MatcherAssert.assertThat(record.canRefresh, Is.`is`(true))
+        val storedCredentials = gson.fromJson(String(record.payload), Credentials::class.java)
+        MatcherAssert.assertThat(storedCredentials.accessToken, Is.`is`("accessToken"))
+        MatcherAssert.assertThat(storedCredentials.refreshToken, Is.`is`("refreshToken"))
+    }
+
+    @Test
+    public fun shouldRemovePreviousFormatOnceWhenSavingSingleRecord() {
+        manager.useSingleRecordStorage(true)
+        val expiresAt = Date(CredentialsMock.ONE_HOUR_AHEAD_MS)
+        insertTestCredentials(true, true, false, expiresAt, "scope")
+        val credentials: Credentials =
+            CredentialsMock("idToken", "accessToken", "type", null, expiresAt, "scope")
+        Mockito.`when`(crypto.encryptWithInlineIV(any(), any())).thenReturn(byteArrayOf(1, 2, 3))
+        manager.saveCredentials(credentials)
+        manager.saveCredentials(credentials)
+        verify(storage, times(2)).store(eq("com.auth0.credentials_record"), anyString())
+        verify(storage, times(1)).retrieveString("com.auth0.credentials")
+        verify(storage).remove("com.auth0.credentials")
+        verify(storage).remove("com.auth0.credentials_expires_at")
+        verify(storage).remove("com.auth0.credentials_access_token_expires_at")
+        verify(storage).remove("com.auth0.credentials_can_refresh")
+        verifyNoMoreInteractions(storage)
+    }
+
+    @Test
+    public fun shouldCheckValidCredentialsFromSingleRecordHeaderOnly() {
+        val expired = CredentialsEnvelope(CredentialsMock.CURRENT_TIME_MS, false, byteArrayOf(1, 2, 3))
+        MatcherAssert.assertThat(singleRecordManager(expired).hasValidCredentials(), Is.`is`(false))
+
+        val refreshable = CredentialsEnvelope(CredentialsMock.CURRENT_TIME_MS, true, byteArrayOf(1, 2, 3))
+        MatcherAssert.assertThat(singleRecordManager(refreshable).hasValidCredentials(), Is.`is`(true))
+
+        val valid = CredentialsEnvelope(CredentialsMock.ONE_HOUR_AHEAD_MS, false, byteArrayOf(1, 2, 3))
+        val validManager = singleRecordManager(valid)
+        MatcherAssert.assertThat(validManager.hasValidCredentials(), Is.`is`(true))
+        MatcherAssert.assertThat(validManager.hasValidCredentials(ONE_HOUR_SECONDS * 2), Is.`is`(false))
+
+        verify(storage, times(3)).retrieveString("com.auth0.credentials_record")
+        verifyNoMoreInteractions(storage)
+    }
+
+    private fun singleRecordManager(record: CredentialsEnvelope): SecureCredentialsManager {
+        Mockito.`when`(storage.retrieveString("com.auth0.credentials_record"))
+            .thenReturn(record.encode())
+        val manager = SecureCredentialsManager(client, storage, crypto, jwtDecoder, serialExecutor)
+        manager.setClock(object : Clock {
+            override fun getCurrentTimeMillis(): Long = CredentialsMock.CURRENT_TIME_MS
+        })
+        manager.useSingleRecordStorage(true)
+        return manager
+    }
+
+    @Test
+    @ExperimentalCoroutinesApi
+    public fun shouldAwaitWarmUpOfEncryptionKeys(): Unit = runTest {
+        val elapsed = manager.awaitWarmUp()
+        verify(crypto).warmUp()
+        MatcherAssert.assertThat(elapsed, Matchers.greaterThanOrEqualTo(0L))
+        MatcherAssert.assertThat(manager.isReady, Is.`is`(true))
+    }
+
+    @Test
+    public fun shouldFailWarmUpOnIncompatibleDevice() {
+        val warmUpCallback = mock<Callback<Long, CredentialsManagerException>>()
+        Mockito.doThrow(IncompatibleDeviceException(null)).`when`(crypto).warmUp()
+        manager.warmUp(warmUpCallback)
+        verify(warmUpCallback).onFailure(exceptionCaptor.capture())
+        MatcherAssert.assertThat(exceptionCaptor.firstValue.isDeviceIncompatible, Is.`is`(true))
+        MatcherAssert.assertThat(manager.isReady, Is.`is`(false))
+    }
+
+    @Test
+    public fun shouldClearCredentialsWhenWarmUpRecreatesTheKeys() {
+        val warmUpCallback = mock<Callback<Long, CredentialsManagerException>>()
+        Mockito.doThrow(CryptoException("err", null)).`when`(crypto).warmUp()
+        manager.warmUp(warmUpCallback)
+        verify(warmUpCallback).onFailure(exceptionCaptor.capture())
+        MatcherAssert.assertThat(exceptionCaptor.firstValue.cause, IsInstanceOf.instanceOf(CryptoException::class.java))
+        verify(storage).remove("com.auth0.credentials")
+        MatcherAssert.assertThat(manager.isReady, Is.`is`(false))
+    }
+
+    @Test
+    public fun shouldBeReadyAfterReadingCredentials() {
+        val expiresAt = Date(CredentialsMock.ONE_HOUR_AHEAD_MS)
+        insertTestCredentials(true, true, true, expiresAt, "scope")
+        manager.getCredentials(callback)
+        verify(callback).onSuccess(any())
+        MatcherAssert.assertThat(manager.isReady, Is.`is`(true))
+    }
+
     /*
      * Helper methods
      */
@@ -1917,6 +2456,31 @@ public class SecureCredentialsManagerTest {
         return storedJson
     }
 
+    private fun prepareAuthenticationActivity(
+        activity: Activity = Mockito.spy(
+            Robolectric.buildActivity(Activity::class.java).create().get()
+        )
+    ): Activity {
+        val kService = mock<KeyguardManager>()
+        Mockito.`when`(activity.getSystemService(Context.KEYGUARD_SERVICE)).thenReturn(kService)
+        Mockito.`when`(kService.isKeyguardSecure).thenReturn(true)
+        Mockito.`when`(kService.createConfirmDeviceCredentialIntent("theTitle", "theDescription"))
+            .thenReturn(mock<Intent>())
+        manager.requireAuthentication(activity, 123, "theTitle", "theDescription")
+        return activity
+    }
+
+    /**
+     * Requires authentication from an activity that isn't mocked, so that its lifecycle is dispatched as usual.
+     */
+    private fun requireAuthenticationWithLockScreen(activity: Activity) {
+        val keyguardManager = activity.getSystemService(Context.KEYGUARD_SERVICE) as KeyguardManager
+        Shadows.shadowOf(keyguardManager).setIsKeyguardSecure(true)
+        Shadows.shadowOf(keyguardManager).setIsDeviceSecure(true)
+        val required = manager.requireAuthentication(activity, 123, "theTitle", "theDescription")
+        MatcherAssert.assertThat(required, Is.`is`(true))
+    }
+
     private fun prepareJwtDecoderMock(expiresAt: Date?) {
         val jwtMock = mock<Jwt>()
         Mockito.`when`(jwtMock.expiresAt).thenReturn(expiresAt)
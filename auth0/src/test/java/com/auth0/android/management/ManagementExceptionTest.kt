@@ -1,10 +1,13 @@
 package com.auth0.android.management
 
+import com.auth0.android.Auth0Exception
 import com.auth0.android.NetworkErrorException
 import org.hamcrest.CoreMatchers
 import org.hamcrest.MatcherAssert
 import org.junit.Test
 import java.io.IOException
+import java.net.SocketTimeoutException
+import java.net.UnknownHostException
 
 public class ManagementExceptionTest {
     @Test
@@ -22,4 +25,24 @@ public class ManagementExceptionTest {
         )
         MatcherAssert.assertThat(ex.isNetworkError, CoreMatchers.`is`(true))
     }
-}
\ No newline at end of file
+
+    @Test
+    public fun shouldHaveNetworkErrorWhenTheServerCantBeReached() {
+        val unknownHost = ManagementException(
+            "Something went wrong", Auth0Exception("Something went wrong", UnknownHostException())
+        )
+        val timeout = ManagementException(
+            "Something went wrong", Auth0Exception("Something went wrong", SocketTimeoutException())
+        )
+        MatcherAssert.assertThat(unknownHost.isNetworkError, CoreMatchers.`is`(true))
+        MatcherAssert.assertThat(timeout.isNetworkError, CoreMatchers.`is`(true))
+    }
+
+    @Test
+    public fun shouldNotHaveNetworkErrorWhenTheResponseCantBeParsed() {
+        val ex = ManagementException(
+            "Something went wrong", Auth0Exception("Something went wrong", IOException("Malformed JSON"))
+        )
+        MatcherAssert.assertThat(ex.isNetworkError, CoreMatchers.`is`(false))
+    }
+}
@@ -0,0 +1,258 @@
+package com.auth0.android.management
+
+import com.auth0.android.Auth0
+import com.auth0.android.Auth0Exception
+import com.auth0.android.authentication.storage.Storage
+import com.auth0.android.request.Request
+import com.auth0.android.request.internal.ExponentialBackoff
+import com.auth0.android.result.UserProfile
+import com.auth0.android.util.SSLTestUtils
+import com.auth0.android.util.UsersAPIMockServer
+import com.google.gson.JsonParseException
+import com.nhaarman.mockitokotlin2.*
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.`is`
+import org.hamcrest.Matchers.greaterThan
+import org.hamcrest.Matchers.nullValue
+import org.junit.Assert.assertThrows
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.net.SocketTimeoutException
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
+
+@RunWith(RobolectricTestRunner::class)
+public class MetadataUpdateBufferTest {
+
+    private lateinit var client: UsersAPIClient
+    private lateinit var storage: Storage
+    private lateinit var request: Request<UserProfile, ManagementException>
+    private lateinit var executor: ScheduledExecutorService
+    private val scheduled = mutableListOf<Pair<Runnable, Long>>()
+    private var now = 0L
+
+    @Before
+    public fun setUp() {
+        client = mock()
+        storage = mock()
+        request = mock()
+        executor = mock()
+        whenever(client.updateMetadata(any(), any())).thenReturn(request)
+        whenever(executor.schedule(any<Runnable>(), any(), any())).thenAnswer {
+            scheduled.add(it.getArgument<Runnable>(0) to it.getArgument<Long>(1))
+            mock<ScheduledFuture<Any>>()
+        }
+    }
+
+    @Test
+    public fun shouldMergeUpdatesOfTheSameUser() {
+        val buffer = createBuffer()
+        buffer.updateMetadata("userId", mapOf("theme" to "dark", "notifications" to true))
+        buffer.updateMetadata("userId", mapOf("theme" to "light", "language" to null))
+        assertThat(scheduled.last().second, `is`(DEBOUNCE_MILLIS))
+        verifyNoInteractions(client)
+
+        runLastScheduled()
+        verify(client, times(1)).updateMetadata(
+            "userId",
+            mapOf("theme" to "light", "notifications" to true, "language" to null)
+        )
+        verify(request, times(1)).execute()
+        assertThat(buffer.hasPendingUpdates, `is`(false))
+        verify(storage).remove(KEY_PENDING_UPDATES)
+    }
+
+    @Test
+    public fun shouldSendTheRemovedKeysAsNullValues() {
+        val mockAPI = UsersAPIMockServer()
+        try {
+            mockAPI.willReturnUserProfile()
+            val auth0 = Auth0("CLIENTID", mockAPI.domain, mockAPI.domain)
+            auth0.networkingClient = SSLTestUtils.testClient
+            client = UsersAPIClient(auth0, "token")
+            val buffer = createBuffer()
+            buffer.updateMetadata("userId", mapOf("theme" to "dark"))
+            buffer.updateMetadata("userId", mapOf("language" to null))
+
+            runLastScheduled()
+            val request = mockAPI.takeRequest()
+            assertThat(
+                request.body.readUtf8(),
+                `is`("{\"user_metadata\":{\"theme\":\"dark\",\"language\":null}}")
+            )
+        } finally {
+            mockAPI.shutdown()
+        }
+    }
+
+    @Test
+    public fun shouldSendTheUpdatesOfEachUserSeparately() {
+        val buffer = createBuffer()
+        buffer.updateMetadata("firstUser", mapOf("theme" to "dark"))
+        buffer.updateMetadata("secondUser", mapOf("theme" to "light"))
+
+        runLastScheduled()
+        verify(client).updateMetadata("firstUser", mapOf("theme" to "dark"))
+        verify(client).updateMetadata("secondUser", mapOf("theme" to "light"))
+    }
+
+    @Test
+    public fun shouldPersistThePendingUpdates() {
+        val buffer = createBuffer()
+        buffer.updateMetadata("userId", mapOf("theme" to "dark", "language" to null))
+        verify(storage).store(KEY_PENDING_UPDATES, "{\"userId\":{\"theme\":\"dark\",\"language\":null}}")
+        assertThat(buffer.getPendingMetadata("userId"), `is`(mapOf<String, Any?>("theme" to "dark", "language" to null)))
+        assertThat(buffer.getPendingMetadata("otherUser"), `is`(nullValue()))
+    }
+
+    @Test
+    public fun shouldSendTheUpdatesLeftPending() {
+        whenever(storage.retrieveString(KEY_PENDING_UPDATES))
+            .thenReturn("{\"userId\":{\"theme\":\"dark\",\"volume\":7,\"language\":null}}")
+        val buffer = createBuffer()
+        assertThat(buffer.hasPendingUpdates, `is`(true))
+        assertThat(scheduled.single().second, `is`(0L))
+
+        runLastScheduled()
+        verify(client).updateMetadata("userId", mapOf("theme" to "dark", "volume" to 7L, "language" to null))
+        assertThat(buffer.hasPendingUpdates, `is`(false))
+    }
+
+    @Test
+    public fun shouldDiscardUnreadablePendingUpdates() {
+        whenever(storage.retrieveString(KEY_PENDING_UPDATES)).thenReturn("[")
+        val buffer = createBuffer()
+        assertThat(buffer.hasPendingUpdates, `is`(false))
+        verify(storage).remove(KEY_PENDING_UPDATES)
+        verify(executor, never()).schedule(any<Runnable>(), any(), any<TimeUnit>())
+    }
+
+    @Test
+    public fun shouldSendImmediatelyWhenFlushed() {
+        val buffer = createBuffer()
+        buffer.updateMetadata("userId", mapOf("theme" to "dark"))
+        buffer.flush()
+        assertThat(scheduled.last().second, `is`(0L))
+    }
+
+    @Test
+    public fun shouldRetryWithIncreasingDelayWhileOffline() {
+        val buffer = createBuffer()
+        whenever(request.execute())
+            .thenThrow(ManagementException("Something went wrong", Auth0Exception("Something went wrong", SocketTimeoutException())))
+            .thenThrow(ManagementException(mapOf("error" to "Too Many Requests"), 429))
+            .thenReturn(mock())
+        buffer.updateMetadata("userId", mapOf("theme" to "dark"))
+
+        runLastScheduled()
+        val firstDelay = scheduled.last().second
+        assertThat(firstDelay, greaterThan(0L))
+        runLastScheduled()
+        assertThat(scheduled.last().second, greaterThan(firstDelay))
+        assertThat(buffer.hasPendingUpdates, `is`(true))
+        runLastScheduled()
+        assertThat(buffer.hasPendingUpdates, `is`(false))
+        verify(request, times(3)).execute()
+    }
+
+    @Test
+    public fun shouldNotPostponeTheFlushPastTheMaximumWait() {
+        val buffer = createBuffer()
+        buffer.updateMetadata("userId", mapOf("volume" to 1))
+        assertThat(scheduled.last().second, `is`(DEBOUNCE_MILLIS))
+
+        now += 4 * DEBOUNCE_MILLIS
+        buffer.updateMetadata("userId", mapOf("volume" to 2))
+        assertThat(scheduled.last().second, `is`(DEBOUNCE_MILLIS))
+        now += DEBOUNCE_MILLIS / 2
+        buffer.updateMetadata("userId", mapOf("volume" to 3))
+        assertThat(scheduled.last().second, `is`(DEBOUNCE_MILLIS / 2))
+        now += DEBOUNCE_MILLIS
+        buffer.updateMetadata("userId", mapOf("volume" to 4))
+        assertThat(scheduled.last().second, `is`(0L))
+
+        runLastScheduled()
+        buffer.updateMetadata("userId", mapOf("volume" to 5))
+        assertThat(scheduled.last().second, `is`(DEBOUNCE_MILLIS))
+    }
+
+    @Test
+    public fun shouldDropUpdatesThatFailedWithoutReachingTheServer() {
+        val buffer = createBuffer()
+        whenever(request.execute())
+            .thenThrow(ManagementException("Something went wrong", Auth0Exception("Something went wrong", JsonParseException("Malformed"))))
+        buffer.updateMetadata("userId", mapOf("theme" to "dark"))
+
+        runLastScheduled()
+        assertThat(buffer.hasPendingUpdates, `is`(false))
+        assertThat(scheduled.size, `is`(0))
+    }
+
+    @Test
+    public fun shouldNotPostponeTheRetryWithNewUpdates() {
+        val buffer = createBuffer()
+        whenever(request.execute()).thenThrow(ManagementException("Service Unavailable", 503)).thenReturn(mock())
+        buffer.updateMetadata("userId", mapOf("theme" to "dark"))
+        runLastScheduled()
+        val retry = scheduled.single()
+
+        buffer.updateMetadata("userId", mapOf("language" to "en"))
+        assertThat(scheduled.single(), `is`(retry))
+        runLastScheduled()
+        verify(client).updateMetadata("userId", mapOf("theme" to "dark", "language" to "en"))
+        assertThat(buffer.hasPendingUpdates, `is`(false))
+    }
+
+    @Test
+    public fun shouldKeepTheValuesUpdatedWhileSending() {
+        val buffer = createBuffer()
+        buffer.updateMetadata("userId", mapOf("theme" to "dark", "language" to "en"))
+        whenever(request.execute()).thenAnswer {
+            buffer.updateMetadata("userId", mapOf("theme" to "light"))
+            mock<UserProfile>()
+        }
+
+        runLastScheduled()
+        assertThat(buffer.getPendingMetadata("userId"), `is`(mapOf<String, Any?>("theme" to "light")))
+        assertThat(scheduled.single().second, `is`(DEBOUNCE_MILLIS))
+    }
+
+    @Test
+    public fun shouldDropUpdatesRejectedByTheServer() {
+        val buffer = createBuffer()
+        whenever(request.execute()).thenThrow(ManagementException(mapOf("error" to "Bad Request"), 400))
+        buffer.updateMetadata("userId", mapOf("theme" to "dark"))
+
+        runLastScheduled()
+        assertThat(buffer.hasPendingUpdates, `is`(false))
+        assertThat(scheduled.size, `is`(0))
+        verify(storage).remove(KEY_PENDING_UPDATES)
+    }
+
+    @Test
+    public fun shouldRejectNegativeDebounceInterval() {
+        assertThrows(IllegalArgumentException::class.java) {
+            MetadataUpdateBuffer(client, storage, -1)
+        }
+    }
+
+    private fun createBuffer(): MetadataUpdateBuffer {
+        return MetadataUpdateBuffer(
+            client, storage, DEBOUNCE_MILLIS, executor, ExponentialBackoff(1000, 60000), 5 * DEBOUNCE_MILLIS
+        ) { now }
+    }
+
+    private fun runLastScheduled() {
+        val (runnable, _) = scheduled.last()
+        scheduled.clear()
+        runnable.run()
+    }
+
+    private companion object {
+        private const val KEY_PENDING_UPDATES = "com.auth0.pending_metadata_updates"
+        private const val DEBOUNCE_MILLIS = 2000L
+    }
+}
@@ -319,6 +319,21 @@ public class UsersAPIClientTest {
         )
     }
 
+    @Test
+    public fun shouldSendTheNullValuesOfTheMetadata() {
+        mockAPI.willReturnUserProfile()
+        val metadata = linkedMapOf<String, Any?>("theme" to "dark", "language" to null)
+
+        client.updateMetadata(USER_ID_PRIMARY, metadata)
+            .execute()
+
+        val request = mockAPI.takeRequest()
+        assertThat(
+            request.body.readUtf8(),
+            Matchers.equalTo("{\"user_metadata\":{\"theme\":\"dark\",\"language\":null}}")
+        )
+    }
+
     @Test
     public fun shouldUpdateUserMetadataSync() {
         mockAPI.willReturnUserProfile()
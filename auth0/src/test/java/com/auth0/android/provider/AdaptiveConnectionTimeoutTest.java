@@ -0,0 +1,70 @@
+package com.auth0.android.provider;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class AdaptiveConnectionTimeoutTest {
+
+    @Test
+    public void shouldUseTheMaximumUntilAConnectionIsRecorded() {
+        AdaptiveConnectionTimeout timeout = new AdaptiveConnectionTimeout(100, 1000);
+        assertThat(timeout.getTimeoutMillis(), is(1000L));
+    }
+
+    @Test
+    public void shouldWaitAMultipleOfTheAverageConnectionTime() {
+        AdaptiveConnectionTimeout timeout = new AdaptiveConnectionTimeout(100, 1000);
+        timeout.recordConnection(200);
+        assertThat(timeout.getTimeoutMillis(), is(600L));
+    }
+
+    @Test
+    public void shouldSmoothTheRecordedConnectionTimes() {
+        AdaptiveConnectionTimeout timeout = new AdaptiveConnectionTimeout(0, 1000);
+        timeout.recordConnection(100);
+        timeout.recordConnection(200);
+        //0.3 * 200 + 0.7 * 100 = 130
+        assertThat(timeout.getTimeoutMillis(), is(390L));
+    }
+
+    @Test
+    public void shouldNotWaitLessThanTheMinimum() {
+        AdaptiveConnectionTimeout timeout = new AdaptiveConnectionTimeout(100, 1000);
+        timeout.recordConnection(5);
+        assertThat(timeout.getTimeoutMillis(), is(100L));
+    }
+
+    @Test
+    public void shouldNotWaitMoreThanTheMaximum() {
+        AdaptiveConnectionTimeout timeout = new AdaptiveConnectionTimeout(100, 1000);
+        timeout.recordConnection(800);
+        assertThat(timeout.getTimeoutMillis(), is(1000L));
+    }
+
+    @Test
+    public void shouldCapSlowConnectionsToTheMaximum() {
+        AdaptiveConnectionTimeout timeout = new AdaptiveConnectionTimeout(0, 1000);
+        timeout.recordConnection(100);
+        timeout.recordConnection(60000);
+        //0.3 * 1000 + 0.7 * 100 = 370
+        assertThat(timeout.getTimeoutMillis(), is(1000L));
+        timeout.recordConnection(100);
+        //0.3 * 100 + 0.7 * 370 = 289
+        assertThat(timeout.getTimeoutMillis(), is(867L));
+    }
+
+    @Test
+    public void shouldStartOverOnReset() {
+        AdaptiveConnectionTimeout timeout = new AdaptiveConnectionTimeout(100, 1000);
+        timeout.recordConnection(100);
+        timeout.reset();
+        assertThat(timeout.getTimeoutMillis(), is(1000L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAllowAMaximumLowerThanTheMinimum() {
+        new AdaptiveConnectionTimeout(1000, 100);
+    }
+}
@@ -7,12 +7,16 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 
+import java.security.InvalidKeyException;
 import java.security.PublicKey;
 
 import static com.auth0.android.provider.JwtTestUtils.createJWTBody;
 import static com.auth0.android.provider.JwtTestUtils.createTestJWT;
+import static com.auth0.android.provider.JwtTestUtils.getECKeyPair;
 import static com.auth0.android.provider.JwtTestUtils.getPublicKey;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 @RunWith(RobolectricTestRunner.class)
 public class AsymmetricSignatureVerifierTest {
@@ -20,7 +24,7 @@ public class AsymmetricSignatureVerifierTest {
     @Test
     public void sameInstanceCanVerifyMultipleTokens() throws Exception {
         PublicKey publicKey = getPublicKey();
-        AsymmetricSignatureVerifier verifier = new AsymmetricSignatureVerifier(publicKey);
+        AsymmetricSignatureVerifier verifier = new AsymmetricSignatureVerifier(publicKey, "RS256");
 
         String signedToken1 = createTestJWT("RS256", createJWTBody("iss"));
         String signedToken2 = createTestJWT("RS256", createJWTBody("sub"));
@@ -36,7 +40,7 @@ public class AsymmetricSignatureVerifierTest {
         String message = "Invalid ID token signature.";
         Exception e = Assert.assertThrows(message, InvalidIdTokenSignatureException.class, () -> {
             PublicKey publicKey = getPublicKey();
-            AsymmetricSignatureVerifier verifier = new AsymmetricSignatureVerifier(publicKey);
+            AsymmetricSignatureVerifier verifier = new AsymmetricSignatureVerifier(publicKey, "RS256");
 
             String signedToken = createTestJWT("RS256", createJWTBody());
             //remove signature
@@ -54,7 +58,7 @@ public class AsymmetricSignatureVerifierTest {
         String message = "Signature algorithm of \"none\" is not supported. Expected the ID token to be signed with RS256.";
         Exception e = Assert.assertThrows(message, IdTokenAlgorithmNotSupportedException.class, () -> {
             PublicKey publicKey = getPublicKey();
-            AsymmetricSignatureVerifier verifier = new AsymmetricSignatureVerifier(publicKey);
+            AsymmetricSignatureVerifier verifier = new AsymmetricSignatureVerifier(publicKey, "RS256");
 
             String noneToken = createTestJWT("none", createJWTBody());
 
@@ -69,7 +73,7 @@ public class AsymmetricSignatureVerifierTest {
         String message = "Signature algorithm of \"HS256\" is not supported. Expected the ID token to be signed with RS256.";
         Exception e = Assert.assertThrows(message, IdTokenAlgorithmNotSupportedException.class, () -> {
             PublicKey publicKey = getPublicKey();
-            AsymmetricSignatureVerifier verifier = new AsymmetricSignatureVerifier(publicKey);
+            AsymmetricSignatureVerifier verifier = new AsymmetricSignatureVerifier(publicKey, "RS256");
 
             String hsToken = createTestJWT("HS256", createJWTBody());
 
@@ -78,4 +82,111 @@ public class AsymmetricSignatureVerifierTest {
         assertEquals("com.auth0.android.provider.TokenValidationException: " + message, e.toString());
         assertEquals(message, e.getMessage());
     }
+
+    @Test
+    public void shouldVerifyPS256Tokens() throws Exception {
+        AsymmetricSignatureVerifier verifier = new AsymmetricSignatureVerifier(getPublicKey(), "PS256");
+
+        verifier.verify(new Jwt(createTestJWT("PS256", createJWTBody())));
+        verifier.verify(new Jwt(createTestJWT("PS256", createJWTBody("sub"))));
+    }
+
+    @Test
+    public void shouldVerifyES256Tokens() throws Exception {
+        AsymmetricSignatureVerifier verifier = new AsymmetricSignatureVerifier(getECKeyPair().getPublic(), "ES256");
+
+        verifier.verify(new Jwt(createTestJWT("ES256", createJWTBody())));
+        verifier.verify(new Jwt(createTestJWT("ES256", createJWTBody("sub"))));
+    }
+
+    @Test
+    public void shouldVerifyTokensFromDifferentThreads() throws Exception {
+        final AsymmetricSignatureVerifier verifier = new AsymmetricSignatureVerifier(getPublicKey(), "RS256");
+        final String signedToken = createTestJWT("RS256", createJWTBody());
+        final Exception[] failure = new Exception[1];
+        Thread thread = new Thread(() -> {
+            try {
+                verifier.verify(new Jwt(signedToken));
+            } catch (Exception e) {
+                failure[0] = e;
+            }
+        });
+        thread.start();
+        thread.join();
+
+        verifier.verify(new Jwt(signedToken));
+        assertNull(failure[0]);
+    }
+
+    @Test
+    public void shouldKeepVerifyingAfterAnInvalidSignature() throws Exception {
+        AsymmetricSignatureVerifier verifier = new AsymmetricSignatureVerifier(getPublicKey(), "RS256");
+        String signedToken = createTestJWT("RS256", createJWTBody());
+        String[] parts = signedToken.split("\\.");
+
+        Assert.assertThrows(InvalidIdTokenSignatureException.class, () ->
+                verifier.verify(new Jwt(parts[0] + "." + parts[1] + ".unexpected-signature")));
+        verifier.verify(new Jwt(signedToken));
+    }
+
+    @Test
+    public void shouldThrowWhenES256SignatureHasAnInvalidLength() {
+        Assert.assertThrows(InvalidIdTokenSignatureException.class, () -> {
+            AsymmetricSignatureVerifier verifier = new AsymmetricSignatureVerifier(getECKeyPair().getPublic(), "ES256");
+            String signedToken = createTestJWT("ES256", createJWTBody());
+            verifier.verify(new Jwt(signedToken.substring(0, signedToken.length() - 4)));
+        });
+    }
+
+    @Test
+    public void shouldThrowWhenRS256IsUsedWithAnECKey() {
+        String message = "Signature algorithm of \"RS256\" is not supported. Expected the ID token to be signed with ES256.";
+        Exception e = Assert.assertThrows(message, IdTokenAlgorithmNotSupportedException.class, () -> {
+            AsymmetricSignatureVerifier verifier = new AsymmetricSignatureVerifier(getECKeyPair().getPublic(), "ES256");
+            verifier.verify(new Jwt(createTestJWT("RS256", createJWTBody())));
+        });
+        assertEquals(message, e.getMessage());
+    }
+
+    @Test
+    public void shouldOnlyAcceptTheAlgorithmDeclaredForTheKey() throws Exception {
+        AsymmetricSignatureVerifier rs256Verifier = new AsymmetricSignatureVerifier(getPublicKey(), "RS256");
+        AsymmetricSignatureVerifier ps256Verifier = new AsymmetricSignatureVerifier(getPublicKey(), "PS256");
+
+        Exception e = Assert.assertThrows(IdTokenAlgorithmNotSupportedException.class, () ->
+                rs256Verifier.verify(new Jwt(createTestJWT("PS256", createJWTBody()))));
+        assertEquals("Signature algorithm of \"PS256\" is not supported. Expected the ID token to be signed with RS256.", e.getMessage());
+        e = Assert.assertThrows(IdTokenAlgorithmNotSupportedException.class, () ->
+                ps256Verifier.verify(new Jwt(createTestJWT("RS256", createJWTBody()))));
+        assertEquals("Signature algorithm of \"RS256\" is not supported. Expected the ID token to be signed with PS256.", e.getMessage());
+    }
+
+    @Test
+    public void shouldThrowWhenTheKeyDoesNotMatchItsAlgorithm() {
+        Assert.assertThrows(InvalidKeyException.class, () -> new AsymmetricSignatureVerifier(getPublicKey(), "ES256"));
+        Assert.assertThrows(InvalidKeyException.class, () -> new AsymmetricSignatureVerifier(getECKeyPair().getPublic(), "RS256"));
+        Assert.assertThrows(InvalidKeyException.class, () -> new AsymmetricSignatureVerifier(getPublicKey(), "HS256"));
+    }
+
+    @Test
+    public void shouldThrowWhenTheKeyIsMissing() {
+        Assert.assertThrows(InvalidKeyException.class, () -> new AsymmetricSignatureVerifier(null, "RS256"));
+    }
+
+    @Test
+    public void shouldConvertJwsSignaturesToDer() throws Exception {
+        byte[] jws = new byte[64];
+        jws[0] = (byte) 0x80; // R needs a leading zero to stay positive
+        jws[63] = 0x01; // S is 1, so its leading zeros are dropped
+        byte[] der = AsymmetricSignatureVerifier.toDerSignature(jws);
+
+        assertNotNull(der);
+        assertEquals(0x30, der[0]);
+        assertEquals(2 + 33 + 2 + 1, der[1]);
+        assertEquals(33, der[3]);
+        assertEquals(0, der[4]);
+        assertEquals(1, der[der.length - 2]);
+        assertEquals(1, der[der.length - 1]);
+        assertNull(AsymmetricSignatureVerifier.toDerSignature(new byte[63]));
+    }
 }
\ No newline at end of file
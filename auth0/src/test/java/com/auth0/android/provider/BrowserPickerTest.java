@@ -3,6 +3,7 @@ package com.auth0.android.provider;
 import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.pm.ActivityInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
@@ -12,12 +13,17 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.test.espresso.intent.matcher.IntentMatchers;
 
+import com.auth0.android.request.internal.ThreadSwitcherShadow;
+
 import org.hamcrest.MatcherAssert;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.hamcrest.MockitoHamcrest;
 import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -30,9 +36,13 @@ import static org.hamcrest.Matchers.isOneOf;
 import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.core.IsNull.notNullValue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.robolectric.Robolectric.setupActivity;
 
@@ -57,10 +67,17 @@ public class BrowserPickerTest {
     @Before
     public void setUp() {
         activity = spy(setupActivity(Activity.class));
+        //The cache listens to package changes on the application context
+        doReturn(activity).when(activity).getApplicationContext();
         allBrowserPicker = BrowserPicker.newBuilder().build();
         filteredBrowserPicker = BrowserPicker.newBuilder().withAllowedPackages(PACKAGES_TO_FILTER_FROM).build();
     }
 
+    @After
+    public void tearDown() {
+        BrowserResolutionCache.getInstance().reset();
+    }
+
 
     // ********************************************************************************
     // ************************* Parcelable implementation ****************************
@@ -317,6 +334,112 @@ public class BrowserPickerTest {
         MatcherAssert.assertThat(bestPackage, is(CUSTOM_BROWSER_1));
     }
 
+    // ********************************************************************************
+    // ******************************* Cached choice **********************************
+    // ********************************************************************************
+
+    @Test
+    public void shouldResolveOnEveryCallWhenNotPrefetched() {
+        setupBrowserContext(activity, ALL_BROWSERS, null, CHROME_STABLE);
+        PackageManager pm = activity.getPackageManager();
+        allBrowserPicker.getBestBrowserPackage(pm);
+        allBrowserPicker.getBestBrowserPackage(pm);
+
+        verify(pm, times(2)).queryIntentActivities(any(Intent.class), anyInt());
+    }
+
+    @Test
+    @Config(shadows = ThreadSwitcherShadow.class)
+    public void shouldReuseThePrefetchedChoice() {
+        setupBrowserContext(activity, ALL_BROWSERS, null, CHROME_STABLE);
+        PackageManager pm = activity.getPackageManager();
+        allBrowserPicker.prefetch(activity);
+        verify(pm).queryIntentActivities(any(Intent.class), anyInt());
+
+        assertThat(allBrowserPicker.getBestBrowserPackage(pm), is(CHROME_STABLE));
+        assertThat(BrowserPicker.newBuilder().build().getBestBrowserPackage(pm), is(CHROME_STABLE));
+        verify(pm, times(1)).queryIntentActivities(any(Intent.class), anyInt());
+    }
+
+    @Test
+    @Config(shadows = ThreadSwitcherShadow.class)
+    public void shouldKeepAChoicePerConfiguration() {
+        setupBrowserContext(activity, ALL_BROWSERS, null, CHROME_STABLE);
+        PackageManager pm = activity.getPackageManager();
+        allBrowserPicker.prefetch(activity);
+        filteredBrowserPicker.prefetch(activity);
+
+        assertThat(allBrowserPicker.getBestBrowserPackage(pm), is(CHROME_STABLE));
+        assertThat(filteredBrowserPicker.getBestBrowserPackage(pm), is(CUSTOM_BROWSER_1));
+        verify(pm, times(2)).queryIntentActivities(any(Intent.class), anyInt());
+    }
+
+    @Test
+    @Config(shadows = ThreadSwitcherShadow.class)
+    public void shouldKeepAChoiceWithoutBrowser() {
+        setupBrowserContext(activity, Collections.emptyList(), null, null);
+        PackageManager pm = activity.getPackageManager();
+        allBrowserPicker.prefetch(activity);
+
+        assertThat(allBrowserPicker.getBestBrowserPackage(pm), is(nullValue()));
+        verify(pm, times(1)).queryIntentActivities(any(Intent.class), anyInt());
+    }
+
+    @Test
+    @Config(shadows = ThreadSwitcherShadow.class)
+    public void shouldResolveTheChoiceAgainWhenPackagesChange() {
+        setupBrowserContext(activity, ALL_BROWSERS, null, CHROME_STABLE);
+        PackageManager pm = activity.getPackageManager();
+        allBrowserPicker.prefetch(activity);
+        assertThat(allBrowserPicker.getBestBrowserPackage(pm), is(CHROME_STABLE));
+
+        //The default browser is uninstalled
+        ResolveInfo newDefault = mock(ResolveInfo.class);
+        newDefault.activityInfo = new ActivityInfo();
+        newDefault.activityInfo.packageName = CUSTOM_BROWSER_2;
+        when(pm.resolveActivity(any(Intent.class), eq(PackageManager.MATCH_DEFAULT_ONLY))).thenReturn(newDefault);
+        BrowserResolutionCache.getInstance().onReceive(activity, new Intent(Intent.ACTION_PACKAGE_REMOVED));
+
+        //Resolved again in the background
+        verify(pm, times(2)).queryIntentActivities(any(Intent.class), anyInt());
+        assertThat(allBrowserPicker.getBestBrowserPackage(pm), is(CUSTOM_BROWSER_2));
+        verify(pm, times(2)).queryIntentActivities(any(Intent.class), anyInt());
+    }
+
+    @Test
+    @Config(shadows = ThreadSwitcherShadow.class)
+    public void shouldResolveTheChoiceAgainWhenTheDefaultBrowserChanges() {
+        setupBrowserContext(activity, ALL_BROWSERS, null, CHROME_STABLE);
+        PackageManager pm = activity.getPackageManager();
+        allBrowserPicker.prefetch(activity);
+        assertThat(allBrowserPicker.getBestBrowserPackage(pm), is(CHROME_STABLE));
+
+        //The user picks another default browser, which isn't broadcast
+        ResolveInfo newDefault = mock(ResolveInfo.class);
+        newDefault.activityInfo = new ActivityInfo();
+        newDefault.activityInfo.packageName = CUSTOM_BROWSER_2;
+        when(pm.resolveActivity(any(Intent.class), eq(PackageManager.MATCH_DEFAULT_ONLY))).thenReturn(newDefault);
+
+        assertThat(allBrowserPicker.getBestBrowserPackage(pm), is(CUSTOM_BROWSER_2));
+        assertThat(allBrowserPicker.getBestBrowserPackage(pm), is(CUSTOM_BROWSER_2));
+        verify(pm, times(2)).queryIntentActivities(any(Intent.class), anyInt());
+    }
+
+    @Test
+    @Config(shadows = ThreadSwitcherShadow.class)
+    public void shouldListenToPackageChangesOncePrefetched() {
+        setupBrowserContext(activity, ALL_BROWSERS, null, CHROME_STABLE);
+        allBrowserPicker.prefetch(activity);
+        filteredBrowserPicker.prefetch(activity);
+
+        ArgumentCaptor<IntentFilter> filterCaptor = ArgumentCaptor.forClass(IntentFilter.class);
+        verify(activity, times(1)).registerReceiver(eq(BrowserResolutionCache.getInstance()), filterCaptor.capture());
+        IntentFilter filter = filterCaptor.getValue();
+        assertThat(filter.hasAction(Intent.ACTION_PACKAGE_ADDED), is(true));
+        assertThat(filter.hasAction(Intent.ACTION_PACKAGE_REMOVED), is(true));
+        assertThat(filter.hasAction(Intent.ACTION_PACKAGE_CHANGED), is(true));
+        assertThat(filter.hasDataScheme("package"), is(true));
+    }
 
     /**
      * Sets up a given context for using browsers with Custom Tabs.
@@ -18,6 +18,7 @@ import androidx.browser.customtabs.CustomTabsSession;
 import androidx.browser.trusted.TrustedWebActivityDisplayMode;
 import androidx.browser.trusted.TrustedWebActivityIntentBuilder;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -30,7 +31,11 @@ import org.powermock.api.mockito.PowerMockito;
 import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import static androidx.test.espresso.intent.matcher.IntentMatchers.hasFlag;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -42,13 +47,16 @@ import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.Is.isA;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -80,6 +88,8 @@ public class CustomTabsControllerTest {
     private ThreadSwitcher mockThreadSwitcher;
 
     private CustomTabsController controller;
+    private final List<Runnable> scheduledTasks = new ArrayList<>();
+    private final List<Long> scheduledDelays = new ArrayList<>();
 
 
     @Before
@@ -95,6 +105,12 @@ public class CustomTabsControllerTest {
         CustomTabsOptions ctOptions = CustomTabsOptions.newBuilder().withBrowserPicker(browserPicker).build();
 
         controller = new CustomTabsController(context, ctOptions, twaLauncher);
+        CustomTabsController.resetSharedState();
+    }
+
+    @After
+    public void tearDown() {
+        CustomTabsWarmer.INSTANCE.release();
     }
 
     @Test
@@ -151,6 +167,116 @@ public class CustomTabsControllerTest {
         assertThat(intent, not(hasFlag(Intent.FLAG_ACTIVITY_NO_HISTORY)));
     }
 
+    @Test
+    public void shouldLaunchUriWithTheWarmedUpSessionWithoutWaitingForTheService() throws Exception {
+        Context warmContext = mock(Context.class);
+        when(warmContext.getApplicationContext()).thenReturn(warmContext);
+        ArgumentCaptor<CustomTabsServiceConnection> warmConnectionCaptor = ArgumentCaptor.forClass(CustomTabsServiceConnection.class);
+        when(warmContext.bindService(any(Intent.class), warmConnectionCaptor.capture(), anyInt())).thenReturn(true);
+        CustomTabsWarmer.INSTANCE.warmUp(warmContext, DEFAULT_BROWSER_PACKAGE, uri);
+        serviceConnectionCaptor = warmConnectionCaptor;
+        connectBoundService();
+
+        bindService(controller, true);
+        controller.launchUri(uri, false, mockThreadSwitcher, null);
+
+        //The service bound by the controller never connects
+        verify(context, timeout(MAX_TEST_WAIT_TIME_MS)).startActivity(launchIntentCaptor.capture());
+        Intent intent = launchIntentCaptor.getValue();
+        assertThat(intent.getAction(), is(Intent.ACTION_VIEW));
+        assertThat(intent.getPackage(), is(DEFAULT_BROWSER_PACKAGE));
+        assertThat(intent.hasExtra(CustomTabsIntent.EXTRA_SESSION), is(true));
+        assertThat(intent.getData(), is(uri));
+    }
+
+    @Test
+    public void shouldWaitForTheServiceConnectionBeforeLaunching() throws Exception {
+        CustomTabsController controller = controllerWithExecutor(new AdaptiveConnectionTimeout());
+        bindService(controller, true);
+        controller.launchUri(uri, false, mockThreadSwitcher, null);
+
+        verify(context, never()).startActivity(any(Intent.class));
+        assertThat(scheduledDelays.size(), is(1));
+        assertThat(scheduledDelays.get(0), is(1000L));
+
+        connectBoundService();
+        verify(context).startActivity(launchIntentCaptor.capture());
+        Intent intent = launchIntentCaptor.getValue();
+        assertThat(intent.getPackage(), is(DEFAULT_BROWSER_PACKAGE));
+        assertThat(intent.getData(), is(uri));
+
+        BrowserLaunchMetrics metrics = WebAuthProvider.getLastBrowserLaunchMetrics();
+        assertThat(metrics, is(notNullValue()));
+        assertThat(metrics.getTimedOut(), is(false));
+        assertThat(metrics.getUsedWarmSession(), is(false));
+        assertThat(metrics.getLaunchedAsTwa(), is(false));
+        assertThat(metrics.getServiceConnectionMillis(), is(notNullValue()));
+        assertThat(metrics.getWaitMillis() <= metrics.getTotalMillis(), is(true));
+    }
+
+    @Test
+    public void shouldLaunchWithoutSessionWhenTheServiceConnectionTimesOut() throws Exception {
+        CustomTabsController controller = controllerWithExecutor(new AdaptiveConnectionTimeout());
+        bindService(controller, true);
+        controller.launchUri(uri, false, mockThreadSwitcher, null);
+        verify(context, never()).startActivity(any(Intent.class));
+
+        scheduledTasks.get(0).run();
+        verify(context).startActivity(launchIntentCaptor.capture());
+        assertThat(launchIntentCaptor.getValue().getData(), is(uri));
+        BrowserLaunchMetrics metrics = CustomTabsController.getLastLaunchMetrics();
+        assertThat(metrics.getTimedOut(), is(true));
+        assertThat(metrics.getServiceConnectionMillis(), is(nullValue()));
+
+        //A late connection doesn't launch the browser again
+        connectBoundService();
+        verify(context, times(1)).startActivity(any(Intent.class));
+    }
+
+    @Test
+    public void shouldLaunchRightAwayWhenTheServiceIsAlreadyConnected() throws Exception {
+        CustomTabsController controller = controllerWithExecutor(new AdaptiveConnectionTimeout());
+        bindService(controller, true);
+        connectBoundService();
+        controller.launchUri(uri, false, mockThreadSwitcher, null);
+
+        verify(context).startActivity(launchIntentCaptor.capture());
+        assertThat(launchIntentCaptor.getValue().getPackage(), is(DEFAULT_BROWSER_PACKAGE));
+        assertThat(scheduledTasks.isEmpty(), is(true));
+        assertThat(CustomTabsController.getLastLaunchMetrics().getWaitMillis(), is(0L));
+    }
+
+    @Test
+    public void shouldNotBindAgainWhenLaunching() {
+        CustomTabsController controller = controllerWithExecutor(new AdaptiveConnectionTimeout());
+        bindService(controller, true);
+        controller.launchUri(uri, false, mockThreadSwitcher, null);
+
+        verify(context, times(1)).bindService(any(Intent.class), any(ServiceConnection.class), anyInt());
+    }
+
+    @Test
+    public void shouldWaitForTheAdaptiveTimeout() {
+        AdaptiveConnectionTimeout connectionTimeout = new AdaptiveConnectionTimeout(100, 1000);
+        connectionTimeout.recordConnection(50);
+        CustomTabsController controller = controllerWithExecutor(connectionTimeout);
+        bindService(controller, true);
+        controller.launchUri(uri, false, mockThreadSwitcher, null);
+
+        assertThat(scheduledDelays.get(0), is(150L));
+    }
+
+    @Test
+    public void shouldRecordTheLaunchMetricsAsTwa() {
+        CustomTabsController controller = controllerWithExecutor(new AdaptiveConnectionTimeout());
+        controller.launchUri(uri, true, mockThreadSwitcher, null);
+
+        BrowserLaunchMetrics metrics = CustomTabsController.getLastLaunchMetrics();
+        assertThat(metrics.getLaunchedAsTwa(), is(true));
+        assertThat(metrics.getWaitMillis(), is(0L));
+        assertThat(metrics.getTimedOut(), is(false));
+    }
+
     @Test
     public void shouldBindAndLaunchUriAsTwa() throws Exception {
         bindService(controller, true);
@@ -324,6 +450,26 @@ public class CustomTabsControllerTest {
     //Helper Methods
 
     @SuppressWarnings("WrongConstant")
+    /**
+     * Creates a controller that runs its tasks on the calling thread and records the delayed ones.
+     */
+    private CustomTabsController controllerWithExecutor(AdaptiveConnectionTimeout connectionTimeout) {
+        ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(executor).execute(any(Runnable.class));
+        doAnswer(invocation -> {
+            scheduledTasks.add(invocation.getArgument(0));
+            scheduledDelays.add(invocation.getArgument(1));
+            return mock(ScheduledFuture.class);
+        }).when(executor).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        BrowserPicker browserPicker = mock(BrowserPicker.class);
+        when(browserPicker.getBestBrowserPackage(context.getPackageManager())).thenReturn(DEFAULT_BROWSER_PACKAGE);
+        CustomTabsOptions ctOptions = CustomTabsOptions.newBuilder().withBrowserPicker(browserPicker).build();
+        return new CustomTabsController(context, ctOptions, twaLauncher, executor, connectionTimeout);
+    }
+
     private void bindService(CustomTabsController controller, boolean willSucceed) {
         doReturn(willSucceed).when(context).bindService(
                 serviceIntentCaptor.capture(),
@@ -23,6 +23,7 @@ import static org.hamcrest.core.IsNull.nullValue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(RobolectricTestRunner.class)
@@ -69,6 +70,16 @@ public class CustomTabsOptionsTest {
         assertThat(options.hasCompatibleBrowser(pm), is(false));
     }
 
+    @Test
+    public void shouldPrefetchPreferredPackage() {
+        BrowserPicker browserPicker = mock(BrowserPicker.class);
+        CustomTabsOptions options = CustomTabsOptions.newBuilder()
+                .withBrowserPicker(browserPicker).build();
+
+        options.prefetchPreferredPackage(context);
+        verify(browserPicker).prefetch(context);
+    }
+
     @Test
     public void shouldHaveDefaultValues() {
         CustomTabsOptions options = CustomTabsOptions.newBuilder().build();
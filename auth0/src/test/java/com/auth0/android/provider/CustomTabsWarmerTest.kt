@@ -0,0 +1,177 @@
+package com.auth0.android.provider
+
+import android.content.ComponentName
+import android.content.Context
+import android.content.Intent
+import android.net.Uri
+import androidx.browser.customtabs.CustomTabsClient
+import androidx.browser.customtabs.CustomTabsServiceConnection
+import androidx.browser.customtabs.CustomTabsSession
+import com.nhaarman.mockitokotlin2.*
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.*
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
+
+@RunWith(RobolectricTestRunner::class)
+public class CustomTabsWarmerTest {
+
+    private lateinit var context: Context
+    private lateinit var client: CustomTabsClient
+    private lateinit var session: CustomTabsSession
+    private val intentCaptor: KArgumentCaptor<Intent> = argumentCaptor()
+    private val connectionCaptor: KArgumentCaptor<CustomTabsServiceConnection> = argumentCaptor()
+    private val idleReleaseCaptor: KArgumentCaptor<Runnable> = argumentCaptor()
+    private lateinit var scheduler: ScheduledExecutorService
+    private lateinit var idleRelease: ScheduledFuture<*>
+    private lateinit var originalScheduler: ScheduledExecutorService
+
+    @Before
+    public fun setUp() {
+        context = mock()
+        whenever(context.applicationContext).thenReturn(context)
+        whenever(context.bindService(intentCaptor.capture(), connectionCaptor.capture(), any()))
+            .thenReturn(true)
+        session = mock()
+        client = mock()
+        whenever(client.newSession(null)).thenReturn(session)
+        idleRelease = mock()
+        scheduler = mock()
+        doReturn(idleRelease).whenever(scheduler)
+            .schedule(idleReleaseCaptor.capture(), any(), eq(TimeUnit.MILLISECONDS))
+        originalScheduler = CustomTabsWarmer.scheduler
+        CustomTabsWarmer.scheduler = scheduler
+    }
+
+    @After
+    public fun tearDown() {
+        CustomTabsWarmer.release()
+        CustomTabsWarmer.scheduler = originalScheduler
+    }
+
+    @Test
+    public fun shouldBindWarmUpAndHintTheBrowser() {
+        val uri = Uri.parse("https://domain.auth0.com/authorize?state=1")
+        CustomTabsWarmer.warmUp(context, BROWSER_PACKAGE, uri)
+        assertThat(intentCaptor.firstValue.getPackage(), `is`(BROWSER_PACKAGE))
+        assertThat(CustomTabsWarmer.getSession(BROWSER_PACKAGE), `is`(nullValue()))
+
+        connect(connectionCaptor.firstValue)
+        verify(client).warmup(0L)
+        verify(session).mayLaunchUrl(uri, null, null)
+        assertThat(CustomTabsWarmer.getSession(BROWSER_PACKAGE), `is`(sameInstance(session)))
+    }
+
+    @Test
+    public fun shouldOnlyHintTheNewUriWhenAlreadyBound() {
+        val uri = Uri.parse("https://domain.auth0.com/authorize?state=1")
+        val newUri = Uri.parse("https://domain.auth0.com/authorize?state=2")
+        CustomTabsWarmer.warmUp(context, BROWSER_PACKAGE, uri)
+        connect(connectionCaptor.firstValue)
+        CustomTabsWarmer.warmUp(context, BROWSER_PACKAGE, newUri)
+
+        verify(context, times(1)).bindService(any(), any(), any())
+        verify(session).mayLaunchUrl(newUri, null, null)
+    }
+
+    @Test
+    public fun shouldRebindWhenTheBrowserChanges() {
+        val uri = Uri.parse("https://domain.auth0.com/authorize?state=1")
+        CustomTabsWarmer.warmUp(context, BROWSER_PACKAGE, uri)
+        connect(connectionCaptor.firstValue)
+        CustomTabsWarmer.warmUp(context, "com.other.browser", uri)
+
+        verify(context).unbindService(connectionCaptor.firstValue)
+        assertThat(intentCaptor.secondValue.getPackage(), `is`("com.other.browser"))
+        assertThat(CustomTabsWarmer.getSession(BROWSER_PACKAGE), `is`(nullValue()))
+    }
+
+    @Test
+    public fun shouldNotReturnTheSessionOfAnotherBrowser() {
+        CustomTabsWarmer.warmUp(context, BROWSER_PACKAGE, Uri.parse("https://domain.auth0.com/authorize"))
+        connect(connectionCaptor.firstValue)
+        assertThat(CustomTabsWarmer.getSession("com.other.browser"), `is`(nullValue()))
+        assertThat(CustomTabsWarmer.getSession(null), `is`(nullValue()))
+    }
+
+    @Test
+    public fun shouldNotKeepTheConnectionWhenTheBindFails() {
+        whenever(context.bindService(any(), any(), any())).thenReturn(false)
+        CustomTabsWarmer.warmUp(context, BROWSER_PACKAGE, Uri.parse("https://domain.auth0.com/authorize"))
+        CustomTabsWarmer.release()
+        verify(context, never()).unbindService(any())
+    }
+
+    @Test
+    public fun shouldUnbindOnRelease() {
+        CustomTabsWarmer.warmUp(context, BROWSER_PACKAGE, Uri.parse("https://domain.auth0.com/authorize"))
+        connect(connectionCaptor.firstValue)
+        CustomTabsWarmer.release()
+
+        verify(context).unbindService(connectionCaptor.firstValue)
+        assertThat(CustomTabsWarmer.getSession(BROWSER_PACKAGE), `is`(nullValue()))
+    }
+
+    @Test
+    public fun shouldUnbindOnceLeftIdle() {
+        CustomTabsWarmer.warmUp(context, BROWSER_PACKAGE, Uri.parse("https://domain.auth0.com/authorize"))
+        connect(connectionCaptor.firstValue)
+        verify(scheduler).schedule(any(), eq(5 * 60 * 1000L), eq(TimeUnit.MILLISECONDS))
+        idleReleaseCaptor.firstValue.run()
+
+        verify(context).unbindService(connectionCaptor.firstValue)
+        assertThat(CustomTabsWarmer.getSession(BROWSER_PACKAGE), `is`(nullValue()))
+    }
+
+    @Test
+    public fun shouldRestartTheIdleTimeoutWhenHintedAgain() {
+        CustomTabsWarmer.warmUp(context, BROWSER_PACKAGE, Uri.parse("https://domain.auth0.com/authorize?state=1"))
+        connect(connectionCaptor.firstValue)
+        CustomTabsWarmer.warmUp(context, BROWSER_PACKAGE, Uri.parse("https://domain.auth0.com/authorize?state=2"))
+
+        verify(idleRelease).cancel(false)
+        verify(scheduler, times(2)).schedule(any(), any(), any())
+    }
+
+    @Test
+    public fun shouldNotUnbindANewerConnectionWhenLeftIdle() {
+        CustomTabsWarmer.warmUp(context, BROWSER_PACKAGE, Uri.parse("https://domain.auth0.com/authorize"))
+        CustomTabsWarmer.warmUp(context, "com.other.browser", Uri.parse("https://domain.auth0.com/authorize"))
+        connect(connectionCaptor.secondValue)
+        idleReleaseCaptor.firstValue.run()
+
+        verify(context, never()).unbindService(connectionCaptor.secondValue)
+        assertThat(CustomTabsWarmer.getSession("com.other.browser"), `is`(sameInstance(session)))
+    }
+
+    @Test
+    public fun shouldCancelTheIdleTimeoutOnRelease() {
+        CustomTabsWarmer.warmUp(context, BROWSER_PACKAGE, Uri.parse("https://domain.auth0.com/authorize"))
+        CustomTabsWarmer.release()
+        verify(idleRelease).cancel(false)
+    }
+
+    @Test
+    public fun shouldForgetTheSessionWhenDisconnected() {
+        CustomTabsWarmer.warmUp(context, BROWSER_PACKAGE, Uri.parse("https://domain.auth0.com/authorize"))
+        val connection = connectionCaptor.firstValue
+        connect(connection)
+        connection.onServiceDisconnected(ComponentName(BROWSER_PACKAGE, SERVICE_CLASS))
+        assertThat(CustomTabsWarmer.getSession(BROWSER_PACKAGE), `is`(nullValue()))
+    }
+
+    private fun connect(connection: CustomTabsServiceConnection) {
+        connection.onCustomTabsServiceConnected(ComponentName(BROWSER_PACKAGE, SERVICE_CLASS), client)
+    }
+
+    private companion object {
+        private const val BROWSER_PACKAGE = "com.auth0.browser"
+        private const val SERVICE_CLASS = "com.auth0.browser.CustomTabsService"
+    }
+}
@@ -0,0 +1,65 @@
+package com.auth0.android.provider
+
+import com.auth0.android.request.internal.Jwt
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.*
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+@RunWith(RobolectricTestRunner::class)
+public class IdTokenVerificationPolicyTest {
+
+    @Test
+    public fun shouldBeReusableAcrossVerifications() {
+        val policy = IdTokenVerificationPolicy(options())
+        val token = Jwt(JwtTestUtils.createTestJWT("none", JwtTestUtils.createJWTBody()))
+        val expiresAt = token.expiresAt!!.time
+
+        policy.verify(token, JwtTestUtils.FIXED_CLOCK_CURRENT_TIME_MS)
+        policy.verify(token, expiresAt + 60_000)
+        val e = Assert.assertThrows(IdTokenExpiredException::class.java) {
+            policy.verify(token, expiresAt + 60_001)
+        }
+        assertThat(e.message, containsString("${(expiresAt + 60_000) / 1000}"))
+    }
+
+    @Test
+    public fun shouldUseTheGivenLeeway() {
+        val options = options()
+        options.clockSkew = 10
+        val policy = IdTokenVerificationPolicy(options)
+        val token = Jwt(JwtTestUtils.createTestJWT("none", JwtTestUtils.createJWTBody()))
+        val expiresAt = token.expiresAt!!.time
+
+        policy.verify(token, expiresAt + 10_000)
+        Assert.assertThrows(IdTokenExpiredException::class.java) {
+            policy.verify(token, expiresAt + 10_001)
+        }
+    }
+
+    @Test
+    public fun shouldIgnoreTheCaseOfTheOrganizationName() {
+        val options = options()
+        options.organization = JwtTestUtils.EXPECTED_ORGANIZATION_NAME.uppercase()
+        val body = JwtTestUtils.createJWTBody()
+        body["org_name"] = JwtTestUtils.EXPECTED_ORGANIZATION_NAME
+        val token = Jwt(JwtTestUtils.createTestJWT("none", body))
+
+        IdTokenVerificationPolicy(options).verify(token, JwtTestUtils.FIXED_CLOCK_CURRENT_TIME_MS)
+    }
+
+    @Test
+    public fun shouldReuseTheClaimsPolicyForTheSameValues() {
+        val first = IdTokenVerificationPolicy.forClaims(JwtTestUtils.EXPECTED_ISSUER, JwtTestUtils.EXPECTED_AUDIENCE, 10)
+        val second = IdTokenVerificationPolicy.forClaims(JwtTestUtils.EXPECTED_ISSUER, JwtTestUtils.EXPECTED_AUDIENCE, 10)
+        val third = IdTokenVerificationPolicy.forClaims(JwtTestUtils.EXPECTED_ISSUER, JwtTestUtils.EXPECTED_AUDIENCE, null)
+
+        assertThat(first, sameInstance(second))
+        assertThat(third, not(sameInstance(second)))
+    }
+
+    private fun options(): IdTokenVerificationOptions =
+        IdTokenVerificationOptions(JwtTestUtils.EXPECTED_ISSUER, JwtTestUtils.EXPECTED_AUDIENCE, null)
+}
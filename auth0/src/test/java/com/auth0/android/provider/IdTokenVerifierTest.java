@@ -97,7 +97,7 @@ public class IdTokenVerifierTest {
     @Test
     public void shouldFailWhenSignatureIsInvalid() throws Exception {
         PublicKey pk = getPublicKey();
-        SignatureVerifier signatureVerifier = new AsymmetricSignatureVerifier(pk);
+        SignatureVerifier signatureVerifier = new AsymmetricSignatureVerifier(pk, "RS256");
         IdTokenVerificationOptions options = new IdTokenVerificationOptions(EXPECTED_ISSUER, EXPECTED_AUDIENCE, signatureVerifier);
         String message = "Invalid ID token signature.";
         Exception e = Assert.assertThrows(message, InvalidIdTokenSignatureException.class, () -> {
@@ -0,0 +1,115 @@
+package com.auth0.android.provider;
+
+import androidx.annotation.NonNull;
+
+import com.auth0.android.Auth0Exception;
+import com.auth0.android.authentication.AuthenticationAPIClient;
+import com.auth0.android.authentication.AuthenticationException;
+import com.auth0.android.callback.Callback;
+import com.auth0.android.request.Request;
+import com.auth0.android.request.internal.JsonWebKey;
+import com.auth0.android.request.internal.ThreadSwitcher;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class JsonWebKeysPrefetchTest {
+
+    private final List<Runnable> backgroundTasks = new ArrayList<>();
+    private Request<Map<String, JsonWebKey>, AuthenticationException> request;
+    private JsonWebKeysPrefetch prefetch;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        AuthenticationAPIClient apiClient = mock(AuthenticationAPIClient.class);
+        request = mock(Request.class);
+        when(apiClient.fetchSigningKeys()).thenReturn(request);
+        prefetch = JsonWebKeysPrefetch.start(apiClient, new ThreadSwitcher() {
+            @Override
+            public void mainThread(@NonNull Runnable runnable) {
+                throw new AssertionError("The keys must not be delivered on the main thread");
+            }
+
+            @Override
+            public void backgroundThread(@NonNull Runnable runnable) {
+                backgroundTasks.add(runnable);
+            }
+        });
+    }
+
+    @Test
+    public void shouldFetchTheKeysInTheBackground() throws Exception {
+        assertThat(backgroundTasks.size(), is(1));
+        verify(request, never()).execute();
+        backgroundTasks.get(0).run();
+        verify(request).execute();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldDeliverTheKeysOnceTheyArrive() throws Exception {
+        Map<String, JsonWebKey> keys = Collections.singletonMap("key123", new JsonWebKey("RS256", mock(PublicKey.class)));
+        when(request.execute()).thenReturn(keys);
+        Callback<Map<String, JsonWebKey>, AuthenticationException> callback = mock(Callback.class);
+        prefetch.getKeys(callback);
+        verify(callback, never()).onSuccess(any());
+
+        backgroundTasks.get(0).run();
+        verify(callback).onSuccess(keys);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldDeliverTheKeysRightAwayWhenTheyAlreadyArrived() throws Exception {
+        Map<String, JsonWebKey> keys = Collections.singletonMap("key123", new JsonWebKey("RS256", mock(PublicKey.class)));
+        when(request.execute()).thenReturn(keys);
+        backgroundTasks.get(0).run();
+
+        Callback<Map<String, JsonWebKey>, AuthenticationException> callback = mock(Callback.class);
+        prefetch.getKeys(callback);
+        verify(callback).onSuccess(keys);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldDeliverTheErrorToEveryCallback() throws Exception {
+        AuthenticationException error = mock(AuthenticationException.class);
+        when(request.execute()).thenThrow(error);
+        Callback<Map<String, JsonWebKey>, AuthenticationException> first = mock(Callback.class);
+        Callback<Map<String, JsonWebKey>, AuthenticationException> second = mock(Callback.class);
+        prefetch.getKeys(first);
+
+        backgroundTasks.get(0).run();
+        prefetch.getKeys(second);
+
+        verify(first).onFailure(error);
+        verify(second).onFailure(error);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldWrapUnexpectedErrors() throws Exception {
+        when(request.execute()).thenThrow(new Auth0Exception("Something went wrong", null));
+        Callback<Map<String, JsonWebKey>, AuthenticationException> callback = mock(Callback.class);
+        prefetch.getKeys(callback);
+
+        backgroundTasks.get(0).run();
+
+        verify(callback).onFailure(any(AuthenticationException.class));
+    }
+}
@@ -9,10 +9,15 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.MGF1ParameterSpec;
 import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.PSSParameterSpec;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -33,6 +38,7 @@ public class JwtTestUtils {
 
     private static final String RSA_PRIVATE_KEY = "src/test/resources/rsa_private.pem";
     private static final String RSA_PUBLIC_KEY = "src/test/resources/rsa_public.pem";
+    private static KeyPair ecKeyPair;
 
     public static String createTestJWT(@NonNull String algorithm, @NonNull Map<String, Object> bodyClaims) throws Exception {
         String header = "{" +
@@ -93,7 +99,7 @@ public class JwtTestUtils {
     }
 
     private static String signJWT(@NonNull String algorithm, @NonNull String decodedHeader, @NonNull String decodedBody) throws Exception {
-        if (!Arrays.asList("HS256", "RS256", "none").contains(algorithm)) {
+        if (!Arrays.asList("HS256", "RS256", "PS256", "ES256", "none").contains(algorithm)) {
             throw new IllegalArgumentException("[Unit Tests] ID token algorithm not supported");
         }
 
@@ -112,6 +118,23 @@ public class JwtTestUtils {
             s.update(encodedBodyBytes);
             byte[] signatureBytes = s.sign();
             signature = Base64.encodeToString(signatureBytes, Base64.URL_SAFE | Base64.NO_WRAP | Base64.NO_PADDING);
+        } else if (algorithm.equals("PS256")) {
+            Signature s = Signature.getInstance("RSASSA-PSS");
+            s.setParameter(new PSSParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, 32, 1));
+            s.initSign(getPrivateKey());
+            s.update(encodedHeaderBytes);
+            s.update((byte) '.');
+            s.update(encodedBodyBytes);
+            byte[] signatureBytes = s.sign();
+            signature = Base64.encodeToString(signatureBytes, Base64.URL_SAFE | Base64.NO_WRAP | Base64.NO_PADDING);
+        } else if (algorithm.equals("ES256")) {
+            Signature s = Signature.getInstance("SHA256withECDSA");
+            s.initSign(getECKeyPair().getPrivate());
+            s.update(encodedHeaderBytes);
+            s.update((byte) '.');
+            s.update(encodedBodyBytes);
+            byte[] signatureBytes = toJwsSignature(s.sign());
+            signature = Base64.encodeToString(signatureBytes, Base64.URL_SAFE | Base64.NO_WRAP | Base64.NO_PADDING);
         }
         String encodedHeader = new String(encodedHeaderBytes, StandardCharsets.UTF_8);
         String encodedBody = new String(encodedBodyBytes, StandardCharsets.UTF_8);
@@ -119,6 +142,33 @@ public class JwtTestUtils {
         return String.format("%s.%s.%s", encodedHeader, encodedBody, signature);
     }
 
+    /**
+     * Converts a DER encoded ECDSA signature to the R and S values one after the other, as used by JWS.
+     */
+    static byte[] toJwsSignature(byte[] der) {
+        byte[] jws = new byte[64];
+        int offset = 3;
+        int rLength = der[offset++];
+        int rStart = offset + Math.max(0, rLength - 32);
+        int rCopy = Math.min(32, rLength);
+        System.arraycopy(der, rStart, jws, 32 - rCopy, rCopy);
+        offset += rLength + 1;
+        int sLength = der[offset++];
+        int sStart = offset + Math.max(0, sLength - 32);
+        int sCopy = Math.min(32, sLength);
+        System.arraycopy(der, sStart, jws, 64 - sCopy, sCopy);
+        return jws;
+    }
+
+    static synchronized KeyPair getECKeyPair() throws Exception {
+        if (ecKeyPair == null) {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            ecKeyPair = generator.generateKeyPair();
+        }
+        return ecKeyPair;
+    }
+
     static PrivateKey getPrivateKey() throws Exception {
         File f = new File(RSA_PRIVATE_KEY);
         FileInputStream fis = new FileInputStream(f);
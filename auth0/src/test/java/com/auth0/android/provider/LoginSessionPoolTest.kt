@@ -0,0 +1,141 @@
+package com.auth0.android.provider
+
+import com.auth0.android.request.internal.ThreadSwitcher
+import com.auth0.android.util.Clock
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.*
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+@RunWith(RobolectricTestRunner::class)
+public class LoginSessionPoolTest {
+
+    private val backgroundTasks = mutableListOf<Runnable>()
+    private var currentTime = 1000L
+    private lateinit var pool: LoginSessionPool
+
+    @Before
+    public fun setUp() {
+        val threadSwitcher = object : ThreadSwitcher {
+            override fun mainThread(runnable: Runnable) {
+                runnable.run()
+            }
+
+            override fun backgroundThread(runnable: Runnable) {
+                backgroundTasks.add(runnable)
+            }
+        }
+        val clock = object : Clock {
+            override fun getCurrentTimeMillis(): Long = currentTime
+        }
+        pool = LoginSessionPool(2, TTL_MILLIS, AlgorithmHelper(), threadSwitcher, clock)
+    }
+
+    @Test
+    public fun shouldFillInTheBackground() {
+        pool.fill()
+        assertThat(pool.size, `is`(0))
+        runBackgroundTasks()
+        assertThat(pool.size, `is`(2))
+    }
+
+    @Test
+    public fun shouldNotFillTwiceAtTheSameTime() {
+        pool.fill()
+        pool.fill()
+        assertThat(backgroundTasks.size, `is`(1))
+    }
+
+    @Test
+    public fun shouldNotFillWhenFull() {
+        pool.fill()
+        runBackgroundTasks()
+        pool.fill()
+        assertThat(backgroundTasks.size, `is`(0))
+    }
+
+    @Test
+    public fun shouldTakeAPooledSessionAndRefill() {
+        pool.fill()
+        runBackgroundTasks()
+        val session = pool.take()
+
+        assertThat(session.createdAt, `is`(1000L))
+        assertThat(pool.size, `is`(1))
+        runBackgroundTasks()
+        assertThat(pool.size, `is`(2))
+    }
+
+    @Test
+    public fun shouldGenerateASessionWhenEmpty() {
+        val session = pool.take()
+
+        assertThat(session, `is`(notNullValue()))
+        assertThat(pool.size, `is`(0))
+        assertThat(backgroundTasks.size, `is`(1))
+    }
+
+    @Test
+    public fun shouldGenerateValidSessions() {
+        val session = pool.take()
+
+        assertThat(session.state, not(isEmptyOrNullString()))
+        assertThat(session.nonce, not(isEmptyOrNullString()))
+        assertThat(session.state, not(session.nonce))
+        assertThat(session.codeChallenge, `is`(AlgorithmHelper().generateCodeChallenge(session.codeVerifier)))
+    }
+
+    @Test
+    public fun shouldNeverHandOutTheSameSessionTwice() {
+        pool.fill()
+        runBackgroundTasks()
+        val first = pool.take()
+        val second = pool.take()
+
+        assertThat(first, not(sameInstance(second)))
+        assertThat(first.state, not(second.state))
+        assertThat(first.codeVerifier, not(second.codeVerifier))
+    }
+
+    @Test
+    public fun shouldDiscardExpiredSessions() {
+        pool.fill()
+        runBackgroundTasks()
+        currentTime += TTL_MILLIS
+        val session = pool.take()
+
+        assertThat(session.createdAt, `is`(currentTime))
+        assertThat(pool.size, `is`(0))
+    }
+
+    @Test
+    public fun shouldExpireATakenSessionAfterTheTimeToLive() {
+        val session = pool.take()
+        currentTime += TTL_MILLIS - 1
+        assertThat(pool.isExpired(session), `is`(false))
+        currentTime += 1
+        assertThat(pool.isExpired(session), `is`(true))
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    public fun shouldRequireAPositiveCapacity() {
+        LoginSessionPool(0, TTL_MILLIS, AlgorithmHelper(), object : ThreadSwitcher {
+            override fun mainThread(runnable: Runnable) {}
+            override fun backgroundThread(runnable: Runnable) {}
+        }, object : Clock {
+            override fun getCurrentTimeMillis(): Long = 0
+        })
+    }
+
+    private fun runBackgroundTasks() {
+        val tasks = backgroundTasks.toList()
+        backgroundTasks.clear()
+        tasks.forEach { it.run() }
+    }
+
+    private companion object {
+        private const val TTL_MILLIS = 60_000L
+    }
+}
@@ -1,16 +1,70 @@
 package com.auth0.android.provider;
 
+import android.net.Uri;
+
+import com.auth0.android.Auth0;
 import com.auth0.android.authentication.AuthenticationException;
+import com.auth0.android.callback.Callback;
+import com.auth0.android.result.Credentials;
 
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static androidx.test.espresso.intent.matcher.UriMatchers.hasParamWithValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.mockito.Mockito.mock;
+
 
 @RunWith(RobolectricTestRunner.class)
 public class OAuthManagerTest {
 
+    @Test
+    public void shouldUseTheGivenLoginSession() {
+        OAuthManager manager = createManager(Collections.emptyMap());
+        manager.setLoginSession(new LoginSession("the-state", "the-nonce", "the-verifier", "the-challenge", 0));
+        Uri uri = manager.prepareAuthorizeUri("https://domain.auth0.com/callback");
+
+        assertThat(uri, hasParamWithValue("state", "the-state"));
+        assertThat(uri, hasParamWithValue("nonce", "the-nonce"));
+        assertThat(uri, hasParamWithValue("code_challenge", "the-challenge"));
+    }
+
+    @Test
+    public void shouldPreferCustomStateAndNonceOverTheLoginSession() {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("state", "custom-state");
+        parameters.put("nonce", "custom-nonce");
+        OAuthManager manager = createManager(parameters);
+        manager.setLoginSession(new LoginSession("the-state", "the-nonce", "the-verifier", "the-challenge", 0));
+        Uri uri = manager.prepareAuthorizeUri("https://domain.auth0.com/callback");
+
+        assertThat(uri, hasParamWithValue("state", "custom-state"));
+        assertThat(uri, hasParamWithValue("nonce", "custom-nonce"));
+        assertThat(uri, hasParamWithValue("code_challenge", "the-challenge"));
+    }
+
+    @Test
+    public void shouldTakeALoginSessionFromThePool() {
+        Uri first = createManager(Collections.emptyMap()).prepareAuthorizeUri("https://domain.auth0.com/callback");
+        Uri second = createManager(Collections.emptyMap()).prepareAuthorizeUri("https://domain.auth0.com/callback");
+
+        assertThat(first.getQueryParameter("state"), is(notNullValue()));
+        assertThat(first.getQueryParameter("nonce"), is(notNullValue()));
+        assertThat(first.getQueryParameter("code_challenge"), is(notNullValue()));
+        assertThat(first.getQueryParameter("state"), is(not(second.getQueryParameter("state"))));
+        assertThat(first.getQueryParameter("nonce"), is(not(second.getQueryParameter("nonce"))));
+        assertThat(first.getQueryParameter("code_challenge"), is(not(second.getQueryParameter("code_challenge"))));
+    }
+
     @Test
     public void shouldHaveValidState() {
         OAuthManager.assertValidState("1234567890", "1234567890");
@@ -25,4 +79,11 @@ public class OAuthManagerTest {
     public void shouldHaveInvalidStateWhenOneIsNull() {
         Assert.assertThrows(AuthenticationException.class, () -> OAuthManager.assertValidState("0987654321", null));
     }
+
+    @SuppressWarnings("unchecked")
+    private OAuthManager createManager(Map<String, String> parameters) {
+        Auth0 account = new Auth0("clientId", "domain.auth0.com");
+        Callback<Credentials, AuthenticationException> callback = mock(Callback.class);
+        return new OAuthManager(account, callback, parameters, CustomTabsOptions.newBuilder().build(), false);
+    }
 }
\ No newline at end of file
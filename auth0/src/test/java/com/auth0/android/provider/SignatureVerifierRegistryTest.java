@@ -0,0 +1,77 @@
+package com.auth0.android.provider;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import com.auth0.android.request.internal.JsonWebKey;
+
+import java.security.InvalidKeyException;
+import java.security.PublicKey;
+
+import static com.auth0.android.provider.JwtTestUtils.getECKeyPair;
+import static com.auth0.android.provider.JwtTestUtils.getPublicKey;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+@RunWith(RobolectricTestRunner.class)
+public class SignatureVerifierRegistryTest {
+
+    private SignatureVerifierRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = SignatureVerifierRegistry.getInstance();
+        registry.clear();
+    }
+
+    @After
+    public void tearDown() {
+        registry.clear();
+    }
+
+    @Test
+    public void shouldReuseTheVerifierOfTheSameKey() throws Exception {
+        PublicKey publicKey = getPublicKey();
+        AsymmetricSignatureVerifier first = registry.getVerifier("key123", new JsonWebKey("RS256", publicKey));
+        AsymmetricSignatureVerifier second = registry.getVerifier("key123", new JsonWebKey("RS256", getPublicKey()));
+
+        assertThat(first, sameInstance(second));
+    }
+
+    @Test
+    public void shouldReplaceTheVerifierWhenTheKeyChanges() throws Exception {
+        AsymmetricSignatureVerifier first = registry.getVerifier("key123", new JsonWebKey("RS256", getPublicKey()));
+        AsymmetricSignatureVerifier second = registry.getVerifier("key123", new JsonWebKey("ES256", getECKeyPair().getPublic()));
+
+        assertThat(first, not(sameInstance(second)));
+        assertThat(registry.getVerifier("key123", new JsonWebKey("ES256", getECKeyPair().getPublic())), sameInstance(second));
+    }
+
+    @Test
+    public void shouldReplaceTheVerifierWhenTheAlgorithmOfTheKeyChanges() throws Exception {
+        AsymmetricSignatureVerifier first = registry.getVerifier("key123", new JsonWebKey("RS256", getPublicKey()));
+        AsymmetricSignatureVerifier second = registry.getVerifier("key123", new JsonWebKey("PS256", getPublicKey()));
+
+        assertThat(first, not(sameInstance(second)));
+        assertThat(second.getAlgorithm(), is("PS256"));
+    }
+
+    @Test
+    public void shouldNotReuseVerifiersWithoutKeyId() throws Exception {
+        AsymmetricSignatureVerifier first = registry.getVerifier(null, new JsonWebKey("RS256", getPublicKey()));
+        AsymmetricSignatureVerifier second = registry.getVerifier(null, new JsonWebKey("RS256", getPublicKey()));
+
+        assertThat(first, not(sameInstance(second)));
+    }
+
+    @Test
+    public void shouldThrowWhenTheKeyIsMissing() {
+        Assert.assertThrows(InvalidKeyException.class, () -> registry.getVerifier("key123", null));
+    }
+}
@@ -1,9 +1,13 @@
 package com.auth0.android.provider
 
 import android.app.Activity
+import android.content.ComponentName
 import android.content.Intent
 import android.net.Uri
 import android.os.Parcelable
+import androidx.browser.customtabs.CustomTabsClient
+import androidx.browser.customtabs.CustomTabsServiceConnection
+import androidx.browser.customtabs.CustomTabsSession
 import androidx.test.espresso.intent.matcher.IntentMatchers
 import androidx.test.espresso.intent.matcher.UriMatchers
 import com.auth0.android.Auth0
@@ -17,9 +21,11 @@ import com.auth0.android.request.HttpMethod.POST
 import com.auth0.android.request.NetworkingClient
 import com.auth0.android.request.RequestOptions
 import com.auth0.android.request.ServerResponse
+import com.auth0.android.request.internal.ThreadSwitcher
 import com.auth0.android.request.internal.ThreadSwitcherShadow
 import com.auth0.android.result.Credentials
 import com.auth0.android.util.AuthenticationAPIMockServer
+import com.auth0.android.util.Clock
 import com.auth0.android.util.SSLTestUtils
 import com.nhaarman.mockitokotlin2.*
 import kotlinx.coroutines.Dispatchers
@@ -35,6 +41,7 @@ import org.hamcrest.core.Is.`is`
 import org.hamcrest.core.IsEqual.equalTo
 import org.hamcrest.core.IsNot.not
 import org.hamcrest.core.IsNull.notNullValue
+import org.junit.After
 import org.junit.Assert
 import org.junit.Before
 import org.junit.Test
@@ -93,6 +100,11 @@ public class WebAuthProviderTest {
         )
     }
 
+    @After
+    public fun tearDown() {
+        CustomTabsWarmer.release()
+    }
+
     //** ** ** ** ** **  **//
     //** ** ** ** ** **  **//
     //** LOG IN  FEATURE **//
@@ -632,11 +644,9 @@ public class WebAuthProviderTest {
     }
 
     @Test
-    public fun shouldGenerateRandomStringIfDefaultValueIsMissingOnLogin() {
-        login(account)
-            .start(activity, callback)
-        val random1 = OAuthManager.getRandomString(null)
-        val random2 = OAuthManager.getRandomString(null)
+    public fun shouldGenerateRandomString() {
+        val random1 = AlgorithmHelper().generateRandomString()
+        val random2 = AlgorithmHelper().generateRandomString()
         assertThat(random1, `is`(notNullValue()))
         assertThat(random2, `is`(notNullValue()))
         assertThat(
@@ -646,13 +656,26 @@ public class WebAuthProviderTest {
     }
 
     @Test
-    public fun shouldNotGenerateRandomStringIfDefaultValuePresentOnLogin() {
+    public fun shouldGenerateDifferentStateAndNonceOnEveryLogin() {
         login(account)
             .start(activity, callback)
-        val random1 = OAuthManager.getRandomString("some")
-        val random2 = OAuthManager.getRandomString("some")
-        assertThat(random1, `is`("some"))
-        assertThat(random2, `is`("some"))
+        login(account)
+            .start(activity, callback)
+        verify(activity, times(2)).startActivity(intentCaptor.capture())
+        val uri1 =
+            intentCaptor.firstValue.getParcelableExtra<Uri>(AuthenticationActivity.EXTRA_AUTHORIZE_URI)
+        val uri2 =
+            intentCaptor.secondValue.getParcelableExtra<Uri>(AuthenticationActivity.EXTRA_AUTHORIZE_URI)
+        assertThat(uri1, `is`(notNullValue()))
+        assertThat(uri2, `is`(notNullValue()))
+        assertThat(
+            uri1!!.getQueryParameter("state"),
+            `is`(not(equalTo(uri2!!.getQueryParameter("state"))))
+        )
+        assertThat(
+            uri1.getQueryParameter("nonce"),
+            `is`(not(equalTo(uri2.getQueryParameter("nonce"))))
+        )
     }
 
     // organizations
@@ -1266,6 +1289,108 @@ public class WebAuthProviderTest {
         mockAPI.shutdown()
     }
 
+    @Test
+    @Throws(Exception::class)
+    public fun shouldFetchTheJsonWebKeysWhileExchangingTheCode() {
+        val pkce = Mockito.mock(PKCE::class.java)
+        `when`(pkce.codeChallenge).thenReturn("challenge")
+        val mockAPI = AuthenticationAPIMockServer()
+        mockAPI.willReturnValidJsonWebKeys()
+        val authCallback = mock<Callback<Credentials, AuthenticationException>>()
+        val proxyAccount: Auth0 = Auth0(JwtTestUtils.EXPECTED_AUDIENCE, mockAPI.domain)
+        proxyAccount.networkingClient = SSLTestUtils.testClient
+        login(proxyAccount)
+            .withPKCE(pkce)
+            .start(activity, authCallback)
+        val managerInstance = WebAuthProvider.managerInstance as OAuthManager
+        managerInstance.currentTimeInMillis = JwtTestUtils.FIXED_CLOCK_CURRENT_TIME_MS
+        verify(activity).startActivity(intentCaptor.capture())
+        val uri =
+            intentCaptor.firstValue.getParcelableExtra<Uri>(AuthenticationActivity.EXTRA_AUTHORIZE_URI)
+        val sentState = uri?.getQueryParameter(KEY_STATE)
+        val jwtBody = JwtTestUtils.createJWTBody()
+        jwtBody["nonce"] = uri?.getQueryParameter(KEY_NONCE)
+        jwtBody["iss"] = proxyAccount.getDomainUrl()
+        val expectedIdToken = JwtTestUtils.createTestJWT("RS256", jwtBody)
+        val intent = createAuthIntent(
+            createHash(null, null, null, null, null, sentState, null, null, "1234")
+        )
+        Assert.assertTrue(resume(intent))
+        verify(pkce).getToken(ArgumentMatchers.eq("1234"), callbackCaptor.capture())
+
+        // The keys are requested before the code exchange completes
+        val jwksRequest = mockAPI.takeRequest()
+        assertThat(jwksRequest.path, `is`("/.well-known/jwks.json"))
+        verify(authCallback, Mockito.never()).onSuccess(any())
+
+        val codeCredentials =
+            Credentials(expectedIdToken, "codeAccess", "codeType", "codeRefresh", Date(), "codeScope")
+        callbackCaptor.firstValue.onSuccess(codeCredentials)
+        ShadowLooper.idleMainLooper()
+        verify(authCallback).onSuccess(credentialsCaptor.capture())
+        assertThat(credentialsCaptor.firstValue.idToken, `is`(expectedIdToken))
+        mockAPI.shutdown()
+    }
+
+    @Test
+    @Throws(Exception::class)
+    public fun shouldVerifyTheIdTokenInTheBackground() {
+        val pkce = Mockito.mock(PKCE::class.java)
+        `when`(pkce.codeChallenge).thenReturn("challenge")
+        val mockAPI = AuthenticationAPIMockServer()
+        mockAPI.willReturnValidJsonWebKeys()
+        val authCallback = mock<Callback<Credentials, AuthenticationException>>()
+        val proxyAccount: Auth0 = Auth0(JwtTestUtils.EXPECTED_AUDIENCE, mockAPI.domain)
+        proxyAccount.networkingClient = SSLTestUtils.testClient
+        login(proxyAccount)
+            .withPKCE(pkce)
+            .start(activity, authCallback)
+        val backgroundTasks = mutableListOf<Runnable>()
+        val mainTasks = mutableListOf<Runnable>()
+        val managerInstance = WebAuthProvider.managerInstance as OAuthManager
+        managerInstance.currentTimeInMillis = JwtTestUtils.FIXED_CLOCK_CURRENT_TIME_MS
+        managerInstance.threadSwitcher = object : ThreadSwitcher {
+            override fun mainThread(runnable: Runnable) {
+                mainTasks.add(runnable)
+            }
+
+            override fun backgroundThread(runnable: Runnable) {
+                backgroundTasks.add(runnable)
+            }
+        }
+        verify(activity).startActivity(intentCaptor.capture())
+        val uri =
+            intentCaptor.firstValue.getParcelableExtra<Uri>(AuthenticationActivity.EXTRA_AUTHORIZE_URI)
+        val jwtBody = JwtTestUtils.createJWTBody()
+        jwtBody["nonce"] = uri?.getQueryParameter(KEY_NONCE)
+        jwtBody["iss"] = proxyAccount.getDomainUrl()
+        val expectedIdToken = JwtTestUtils.createTestJWT("RS256", jwtBody)
+        val intent = createAuthIntent(
+            createHash(null, null, null, null, null, uri?.getQueryParameter(KEY_STATE), null, null, "1234")
+        )
+        val codeCredentials =
+            Credentials(expectedIdToken, "codeAccess", "codeType", "codeRefresh", Date(), "codeScope")
+        Mockito.doAnswer {
+            callbackCaptor.firstValue.onSuccess(codeCredentials)
+            null
+        }.`when`(pkce).getToken(ArgumentMatchers.eq("1234"), callbackCaptor.capture())
+        Assert.assertTrue(resume(intent))
+        mockAPI.takeRequest()
+
+        assertThat(backgroundTasks.size, `is`(1))
+        assertThat(mainTasks.size, `is`(0))
+        backgroundTasks.removeAt(0).run()
+        assertThat(mainTasks.size, `is`(1))
+        verify(authCallback, Mockito.never()).onSuccess(any())
+
+        mainTasks.removeAt(0).run()
+        verify(authCallback).onSuccess(codeCredentials)
+        val metrics = WebAuthProvider.lastIdTokenVerificationMetrics
+        assertThat(metrics, `is`(notNullValue()))
+        assertThat(metrics!!.totalMillis, `is`(Matchers.greaterThanOrEqualTo(metrics.signatureMillis + metrics.claimsMillis)))
+        mockAPI.shutdown()
+    }
+
     @Test
     public fun shouldResumeLoginWithRequestCodeWhenResultCancelled() {
         login(account)
@@ -1896,7 +2021,7 @@ public class WebAuthProviderTest {
         )
         assertThat(
             error.cause?.message,
-            `is`("Signature algorithm of \"HS256\" is not supported. Expected the ID token to be signed with RS256.")
+            `is`("Signature algorithm of \"HS256\" is not supported. Expected the ID token to be signed with any of [RS256, PS256].")
         )
         mockAPI.shutdown()
     }
@@ -2172,7 +2297,7 @@ public class WebAuthProviderTest {
         )
         assertThat(
             error.cause?.message,
-            `is`("Signature algorithm of \"none\" is not supported. Expected the ID token to be signed with RS256.")
+            `is`("Signature algorithm of \"none\" is not supported. Expected the ID token to be signed with any of [RS256, PS256].")
         )
         mockAPI.shutdown()
     }
@@ -2312,6 +2437,93 @@ public class WebAuthProviderTest {
         )
     }
 
+    //warm up
+    @Test
+    public fun shouldHintTheBrowserWithTheAuthorizeUriOnWarmUp() {
+        val warmUri = warmUpAndConnect(login(account).withConnection("some-connection"))
+        assertThat(warmUri, UriMatchers.hasHost(JwtTestUtils.EXPECTED_BASE_DOMAIN))
+        assertThat(warmUri, UriMatchers.hasParamWithValue("connection", "some-connection"))
+        assertThat(warmUri, UriMatchers.hasParamWithName("state"))
+        assertThat(warmUri, UriMatchers.hasParamWithName("nonce"))
+        assertThat(warmUri, UriMatchers.hasParamWithName("code_challenge"))
+    }
+
+    @Test
+    public fun shouldUseTheWarmedUpValuesOnStart() {
+        val builder = login(account)
+        val warmUri = warmUpAndConnect(builder)
+        builder.start(activity, callback)
+        verify(activity).startActivity(intentCaptor.capture())
+        val uri =
+            intentCaptor.firstValue.getParcelableExtra<Uri>(AuthenticationActivity.EXTRA_AUTHORIZE_URI)
+        assertThat(uri, `is`(warmUri))
+    }
+
+    @Test
+    public fun shouldUseTheWarmedUpValuesOnlyOnce() {
+        val builder = login(account)
+        val warmUri = warmUpAndConnect(builder)
+        builder.start(activity, callback)
+        builder.start(activity, callback)
+        verify(activity, times(2)).startActivity(intentCaptor.capture())
+        val uri =
+            intentCaptor.secondValue.getParcelableExtra<Uri>(AuthenticationActivity.EXTRA_AUTHORIZE_URI)
+        assertThat(uri?.getQueryParameter("state"), not(warmUri.getQueryParameter("state")))
+        assertThat(uri?.getQueryParameter("nonce"), not(warmUri.getQueryParameter("nonce")))
+        assertThat(
+            uri?.getQueryParameter("code_challenge"),
+            not(warmUri.getQueryParameter("code_challenge"))
+        )
+    }
+
+    @Test
+    public fun shouldNotUseTheWarmedUpValuesWhenTheRedirectUriChanged() {
+        val builder = login(account)
+        val warmUri = warmUpAndConnect(builder)
+        builder.withRedirectUri("https://other.domain.com/callback")
+            .start(activity, callback)
+        verify(activity).startActivity(intentCaptor.capture())
+        val uri =
+            intentCaptor.firstValue.getParcelableExtra<Uri>(AuthenticationActivity.EXTRA_AUTHORIZE_URI)
+        assertThat(uri, UriMatchers.hasParamWithValue("redirect_uri", "https://other.domain.com/callback"))
+        assertThat(uri?.getQueryParameter("state"), not(warmUri.getQueryParameter("state")))
+        assertThat(uri?.getQueryParameter("nonce"), not(warmUri.getQueryParameter("nonce")))
+    }
+
+    @Test
+    public fun shouldNotUseTheWarmedUpValuesOnceExpired() {
+        var currentTime = 1000L
+        val builder = login(account)
+        builder.loginSessionPool = LoginSessionPool(1, 60_000L, AlgorithmHelper(), object : ThreadSwitcher {
+            override fun mainThread(runnable: Runnable) {}
+            override fun backgroundThread(runnable: Runnable) {}
+        }, object : Clock {
+            override fun getCurrentTimeMillis(): Long = currentTime
+        })
+        val warmUri = warmUpAndConnect(builder)
+        currentTime += 60_000L
+        builder.start(activity, callback)
+        verify(activity).startActivity(intentCaptor.capture())
+        val uri =
+            intentCaptor.firstValue.getParcelableExtra<Uri>(AuthenticationActivity.EXTRA_AUTHORIZE_URI)
+        assertThat(uri?.getQueryParameter("state"), not(warmUri.getQueryParameter("state")))
+        assertThat(uri?.getQueryParameter("nonce"), not(warmUri.getQueryParameter("nonce")))
+    }
+
+    @Test
+    public fun shouldKeepCustomStateAndNonceSetAfterWarmUp() {
+        val builder = login(account)
+        warmUpAndConnect(builder)
+        builder.withState("1234567890")
+            .withNonce("0987654321")
+            .start(activity, callback)
+        verify(activity).startActivity(intentCaptor.capture())
+        val uri =
+            intentCaptor.firstValue.getParcelableExtra<Uri>(AuthenticationActivity.EXTRA_AUTHORIZE_URI)
+        assertThat(uri, UriMatchers.hasParamWithValue("state", "1234567890"))
+        assertThat(uri, UriMatchers.hasParamWithValue("nonce", "0987654321"))
+    }
+
     //** ** ** ** ** **  **//
     //** ** ** ** ** **  **//
     //** LOG OUT FEATURE **//
@@ -2613,6 +2825,32 @@ public class WebAuthProviderTest {
     //** Helpers Functions**//
     //**  ** ** ** ** **  **//
     //**  ** ** ** ** **  **//
+    /**
+     * Warms up the given builder, connects the browser it bound and returns the URI the browser was hinted with.
+     */
+    private fun warmUpAndConnect(builder: WebAuthProvider.Builder): Uri {
+        val appContext = Mockito.spy(activity.applicationContext)
+        Mockito.doReturn(appContext).`when`(activity).applicationContext
+        val connectionCaptor: KArgumentCaptor<CustomTabsServiceConnection> = argumentCaptor()
+        Mockito.doReturn(true).`when`(appContext).bindService(
+            any(),
+            connectionCaptor.capture(),
+            ArgumentMatchers.anyInt()
+        )
+        builder.warmUp(activity)
+
+        val client = mock<CustomTabsClient>()
+        val session = mock<CustomTabsSession>()
+        `when`(client.newSession(null)).thenReturn(session)
+        connectionCaptor.firstValue.onCustomTabsServiceConnected(
+            ComponentName("com.auth0.browser", "com.auth0.browser.CustomTabsService"),
+            client
+        )
+        val uriCaptor: KArgumentCaptor<Uri> = argumentCaptor()
+        verify(session).mayLaunchUrl(uriCaptor.capture(), eq(null), eq(null))
+        return uriCaptor.firstValue
+    }
+
     private fun createAuthIntent(hash: String?): Intent {
         val intent = Intent()
         if (hash == null) {
@@ -1,11 +1,13 @@
 package com.auth0.android.request
 
 import android.net.Uri
+import com.auth0.android.authentication.storage.SharedPreferencesStorage
+import com.auth0.android.request.internal.CachingDns
+import com.auth0.android.request.internal.RedactingLoggingInterceptor
 import com.auth0.android.util.SSLTestUtils
 import com.google.gson.Gson
 import com.google.gson.reflect.TypeToken
 import okhttp3.Interceptor
-import okhttp3.logging.HttpLoggingInterceptor
 import okhttp3.mockwebserver.MockResponse
 import okhttp3.mockwebserver.MockWebServer
 import okhttp3.mockwebserver.RecordedRequest
@@ -20,6 +22,7 @@ import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
 import java.io.BufferedReader
 import java.io.InputStreamReader
 import java.nio.charset.StandardCharsets
@@ -91,10 +94,30 @@ public class DefaultClientTest {
         assertThat(netClient.okHttpClient.interceptors, hasSize(1))
 
         val interceptor: Interceptor = netClient.okHttpClient.interceptors[0]
-        assertThat(
-            (interceptor as HttpLoggingInterceptor).level,
-            equalTo(HttpLoggingInterceptor.Level.BODY)
-        )
+        assertThat(interceptor, instanceOf(RedactingLoggingInterceptor::class.java))
+    }
+
+    @Test
+    public fun shouldBuildTheClientWithTheGivenValues() {
+        val netClient = DefaultClient.Builder()
+            .connectTimeout(5)
+            .readTimeout(15)
+            .enableLogging(true)
+            .loggingSampleRate(0.5)
+            .build()
+        assertThat(netClient.okHttpClient.connectTimeoutMillis, equalTo(5000))
+        assertThat(netClient.okHttpClient.readTimeoutMillis, equalTo(15000))
+        assertThat(netClient.okHttpClient.interceptors, hasSize(1))
+        assertThat(netClient.okHttpClient.dns, not(instanceOf(CachingDns::class.java)))
+    }
+
+    @Test
+    public fun shouldCacheTheDnsLookupsWhenEnabled() {
+        val storage = SharedPreferencesStorage(RuntimeEnvironment.getApplication(), "dns-test")
+        val netClient = DefaultClient.Builder()
+            .dnsCache(storage)
+            .build()
+        assertThat(netClient.okHttpClient.dns, instanceOf(CachingDns::class.java))
     }
 
     @Test
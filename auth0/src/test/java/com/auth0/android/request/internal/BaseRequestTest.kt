@@ -4,6 +4,7 @@ import androidx.test.espresso.matcher.ViewMatchers.assertThat
 import com.auth0.android.Auth0Exception
 import com.auth0.android.callback.Callback
 import com.auth0.android.request.*
+import com.auth0.android.util.Auth0Telemetry
 import com.google.gson.Gson
 import com.google.gson.JsonIOException
 import com.nhaarman.mockitokotlin2.*
@@ -22,6 +23,7 @@ import org.hamcrest.collection.IsMapContaining
 import org.hamcrest.collection.IsMapWithSize
 import org.hamcrest.core.Is
 import org.hamcrest.core.IsCollectionContaining
+import org.junit.Assert
 import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
@@ -38,6 +40,9 @@ import java.io.IOException
 import java.io.InputStream
 import java.io.Reader
 import java.util.*
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
 import kotlin.coroutines.ContinuationInterceptor
 
 @RunWith(RobolectricTestRunner::class)
@@ -60,6 +65,7 @@ public class BaseRequestTest {
     private val wrappingAuth0Exception = Auth0Exception("wrapping")
 
     private val optionsCaptor: KArgumentCaptor<RequestOptions> = argumentCaptor()
+    private val scheduledAttempts = mutableListOf<Runnable>()
 
     @Before
     public fun setUp() {
@@ -486,6 +492,274 @@ public class BaseRequestTest {
         verify(baseRequest).switchRequestContext(eq(Dispatchers.IO), any())
     }
 
+    @Test
+    public fun shouldReportEachExecutionToTheTelemetry() {
+        val spans = mutableListOf<String>()
+        val telemetry = object : Auth0Telemetry {
+            override fun increment(name: String) {}
+
+            override fun startSpan(name: String): Auth0Telemetry.Span {
+                val attributes = StringBuilder(name)
+                return object : Auth0Telemetry.Span {
+                    override fun setAttribute(key: String, value: String) {
+                        attributes.append(" $key=$value")
+                    }
+
+                    override fun setAttribute(key: String, value: Long) {
+                        attributes.append(" $key=$value")
+                    }
+
+                    override fun end(error: Throwable?) {
+                        spans.add("$attributes error=${error?.message}")
+                    }
+                }
+            }
+        }
+        val baseRequest = BaseRequest(
+            HttpMethod.POST,
+            BASE_URL,
+            client,
+            resultAdapter,
+            errorAdapter,
+            CommonThreadSwitcher.getInstance(),
+            telemetry
+        )
+
+        mockSuccessfulServerResponse()
+        baseRequest.execute()
+        mockFailedRawServerResponse()
+        Assert.assertThrows(Auth0Exception::class.java) { baseRequest.execute() }
+
+        MatcherAssert.assertThat(
+            spans, Matchers.contains(
+                "auth0.request http.method=POST http.status_code=200 error=null",
+                "auth0.request http.method=POST http.status_code=500 error=read-raw"
+            )
+        )
+    }
+
+    @Test
+    public fun shouldSendAgainTheRequestsRejectedForExceedingTheRateLimit() {
+        val rateLimited = mutableListOf<String>()
+        val telemetry = object : Auth0Telemetry {
+            override fun increment(name: String) {
+                rateLimited.add(name)
+            }
+
+            override fun startSpan(name: String): Auth0Telemetry.Span = Auth0Telemetry.NONE.startSpan(name)
+        }
+        val baseRequest = BaseRequest(
+            HttpMethod.POST,
+            BASE_URL,
+            client,
+            resultAdapter,
+            errorAdapter,
+            CommonThreadSwitcher.getInstance(),
+            telemetry,
+            null,
+            RateLimiter(backoff = ExponentialBackoff(1, 1))
+        )
+        val rejected = AwareInputStream("Too Many Requests") { wasResponseStreamClosed = true }
+        val accepted = ByteArrayInputStream("{\"prop\":\"test-value\"}".toByteArray())
+        Mockito.`when`(client.load(eq(BASE_URL), any())).thenReturn(
+            ServerResponse(429, rejected, emptyMap()),
+            ServerResponse(200, accepted, emptyMap())
+        )
+
+        val result = baseRequest.execute()
+
+        MatcherAssert.assertThat(result.prop, Is.`is`("test-value"))
+        MatcherAssert.assertThat(wasResponseStreamClosed, Is.`is`(true))
+        MatcherAssert.assertThat(rateLimited, Matchers.contains(Auth0Telemetry.RATE_LIMITED))
+        verify(client, times(2)).load(eq(BASE_URL), any())
+    }
+
+    @Test
+    public fun shouldFailWithTooManyRequestsOnceTheRateLimitWaitPasses() {
+        val spans = mutableListOf<String>()
+        val telemetry = object : Auth0Telemetry {
+            override fun increment(name: String) {}
+
+            override fun startSpan(name: String): Auth0Telemetry.Span = object : Auth0Telemetry.Span {
+                override fun setAttribute(key: String, value: String) {}
+                override fun setAttribute(key: String, value: Long) {}
+                override fun end(error: Throwable?) {
+                    spans.add(name)
+                }
+            }
+        }
+        // Every reading of the clock is half a minute later, so the wait runs out right away
+        var now = 1_600_000_000_000L
+        val limiter = RateLimiter({ now += 30_000; now })
+        limiter.onResponse(
+            429, mapOf(
+                "x-ratelimit-limit" to listOf("10"),
+                "x-ratelimit-remaining" to listOf("0"),
+                "x-ratelimit-reset" to listOf((Long.MAX_VALUE / 1000).toString())
+            )
+        )
+        val baseRequest = BaseRequest(
+            HttpMethod.POST,
+            BASE_URL,
+            client,
+            resultAdapter,
+            errorAdapter,
+            CommonThreadSwitcher.getInstance(),
+            telemetry,
+            null,
+            limiter
+        )
+
+        val exception = Assert.assertThrows(Auth0Exception::class.java) { baseRequest.execute() }
+
+        MatcherAssert.assertThat(exception, Is.`is`(readRawAuth0Exception))
+        verify(errorAdapter).fromRawResponse(eq(429), any(), any())
+        verify(client, Mockito.never()).load(any(), any())
+        MatcherAssert.assertThat(spans, Matchers.contains(Auth0Telemetry.RATE_LIMIT_WAIT, Auth0Telemetry.REQUEST))
+    }
+
+    @Test
+    public fun shouldScheduleTheRateLimitedRequestsInsteadOfWaitingOnAThread() {
+        val threadSwitcher = inlineThreadSwitcher()
+        val scheduler = inlineScheduler()
+        var now = 1_600_000_000_000L
+        val limiter = RateLimiter({ now })
+        limiter.onResponse(
+            429, mapOf(
+                "x-ratelimit-limit" to listOf("10"),
+                "x-ratelimit-remaining" to listOf("0"),
+                "x-ratelimit-reset" to listOf((now / 1000 + 2).toString())
+            )
+        )
+        val baseRequest = BaseRequest(
+            HttpMethod.POST,
+            BASE_URL,
+            client,
+            resultAdapter,
+            errorAdapter,
+            threadSwitcher,
+            Auth0Telemetry.NONE,
+            null,
+            limiter,
+            scheduler
+        )
+        mockSuccessfulServerResponse()
+        val callback: Callback<SimplePojo, Auth0Exception> = mock()
+
+        baseRequest.start(callback)
+
+        verify(scheduler).schedule(any<Runnable>(), eq(1_000L), eq(TimeUnit.MILLISECONDS))
+        verify(threadSwitcher, Mockito.never()).backgroundThread(any())
+        verify(client, Mockito.never()).load(any(), any())
+        MatcherAssert.assertThat(limiter.queueDepth, Is.`is`(1))
+
+        now += 2_000
+        scheduledAttempts.last().run()
+
+        verify(threadSwitcher).backgroundThread(any())
+        verify(callback).onSuccess(any())
+        MatcherAssert.assertThat(limiter.queueDepth, Is.`is`(0))
+    }
+
+    @Test
+    public fun shouldScheduleTheRateLimitedRequestsAgainWhenRejectedForExceedingTheRateLimit() {
+        val rateLimited = mutableListOf<String>()
+        val telemetry = object : Auth0Telemetry {
+            override fun increment(name: String) {
+                rateLimited.add(name)
+            }
+
+            override fun startSpan(name: String): Auth0Telemetry.Span = Auth0Telemetry.NONE.startSpan(name)
+        }
+        var now = 1_600_000_000_000L
+        val baseRequest = BaseRequest(
+            HttpMethod.POST,
+            BASE_URL,
+            client,
+            resultAdapter,
+            errorAdapter,
+            inlineThreadSwitcher(),
+            telemetry,
+            null,
+            RateLimiter({ now }, ExponentialBackoff(1, 1)),
+            inlineScheduler()
+        )
+        val rejected = AwareInputStream("Too Many Requests") { wasResponseStreamClosed = true }
+        val accepted = ByteArrayInputStream("{\"prop\":\"test-value\"}".toByteArray())
+        Mockito.`when`(client.load(eq(BASE_URL), any())).thenReturn(
+            ServerResponse(429, rejected, emptyMap()),
+            ServerResponse(200, accepted, emptyMap())
+        )
+        val callback: Callback<SimplePojo, Auth0Exception> = mock()
+
+        baseRequest.start(callback)
+        verify(client).load(eq(BASE_URL), any())
+        MatcherAssert.assertThat(wasResponseStreamClosed, Is.`is`(true))
+        MatcherAssert.assertThat(scheduledAttempts.size, Is.`is`(1))
+
+        now += 1
+        scheduledAttempts.last().run()
+
+        verify(client, times(2)).load(eq(BASE_URL), any())
+        verify(callback).onSuccess(any())
+        MatcherAssert.assertThat(rateLimited, Matchers.contains(Auth0Telemetry.RATE_LIMITED))
+    }
+
+    @Test
+    public fun shouldFailTheScheduledRequestsOnceTheRateLimitWaitPasses() {
+        // Every reading of the clock is half a minute later, so the wait runs out right away
+        var now = 1_600_000_000_000L
+        val limiter = RateLimiter({ now += 30_000; now })
+        limiter.onResponse(
+            429, mapOf(
+                "x-ratelimit-limit" to listOf("10"),
+                "x-ratelimit-remaining" to listOf("0"),
+                "x-ratelimit-reset" to listOf((Long.MAX_VALUE / 1000).toString())
+            )
+        )
+        val baseRequest = BaseRequest(
+            HttpMethod.POST,
+            BASE_URL,
+            client,
+            resultAdapter,
+            errorAdapter,
+            inlineThreadSwitcher(),
+            Auth0Telemetry.NONE,
+            null,
+            limiter,
+            inlineScheduler()
+        )
+        val callback: Callback<SimplePojo, Auth0Exception> = mock()
+
+        baseRequest.start(callback)
+
+        verify(callback).onFailure(readRawAuth0Exception)
+        verify(errorAdapter).fromRawResponse(eq(429), any(), any())
+        verify(client, Mockito.never()).load(any(), any())
+        MatcherAssert.assertThat(scheduledAttempts.size, Is.`is`(0))
+        MatcherAssert.assertThat(limiter.queueDepth, Is.`is`(0))
+    }
+
+    private fun inlineThreadSwitcher(): ThreadSwitcher {
+        val threadSwitcher: ThreadSwitcher = mock()
+        Mockito.doAnswer { (it.arguments[0] as Runnable).run() }.`when`(threadSwitcher).mainThread(any())
+        Mockito.doAnswer { (it.arguments[0] as Runnable).run() }.`when`(threadSwitcher).backgroundThread(any())
+        return threadSwitcher
+    }
+
+    /**
+     * A scheduler that runs the tasks given to execute right away, and keeps the delayed ones in [scheduledAttempts].
+     */
+    private fun inlineScheduler(): ScheduledExecutorService {
+        val scheduler: ScheduledExecutorService = mock()
+        Mockito.doAnswer { (it.arguments[0] as Runnable).run() }.`when`(scheduler).execute(any())
+        Mockito.doAnswer {
+            scheduledAttempts.add(it.arguments[0] as Runnable)
+            mock<ScheduledFuture<*>>()
+        }.`when`(scheduler).schedule(any<Runnable>(), any(), any())
+        return scheduler
+    }
+
     @Throws(Exception::class)
     private fun mockSuccessfulServerResponse() {
         val headers = Collections.singletonMap("Content-Type", listOf("application/json"))
@@ -0,0 +1,145 @@
+package com.auth0.android.request.internal
+
+import com.auth0.android.authentication.storage.SharedPreferencesStorage
+import com.auth0.android.authentication.storage.Storage
+import okhttp3.Dns
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.*
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+import java.net.InetAddress
+import java.net.UnknownHostException
+
+@RunWith(RobolectricTestRunner::class)
+public class CachingDnsTest {
+
+    private lateinit var storage: Storage
+    private lateinit var resolver: FakeDns
+    private val pendingTasks = mutableListOf<Runnable>()
+    private val threadSwitcher = object : ThreadSwitcher {
+        override fun mainThread(runnable: Runnable) = runnable.run()
+        override fun backgroundThread(runnable: Runnable) {
+            pendingTasks.add(runnable)
+        }
+    }
+    private var now = 1_000_000L
+
+    @Before
+    public fun setUp() {
+        storage = SharedPreferencesStorage(RuntimeEnvironment.getApplication(), "dns-test")
+        resolver = FakeDns()
+    }
+
+    @Test
+    public fun shouldServeTheCachedAddressesUntilTheyExpire() {
+        val dns = cachingDns()
+        resolver.result = listOf(address(FIRST_IP))
+
+        assertThat(dns.lookup(HOST), contains(address(FIRST_IP)))
+        resolver.result = listOf(address(SECOND_IP))
+        now += TTL - 1
+
+        assertThat(dns.lookup(HOST), contains(address(FIRST_IP)))
+        assertThat(resolver.lookups, `is`(1))
+        assertThat(pendingTasks, empty())
+    }
+
+    @Test
+    public fun shouldServeTheExpiredAddressesWhileTheyAreResolvedAgain() {
+        val dns = cachingDns()
+        resolver.result = listOf(address(FIRST_IP))
+        dns.lookup(HOST)
+        resolver.result = listOf(address(SECOND_IP))
+        now += TTL
+
+        assertThat(dns.lookup(HOST), contains(address(FIRST_IP)))
+        assertThat(dns.lookup(HOST), contains(address(FIRST_IP)))
+        assertThat(resolver.lookups, `is`(1))
+        assertThat(pendingTasks, hasSize(1))
+
+        pendingTasks.removeAt(0).run()
+        assertThat(resolver.lookups, `is`(2))
+        assertThat(dns.lookup(HOST), contains(address(SECOND_IP)))
+    }
+
+    @Test
+    public fun shouldResolveOnTheCallingThreadWhenTheAddressesAreTooOld() {
+        val dns = cachingDns()
+        resolver.result = listOf(address(FIRST_IP))
+        dns.lookup(HOST)
+        resolver.result = listOf(address(SECOND_IP))
+        now += TTL + MAX_STALE
+
+        assertThat(dns.lookup(HOST), contains(address(SECOND_IP)))
+        assertThat(resolver.lookups, `is`(2))
+        assertThat(pendingTasks, empty())
+    }
+
+    @Test
+    public fun shouldServeThePersistedAddressesAfterARestart() {
+        resolver.result = listOf(address(FIRST_IP), address(IPV6))
+        cachingDns().lookup(HOST)
+        resolver.result = listOf(address(SECOND_IP))
+
+        val addresses = cachingDns().lookup(HOST)
+
+        assertThat(addresses, contains(address(FIRST_IP), address(IPV6)))
+        assertThat(addresses[0].hostName, `is`(HOST))
+        assertThat(resolver.lookups, `is`(1))
+    }
+
+    @Test
+    public fun shouldServeTheLastKnownAddressesWhenTheLookupFails() {
+        resolver.result = listOf(address(FIRST_IP))
+        cachingDns().lookup(HOST)
+        now += TTL + MAX_STALE
+        resolver.result = null
+
+        assertThat(cachingDns().lookup(HOST), contains(address(FIRST_IP)))
+    }
+
+    @Test
+    public fun shouldFailWhenTheLookupFailsWithoutPreviousAddresses() {
+        resolver.result = null
+        Assert.assertThrows(UnknownHostException::class.java) {
+            cachingDns().lookup(HOST)
+        }
+    }
+
+    @Test
+    public fun shouldIgnoreUnreadablePersistedAddresses() {
+        storage.store("com.auth0.dns.$HOST", "$now|not-an-ip")
+        resolver.result = listOf(address(FIRST_IP))
+
+        assertThat(cachingDns().lookup(HOST), contains(address(FIRST_IP)))
+        assertThat(resolver.lookups, `is`(1))
+    }
+
+    private fun cachingDns() = CachingDns(storage, TTL, MAX_STALE, resolver, threadSwitcher) { now }
+
+    private fun address(ip: String): InetAddress =
+        InetAddress.getByAddress(HOST, InetAddress.getByName(ip).address)
+
+    private class FakeDns : Dns {
+        var result: List<InetAddress>? = null
+        var lookups = 0
+
+        override fun lookup(hostname: String): List<InetAddress> {
+            lookups++
+            return result ?: throw UnknownHostException(hostname)
+        }
+    }
+
+    private companion object {
+        private const val HOST = "tenant.auth0.com"
+        private const val FIRST_IP = "10.0.0.1"
+        private const val SECOND_IP = "10.0.0.2"
+        private const val IPV6 = "2001:db8::1"
+        private const val TTL = 60_000L
+        private const val MAX_STALE = 600_000L
+    }
+}
@@ -0,0 +1,36 @@
+package com.auth0.android.request.internal
+
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.`is`
+import org.junit.Test
+import java.util.concurrent.ScheduledThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+
+public class DaemonSchedulerTest {
+
+    @Test
+    public fun shouldRunTheTasksOnADaemonThread() {
+        val scheduler = newDaemonScheduler("Auth0-Test")
+        try {
+            val thread = scheduler.schedule<Thread>({ Thread.currentThread() }, 0, TimeUnit.MILLISECONDS)
+                .get(5, TimeUnit.SECONDS)
+            assertThat(thread.isDaemon, `is`(true))
+            assertThat(thread.name, `is`("Auth0-Test"))
+        } finally {
+            scheduler.shutdownNow()
+        }
+    }
+
+    @Test
+    public fun shouldStopTheThreadWhenIdle() {
+        val scheduler = newDaemonScheduler("Auth0-Test") as ScheduledThreadPoolExecutor
+        try {
+            assertThat(scheduler.allowsCoreThreadTimeOut(), `is`(true))
+            assertThat(scheduler.removeOnCancelPolicy, `is`(true))
+            scheduler.schedule({}, 1, TimeUnit.HOURS).cancel(false)
+            assertThat(scheduler.queue.isEmpty(), `is`(true))
+        } finally {
+            scheduler.shutdownNow()
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.auth0.android.request.internal
+
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.`is`
+import org.hamcrest.Matchers.allOf
+import org.hamcrest.Matchers.greaterThanOrEqualTo
+import org.hamcrest.Matchers.lessThanOrEqualTo
+import org.junit.Assert.assertThrows
+import org.junit.Test
+import java.util.*
+
+public class ExponentialBackoffTest {
+
+    @Test
+    public fun shouldDoubleTheDelayUpToTheMaximum() {
+        val backoff = ExponentialBackoff(1000, 5000, FixedRandom(1.0))
+        assertThat(backoff.nextDelayMillis(), `is`(1000L))
+        assertThat(backoff.nextDelayMillis(), `is`(2000L))
+        assertThat(backoff.nextDelayMillis(), `is`(4000L))
+        assertThat(backoff.nextDelayMillis(), `is`(5000L))
+        assertThat(backoff.nextDelayMillis(), `is`(5000L))
+        assertThat(backoff.attempts, `is`(5))
+    }
+
+    @Test
+    public fun shouldRandomizeHalfOfTheDelay() {
+        assertThat(ExponentialBackoff(1000, 5000, FixedRandom(0.0)).nextDelayMillis(), `is`(500L))
+        val backoff = ExponentialBackoff(1000, 60000)
+        repeat(10) {
+            val cap = (1000L shl it).coerceAtMost(60000)
+            assertThat(
+                backoff.nextDelayMillis(),
+                allOf(greaterThanOrEqualTo(cap / 2), lessThanOrEqualTo(cap))
+            )
+        }
+    }
+
+    @Test
+    public fun shouldStartOverAfterReset() {
+        val backoff = ExponentialBackoff(1000, 5000, FixedRandom(1.0))
+        backoff.nextDelayMillis()
+        backoff.nextDelayMillis()
+        backoff.reset()
+        assertThat(backoff.attempts, `is`(0))
+        assertThat(backoff.nextDelayMillis(), `is`(1000L))
+    }
+
+    @Test
+    public fun shouldNotOverflowAfterManyAttempts() {
+        val backoff = ExponentialBackoff(1000, 5000, FixedRandom(1.0))
+        repeat(100) { backoff.nextDelayMillis() }
+        assertThat(backoff.nextDelayMillis(), `is`(5000L))
+    }
+
+    @Test
+    public fun shouldRejectInvalidDelays() {
+        assertThrows(IllegalArgumentException::class.java) { ExponentialBackoff(0, 5000) }
+        assertThrows(IllegalArgumentException::class.java) { ExponentialBackoff(5000, 1000) }
+    }
+
+    private class FixedRandom(private val value: Double) : Random() {
+        override fun nextDouble(): Double = value
+    }
+}
@@ -0,0 +1,137 @@
+package com.auth0.android.request.internal
+
+import com.auth0.android.request.HttpMethod
+import com.auth0.android.request.NetworkingClient
+import com.auth0.android.request.RequestOptions
+import com.auth0.android.request.ServerResponse
+import com.jayway.awaitility.Awaitility.await
+import com.nhaarman.mockitokotlin2.mock
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.*
+import org.junit.After
+import org.junit.Assert
+import org.junit.Test
+import java.io.IOException
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+public class InFlightRequestsTest {
+
+    private val inFlightRequests = InFlightRequests()
+    private val client: NetworkingClient = mock()
+    private val executor = Executors.newFixedThreadPool(CALLERS)
+
+    @After
+    public fun tearDown() {
+        executor.shutdownNow()
+    }
+
+    @Test
+    public fun shouldCollapseIdenticalRequestsRunningAtTheSameTime() {
+        val loads = AtomicInteger()
+        val results = (1..CALLERS).map {
+            load(options("Bearer token")) {
+                loads.incrementAndGet()
+                awaitTheOtherCallers()
+                response(BODY)
+            }
+        }
+
+        val bodies = results.map { it.get(5, TimeUnit.SECONDS).body.reader().readText() }
+        assertThat(loads.get(), `is`(1))
+        assertThat(bodies, everyItem(equalTo(BODY)))
+        assertThat(inFlightRequests.isEmpty(), `is`(true))
+    }
+
+    @Test
+    public fun shouldNotCollapseRequestsWithDifferentHeaders() {
+        val loads = AtomicInteger()
+        val loading = CountDownLatch(1)
+        val release = CountDownLatch(1)
+        val first = load(options("Bearer first")) {
+            loads.incrementAndGet()
+            loading.countDown()
+            release.await()
+            response(BODY)
+        }
+        assertThat(loading.await(5, TimeUnit.SECONDS), `is`(true))
+        val second = load(options("Bearer second")) {
+            loads.incrementAndGet()
+            response(BODY)
+        }
+
+        second.get(5, TimeUnit.SECONDS)
+        release.countDown()
+        first.get(5, TimeUnit.SECONDS)
+        assertThat(loads.get(), `is`(2))
+    }
+
+    @Test
+    public fun shouldLoadAgainOnceTheRequestCompleted() {
+        val loads = AtomicInteger()
+        repeat(2) {
+            inFlightRequests.load(client, URL, options("Bearer token")) {
+                loads.incrementAndGet()
+                response(BODY)
+            }
+        }
+        assertThat(loads.get(), `is`(2))
+    }
+
+    @Test
+    public fun shouldReturnTheLoadedResponseWhenNoOtherCallerWaited() {
+        val response = response(BODY)
+        val result = inFlightRequests.load(client, URL, options("Bearer token")) { response }
+
+        assertThat(result, `is`(sameInstance(response)))
+        assertThat(inFlightRequests.isEmpty(), `is`(true))
+    }
+
+    @Test
+    public fun shouldFailEveryCallerWithTheLoadingError() {
+        val loads = AtomicInteger()
+        val results = (1..CALLERS).map {
+            load(options("Bearer token")) {
+                loads.incrementAndGet()
+                awaitTheOtherCallers()
+                throw IOException("Network error")
+            }
+        }
+
+        results.forEach { result ->
+            val e = Assert.assertThrows(Exception::class.java) { result.get(5, TimeUnit.SECONDS) }
+            assertThat(e.cause, `is`(instanceOf(IOException::class.java)))
+        }
+        assertThat(loads.get(), `is`(1))
+        assertThat(inFlightRequests.isEmpty(), `is`(true))
+    }
+
+    private fun load(options: RequestOptions, loader: () -> ServerResponse): Future<ServerResponse> =
+        executor.submit<ServerResponse> { inFlightRequests.load(client, URL, options, loader) }
+
+    /**
+     * Keeps the request loading until every other caller is waiting for it.
+     */
+    private fun awaitTheOtherCallers() {
+        await().atMost(5, TimeUnit.SECONDS)
+            .until(Callable { inFlightRequests.waitingCallers() }, `is`(CALLERS - 1))
+    }
+
+    private fun options(authorization: String): RequestOptions {
+        val options = RequestOptions(HttpMethod.GET)
+        options.headers["Authorization"] = authorization
+        return options
+    }
+
+    private fun response(body: String) = ServerResponse(200, body.byteInputStream(), emptyMap())
+
+    private companion object {
+        private const val CALLERS = 4
+        private const val URL = "https://tenant.auth0.com/userinfo"
+        private const val BODY = """{"sub":"auth0|123"}"""
+    }
+}
@@ -1,5 +1,6 @@
 package com.auth0.android.request.internal
 
+import android.util.Base64
 import com.google.gson.JsonParseException
 import com.google.gson.reflect.TypeToken
 import org.hamcrest.MatcherAssert
@@ -13,8 +14,13 @@ import java.io.IOException
 import java.io.Reader
 import java.io.StringReader
 import java.math.BigInteger
+import java.nio.file.Files
+import java.nio.file.Paths
+import java.security.KeyPairGenerator
 import java.security.PublicKey
+import java.security.interfaces.ECPublicKey
 import java.security.interfaces.RSAPublicKey
+import java.security.spec.ECGenParameterSpec
 
 @RunWith(RobolectricTestRunner::class)
 public class JwksGsonTest : GsonBaseTest() {
@@ -98,6 +104,68 @@ public class JwksGsonTest : GsonBaseTest() {
         Assert.assertTrue(jwks.isEmpty())
     }
 
+    @Test
+    @Throws(Exception::class)
+    public fun shouldReturnRSAKeysForPS256() {
+        val json = String(Files.readAllBytes(Paths.get(VALID_RSA_JWKS))).replace("RS256", "PS256")
+        val jwks = buildJwksFrom(StringReader(json))
+        MatcherAssert.assertThat(jwks[EXPECTED_KEY_ID], Matchers.instanceOf(RSAPublicKey::class.java))
+        val rsaPub = jwks[EXPECTED_KEY_ID] as RSAPublicKey
+        MatcherAssert.assertThat(rsaPub.modulus, Matchers.`is`(BigInteger(EXPECTED_RSA_MODULUS)))
+    }
+
+    @Test
+    @Throws(Exception::class)
+    public fun shouldKeepTheAlgorithmDeclaredForEachSigningKey() {
+        val rs256 = buildSigningKeysFrom(json(VALID_RSA_JWKS))
+        MatcherAssert.assertThat(rs256[EXPECTED_KEY_ID]?.algorithm, Matchers.`is`("RS256"))
+        MatcherAssert.assertThat(rs256[EXPECTED_KEY_ID]?.publicKey, Matchers.instanceOf(RSAPublicKey::class.java))
+
+        val json = String(Files.readAllBytes(Paths.get(VALID_RSA_JWKS))).replace("RS256", "PS256")
+        val ps256 = buildSigningKeysFrom(StringReader(json))
+        MatcherAssert.assertThat(ps256[EXPECTED_KEY_ID]?.algorithm, Matchers.`is`("PS256"))
+    }
+
+    @Test
+    @Throws(Exception::class)
+    public fun shouldReturnECKeysForES256() {
+        val generator = KeyPairGenerator.getInstance("EC")
+        generator.initialize(ECGenParameterSpec("secp256r1"))
+        val expected = generator.generateKeyPair().public as ECPublicKey
+        val jwks = buildJwksFrom(StringReader(ecJwks(expected, "P-256")))
+        MatcherAssert.assertThat(jwks.size, Matchers.`is`(1))
+        val ecPub = jwks[EXPECTED_KEY_ID]
+        MatcherAssert.assertThat(ecPub, Matchers.instanceOf(ECPublicKey::class.java))
+        MatcherAssert.assertThat((ecPub as ECPublicKey).w, Matchers.`is`(expected.w))
+        MatcherAssert.assertThat(ecPub.params.order, Matchers.`is`(expected.params.order))
+        MatcherAssert.assertThat(ecPub.params.generator, Matchers.`is`(expected.params.generator))
+    }
+
+    @Test
+    @Throws(Exception::class)
+    public fun shouldReturnEmptyWhenECKeysAreOnAnotherCurve() {
+        val generator = KeyPairGenerator.getInstance("EC")
+        generator.initialize(ECGenParameterSpec("secp256r1"))
+        val key = generator.generateKeyPair().public as ECPublicKey
+        val jwks = buildJwksFrom(StringReader(ecJwks(key, "P-384")))
+        Assert.assertTrue(jwks.isEmpty())
+    }
+
+    private fun ecJwks(key: ECPublicKey, curve: String): String {
+        val x = encodeCoordinate(key.w.affineX)
+        val y = encodeCoordinate(key.w.affineY)
+        return "{\"keys\": [{\"alg\": \"ES256\", \"use\": \"sig\", \"kty\": \"EC\", \"kid\": \"$EXPECTED_KEY_ID\", " +
+                "\"crv\": \"$curve\", \"x\": \"$x\", \"y\": \"$y\"}]}"
+    }
+
+    private fun encodeCoordinate(value: BigInteger): String {
+        val bytes = value.toByteArray()
+        val unsigned = ByteArray(32)
+        val length = minOf(bytes.size, 32)
+        System.arraycopy(bytes, bytes.size - length, unsigned, 32 - length, length)
+        return Base64.encodeToString(unsigned, Base64.URL_SAFE or Base64.NO_PADDING or Base64.NO_WRAP)
+    }
+
     @Throws(IOException::class)
     private fun buildJwksFrom(json: Reader): Map<String, PublicKey> {
         @Suppress("UNCHECKED_CAST") val jwksType: TypeToken<Map<String, PublicKey>> =
@@ -109,6 +177,17 @@ public class JwksGsonTest : GsonBaseTest() {
         return pojoFrom(json, jwksType)
     }
 
+    @Throws(IOException::class)
+    private fun buildSigningKeysFrom(json: Reader): Map<String, JsonWebKey> {
+        @Suppress("UNCHECKED_CAST") val signingKeysType: TypeToken<Map<String, JsonWebKey>> =
+            TypeToken.getParameterized(
+                Map::class.java,
+                String::class.java,
+                JsonWebKey::class.java
+            ) as TypeToken<Map<String, JsonWebKey>>
+        return pojoFrom(json, signingKeysType)
+    }
+
     private companion object {
         private const val VALID_RSA_JWKS = "src/test/resources/rsa_jwks.json"
         private const val EXPECTED_KEY_ID = "key123"
@@ -0,0 +1,134 @@
+package com.auth0.android.request.internal
+
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.`is`
+import org.junit.Test
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+public class RateLimiterTest {
+
+    @Volatile
+    private var now = 1_600_000_000_000L
+    private val limiter = RateLimiter({ now })
+
+    @Test
+    public fun shouldNotThrottleUntilTheLimitsAreReported() {
+        repeat(100) {
+            assertThat(limiter.tryAcquire(), `is`(true))
+        }
+        limiter.onResponse(200, emptyMap())
+        assertThat(limiter.tryAcquire(), `is`(true))
+    }
+
+    @Test
+    public fun shouldOnlyTakeTheRemainingTokensReportedByTheServer() {
+        limiter.onResponse(200, limits(limit = 10, remaining = 2, resetInSeconds = 8))
+
+        assertThat(limiter.tryAcquire(), `is`(true))
+        assertThat(limiter.tryAcquire(), `is`(true))
+        assertThat(limiter.tryAcquire(), `is`(false))
+    }
+
+    @Test
+    public fun shouldRefillAtTheRateReportedByTheServer() {
+        limiter.onResponse(200, limits(limit = 10, remaining = 0, resetInSeconds = 10))
+        assertThat(limiter.tryAcquire(), `is`(false))
+
+        now += 500
+        assertThat(limiter.tryAcquire(), `is`(false))
+        now += 600
+        assertThat(limiter.tryAcquire(), `is`(true))
+        assertThat(limiter.tryAcquire(), `is`(false))
+    }
+
+    @Test
+    public fun shouldWaitUntilTheResetAfterTooManyRequests() {
+        limiter.onResponse(429, limits(limit = 10, remaining = 0, resetInSeconds = 10))
+
+        now += 5_000
+        assertThat(limiter.tryAcquire(), `is`(false))
+        now += 5_000
+        assertThat(limiter.tryAcquire(), `is`(true))
+    }
+
+    @Test
+    public fun shouldQueueTheRequestsAndMeasureTheirWait() {
+        limiter.onResponse(200, limits(limit = 10, remaining = 0, resetInSeconds = 10))
+        val executor = Executors.newSingleThreadExecutor()
+        try {
+            val waiting = executor.submit<Boolean> { limiter.acquire(TIMEOUT_MILLIS) }
+            while (limiter.queueDepth == 0) {
+                Thread.sleep(10)
+            }
+            assertThat(waiting.isDone, `is`(false))
+
+            now += 2_000
+            limiter.onResponse(200, emptyMap())
+            assertThat(waiting.get(5, TimeUnit.SECONDS), `is`(true))
+
+            assertThat(limiter.queueDepth, `is`(0))
+            assertThat(limiter.throttledMillis, `is`(2_000L))
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
+    @Test
+    public fun shouldGiveUpWaitingOnceTheTimeoutPasses() {
+        limiter.onResponse(429, limits(limit = 10, remaining = 0, resetInSeconds = 3_600))
+        val executor = Executors.newSingleThreadExecutor()
+        try {
+            val waiting = executor.submit<Boolean> { limiter.acquire(TIMEOUT_MILLIS) }
+            while (limiter.queueDepth == 0) {
+                Thread.sleep(10)
+            }
+
+            now += TIMEOUT_MILLIS
+            limiter.onResponse(200, emptyMap())
+
+            assertThat(waiting.get(5, TimeUnit.SECONDS), `is`(false))
+            assertThat(limiter.queueDepth, `is`(0))
+            assertThat(limiter.throttledMillis, `is`(TIMEOUT_MILLIS))
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
+    @Test
+    public fun shouldTellHowLongToWaitWithoutBlocking() {
+        limiter.onResponse(429, limits(limit = 10, remaining = 0, resetInSeconds = 10))
+        val wait = limiter.beginWait()
+        assertThat(limiter.queueDepth, `is`(1))
+        assertThat(limiter.tryAcquire(), `is`(false))
+        assertThat(wait.tryAcquire(), `is`(1_000L))
+
+        now += 10_000
+        assertThat(wait.tryAcquire(), `is`(0L))
+        assertThat(limiter.queueDepth, `is`(0))
+        assertThat(limiter.throttledMillis, `is`(10_000L))
+    }
+
+    @Test
+    public fun shouldStopQueueingACancelledWait() {
+        limiter.onResponse(429, limits(limit = 10, remaining = 0, resetInSeconds = 3_600))
+        val wait = limiter.beginWait()
+
+        now += TIMEOUT_MILLIS
+        wait.cancel()
+        assertThat(limiter.queueDepth, `is`(0))
+        assertThat(limiter.throttledMillis, `is`(TIMEOUT_MILLIS))
+        assertThat(wait.waitedMillis, `is`(TIMEOUT_MILLIS))
+    }
+
+    private fun limits(limit: Long, remaining: Long, resetInSeconds: Long): Map<String, List<String>> =
+        mapOf(
+            "x-ratelimit-limit" to listOf(limit.toString()),
+            "x-ratelimit-remaining" to listOf(remaining.toString()),
+            "x-ratelimit-reset" to listOf((TimeUnit.MILLISECONDS.toSeconds(now) + resetInSeconds).toString())
+        )
+
+    private companion object {
+        private const val TIMEOUT_MILLIS = 5_000L
+    }
+}
@@ -0,0 +1,93 @@
+package com.auth0.android.request.internal
+
+import okhttp3.MediaType.Companion.toMediaType
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import okhttp3.RequestBody.Companion.toRequestBody
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.*
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+
+@RunWith(RobolectricTestRunner::class)
+public class RedactingLoggingInterceptorTest {
+
+    private lateinit var server: MockWebServer
+    private val lines = mutableListOf<String>()
+
+    @Before
+    public fun setUp() {
+        server = MockWebServer()
+        server.start()
+    }
+
+    @After
+    public fun tearDown() {
+        server.shutdown()
+    }
+
+    @Test
+    public fun shouldLogTheRequestAndResponseWithoutSensitiveValuesOrBodies() {
+        server.enqueue(
+            MockResponse()
+                .setBody("""{"access_token":"secret-at"}""")
+                .setHeader("Set-Cookie", "session=secret-cookie")
+        )
+        val request = Request.Builder()
+            .url(server.url("/oauth/token?code=secret-code&state=abc"))
+            .header("Authorization", "Bearer secret-header")
+            .post("""{"password":"secret-password"}""".toRequestBody(JSON))
+            .build()
+
+        val body = client(1.0) { 0.0 }.newCall(request).execute().use { it.body!!.string() }
+
+        assertThat(body, containsString("secret-at"))
+        val log = lines.joinToString("\n")
+        assertThat(log, not(containsString("secret")))
+        assertThat(log, containsString("--> POST /oauth/token?code=██&state=abc (30-byte body)"))
+        assertThat(log, containsString("Authorization: ██"))
+        assertThat(log, containsString("Set-Cookie: ██"))
+        assertThat(log, containsString("<-- 200 POST /oauth/token?code=██&state=abc"))
+        assertThat(log, containsString("<-- END POST /oauth/token?code=██&state=abc (28-byte body read"))
+    }
+
+    @Test
+    public fun shouldReportTheBytesReadWhenTheBodyIsClosedEarly() {
+        server.enqueue(MockResponse().setBody("0123456789"))
+        val request = Request.Builder().url(server.url("/userinfo")).build()
+
+        val response = client(1.0) { 0.0 }.newCall(request).execute()
+        assertThat(lines.last(), not(startsWith("<-- END")))
+        response.body!!.source().readByte()
+        response.close()
+
+        assertThat(lines.last(), startsWith("<-- END GET /userinfo ("))
+        assertThat(lines.filter { it.startsWith("<-- END") }, hasSize(1))
+    }
+
+    @Test
+    public fun shouldOnlyLogTheSampledRequests() {
+        server.enqueue(MockResponse())
+        server.enqueue(MockResponse())
+        val request = Request.Builder().url(server.url("/userinfo")).build()
+
+        client(0.25) { 0.25 }.newCall(request).execute().close()
+        assertThat(lines, empty())
+        client(0.25) { 0.2 }.newCall(request).execute().close()
+        assertThat(lines.first(), equalTo("--> GET /userinfo (no body)"))
+    }
+
+    private fun client(sampleRate: Double, random: () -> Double): OkHttpClient =
+        OkHttpClient.Builder()
+            .addInterceptor(RedactingLoggingInterceptor({ lines.add(it) }, sampleRate, random))
+            .build()
+
+    private companion object {
+        private val JSON = "application/json".toMediaType()
+    }
+}
@@ -0,0 +1,123 @@
+package com.auth0.android.request.internal
+
+import com.auth0.android.request.DefaultClient
+import com.auth0.android.request.HttpMethod
+import com.auth0.android.request.RequestOptions
+import com.auth0.android.util.SSLTestUtils
+import com.jayway.awaitility.Awaitility.await
+import okhttp3.Request
+import okhttp3.TlsVersion
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.*
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import java.util.concurrent.Callable
+import java.util.concurrent.CopyOnWriteArrayList
+import javax.net.ssl.SSLContext
+import javax.net.ssl.SSLSession
+
+@RunWith(RobolectricTestRunner::class)
+public class SharedTlsTest {
+
+    private lateinit var server: MockWebServer
+    private val serverSessions = CopyOnWriteArrayList<SSLSession>()
+
+    @Before
+    public fun setUp() {
+        server = SSLTestUtils.createMockWebServer { serverSessions.add(it.session) }
+        server.start()
+    }
+
+    @After
+    public fun tearDown() {
+        server.shutdown()
+    }
+
+    @Test
+    public fun shouldHandshakeOnceAcrossClientsSharingTheTlsSessions() {
+        val sharedTls = testSharedTls()
+
+        repeat(REFRESHES) {
+            refresh(client(sharedTls))
+        }
+
+        assertHandshakes(1)
+    }
+
+    @Test
+    public fun shouldHandshakeOnEveryClientWithoutSharingTheTlsSessions() {
+        repeat(REFRESHES) {
+            refresh(
+                DefaultClient(
+                    10, 10, mapOf(), false,
+                    SSLTestUtils.clientCertificates.sslSocketFactory(),
+                    SSLTestUtils.clientCertificates.trustManager
+                )
+            )
+        }
+
+        assertHandshakes(REFRESHES)
+    }
+
+    @Test
+    public fun shouldCacheTheSessionToResumeItOnNewConnections() {
+        val sslContext = SSLTestUtils.clientCertificates.sslContext()
+        val sharedTls = SharedTls(sslContext, SSLTestUtils.clientCertificates.trustManager)
+        server.enqueue(MockResponse())
+        server.enqueue(MockResponse())
+        val client = client(sharedTls)
+
+        val request = Request.Builder().url(server.url("/")).build()
+        val handshake = client.okHttpClient.newCall(request).execute().use { it.handshake }
+        sharedTls.connectionPool.evictAll()
+        // A session created by a new full handshake would then start at a later time
+        Thread.sleep(10)
+        client.okHttpClient.newCall(request).execute().close()
+
+        val expectedVersion = if (supportsTls13()) TlsVersion.TLS_1_3 else TlsVersion.TLS_1_2
+        assertThat(handshake!!.tlsVersion, `is`(expectedVersion))
+        assertThat(sslContext.clientSessionContext.ids.hasMoreElements(), `is`(true))
+        assertHandshakes(2)
+        // A resumed session keeps the creation time of the session it resumes. Its id can change
+        // when it's resumed from a session ticket, as TLS v1.3 always does
+        val (first, resumed) = serverSessions
+        assertThat(resumed.creationTime, `is`(first.creationTime))
+    }
+
+    private fun testSharedTls(): SharedTls = SharedTls(
+        SSLTestUtils.clientCertificates.sslContext(),
+        SSLTestUtils.clientCertificates.trustManager
+    )
+
+    private fun client(sharedTls: SharedTls): DefaultClient =
+        DefaultClient(10, 10, mapOf(), false, null, null, sharedTls = sharedTls)
+
+    private fun refresh(client: DefaultClient) {
+        server.enqueue(MockResponse().setBody("""{"access_token":"at"}"""))
+        val options = RequestOptions(HttpMethod.POST)
+        options.parameters["grant_type"] = "refresh_token"
+        val response = client.load(server.url("/oauth/token").toString(), options)
+        response.body.use { it.readBytes() }
+        assertThat(response.statusCode, `is`(200))
+    }
+
+    /**
+     * Waits for the server to complete the expected number of TLS handshakes, either full or resumed.
+     * The server notifies them on a thread of its own.
+     */
+    private fun assertHandshakes(expected: Int) {
+        await().until(Callable { serverSessions.size }, `is`(expected))
+    }
+
+    private fun supportsTls13(): Boolean =
+        SSLContext.getDefault().supportedSSLParameters.protocols.contains("TLSv1.3")
+
+    private companion object {
+        private const val REFRESHES = 5
+    }
+}
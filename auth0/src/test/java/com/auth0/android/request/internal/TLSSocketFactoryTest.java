@@ -25,9 +25,10 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-public class TLS12SocketFactoryTest {
+public class TLSSocketFactoryTest {
 
     private static final String TLS_1_2 = "TLSv1.2";
+    private static final String TLS_1_3 = "TLSv1.3";
     private static final String MOCK_HOST = "www.example.com";
     private static final int MOCK_PORT = 8080;
     private static final int MOCK_LOCAL_PORT = 8081;
@@ -35,12 +36,12 @@ public class TLS12SocketFactoryTest {
 
     @Mock SSLSocket socket;
     @Mock SSLSocketFactory delegate;
-    TLS12SocketFactory factory;
+    TLSSocketFactory factory;
 
     @Before
     public void setUp() {
         MockitoAnnotations.openMocks(this);
-        factory = new TLS12SocketFactory(delegate);
+        factory = new TLSSocketFactory(delegate);
     }
 
     @Test
@@ -129,6 +130,27 @@ public class TLS12SocketFactoryTest {
         verifyPatched(result);
     }
 
+    @Test
+    public void shouldEnableTLS13WhenSupported() throws IOException {
+        when(delegate.createSocket(anyString(), anyInt()))
+                .thenReturn(socket);
+        when(socket.getSupportedProtocols()).thenReturn(new String[]{"TLSv1", "TLSv1.1", TLS_1_2, TLS_1_3});
+
+        factory.createSocket(MOCK_HOST, MOCK_PORT);
+
+        verify(socket).setEnabledProtocols(new String[]{TLS_1_3, TLS_1_2});
+    }
+
+    @Test
+    public void shouldOnlyEnableTLS12WhenTLS13IsNotSupported() throws IOException {
+        when(delegate.createSocket(anyString(), anyInt()))
+                .thenReturn(socket);
+        when(socket.getSupportedProtocols()).thenReturn(new String[]{"TLSv1", "TLSv1.1", TLS_1_2});
+
+        factory.createSocket(MOCK_HOST, MOCK_PORT);
+
+        verify(socket).setEnabledProtocols(new String[]{TLS_1_2});
+    }
 
     private static void verifyPatched(Socket socket) {
         ArgumentCaptor<String[]> captor = ArgumentCaptor.forClass(String[].class);
@@ -5,6 +5,10 @@ import okhttp3.mockwebserver.MockWebServer
 import okhttp3.tls.HandshakeCertificates
 import okhttp3.tls.HeldCertificate
 import java.net.InetAddress
+import java.net.Socket
+import javax.net.ssl.HandshakeCompletedListener
+import javax.net.ssl.SSLSocket
+import javax.net.ssl.SSLSocketFactory
 
 /**
  * Utility object for executing tests that use the networking client over HTTPS on localhost.
@@ -45,4 +49,43 @@ internal object SSLTestUtils {
         mockServer.useHttps(serverCertificates.sslSocketFactory(), false)
         return mockServer
     }
+
+    /**
+     * Creates a server that notifies the given listener of every TLS handshake it completes, either full or resumed.
+     */
+    fun createMockWebServer(handshakeListener: HandshakeCompletedListener): MockWebServer {
+        val mockServer = MockWebServer()
+        mockServer.useHttps(
+            ListeningSSLSocketFactory(serverCertificates.sslSocketFactory(), handshakeListener),
+            false
+        )
+        return mockServer
+    }
+
+    private class ListeningSSLSocketFactory(
+        private val delegate: SSLSocketFactory,
+        private val listener: HandshakeCompletedListener
+    ) : SSLSocketFactory() {
+        override fun getDefaultCipherSuites(): Array<String> = delegate.defaultCipherSuites
+        override fun getSupportedCipherSuites(): Array<String> = delegate.supportedCipherSuites
+        override fun createSocket(s: Socket, host: String, port: Int, autoClose: Boolean): Socket =
+            listen(delegate.createSocket(s, host, port, autoClose))
+
+        override fun createSocket(host: String, port: Int): Socket =
+            listen(delegate.createSocket(host, port))
+
+        override fun createSocket(host: String, port: Int, localHost: InetAddress, localPort: Int): Socket =
+            listen(delegate.createSocket(host, port, localHost, localPort))
+
+        override fun createSocket(host: InetAddress, port: Int): Socket =
+            listen(delegate.createSocket(host, port))
+
+        override fun createSocket(address: InetAddress, port: Int, localAddress: InetAddress, localPort: Int): Socket =
+            listen(delegate.createSocket(address, port, localAddress, localPort))
+
+        private fun listen(socket: Socket): Socket {
+            (socket as SSLSocket).addHandshakeCompletedListener(listener)
+            return socket
+        }
+    }
 }
\ No newline at end of file